@@ -26,25 +26,24 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.data.RFunction;
-import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
+/**
+ * <code>astx.async(f, input)</code>: it runs <code>f(input)</code> in the worker pool of
+ * {@link RThreadManager} and returns the handle of the task. The value is retrieved with
+ * <code>astx.sync</code>.
+ */
 public abstract class RAsyncFunction extends RExternalBuiltinNode.Arg2 {
 
     @Specialization
-    public int createThreadAndRun(RFunction function, RAbstractIntVector input) {
+    public int createThreadAndRun(RFunction function, RAbstractVector input) {
 
-        int nArgs = ASTxUtils.getNumberOfArguments(function);
-        String[] argsName = ASTxUtils.getArgumentsNames(function);
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, null, argsName, 0);
+        Object[] argsPackage = ASTxUtils.createRArguments(function, input, null, 0);
 
-        Thread thread = new Thread(() -> {
-            function.getTarget().call(argsPackage);
+        return RThreadManager.INSTANCE.submit(() -> {
+            Object value = function.getTarget().call(argsPackage);
+            return (value == null) ? RNull.instance : value;
         });
-
-        thread.start();     // Annotate the thread into a Hash for runtime management
-
-        int idxThread = RThreadManager.INSTANCE.addThread(thread);
-
-        return idxThread;
     }
 }
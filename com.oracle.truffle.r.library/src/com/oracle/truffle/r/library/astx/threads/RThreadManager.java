@@ -23,44 +23,85 @@
 package com.oracle.truffle.r.library.astx.threads;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * Tasks created with <code>astx.async</code>. They run in a bounded pool of workers and every task
+ * is identified by a handle that does not change when other tasks finish. A handle is released when
+ * its value is retrieved.
+ */
 public class RThreadManager {
 
-    public static RThreadManager INSTANCE = new RThreadManager();
+    public static final RThreadManager INSTANCE = new RThreadManager(FastRGPUOptions.asyncWorkers);
 
-    private ArrayList<Thread> threads;
+    private static final long KEEP_ALIVE_MILLIS = 60000;
 
-    private RThreadManager() {
-        threads = new ArrayList<>();
-    }
+    private final AsyncStageExecutor workers;
+    private final AtomicInteger nextHandle;
+    private final ConcurrentSkipListMap<Integer, CompletableFuture<Object>> tasks;
 
-    public int addThread(Thread thread) {
-        int idx = threads.size();
-        threads.add(thread);
-        return idx;
+    public RThreadManager(int maxWorkers) {
+        workers = new AsyncStageExecutor("astx-async", maxWorkers, KEEP_ALIVE_MILLIS);
+        nextHandle = new AtomicInteger();
+        tasks = new ConcurrentSkipListMap<>();
     }
 
-    public Thread getThread(int idx) {
-        return threads.get(idx);
+    /**
+     * Run a task in the pool. When all the workers are busy the task waits in the queue.
+     *
+     * @param task
+     * @return handle of the task
+     */
+    public int submit(Supplier<Object> task) {
+        int handle = nextHandle.getAndIncrement();
+        tasks.put(handle, workers.submit(task));
+        return handle;
     }
 
     public int getNumberOfPendingThreads() {
-        return threads.size();
+        return tasks.size();
     }
 
-    public void removeThread(int idx) {
-        threads.remove(idx);
+    public int getMaxWorkers() {
+        return workers.getMaximumPoolSize();
     }
 
-    public ArrayList<Thread> getAll() {
-        return threads;
+    /**
+     * Wait for a task and return its value. The handle is released, and an exception thrown by the
+     * task is thrown to the caller.
+     *
+     * @param handle
+     * @return value of the task
+     */
+    public Object join(int handle) {
+        CompletableFuture<Object> task = tasks.get(handle);
+        if (task == null) {
+            throw new RuntimeException("Unknown astx.async handle: " + handle);
+        }
+        try {
+            return AsyncStageExecutor.join(task);
+        } finally {
+            tasks.remove(handle);
+        }
     }
 
-    public void join(int idx) {
-        try {
-            threads.get(idx).join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    /**
+     * Wait for all the pending tasks.
+     *
+     * @return values in the order of the handles
+     */
+    public ArrayList<Object> joinAll() {
+        ArrayList<Object> values = new ArrayList<>();
+        for (Map.Entry<Integer, CompletableFuture<Object>> entry : tasks.entrySet()) {
+            values.add(join(entry.getKey()));
         }
+        return values;
     }
 }
@@ -1,18 +1,47 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
 package com.oracle.truffle.r.library.astx.threads;
 
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
-import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 
+/**
+ * <code>astx.sync(ids)</code>: it waits for the tasks and returns their values. With one handle it
+ * returns the value of the task, with several handles a list in the same order.
+ */
 public abstract class RThreadSync extends RExternalBuiltinNode.Arg1 {
 
     @Specialization
     public Object syncThreads(RAbstractIntVector ids) {
+        if (ids.getLength() == 1) {
+            return RThreadManager.INSTANCE.join(ids.getDataAt(0));
+        }
+        Object[] values = new Object[ids.getLength()];
         for (int i = 0; i < ids.getLength(); i++) {
-            int idxThread = ids.getDataAt(i);
-            RThreadManager.INSTANCE.join(idxThread);
+            values[i] = RThreadManager.INSTANCE.join(ids.getDataAt(i));
         }
-        return RNull.instance;
+        return RDataFactory.createList(values);
     }
-}
\ No newline at end of file
+}
@@ -22,28 +22,17 @@
  */
 package com.oracle.truffle.r.library.astx.threads;
 
-import java.util.ArrayList;
-
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
-import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
 
 public abstract class RThreadsJoinAll extends RExternalBuiltinNode.Arg0 {
 
+    /**
+     * @return list with the values of all the pending tasks, in the order they were created
+     */
     @Specialization
     public Object joinThreads() {
-
-        ArrayList<Thread> threads = RThreadManager.INSTANCE.getAll();
-
-        try {
-            for (Thread t : threads) {
-                t.join();
-            }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
-        return RNull.instance;
-
+        return RDataFactory.createList(RThreadManager.INSTANCE.joinAll().toArray());
     }
-}
\ No newline at end of file
+}
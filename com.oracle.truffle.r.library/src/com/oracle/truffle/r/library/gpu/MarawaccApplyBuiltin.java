@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.library.gpu.apply.SliceApply;
+import com.oracle.truffle.r.library.gpu.cache.RGPUCache;
+import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Parallel row and column apply for matrices:
+ *
+ * <code>
+ * marawacc.apply(X, MARGIN, FUN, nThreads=1, ...)
+ * </code>
+ *
+ * Each call of <code>FUN</code> receives a row (<code>MARGIN = 1</code>) or a column (
+ * <code>MARGIN = 2</code>) of <code>X</code> as a view of the matrix data, followed by the extra
+ * arguments. Integer matrices are converted to double once. The row or column names of
+ * <code>X</code> name the result, as in <code>apply</code>. This is a blocking operation.
+ */
+public final class MarawaccApplyBuiltin extends RExternalBuiltinNode {
+
+    @Override
+    public Object call(RArgsValuesAndNames args) {
+        RAbstractVector x = (RAbstractVector) args.getArgument(0);
+        int margin = castInt(castVector(args.getArgument(1)));
+        RFunction function = (RFunction) args.getArgument(2);
+        int nThreads = castInt(castVector(args.getArgument(3)));
+
+        int[] dims = x.getDimensions();
+        if (dims == null || dims.length != 2) {
+            throw new RuntimeException("marawacc.apply: X must be a matrix");
+        }
+        if (margin != 1 && margin != 2) {
+            throw new RuntimeException("marawacc.apply: MARGIN must be 1 (rows) or 2 (columns)");
+        }
+
+        RDoubleVector matrix;
+        if (x instanceof RDoubleVector) {
+            matrix = (RDoubleVector) x;
+        } else {
+            matrix = castDouble(x).materialize();
+        }
+
+        Object[] extra = new Object[args.getLength() - 4];
+        for (int i = 0; i < extra.length; i++) {
+            extra[i] = args.getArgument(i + 4);
+        }
+
+        RootCallTarget target = RGPUCache.INSTANCE.lookup(function);
+        Object[] results = SliceApply.apply(matrix, dims[0], dims[1], margin, function, target, extra, nThreads);
+        RStringVector sliceNames = null;
+        if (x instanceof RVector && ((RVector) x).getDimNames() != null) {
+            Object names = ((RVector) x).getDimNames().getDataAt(margin - 1);
+            sliceNames = names instanceof RStringVector ? (RStringVector) names : null;
+        }
+        return SliceApply.combine(results, sliceNames);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu;
+
+import com.oracle.truffle.r.library.gpu.types.TypeInfo;
+import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Ahead-of-time compilation of a function for <code>marawacc.mapply</code>:
+ *
+ * <code>
+ * marawacc.compile(f, "double", "integer", output = "double")
+ * </code>
+ *
+ * One type per argument of the function ("double" by default) and the type of the result. A type
+ * is either its name or a vector of that type, e.g. the data of the first call. The function is not
+ * run: the types come from the arguments. It returns <code>TRUE</code> when the OpenCL binary is
+ * installed, so the first call with those types runs on the device without the interpreter warmup
+ * (see {@link OpenCLMApply#compileAheadOfTime}).
+ */
+public final class MarawaccCompileBuiltin extends RExternalBuiltinNode {
+
+    /**
+     * @param type a type name ("double", "numeric" or "integer") or a double or integer vector
+     * @return {@link TypeInfo#DOUBLE} or {@link TypeInfo#INT}
+     */
+    public static TypeInfo parseType(Object type) {
+        if (type instanceof RAbstractStringVector) {
+            String name = ((RAbstractStringVector) type).getDataAt(0);
+            switch (name) {
+                case "double":
+                case "numeric":
+                    return TypeInfo.DOUBLE;
+                case "integer":
+                    return TypeInfo.INT;
+                default:
+                    throw new RuntimeException("Data type not supported: double or integer expected, but " + name + " found");
+            }
+        } else if (type instanceof RAbstractDoubleVector || type instanceof Double) {
+            return TypeInfo.DOUBLE;
+        } else if (type instanceof RAbstractIntVector || type instanceof Integer) {
+            return TypeInfo.INT;
+        }
+        throw new RuntimeException("Data type not supported: double or integer expected, but " + type + " found");
+    }
+
+    private static RAbstractVector createSample(TypeInfo type) {
+        if (type == TypeInfo.INT) {
+            return RDataFactory.createIntVector(new int[]{0}, true);
+        }
+        return RDataFactory.createDoubleVector(new double[]{0.0}, true);
+    }
+
+    @Override
+    public Object call(RArgsValuesAndNames args) {
+        if (args.getLength() < 2 || !(args.getArgument(0) instanceof RFunction)) {
+            throw new RuntimeException("marawacc.compile: function expected");
+        }
+        RFunction function = (RFunction) args.getArgument(0);
+        TypeInfo outputType = parseType(args.getArgument(1));
+        int nArgs = Math.max(1, ASTxUtils.getNumberOfArguments(function));
+        RAbstractVector[] samples = new RAbstractVector[nArgs];
+        for (int i = 0; i < nArgs; i++) {
+            samples[i] = createSample((i + 2 < args.getLength()) ? parseType(args.getArgument(i + 2)) : TypeInfo.DOUBLE);
+        }
+        MarawaccInitilization.marawaccInitialization();
+        return RRuntime.asLogical(OpenCLMApply.compileAheadOfTime(function, samples, outputType));
+    }
+}
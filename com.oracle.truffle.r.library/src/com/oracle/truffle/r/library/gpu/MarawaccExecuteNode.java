@@ -22,6 +22,10 @@
  */
 package com.oracle.truffle.r.library.gpu;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
 import uk.ac.ed.datastructures.common.PArray;
 import uk.ac.ed.jpai.ArrayFunction;
@@ -30,6 +34,9 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.library.gpu.cache.MarawaccPackage;
 import com.oracle.truffle.r.library.gpu.cache.RMarawaccFutures;
 import com.oracle.truffle.r.library.gpu.cache.RMarawaccPromises;
+import com.oracle.truffle.r.library.gpu.fusion.FusedPipeline;
+import com.oracle.truffle.r.library.gpu.fusion.PipelineStage;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
@@ -65,16 +72,49 @@ public abstract class MarawaccExecuteNode extends RExternalBuiltinNode.Arg1 {
         return ASTxUtils.unMarshallResultFromPArrays(outTypeInfo, result);
     }
 
+    /**
+     * Run the pipeline as a single pass over the input when it is a sequence of maps, optionally
+     * followed by a reduce, on Java threads.
+     *
+     * @param marawaccFunction
+     * @return the result or null if the pipeline cannot be fused
+     */
+    private static RAbstractVector executeFused(ArrayFunction<?, ?> marawaccFunction) {
+        List<MarawaccPackage> pipeline = RMarawaccPromises.INSTANCE.getPipeline(marawaccFunction);
+        MarawaccPackage first = pipeline.get(0);
+        if (first.getInput() == null) {
+            return null;
+        }
+        ArrayList<PipelineStage> stages = new ArrayList<>(pipeline.size());
+        for (MarawaccPackage p : pipeline) {
+            stages.add(p.getStage());
+        }
+        if (!FusedPipeline.isFusible(stages)) {
+            return null;
+        }
+        IntFunction<Object> source = ASTxUtils.elementSource(first.getInput(), first.getAdditionalArgs());
+        ArrayList<Object> result = FusedPipeline.run(first.getInput().getLength(), source, stages);
+        TypeInfo outTypeInfo = pipeline.get(pipeline.size() - 1).getTypeInfo();
+        return ASTxUtils.unMarshallResultFromArrayList(outTypeInfo, result);
+    }
+
     @Specialization
     public RAbstractVector executeMarawacc(ArrayFunction<?, ?> marawaccFunction) {
-        PArray<?> result = executeFunction(marawaccFunction);
-        RAbstractVector rResult = unmarshall(result, marawaccFunction);
-
-        if (ASTxOptions.useAsyncComputation) {
-            RMarawaccFutures.INSTANCE.clean();
-        } else {
-            RMarawaccPromises.INSTANCE.clean();
+        try {
+            if (!ASTxOptions.useAsyncComputation && FastRGPUOptions.fusion) {
+                RAbstractVector fused = executeFused(marawaccFunction);
+                if (fused != null) {
+                    return fused;
+                }
+            }
+            PArray<?> result = executeFunction(marawaccFunction);
+            return unmarshall(result, marawaccFunction);
+        } finally {
+            if (ASTxOptions.useAsyncComputation) {
+                RMarawaccFutures.INSTANCE.clean();
+            } else {
+                RMarawaccPromises.INSTANCE.clean();
+            }
         }
-        return rResult;
     }
 }
@@ -57,9 +57,12 @@ public abstract class MarawaccGetNode extends RExternalBuiltinNode.Arg1 {
 
     @Specialization
     public RAbstractVector executeMarawacc(ArrayFunction<?, ?> marawaccFunction) {
-        PArray<?> result = executeFunction(marawaccFunction);
-        RAbstractVector rResult = unmarshall(result, marawaccFunction);
-        RMarawaccFutures.INSTANCE.clean();
-        return rResult;
+        try {
+            PArray<?> result = executeFunction(marawaccFunction);
+            return unmarshall(result, marawaccFunction);
+        } finally {
+            // a failed stage leaves the pipeline cancelled
+            RMarawaccFutures.INSTANCE.clean();
+        }
     }
 }
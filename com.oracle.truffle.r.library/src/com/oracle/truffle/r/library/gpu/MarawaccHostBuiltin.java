@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu;
+
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidentArray;
+import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Built-in to read a result that is still on the device (see {@link DeviceResidentArray}). The
+ * data is copied to the host the first time it is read. R vectors are returned as they are.
+ */
+public abstract class MarawaccHostBuiltin extends RExternalBuiltinNode.Arg1 {
+
+    @SuppressWarnings("rawtypes")
+    @Specialization
+    public RAbstractVector toHost(DeviceResidentArray input) {
+        return (RAbstractVector) input.getHost();
+    }
+
+    @Specialization
+    public RAbstractVector toHost(RAbstractVector input) {
+        return input;
+    }
+}
@@ -29,7 +29,7 @@ import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 
 public abstract class MarawaccInitilization extends RExternalBuiltinNode.Arg0 {
 
-    private static boolean initializated = false;
+    private static volatile boolean initializated = false;
 
     private static void communicateToMarawaccInit() {
         try {
@@ -43,7 +43,11 @@ public abstract class MarawaccInitilization extends RExternalBuiltinNode.Arg0 {
 
     public static void marawaccInitialization() {
         if (!initializated) {
-            communicateToMarawaccInit();
+            synchronized (MarawaccInitilization.class) {
+                if (!initializated) {
+                    communicateToMarawaccInit();
+                }
+            }
         }
     }
 
@@ -23,7 +23,6 @@
 package com.oracle.truffle.r.library.gpu;
 
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
-import uk.ac.ed.datastructures.common.PArray;
 import uk.ac.ed.jpai.ArrayFunction;
 
 import com.oracle.truffle.api.RootCallTarget;
@@ -33,9 +32,11 @@ import com.oracle.truffle.r.library.gpu.cache.RMarawaccFutures;
 import com.oracle.truffle.r.library.gpu.cache.RMarawaccPromises;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccRuntimeDeoptException;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
+import com.oracle.truffle.r.library.gpu.fusion.PipelineStage;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RFunction;
@@ -65,8 +66,9 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
      */
     @SuppressWarnings("unchecked")
     private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nThreads) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
         ArrayFunction<T, R> function = (ArrayFunction<T, R>) uk.ac.ed.jpai.Marawacc.mapJavaThreads(nThreads, dataItem -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, dataItem, nameArgs);
+            Object[] argsPackage = frames.get().pack(dataItem);
             Object result = callTarget.call(argsPackage);
             return result;
         });
@@ -76,14 +78,33 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
     @SuppressWarnings({"unchecked", "rawtypes"})
     private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nThreads,
                     ArrayFunction prev) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
         ArrayFunction<T, R> function = prev.mapJavaThreads(nThreads, dataItem -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, dataItem, nameArgs);
+            Object[] argsPackage = frames.get().pack(dataItem);
             Object result = callTarget.call(argsPackage);
             return result;
         });
         return function;
     }
 
+    /**
+     * Element-wise version of the lambda for the fused pipelines.
+     *
+     * @param nArgs
+     * @param callTarget
+     * @param rFunction
+     * @param nameArgs
+     * @param nThreads
+     * @return {@link PipelineStage}
+     */
+    private static PipelineStage createStage(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nThreads) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
+        return PipelineStage.map(dataItem -> {
+            Object[] argsPackage = frames.get().pack(dataItem);
+            return callTarget.call(argsPackage);
+        }, nThreads);
+    }
+
     @SuppressWarnings("rawtypes")
     public static ArrayFunction composeExpression(RAbstractVector input, RFunction rFunction, RootCallTarget callTarget, RAbstractVector[] additionalArgs, int nThreads) {
         String[] argsName = ASTxUtils.getArgumentsNames(rFunction);
@@ -94,10 +115,8 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
             throw new MarawaccRuntimeDeoptException("Input types not supported");
         }
         ArrayFunction composeLambda = createMarawaccLambda(inputTypeList.size(), callTarget, rFunction, argsName, nThreads);
-        PArray<?> pArrayInput = ASTxUtils.marshal(input, additionalArgs, inputTypeList);
 
-        int nArgs = ASTxUtils.getNumberOfArguments(rFunction);
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, input, additionalArgs, argsName, 0);
+        Object[] argsPackage = ASTxUtils.createRArguments(rFunction, input, additionalArgs, 0);
         Object value = callTarget.call(argsPackage);
         TypeInfo outputType = null;
         try {
@@ -108,7 +127,8 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
 
         // Create package and annotate in the promises
         MarawaccPackage marawaccPackage = new MarawaccPackage(composeLambda);
-        marawaccPackage.setpArray(pArrayInput);
+        marawaccPackage.setInput(input, additionalArgs, inputTypeList);
+        marawaccPackage.setStage(createStage(inputTypeList.size(), callTarget, rFunction, argsName, nThreads));
         marawaccPackage.setTypeInfo(outputType);
         marawaccPackage.setOutput(value);
 
@@ -138,7 +158,7 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
         }
 
         Object output = packageForArrayFunction.getExecutionValue();
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, output, additionalArgs, argsName, 0);
+        Object[] argsPackage = ASTxUtils.createRArguments(rFunction, output, additionalArgs, 0);
         Object value = callTarget.call(argsPackage);
         TypeInfo outputType = null;
         try {
@@ -149,6 +169,7 @@ public final class MarawaccMapBuiltin extends RExternalBuiltinNode {
 
         // Create package and annotate in the promises
         MarawaccPackage marawaccPackage = new MarawaccPackage(composeLambda);
+        marawaccPackage.setStage(createStage(nArgs, callTarget, rFunction, argsName, nThreads));
         marawaccPackage.setTypeInfo(outputType);
         marawaccPackage.setOutput(value);
 
@@ -25,7 +25,6 @@ package com.oracle.truffle.r.library.gpu;
 import java.util.function.BiFunction;
 
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
-import uk.ac.ed.datastructures.common.PArray;
 import uk.ac.ed.jpai.ArrayFunction;
 import uk.ac.ed.jpai.Identity;
 
@@ -36,9 +35,12 @@ import com.oracle.truffle.r.library.gpu.cache.RMarawaccFutures;
 import com.oracle.truffle.r.library.gpu.cache.RMarawaccPromises;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccRuntimeDeoptException;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
+import com.oracle.truffle.r.library.gpu.fusion.PipelineStage;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RFunction;
@@ -48,30 +50,52 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int neutral) {
+    private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, Object neutral) {
 
         Identity identity = new Identity<>();
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
         ArrayFunction<T, R> function = identity.reduce((BiFunction) (x, y) -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, x, y, nameArgs);
+            Object[] argsPackage = frames.get().pack(x, y);
             return callTarget.call(argsPackage);
         }, neutral);
 
         return function;
     }
 
-    private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int neutral,
+    private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, Object neutral,
                     @SuppressWarnings("rawtypes") ArrayFunction arrayFunction) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
         @SuppressWarnings("unchecked")
         ArrayFunction<T, R> function = arrayFunction.reduce((x, y) -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, x, y, nameArgs);
+            Object[] argsPackage = frames.get().pack(x, y);
             Object result = callTarget.call(argsPackage);
             return result;
         }, neutral);
         return function;
     }
 
+    /**
+     * Element-wise version of the lambda for the fused pipelines.
+     *
+     * @param nArgs
+     * @param callTarget
+     * @param rFunction
+     * @param nameArgs
+     * @param neutral
+     * @param associative
+     * @return {@link PipelineStage}
+     */
+    private static PipelineStage createStage(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, Object neutral, boolean associative) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
+        return PipelineStage.reduce((x, y) -> {
+            Object[] argsPackage = frames.get().pack(x, y);
+            return callTarget.call(argsPackage);
+        }, neutral, associative, FastRGPUOptions.reduceThreads);
+    }
+
     @SuppressWarnings("rawtypes")
-    public static ArrayFunction composeReduceExpression(RAbstractVector input, RFunction rFunction, RootCallTarget callTarget, RAbstractVector[] additionalArgs, int neutral) {
+    public static ArrayFunction composeReduceExpression(RAbstractVector input, RFunction rFunction, RootCallTarget callTarget, RAbstractVector[] additionalArgs, Object neutral,
+                    boolean associative) {
         int nArgs = ASTxUtils.getNumberOfArguments(rFunction);
         String[] argsName = ASTxUtils.getArgumentsNames(rFunction);
 
@@ -92,11 +116,13 @@ public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
         }
 
         ArrayFunction composeLambda = createMarawaccLambda(inputTypeList.size() + 1, callTarget, rFunction, argsName, neutral);
-        PArray pArrayInput = ASTxUtils.marshal(input, additionalArgs, inputTypeList);
 
         // Create package and annotate in the promises
         MarawaccPackage marawaccPackage = new MarawaccPackage(composeLambda);
-        marawaccPackage.setpArray(pArrayInput);
+        marawaccPackage.setInput(input, additionalArgs, inputTypeList);
+        // With several inputs the elements are tuples and cannot be combined among them
+        boolean tree = associative && (additionalArgs == null || additionalArgs.length == 0);
+        marawaccPackage.setStage(createStage(inputTypeList.size() + 1, callTarget, rFunction, argsName, neutral, tree));
         marawaccPackage.setTypeInfo(outputType);
         marawaccPackage.setOutput(value);
 
@@ -109,7 +135,8 @@ public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
     }
 
     @SuppressWarnings("rawtypes")
-    public static ArrayFunction composeReduceExpression(ArrayFunction marawaccFunction, RFunction rFunction, RootCallTarget callTarget, RAbstractVector[] additionalArgs, int neutral) {
+    public static ArrayFunction composeReduceExpression(ArrayFunction marawaccFunction, RFunction rFunction, RootCallTarget callTarget, RAbstractVector[] additionalArgs, Object neutral,
+                    boolean associative) {
 
         int nArgs = ASTxUtils.getNumberOfArguments(rFunction);
         String[] argsName = ASTxUtils.getArgumentsNames(rFunction);
@@ -136,6 +163,7 @@ public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
 
         // Create package and annotate in the promises/future
         MarawaccPackage marawaccPackage = new MarawaccPackage(composeLambda);
+        marawaccPackage.setStage(createStage(nArgs, callTarget, rFunction, argsName, neutral, associative));
         marawaccPackage.setTypeInfo(outputType);
         marawaccPackage.setOutput(value);
 
@@ -153,9 +181,12 @@ public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
      * Built-in from R:
      *
      * <code>
-     * marawacc.reduce(x, function, ...)
+     * marawacc.reduce(x, function, neutral, ..., associative=FALSE)
      * </code>
      *
+     * The neutral element keeps its R type (integer, double or logical). When the function is
+     * declared associative the reduction runs as a parallel tree on Java threads.
+     *
      * It invokes to the Marawacc-API for multiple-threads/GPU backend.
      *
      */
@@ -177,21 +208,22 @@ public final class MarawaccReduceBuiltin extends RExternalBuiltinNode {
 
         // Get the callTarget from the cache
         RootCallTarget callTarget = RGPUCache.INSTANCE.lookup(rFunction);
-        int neutral = ((Double) args.getArgument(2)).intValue();
+        Object neutral = ASTxUtils.getNeutralElement(args.getArgument(2));
+        boolean associative = ASTxUtils.getLogicalFlag(args.getArgument(3));
 
         // Prepare all inputs in an array of Objects
         RAbstractVector[] additionalInputs = null;
-        if (args.getLength() > 3) {
-            additionalInputs = new RAbstractVector[args.getLength() - 3];
+        if (args.getLength() > 4) {
+            additionalInputs = new RAbstractVector[args.getLength() - 4];
             for (int i = 0; i < additionalInputs.length; i++) {
-                additionalInputs[i] = (RAbstractVector) args.getArgument(i + 3);
+                additionalInputs[i] = (RAbstractVector) args.getArgument(i + 4);
             }
         }
 
         if (input != null) {
-            return composeReduceExpression(input, rFunction, callTarget, additionalInputs, neutral);
+            return composeReduceExpression(input, rFunction, callTarget, additionalInputs, neutral, associative);
         } else if (marawaccFunction != null) {
-            return composeReduceExpression(marawaccFunction, rFunction, callTarget, additionalInputs, neutral);
+            return composeReduceExpression(marawaccFunction, rFunction, callTarget, additionalInputs, neutral, associative);
         } else {
             return RNull.instance;
         }
@@ -34,7 +34,9 @@ import com.oracle.truffle.r.library.gpu.deoptimization.MarawaccDeopt;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
+import com.oracle.truffle.r.library.gpu.types.TypeProfile;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RFunction;
@@ -47,9 +49,15 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
  * The GPU supports relies on the Partial Evaluation step after Truffle decides to compile the AST
  * to binary code.
  *
+ * The input and output types of each call site are kept in a {@link TypeProfile}. While the same
+ * function is called with inputs of the same classes, the type analysis is skipped and the first
+ * element is not run apart; the first element of the output is checked against the profile.
+ *
  */
 public final class MarawaccSapplyBuiltin extends RExternalBuiltinNode {
 
+    private final TypeProfile profile = new TypeProfile();
+
     /**
      * Create the lambda for Marawacc threads API.
      *
@@ -62,8 +70,9 @@ public final class MarawaccSapplyBuiltin extends RExternalBuiltinNode {
      */
     @SuppressWarnings("unchecked")
     private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nThreads) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
         ArrayFunction<T, R> function = (ArrayFunction<T, R>) uk.ac.ed.jpai.Marawacc.mapJavaThreads(nThreads, dataItem -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, dataItem, nameArgs);
+            Object[] argsPackage = frames.get().pack(dataItem);
             Object result = callTarget.call(argsPackage);
             return result;
         });
@@ -84,32 +93,56 @@ public final class MarawaccSapplyBuiltin extends RExternalBuiltinNode {
         return result;
     }
 
-    private static ArrayList<Object> runJavaSequential(RAbstractVector input, RootCallTarget target, RFunction function, int nArgs, RAbstractVector[] additionalArgs, String[] argsName,
-                    Object firstValue) {
+    private static ArrayList<Object> runJavaSequential(RAbstractVector input, RootCallTarget target, RFunction function, RAbstractVector[] additionalArgs, Object firstValue) {
         ArrayList<Object> output = new ArrayList<>(input.getLength());
         output.add(firstValue);
+        RArgumentsFrame frame = new RArgumentsFrame(function);
         for (int i = 1; i < input.getLength(); i++) {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, i);
+            Object[] argsPackage = frame.pack(input, additionalArgs, i);
             Object val = target.call(argsPackage);
             output.add(val);
         }
         return output;
     }
 
-    public static RAbstractVector computeMap(RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, int nThreads) {
+    public RAbstractVector computeMap(RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, int nThreads) {
+        Object value = null;
+        TypeProfile.Entry types = profile.lookup(function, target, input, additionalArgs);
+        if (types != null && input.getLength() > 0) {
+            if (ASTxOptions.runMarawaccThreads) {
+                // No probe: each element runs once and the first one of the result is checked.
+                // When the output type diverged the generic path below starts from it
+                PArray<?> result = runMarawaccThreads(input, target, function, types.getArgumentsNames(), nThreads, additionalArgs, types.getInputTypes());
+                value = result.get(0);
+                if (types.matchesOutput(value)) {
+                    return ASTxUtils.unMarshallResultFromPArrays(types.getOutputType(), result);
+                }
+            } else {
+                // the sequential loop continues from the first element
+                value = target.call(new RArgumentsFrame(function).pack(input, additionalArgs, 0));
+                if (types.matchesOutput(value)) {
+                    ArrayList<Object> result = runJavaSequential(input, target, function, additionalArgs, value);
+                    return ASTxUtils.unMarshallResultFromArrayList(types.getOutputType(), result);
+                }
+            }
+            profile.invalidate();
+        }
 
-        int nArgs = ASTxUtils.getNumberOfArguments(function);
         String[] argsName = ASTxUtils.getArgumentsNames(function);
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, 0);
-        Object value = function.getTarget().call(argsPackage);
+        if (value == null) {
+            Object[] argsPackage = ASTxUtils.createRArguments(function, input, additionalArgs, 0);
+            value = function.getTarget().call(argsPackage);
+        }
 
         TypeInfoList inputTypeList = null;
         try {
             inputTypeList = ASTxUtils.typeInference(input, additionalArgs);
         } catch (MarawaccTypeException e) {
-            // XXX: DEOPTIMIZE: we can deoptimize to LApply
-            System.out.println("[ASTx] Deoptimization generic LApply");
-            e.printStackTrace();
+            // Input not supported by Marawacc: deopt to LApply
+            if (ASTxOptions.debug) {
+                System.out.println("[ASTx] Deoptimization generic LApply");
+            }
+            return MarawaccDeopt.deoptToLApply(input, additionalArgs, function, target);
         }
 
         TypeInfo outputType = null;
@@ -117,8 +150,9 @@ public final class MarawaccSapplyBuiltin extends RExternalBuiltinNode {
             outputType = ASTxUtils.typeInference(value);
         } catch (MarawaccTypeException e) {
             // deopt to LApply
-            return MarawaccDeopt.deoptToLApply(input, function);
+            return MarawaccDeopt.deoptToLApply(input, additionalArgs, function, target);
         }
+        profile.record(function, target, input, additionalArgs, argsName, inputTypeList, outputType, value);
 
         if (ASTxOptions.runMarawaccThreads) {
             // Marawacc multiple-thread
@@ -126,7 +160,7 @@ public final class MarawaccSapplyBuiltin extends RExternalBuiltinNode {
             return ASTxUtils.unMarshallResultFromPArrays(outputType, result);
         } else {
             // Run in sequential
-            ArrayList<Object> result = runJavaSequential(input, target, function, nArgs, additionalArgs, argsName, value);
+            ArrayList<Object> result = runJavaSequential(input, target, function, additionalArgs, value);
             return ASTxUtils.unMarshallResultFromArrayList(outputType, result);
         }
     }
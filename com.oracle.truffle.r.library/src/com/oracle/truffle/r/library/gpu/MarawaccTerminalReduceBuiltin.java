@@ -23,19 +23,19 @@
 package com.oracle.truffle.r.library.gpu;
 
 import java.util.ArrayList;
+import java.util.function.BinaryOperator;
 
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
-import uk.ac.ed.datastructures.common.PArray;
-import uk.ac.ed.jpai.ArrayFunction;
-import uk.ac.ed.jpai.Marawacc;
 
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.r.library.gpu.cache.RGPUCache;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccRuntimeDeoptException;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+import com.oracle.truffle.r.library.gpu.reduction.ParallelReduction;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
-import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RFunction;
@@ -43,32 +43,24 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 public final class MarawaccTerminalReduceBuiltin extends RExternalBuiltinNode {
 
-    private static <T, R> ArrayFunction<T, R> createMarawaccLambda(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int neutral) {
-        @SuppressWarnings("unchecked")
-        ArrayFunction<T, R> function = (ArrayFunction<T, R>) Marawacc.reduce((x, y) -> {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, rFunction, x, y, nameArgs);
-            Object result = callTarget.call(argsPackage);
-            return (Integer) result;
-        }, neutral);
-        return function;
+    private static BinaryOperator<Object> createOperator(int nArgs, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs) {
+        ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(rFunction);
+        return (x, y) -> {
+            Object[] argsPackage = frames.get().pack(x, y);
+            return callTarget.call(argsPackage);
+        };
     }
 
-    private static void printPArray(PArray<?> result) {
-        for (int k = 0; k < result.size(); k++) {
-            System.out.println(result.get(k));
-        }
-    }
-
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private static PArray<?> runMarawaccThreads(RAbstractVector input, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nThreads,
-                    RAbstractVector[] additionalArgs, TypeInfoList infoList) {
-        ArrayFunction composeLambda = createMarawaccLambda(infoList.size() + 1, callTarget, rFunction, nameArgs, nThreads);
-        PArray pArrayInput = ASTxUtils.marshal(input, additionalArgs, infoList);
-        PArray<?> result = composeLambda.apply(pArrayInput);
+    private static Object runJavaThreads(RAbstractVector input, RootCallTarget callTarget, RFunction rFunction, String[] nameArgs, int nArgs, RAbstractVector[] additionalArgs,
+                    Object neutral, boolean associative) {
+        // With several inputs the elements are tuples and cannot be combined among them
+        boolean tree = associative && (additionalArgs == null || additionalArgs.length == 0);
+        Object result = ParallelReduction.reduce(input.getLength(), ASTxUtils.elementSource(input, additionalArgs), createOperator(nArgs, callTarget, rFunction, nameArgs), neutral,
+                        FastRGPUOptions.reduceThreads, tree);
 
         if (ASTxOptions.printResult) {
             System.out.println("result -- ");
-            printPArray(result);
+            System.out.println(result);
         }
         return result;
     }
@@ -85,17 +77,16 @@ public final class MarawaccTerminalReduceBuiltin extends RExternalBuiltinNode {
         return output;
     }
 
-    public static RAbstractVector computeReduction(RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, int neutral) {
+    public static RAbstractVector computeReduction(RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, Object neutral, boolean associative) {
 
         int nArgs = ASTxUtils.getNumberOfArguments(function);
         String[] argsName = ASTxUtils.getArgumentsNames(function);
 
         Object[] argsPackage = ASTxUtils.createRArgumentsForReduction(nArgs, neutral, function, input, additionalArgs, argsName, 0);
         Object value = function.getTarget().call(argsPackage);
-        TypeInfoList inputTypeList = null;
         TypeInfo outputType = null;
         try {
-            inputTypeList = ASTxUtils.typeInference(input, additionalArgs);
+            ASTxUtils.typeInference(input, additionalArgs);
             outputType = ASTxUtils.typeInference(value);
         } catch (MarawaccTypeException e) {
             throw new MarawaccRuntimeDeoptException("Input types not supported");
@@ -106,9 +97,10 @@ public final class MarawaccTerminalReduceBuiltin extends RExternalBuiltinNode {
             ArrayList<Object> result = runJavaSequential(input, target, function, nArgs, additionalArgs, argsName, value);
             return ASTxUtils.unMarshallResultFromArrayList(outputType, result);
         } else {
-            // Marawacc multithread
-            PArray<?> result = runMarawaccThreads(input, target, function, argsName, neutral, additionalArgs, inputTypeList);
-            return ASTxUtils.unMarshallResultFromPArrays(outputType, result);
+            // Java threads: parallel tree when the function is associative
+            ArrayList<Object> result = new ArrayList<>();
+            result.add(runJavaThreads(input, target, function, argsName, nArgs, additionalArgs, neutral, associative));
+            return ASTxUtils.unMarshallResultFromArrayList(outputType, result);
         }
     }
 
@@ -118,7 +110,7 @@ public final class MarawaccTerminalReduceBuiltin extends RExternalBuiltinNode {
      * Built-in from R:
      *
      * <code>
-     * marawacc.reduce(x, function, ...)
+     * marawacc.reduction(x, function, neutral, ..., associative=FALSE)
      * </code>
      *
      * It invokes to the Marawacc-API for multiple-threads/GPU backend.
@@ -126,21 +118,22 @@ public final class MarawaccTerminalReduceBuiltin extends RExternalBuiltinNode {
      */
     @Override
     public Object call(RArgsValuesAndNames args) {
-        RAbstractVector input = (RAbstractVector) args.getArgument(0);
+        RAbstractVector input = ASTxUtils.asRVector(args.getArgument(0));
         RFunction function = (RFunction) args.getArgument(1);
 
         // Get the callTarget from the cache
         RootCallTarget target = RGPUCache.INSTANCE.lookup(function);
-        int neutral = ((Double) args.getArgument(2)).intValue();
+        Object neutral = ASTxUtils.getNeutralElement(args.getArgument(2));
+        boolean associative = ASTxUtils.getLogicalFlag(args.getArgument(3));
 
         // Prepare all inputs in an array of Objects
         RAbstractVector[] additionalInputs = null;
-        if (args.getLength() > 3) {
-            additionalInputs = new RAbstractVector[args.getLength() - 3];
+        if (args.getLength() > 4) {
+            additionalInputs = new RAbstractVector[args.getLength() - 4];
             for (int i = 0; i < additionalInputs.length; i++) {
-                additionalInputs[i] = (RAbstractVector) args.getArgument(i + 3);
+                additionalInputs[i] = ASTxUtils.asRVector(args.getArgument(i + 4));
             }
         }
-        return computeReduction(input, function, target, additionalInputs, neutral);
+        return computeReduction(input, function, target, additionalInputs, neutral, associative);
     }
 }
@@ -22,10 +22,16 @@
  */
 package com.oracle.truffle.r.library.gpu;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 import uk.ac.ed.accelerator.common.GraalAcceleratorOptions;
-import uk.ac.ed.accelerator.profiler.Profiler;
 import uk.ac.ed.accelerator.profiler.ProfilerType;
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
 import uk.ac.ed.datastructures.common.AcceleratorPArray;
@@ -45,17 +51,33 @@ import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.r.library.gpu.cache.CacheGPUExecutor;
 import com.oracle.truffle.r.library.gpu.cache.CacheInputBuffers;
 import com.oracle.truffle.r.library.gpu.cache.InternalGraphCache;
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHint;
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHintKey;
 import com.oracle.truffle.r.library.gpu.cache.LookupFunctionToData;
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHintStore;
 import com.oracle.truffle.r.library.gpu.cache.RCacheObjects;
 import com.oracle.truffle.r.library.gpu.cache.RFunctionMetadata;
 import com.oracle.truffle.r.library.gpu.cache.RGPUCache;
+import com.oracle.truffle.r.library.gpu.compiler.ASTxTruffleCompiler;
+import com.oracle.truffle.r.library.gpu.deoptimization.DeoptRecovery;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidency;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidentArray;
+import com.oracle.truffle.r.library.gpu.device.ResidencyTracker;
 import com.oracle.truffle.r.library.gpu.exceptions.AcceleratorExecutionException;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.library.gpu.phases.FilterInterpreterNodes;
 import com.oracle.truffle.r.library.gpu.phases.scope.ScopeData;
+import com.oracle.truffle.r.library.gpu.pipeline.Chunk;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkPipeline;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkPlanner;
+import com.oracle.truffle.r.library.gpu.pipeline.OpenCLChunkExecutor;
+import com.oracle.truffle.r.library.gpu.pipeline.OpenCLDeviceLimits;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
 import com.oracle.truffle.r.library.gpu.utils.ASTxUtils.ScopeVarInfo;
+import com.oracle.truffle.r.library.gpu.utils.ProfilerLog;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -75,19 +97,39 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
 
     private static final String R_EVAL_DESCRIPTION = "<eval>";
     private static final boolean TRUFFLE_ENABLED = true;
+    private static final long DEOPT_BUFFER_BYTES = 4;
 
-    private int compileIndex = 1;
+    private static final LookupFunctionToData lookupFunction = new LookupFunctionToData();
 
-    // For Batch processing
-    private ArrayList<Integer> typeSizes = new ArrayList<>();
-    private int scopeTotalBytes;
-    private boolean wasBatch = false;
-    private int totalSizeWhenBatch = 0;
-
-    private static LookupFunctionToData lookupFunction = new LookupFunctionToData();
+    // Functions already compiled because of a warm-up hint
+    private static final Set<WarmUpHintKey> warmedUpFunctions = ConcurrentHashMap.newKeySet();
 
     // For debug
-    private static int iteration = 0;
+    private static final AtomicInteger iteration = new AtomicInteger();
+
+    /**
+     * State of one call of the builtin. The node is shared by every thread that calls
+     * <code>marawacc.mapply</code>, so nothing that belongs to a single call is kept in the node.
+     */
+    private static final class Invocation {
+        private int compileIndex = 1;
+
+        // For Batch processing
+        private final ArrayList<Integer> typeSizes = new ArrayList<>();
+        private long scopeTotalBytes;
+        private long scopeLargestBytes;
+        private boolean wasBatch = false;
+        private int totalSizeWhenBatch = 0;
+
+        // R vectors behind the input of the kernel and their versions, to skip the copy-in
+        private Object[] inputSources;
+        private int[] inputVersions;
+
+        // Warm-up hints
+        private WarmUpHintKey hintKey;
+        private TypeInfoList hintInputTypes;
+        private TypeInfo hintOutputType;
+    }
 
     /**
      * Given the {@link StructuredGraph}, this method invokes the OpenCL code generation. We also
@@ -95,12 +137,13 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
      * the first value (runtime object) to generate the output for the kernel template.
      *
      * @param inputPArray
+     * @param inputTypes types of the input, the binary is installed for them
      * @param callTarget
      * @param graphToCompile
      * @param firstValue
      * @return {@link GraalOpenCLCompilationUnit}
      */
-    private GraalOpenCLCompilationUnit compileForMarawaccBackend(PArray<?> inputPArray, OptimizedCallTarget callTarget, StructuredGraph graphToCompile, Object firstValue,
+    private static GraalOpenCLCompilationUnit compileForMarawaccBackend(Invocation inv, PArray<?> inputPArray, TypeInfoList inputTypes, OptimizedCallTarget callTarget, StructuredGraph graphToCompile, Object firstValue,
                     Interoperable interoperable,
                     Object[] lexicalScope, int nArgs) {
 
@@ -117,19 +160,10 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             scopedNodes = ASTxUtils.applyCompilationPhasesForOpenCL(graphToCompile);
         }
 
-        int numScopeBytes = 0;
         if (scopedNodes != null) {
-            for (int i = 0; i < lexicalScope.length; i++) {
-                if (lexicalScope[i] instanceof double[]) {
-                    numScopeBytes += 8 * ((double[]) lexicalScope[i]).length;
-                } else {
-                    System.err.println("Data type not suppported yet.");
-                }
-            }
+            setScopeBytes(inv, lexicalScope);
         }
 
-        scopeTotalBytes = numScopeBytes;
-
         new FilterInterpreterNodes(6).apply(graphToCompile);
 
         if (ASTxOptions.debug) {
@@ -138,48 +172,144 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
 
         GraalOpenCLCompilationUnit gpuCompilationUnit = GraalOpenCLJITCompiler.compileGraphToOpenCL(inputPArray, graphToCompile, callTarget, firstValue, TRUFFLE_ENABLED, interoperable,
                         scopeData.getData(), scopedNodes, nArgs);
-        InternalGraphCache.INSTANCE.installGPUBinaryIntoCache(graphToCompile, gpuCompilationUnit);
+        InternalGraphCache.INSTANCE.installGPUBinaryIntoCache(graphToCompile, inputTypes, gpuCompilationUnit);
         return gpuCompilationUnit;
     }
 
+    private static void setScopeBytes(Invocation inv, Object[] lexicalScope) {
+        long numScopeBytes = 0;
+        long largestScopeBytes = 0;
+        for (int i = 0; i < lexicalScope.length; i++) {
+            long bytes = 0;
+            if (lexicalScope[i] instanceof double[]) {
+                bytes = 8L * ((double[]) lexicalScope[i]).length;
+            } else if (lexicalScope[i] instanceof int[]) {
+                bytes = 4L * ((int[]) lexicalScope[i]).length;
+            } else {
+                System.err.println("Data type not suppported yet.");
+            }
+            numScopeBytes += bytes;
+            largestScopeBytes = Math.max(largestScopeBytes, bytes);
+        }
+        inv.scopeTotalBytes = numScopeBytes;
+        inv.scopeLargestBytes = largestScopeBytes;
+    }
+
     private static void profiling(long startCopy, long endCopy, long startExecution, long endExecution, long startDeviceToHost, long endDeviceToHost) {
         // Marshal
-        Profiler.getInstance().writeInBuffer(ProfilerType.COPY_TO_DEVICE, "end-start", (endCopy - startCopy));
+        ProfilerLog.write(ProfilerType.COPY_TO_DEVICE, "end-start", (endCopy - startCopy));
         // Execution
-        Profiler.getInstance().writeInBuffer(ProfilerType.COMPUTE_MAP, "end-start", (endExecution - startExecution));
+        ProfilerLog.write(ProfilerType.COMPUTE_MAP, "end-start", (endExecution - startExecution));
         // Unmarshal
-        Profiler.getInstance().writeInBuffer(ProfilerType.COPY_TO_HOST, "end-start", (endDeviceToHost - startDeviceToHost));
+        ProfilerLog.write(ProfilerType.COPY_TO_HOST, "end-start", (endDeviceToHost - startDeviceToHost));
     }
 
-    private long computeTotalBytes(int elements) {
-        // Input - output
-        int totalBytes = typeSizes.stream().map(i -> i * elements).reduce(0, (x, y) -> x + y);
-        totalBytes += scopeTotalBytes;
-        return totalBytes;
+    /**
+     * Split the input in chunks that fit into the device memory. Per element, it counts every
+     * input buffer and the output buffer. It also counts the lexical-scope arrays and the deopt
+     * buffer, whose size does not depend on the input. When the input does not fit at once, the
+     * chunks are planned for <code>depth</code> chunks in flight.
+     */
+    private ArrayList<Chunk> planChunks(Invocation inv, GraalOpenCLExecutor executor, int elements, int depth) {
+        long[] bytesPerElement = new long[inv.typeSizes.size()];
+        for (int i = 0; i < bytesPerElement.length; i++) {
+            bytesPerElement[i] = inv.typeSizes.get(i);
+        }
+        long fixedBytes = inv.scopeTotalBytes + DEOPT_BUFFER_BYTES;
+        OpenCLDeviceLimits limits = new OpenCLDeviceLimits(executor);
+        ArrayList<Chunk> chunks = new ChunkPlanner(limits, 1).plan(elements, bytesPerElement, fixedBytes, inv.scopeLargestBytes);
+        if (chunks.size() > 1 && depth > 1) {
+            chunks = new ChunkPlanner(limits, depth).plan(elements, bytesPerElement, fixedBytes, inv.scopeLargestBytes);
+        }
+        return chunks;
     }
 
+    /**
+     * Bytes of the device buffers of one executor that runs <code>elements</code> elements.
+     */
+    private long deviceBytes(Invocation inv, int elements) {
+        long bytes = inv.scopeTotalBytes + DEOPT_BUFFER_BYTES;
+        for (int size : inv.typeSizes) {
+            bytes += (long) size * elements;
+        }
+        return bytes;
+    }
+
+    private static int getPipelineDepth() {
+        return FastRGPUOptions.pipelinedBatch ? FastRGPUOptions.pipelineDepth : 1;
+    }
+
+    private static ArrayList<Object> run(PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation,
+                    Object[] sources, int[] versions) throws AcceleratorExecutionException {
+        return run(inputPArray, graph, gpuCompilationUnit, function, newAllocation, null, sources, versions);
+    }
+
+    /**
+     * Copy the input, run the kernel and copy back the result. When the input is still on the device
+     * (<code>deviceInput</code>), the copy-in is skipped. With
+     * <code>-Dastx.marawacc.deviceResident=true</code> the copy-out is skipped too, and the result
+     * is a {@link DeviceResidentArray}.
+     *
+     * The copy-in is skipped as well when the buffers are reused and the R vectors behind the input
+     * (<code>sources</code>) were not modified since they were copied to this executor (see
+     * {@link ResidencyTracker}).
+     */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private static ArrayList<Object> run(PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation)
-                    throws AcceleratorExecutionException {
+    private static ArrayList<Object> run(PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation,
+                    DeviceResidentArray<AcceleratorPArray, RAbstractVector> deviceInput, Object[] sources, int[] versions) throws AcceleratorExecutionException {
         GraalOpenCLExecutor executor = CacheGPUExecutor.INSTANCE.getExecutor(gpuCompilationUnit);
         if (executor == null) {
             executor = new GraalOpenCLExecutor();
             CacheGPUExecutor.INSTANCE.insert(gpuCompilationUnit, executor);
         }
 
-        executor.setNewAllocation(newAllocation);
+        boolean allocate = DeviceResidency.INSTANCE.prepareBuffers(executor, deviceInput, newAllocation);
+        if (allocate) {
+            ResidencyTracker.INSTANCE.invalidate(executor);
+        }
+        executor.setNewAllocation(allocate);
+
         long s1 = System.nanoTime();
-        AcceleratorPArray copyToDevice = executor.copyToDevice(inputPArray, gpuCompilationUnit.getInputType());
+        AcceleratorPArray copyToDevice = null;
+        if (deviceInput != null) {
+            copyToDevice = deviceInput.getDevice();
+        } else {
+            if (!allocate && sources != null) {
+                copyToDevice = (AcceleratorPArray) ResidencyTracker.INSTANCE.getResident(executor, sources, versions);
+            }
+            if (copyToDevice == null) {
+                copyToDevice = executor.copyToDevice(inputPArray, gpuCompilationUnit.getInputType());
+                if (sources != null) {
+                    ResidencyTracker.INSTANCE.setResident(executor, sources, versions, copyToDevice);
+                } else {
+                    ResidencyTracker.INSTANCE.invalidate(executor);
+                }
+            }
+        }
         long s2 = System.nanoTime();
         AcceleratorPArray executeOnTheDevice = executor.executeOnTheDevice(graph, copyToDevice, gpuCompilationUnit.getOuputType(), gpuCompilationUnit.getScopeArrays());
         long s3 = System.nanoTime();
+
+        if (FastRGPUOptions.deviceResident) {
+            profiling(s1, s2, s2, s3, s3, s3);
+            // The deopt buffer is read on its own, the result stays on the device
+            PArray<Integer> deopt = executor.getDeoptBuffer();
+            if (deopt != null && deopt.get(0) != 0) {
+                ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "Deoptimization in thread:", deopt.get(0));
+                throw new AcceleratorExecutionException("Deoptimization in thread: ", deopt.get(0));
+            }
+            RGPUCache.INSTANCE.getCachedObjects(function).enableGPUExecution();
+            int size = (deviceInput != null) ? deviceInput.size() : inputPArray.size();
+            return addOutputElement(newDeviceResult(executor, executeOnTheDevice, size, gpuCompilationUnit, function));
+        }
+
         PArray result = executor.copyToHost(executeOnTheDevice, gpuCompilationUnit.getOuputType());
         long s4 = System.nanoTime();
         profiling(s1, s2, s2, s3, s3, s4);
         PArray<Integer> deopt = executor.getDeoptBuffer();
         if (deopt != null) {
             if (deopt.get(0) != 0) {
-                Profiler.getInstance().writeInBuffer(ProfilerType.GENERAL_LOG_MESSAGE, "Deoptimization in thread:", deopt.get(0));
+                ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "Deoptimization in thread:", deopt.get(0));
                 throw new AcceleratorExecutionException("Deoptimization in thread: ", deopt.get(0));
             }
         }
@@ -190,46 +320,95 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     }
 
     /**
-     * @param newAllocation
+     * Lazy result of a kernel. The copy to the host is done by the executor that produced it, the
+     * first time the result is read from R.
+     */
+    @SuppressWarnings("rawtypes")
+    private static DeviceResidentArray<AcceleratorPArray, RAbstractVector> newDeviceResult(GraalOpenCLExecutor executor, AcceleratorPArray deviceOutput, int size,
+                    GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function) {
+        TypeInfo outputType = RGPUCache.INSTANCE.getCachedObjects(function).getRFunctionMetadata().getOutputType();
+        DeviceResidentArray<AcceleratorPArray, RAbstractVector> array = new DeviceResidentArray<>(executor, deviceOutput, size, outputType, device -> {
+            long start = System.nanoTime();
+            PArray result = executor.copyToHost(device, gpuCompilationUnit.getOuputType());
+            ProfilerLog.write(ProfilerType.COPY_TO_HOST, "end-start", (System.nanoTime() - start));
+            return getResult(true, outputType, addOutputElement(result));
+        });
+        DeviceResidency.INSTANCE.register(array);
+        return array;
+    }
+
+    /**
+     * Run the kernel with an input that is still on the device. This is only possible when the
+     * function was already compiled for the GPU with one input of the same type.
+     *
+     * @param input
+     * @param function
+     * @return the result of the kernel, or <code>null</code> when it has to run from the host copy
+     *         of the input
+     */
+    private static Object runWithDeviceInput(DeviceResidentArray<AcceleratorPArray, RAbstractVector> input, RFunction function) {
+        if (!input.isOnDevice() || !RGPUCache.INSTANCE.contains(function)) {
+            return null;
+        }
+        RCacheObjects cachedObjects = RGPUCache.INSTANCE.getCachedObjects(function);
+        TypeInfoList inputTypes = cachedObjects.getInputTypes();
+        if (!cachedObjects.isGPUExecution() || cachedObjects.getRFunctionMetadata() == null || inputTypes == null || inputTypes.size() != 1 ||
+                        !inputTypes.get(0).getJavaType().equals(((TypeInfo) input.getElementType()).getJavaType())) {
+            return null;
+        }
+        RootCallTarget target = RGPUCache.INSTANCE.getCallTarget(function);
+        StructuredGraph graph = MarawaccGraalIRCache.getInstance().getCompiledGraph(target.getIDForOpenCL());
+        GraalOpenCLCompilationUnit gpuCompilationUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graph, inputTypes);
+        if (graph == null || gpuCompilationUnit == null) {
+            return null;
+        }
+        try {
+            return run(null, graph, gpuCompilationUnit, function, false, input, null, null).get(0);
+        } catch (AcceleratorExecutionException e) {
+            // The host path runs the kernel again and recovers from the deoptimization
+            return null;
+        }
+    }
+
+    /**
+     * Batch execution when the input does not fit into the device memory. The chunks come from the
+     * {@link ChunkPlanner}. By default the chunks are processed one after the other. With
+     * <code>-Dastx.marawacc.pipelinedBatch=true</code> the copy-in, compute and copy-out of
+     * consecutive chunks overlap (see {@link ChunkPipeline}), using one {@link GraalOpenCLExecutor}
+     * per chunk in flight.
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private ArrayList<Object> runBatch(PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation, int iterations,
-                    int size)
+    private ArrayList<Object> runBatch(Invocation inv, PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, ArrayList<Chunk> chunks, int depth)
                     throws AcceleratorExecutionException {
-        GraalOpenCLExecutor executor = CacheGPUExecutor.INSTANCE.getExecutor(gpuCompilationUnit);
-        if (executor == null) {
-            executor = new GraalOpenCLExecutor();
-            CacheGPUExecutor.INSTANCE.insert(gpuCompilationUnit, executor);
+        GraalOpenCLExecutor[] executors = null;
+        if (depth > 1) {
+            executors = CacheGPUExecutor.INSTANCE.getPipelineExecutors(gpuCompilationUnit, depth);
+            CacheGPUExecutor.INSTANCE.setPipelineDeviceBytes(gpuCompilationUnit, depth * deviceBytes(inv, chunks.get(0).getSize()));
+        } else {
+            GraalOpenCLExecutor executor = CacheGPUExecutor.INSTANCE.getExecutor(gpuCompilationUnit);
+            if (executor == null) {
+                executor = new GraalOpenCLExecutor();
+                CacheGPUExecutor.INSTANCE.insert(gpuCompilationUnit, executor);
+            }
+            DeviceResidency.INSTANCE.evict(executor, null);
+            ResidencyTracker.INSTANCE.invalidate(executor);
+            CacheGPUExecutor.INSTANCE.setDeviceBytes(gpuCompilationUnit, deviceBytes(inv, chunks.get(0).getSize()));
+            executors = new GraalOpenCLExecutor[]{executor};
         }
 
-        // / XXX: IDEA, an executor per iterator (number of chunks)
-        ArrayList<Object> arrayList = new ArrayList<>();
-        PArray result = null;
-        int base = (inputPArray.size() / iterations);
-        for (int i = 0; i < iterations; i++) {
-            int offset = base * i;
-            executor.setNewAllocation(true);
-            long s1 = System.nanoTime();
-            AcceleratorPArray copyToDevice = executor.copyToDevice(inputPArray, gpuCompilationUnit.getInputType(), size, offset);
-            long s2 = System.nanoTime();
-            AcceleratorPArray executeOnTheDevice = executor.executeOnTheDevice(graph, copyToDevice, gpuCompilationUnit.getOuputType(), gpuCompilationUnit.getScopeArrays());
-            long s3 = System.nanoTime();
-            result = executor.copyToHost(executeOnTheDevice, gpuCompilationUnit.getOuputType());
-            long s4 = System.nanoTime();
-            profiling(s1, s2, s2, s3, s3, s4);
-            PArray<Integer> deopt = executor.getDeoptBuffer();
-            if (deopt != null) {
-                if (deopt.get(0) != 0) {
-                    Profiler.getInstance().writeInBuffer(ProfilerType.GENERAL_LOG_MESSAGE, "Deoptimization in thread:", deopt.get(0));
-                    throw new AcceleratorExecutionException("Deoptimization in thread: ", deopt.get(0));
-                }
-            }
-            arrayList.add(result);
+        inv.wasBatch = true;
+        inv.totalSizeWhenBatch = inputPArray.size();
+
+        OpenCLChunkExecutor chunkExecutor = new OpenCLChunkExecutor(inputPArray, graph, gpuCompilationUnit, executors);
+        ChunkPipeline<AcceleratorPArray, PArray> pipeline = new ChunkPipeline<>(chunkExecutor, depth);
+        ArrayList<PArray> results = pipeline.run(chunks);
+        for (long[] t : pipeline.getTimestamps()) {
+            profiling(t[ChunkPipeline.COPY_IN_START], t[ChunkPipeline.COPY_IN_END], t[ChunkPipeline.COMPUTE_START], t[ChunkPipeline.COMPUTE_END], t[ChunkPipeline.COPY_OUT_START],
+                            t[ChunkPipeline.COPY_OUT_END]);
         }
+
         RGPUCache.INSTANCE.getCachedObjects(function).enableGPUExecution();
-        wasBatch = true;
-        totalSizeWhenBatch = inputPArray.size();
-        return arrayList;
+        return new ArrayList<>(results);
     }
 
     /**
@@ -244,7 +423,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
      * @return {@link ArrayList}
      * @throws AcceleratorExecutionException
      */
-    private ArrayList<Object> runWithMarawaccAccelerator(PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation)
+    private ArrayList<Object> runWithMarawaccAccelerator(Invocation inv, PArray<?> inputPArray, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, RFunction function, boolean newAllocation)
                     throws AcceleratorExecutionException {
         GraalOpenCLExecutor executor = CacheGPUExecutor.INSTANCE.getExecutor(gpuCompilationUnit);
         if (executor == null) {
@@ -252,30 +431,13 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             CacheGPUExecutor.INSTANCE.insert(gpuCompilationUnit, executor);
         }
 
-        long globalMaxGPUMemory = executor.getGlobalMaxGPUMemory();
-        int iterations = 1;
-
-        int elements = inputPArray.size();
-        long totalBytes = computeTotalBytes(elements);
-
-        // globalMaxGPUMemory = 30000;
-        if (totalBytes > globalMaxGPUMemory) {
-            // Set Appropriate size
-            System.out.println("Data does not fit in Memory");
-            while (true) {
-                elements /= 2;
-                totalBytes = computeTotalBytes(elements);
-                iterations++;
-                if (totalBytes < globalMaxGPUMemory) {
-                    break;
-                }
-            }
-        }
-
-        if (iterations == 1) {
-            return run(inputPArray, graph, gpuCompilationUnit, function, newAllocation);
+        int depth = getPipelineDepth();
+        ArrayList<Chunk> chunks = planChunks(inv, executor, inputPArray.size(), depth);
+        if (chunks.size() == 1) {
+            CacheGPUExecutor.INSTANCE.setDeviceBytes(gpuCompilationUnit, deviceBytes(inv, chunks.get(0).getSize()));
+            return run(inputPArray, graph, gpuCompilationUnit, function, newAllocation, inv.inputSources, inv.inputVersions);
         } else {
-            return runBatch(inputPArray, graph, gpuCompilationUnit, function, newAllocation, iterations, elements);
+            return runBatch(inv, inputPArray, graph, gpuCompilationUnit, function, chunks, depth);
         }
     }
 
@@ -285,6 +447,66 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         return output;
     }
 
+    /**
+     * Key of the function in the {@link WarmUpHintStore}: source of the function, input and
+     * output types, lexical-scope variables and the options that change the generated kernel.
+     */
+    private static void createHintKey(Invocation inv, RFunction function, TypeInfoList inputTypeList, TypeInfo outputType) {
+        inv.hintKey = null;
+        if (!FastRGPUOptions.warmUpHints || function.getTarget().getRootNode().getSourceSection() == null) {
+            return;
+        }
+        String source = function.getTarget().getRootNode().getSourceSection().getCode();
+        String[] scopeVars = RGPUCache.INSTANCE.getCachedObjects(function).getScopeVars();
+        inv.hintKey = WarmUpHintKey.create(source, inputTypeList.toString(), outputType.toString(), scopeVars, backendOptions());
+        inv.hintInputTypes = inputTypeList;
+        inv.hintOutputType = outputType;
+    }
+
+    private static String backendOptions() {
+        return "usePArrays=" + ASTxOptions.usePArrays + ",primArrays=" + ASTxOptions.usePrimitivePArray + ",optimizeRSequence=" + ASTxOptions.optimizeRSequence + ",useTypeOfSequences=" +
+                        ASTxOptions.useTypeOfSequences + ",rewriteWithInputReferences=" + ASTxOptions.rewriteWithInputReferences;
+    }
+
+    /**
+     * If the function was compiled to OpenCL in a previous session, compile it with Truffle
+     * straight away instead of waiting for the interpreter to make it hot. The OpenCL code
+     * generation and build still run when the compiled graph is ready.
+     */
+    private void warmUpFromHint(Invocation inv, RFunction function) {
+        if (inv.hintKey == null || !warmedUpFunctions.add(inv.hintKey)) {
+            return;
+        }
+        WarmUpHint entry = WarmUpHintStore.getInstance().load(inv.hintKey);
+        if (entry != null) {
+            ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "Warm-up hint found, compiled at iteration in a previous session:", entry.getMetadata().get("compileIndex"));
+            try {
+                ASTxTruffleCompiler.compileFunction(function);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                if (ASTxOptions.debug) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void storeWarmUpHint(Invocation inv, RFunction function, int index) {
+        if (inv.hintKey == null) {
+            return;
+        }
+        HashMap<String, String> metadata = new HashMap<>();
+        metadata.put("inputTypes", inv.hintInputTypes.toString());
+        metadata.put("outputType", inv.hintOutputType.toString());
+        metadata.put("compileIndex", Integer.toString(index));
+        String[] scopeVars = RGPUCache.INSTANCE.getCachedObjects(function).getScopeVars();
+        if (scopeVars != null) {
+            metadata.put("scopeVars", String.join(",", scopeVars));
+        }
+        String source = function.getTarget().getRootNode().getSourceSection().getCode();
+        WarmUpHintStore.getInstance().store(new WarmUpHint(inv.hintKey, source, metadata));
+        warmedUpFunctions.add(inv.hintKey);
+    }
+
     private static void checkIfRFunctionIsInCache(RFunction function, RootCallTarget callTarget) {
         if (RGPUCache.INSTANCE.getCachedObjects(function).getIDExecution() == 0) {
             callTarget.generateIDForOpenCL();
@@ -299,12 +521,14 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         private Interoperable interoperable;
         private Object[] lexicalScopes;
         private PArray<?> inputPArray;
+        private TypeInfoList inputTypes;
 
-        public JITMetaInput(Object firstValue, Interoperable interoperable, Object[] lexicalScopes, PArray<?> inputPArray) {
+        public JITMetaInput(Object firstValue, Interoperable interoperable, Object[] lexicalScopes, PArray<?> inputPArray, TypeInfoList inputTypes) {
             this.firstValue = firstValue;
             this.interoperable = interoperable;
             this.lexicalScopes = lexicalScopes;
             this.inputPArray = inputPArray;
+            this.inputTypes = inputTypes;
         }
     }
 
@@ -312,7 +536,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
      * Check if the graph is prepared for GPU compilation and invoke the compilation and execution.
      * On Stack Replacement (OSR): switch to compiled GPU code
      */
-    private ArrayList<Object> checkAndRunWithOpenCL(GraalOpenCLCompilationUnit gpuCompilationUnit, RootCallTarget callTarget, int index, JITMetaInput meta, RFunction function, int inputArgs)
+    private ArrayList<Object> checkAndRunWithOpenCL(Invocation inv, GraalOpenCLCompilationUnit gpuCompilationUnit, RootCallTarget callTarget, int index, JITMetaInput meta, RFunction function, int inputArgs)
                     throws AcceleratorExecutionException {
         StructuredGraph graphToCompile = MarawaccGraalIRCache.getInstance().getCompiledGraph(callTarget.getIDForOpenCL());
         if ((graphToCompile != null) && (gpuCompilationUnit == null)) {
@@ -320,24 +544,107 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
                 System.out.println("[MARAWACC-ASTX] Compiling the Graph to GPU - Iteration: " + index);
 
             }
-            Profiler.getInstance().writeInBuffer(ProfilerType.GENERAL_LOG_MESSAGE, "Compiling the Graph to GPU - Iteration:", index);
-            compileIndex = index;
+            ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "Compiling the Graph to GPU - Iteration:", index);
+            inv.compileIndex = index;
             // For debugging
             if (ASTxOptions.printASTforRFunction) {
                 ASTxUtils.printAST(function);
             }
 
-            Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "OpenCL_Compilation_start", System.nanoTime());
-            GraalOpenCLCompilationUnit openCLCompileUnit = compileForMarawaccBackend(meta.inputPArray, (OptimizedCallTarget) callTarget, graphToCompile, meta.firstValue, meta.interoperable,
-                            meta.lexicalScopes, inputArgs);
-            Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "OpenCL_Exec_start", System.nanoTime());
-            ArrayList<Object> runWithMarawaccAccelerator = runWithMarawaccAccelerator(meta.inputPArray, graphToCompile, openCLCompileUnit, function, false);
-            Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "OpenCL_Exec_end", System.nanoTime());
+            ProfilerLog.write(ProfilerType.DEOPTTRACE, "OpenCL_Compilation_start", System.nanoTime());
+            GraalOpenCLCompilationUnit openCLCompileUnit;
+            // The compilation phases rewrite the graph: one thread compiles it, the rest reuse
+            // the binary
+            synchronized (graphToCompile) {
+                openCLCompileUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graphToCompile, meta.inputTypes);
+                if (openCLCompileUnit == null) {
+                    openCLCompileUnit = compileForMarawaccBackend(inv, meta.inputPArray, meta.inputTypes, (OptimizedCallTarget) callTarget, graphToCompile, meta.firstValue, meta.interoperable,
+                                    meta.lexicalScopes, inputArgs);
+                } else if (meta.lexicalScopes != null) {
+                    setScopeBytes(inv, meta.lexicalScopes);
+                }
+            }
+            ProfilerLog.write(ProfilerType.DEOPTTRACE, "OpenCL_Exec_start", System.nanoTime());
+            ArrayList<Object> runWithMarawaccAccelerator = runWithMarawaccAccelerator(inv, meta.inputPArray, graphToCompile, openCLCompileUnit, function, false);
+            ProfilerLog.write(ProfilerType.DEOPTTRACE, "OpenCL_Exec_end", System.nanoTime());
+            storeWarmUpHint(inv, function, index);
             return runWithMarawaccAccelerator;
         }
         return null;
     }
 
+    /**
+     * Ahead-of-time compilation for <code>marawacc.compile</code>. The function is compiled by
+     * Truffle and the OpenCL binary is installed for the declared argument types, so the first call
+     * of <code>marawacc.mapply</code> with those types runs on the device without the interpreter
+     * warmup. The types are taken from the arguments of <code>marawacc.compile</code>: the function
+     * is not run, so its side effects only happen in the calls that use it.
+     *
+     * The Marawacc backend generates the OpenCL kernel and builds it for the device in one step, so
+     * what is persisted is the warm-up hint, which is stored before the device build: with the
+     * hints enabled, the function is recorded even if there is no device to build the binary.
+     *
+     * @param function
+     * @param samples one vector of length one per argument of the function, of the declared type.
+     *            They are only used to marshal the input types, never passed to the function.
+     * @param outputType {@link TypeInfo#DOUBLE} or {@link TypeInfo#INT}
+     * @return true if the OpenCL binary was installed
+     */
+    public static boolean compileAheadOfTime(RFunction function, RAbstractVector[] samples, TypeInfo outputType) {
+        if (ASTxOptions.rewriteWithInputReferences) {
+            // The binary would depend on the references of the input data
+            return false;
+        }
+        RAbstractVector input = samples[0];
+        RAbstractVector[] additionalArgs = (samples.length > 1) ? Arrays.copyOfRange(samples, 1, samples.length) : null;
+        if (!RGPUCache.INSTANCE.contains(function)) {
+            insertIntoCache(function, null, input);
+        }
+        RootCallTarget target = RGPUCache.INSTANCE.getCallTarget(function);
+        Object[] lexicalScopes = RGPUCache.INSTANCE.getCachedObjects(function).getLexicalScopeVars();
+        int numArgumentsOriginalFunction = ASTxUtils.getNumberOfArguments(function);
+
+        // The output template of the kernel is a value of the declared type
+        Object firstValue = (outputType == TypeInfo.INT) ? (Object) 0 : (Object) 0.0;
+        TypeInfoList inputTypeList = createTypeInfoList(input, additionalArgs, 0);
+        Invocation inv = new Invocation();
+        createHintKey(inv, function, inputTypeList, outputType);
+
+        checkIfRFunctionIsInCache(function, target);
+        StructuredGraph graph = MarawaccGraalIRCache.getInstance().getCompiledGraph(target.getIDForOpenCL());
+        if (graph == null) {
+            try {
+                ASTxTruffleCompiler.compileFunction(function, false);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                if (ASTxOptions.debug) {
+                    e.printStackTrace();
+                }
+            }
+            graph = MarawaccGraalIRCache.getInstance().getCompiledGraph(target.getIDForOpenCL());
+        }
+        if (graph == null) {
+            // Graal is not available or the function cannot be compiled
+            return false;
+        }
+        storeWarmUpHint(inv, function, 0);
+
+        PArray<?> inputPArray = ASTxUtils.createPArrays(input, additionalArgs, inputTypeList);
+        synchronized (graph) {
+            if (InternalGraphCache.INSTANCE.getGPUCompilationUnit(graph, inputTypeList) == null) {
+                try {
+                    compileForMarawaccBackend(inv, inputPArray, inputTypeList, (OptimizedCallTarget) target, graph, firstValue, null, lexicalScopes, numArgumentsOriginalFunction);
+                } catch (RuntimeException e) {
+                    // No device to build the binary, the warm-up hint is kept
+                    if (ASTxOptions.debug) {
+                        e.printStackTrace();
+                    }
+                    return false;
+                }
+            }
+        }
+        return InternalGraphCache.INSTANCE.getGPUCompilationUnit(graph, inputTypeList) != null;
+    }
+
     /**
      * It tells if the buffers in the GPUExecution unit has to be re-allocated or not. This is
      * mainly because the input function keeps stable and the input data is changed.
@@ -354,7 +661,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         // compose the input
         if (additionalArgs != null) {
             for (int i = 0; i < additionalArgs.length; i++) {
-                v[i + 1] = additionalArgs[0];
+                v[i + 1] = additionalArgs[i];
             }
         }
         if (CacheInputBuffers.getInstance().constainsRVector(function)) {
@@ -384,10 +691,10 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         // compose the input
         if (additionalArgs != null) {
             for (int i = 0; i < additionalArgs.length; i++) {
-                v[i + 1] = additionalArgs[0];
+                v[i + 1] = additionalArgs[i];
             }
         }
-        if (CacheInputBuffers.getInstance().constainsRVector(function)) {
+        if (CacheInputBuffers.getInstance().constainsPArray(function)) {
             if (!CacheInputBuffers.getInstance().check(function, v)) {
                 CacheInputBuffers.getInstance().add(function, v);
                 return true;
@@ -398,31 +705,53 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         return false;
     }
 
+    /**
+     * The R vectors and the versions the device input is made of. The lexical-scope arrays appended
+     * to the additional arguments are included, so the input is copied again when any of them
+     * changes.
+     */
+    private void setInputSources(Invocation inv, RAbstractVector input, RAbstractVector[] additionalArgs) {
+        int len = (additionalArgs == null) ? 1 : additionalArgs.length + 1;
+        inv.inputSources = new Object[len];
+        inv.inputVersions = new int[len];
+        inv.inputSources[0] = input;
+        inv.inputVersions[0] = ASTxUtils.getVersion(input);
+        for (int i = 1; i < len; i++) {
+            inv.inputSources[i] = additionalArgs[i - 1];
+            inv.inputVersions[i] = ASTxUtils.getVersion(additionalArgs[i - 1]);
+        }
+    }
+
     /**
      * Run in the interpreter and then JIT when the CFG is prepared for compilation.
      */
-    private ArrayList<Object> runJavaOpenCLJIT(RAbstractVector input, RootCallTarget callTarget, RFunction function, int nArgs, RAbstractVector[] additionalArgs, String[] argsName,
-                    Object firstValue, PArray<?> inputPArray, Interoperable interoperable, Object[] lexicalScopes, int argsOriginal) throws AcceleratorExecutionException {
+    private ArrayList<Object> runJavaOpenCLJIT(Invocation inv, RAbstractVector input, RootCallTarget callTarget, RFunction function, int nArgs, RAbstractVector[] additionalArgs, String[] argsName,
+                    Object firstValue, PArray<?> inputPArray, TypeInfoList inputTypes, Interoperable interoperable, Object[] lexicalScopes, int argsOriginal) throws AcceleratorExecutionException {
 
-        Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "AST_INTERPRETER", System.nanoTime());
+        ProfilerLog.write(ProfilerType.DEOPTTRACE, "AST_INTERPRETER", System.nanoTime());
 
         checkIfRFunctionIsInCache(function, callTarget);
         StructuredGraph graphToCompile = MarawaccGraalIRCache.getInstance().getCompiledGraph(callTarget.getIDForOpenCL());
-        GraalOpenCLCompilationUnit gpuCompilationUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graphToCompile);
+        GraalOpenCLCompilationUnit gpuCompilationUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graphToCompile, inputTypes);
+        if (graphToCompile == null) {
+            warmUpFromHint(inv, function);
+        }
 
         boolean newAllocation = newAllocationBuffer(input, additionalArgs, function);
         if (graphToCompile != null && gpuCompilationUnit != null) {
-            return runWithMarawaccAccelerator(inputPArray, graphToCompile, gpuCompilationUnit, function, newAllocation);
+            setInputSources(inv, input, additionalArgs);
+            return runWithMarawaccAccelerator(inv, inputPArray, graphToCompile, gpuCompilationUnit, function, newAllocation);
         }
 
-        JITMetaInput meta = new JITMetaInput(firstValue, interoperable, lexicalScopes, inputPArray);
+        JITMetaInput meta = new JITMetaInput(firstValue, interoperable, lexicalScopes, inputPArray, inputTypes);
         ArrayList<Object> listResult = addOutputElement(firstValue);
-        Profiler.getInstance().writeInBuffer(ProfilerType.GENERAL_LOG_MESSAGE, "START ID: ", compileIndex);
-        for (int i = compileIndex; i < input.getLength(); i++) {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, i);
+        ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "START ID: ", inv.compileIndex);
+        RArgumentsFrame frame = new RArgumentsFrame(function);
+        for (int i = inv.compileIndex; i < input.getLength(); i++) {
+            Object[] argsPackage = frame.pack(input, additionalArgs, i);
             Object value = callTarget.call(argsPackage);
             listResult.add(value);
-            ArrayList<Object> result = checkAndRunWithOpenCL(gpuCompilationUnit, callTarget, i, meta, function, argsOriginal);
+            ArrayList<Object> result = checkAndRunWithOpenCL(inv, gpuCompilationUnit, callTarget, i, meta, function, argsOriginal);
             if (result != null) {
                 return result;
             }
@@ -433,8 +762,9 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     private static ArrayList<Object> runInASTInterpreter(RAbstractVector input, RootCallTarget callTarget, RFunction function, int nArgs, RAbstractVector[] additionalArgs, String[] argsName,
                     Object firstValue) {
         ArrayList<Object> output = addOutputElement(firstValue);
+        RArgumentsFrame frame = new RArgumentsFrame(function);
         for (int i = 1; i < input.getLength(); i++) {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, i);
+            Object[] argsPackage = frame.pack(input, additionalArgs, i);
             Object value = callTarget.call(argsPackage);
             output.add(value);
         }
@@ -458,28 +788,31 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     /**
      * Run in the interpreter and then JIT when the CFG is prepared for compilation.
      */
-    private ArrayList<Object> runJavaOpenCLJIT(PArray<?> input, RootCallTarget callTarget, RFunction function, int nArgs, PArray<?>[] additionalArgs, String[] argsName,
-                    Object firstValue, PArray<?> inputPArray, Interoperable interoperable, Object[] lexicalScopes, int totalSize, int inputArgs) throws AcceleratorExecutionException {
+    private ArrayList<Object> runJavaOpenCLJIT(Invocation inv, PArray<?> input, RootCallTarget callTarget, RFunction function, int nArgs, PArray<?>[] additionalArgs, String[] argsName,
+                    Object firstValue, PArray<?> inputPArray, TypeInfoList inputTypes, Interoperable interoperable, Object[] lexicalScopes, int totalSize, int inputArgs) throws AcceleratorExecutionException {
 
         checkIfRFunctionIsInCache(function, callTarget);
         StructuredGraph graphToCompile = MarawaccGraalIRCache.getInstance().getCompiledGraph(callTarget.getIDForOpenCL());
-        GraalOpenCLCompilationUnit gpuCompilationUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graphToCompile);
+        GraalOpenCLCompilationUnit gpuCompilationUnit = InternalGraphCache.INSTANCE.getGPUCompilationUnit(graphToCompile, inputTypes);
+        if (graphToCompile == null) {
+            warmUpFromHint(inv, function);
+        }
 
         boolean newAllocation = newAllocationBuffer(input, additionalArgs, function);
 
         if (graphToCompile != null && gpuCompilationUnit != null) {
-            ArrayList<Object> runWithMarawaccAccelerator = runWithMarawaccAccelerator(inputPArray, graphToCompile, gpuCompilationUnit, function, newAllocation);
+            ArrayList<Object> runWithMarawaccAccelerator = runWithMarawaccAccelerator(inv, inputPArray, graphToCompile, gpuCompilationUnit, function, newAllocation);
             return runWithMarawaccAccelerator;
         }
 
-        JITMetaInput meta = new JITMetaInput(firstValue, interoperable, lexicalScopes, inputPArray);
+        JITMetaInput meta = new JITMetaInput(firstValue, interoperable, lexicalScopes, inputPArray, inputTypes);
         ArrayList<Object> output = addOutputElement(firstValue);
-
+        RArgumentsFrame frame = new RArgumentsFrame(function);
         for (int i = 1; i < totalSize; i++) {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, i);
+            Object[] argsPackage = frame.pack(input, additionalArgs, i);
             Object value = callTarget.call(argsPackage);
             output.add(value);
-            ArrayList<Object> checkAndRun = checkAndRunWithOpenCL(gpuCompilationUnit, callTarget, i, meta, function, inputArgs);
+            ArrayList<Object> checkAndRun = checkAndRunWithOpenCL(inv, gpuCompilationUnit, callTarget, i, meta, function, inputArgs);
             if (checkAndRun != null) {
                 return checkAndRun;
             }
@@ -492,29 +825,48 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
                     Object firstValue, int totalSize) {
         checkIfRFunctionIsInCache(function, callTarget);
         ArrayList<Object> output = addOutputElement(firstValue);
+        RArgumentsFrame frame = new RArgumentsFrame(function);
         for (int i = 1; i < totalSize; i++) {
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, i);
+            Object[] argsPackage = frame.pack(input, additionalArgs, i);
             Object value = callTarget.call(argsPackage);
             output.add(value);
         }
         return output;
     }
 
-    private static ArrayList<Object> runAfterDeoptWithID(PArray<?> input, RootCallTarget callTarget, RFunction function, int nArgs, PArray<?>[] additionalArgs, String[] argsName,
-                    Object firstValue, int threadID) {
+    private static ArrayList<Object> runAfterDeoptWithID(PArray<?> input, RootCallTarget callTarget, RFunction function, PArray<?>[] additionalArgs, Object firstValue, int threadID) {
         checkIfRFunctionIsInCache(function, callTarget);
         ArrayList<Object> output = addOutputElement(firstValue);
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, threadID);
+        Object[] argsPackage = ASTxUtils.createRArguments(function, input, additionalArgs, threadID);
         Object value = callTarget.call(argsPackage);
         output.add(value);
         return output;
     }
 
-    private static ArrayList<Object> runAfterDeoptWithThreadID(RAbstractVector input, RootCallTarget callTarget, RFunction function, int nArgs, RAbstractVector[] additionalArgs, String[] argsName,
-                    Object firstValue, int threadID) {
+    /**
+     * Deoptimization recovery that runs all the iterations again with Java threads (see
+     * {@link DeoptRecovery}). The device only reports the last thread that deoptimized, not the
+     * first one, so none of its results can be trusted. The GPU caches are invalidated, so the
+     * output is returned in interpreter format.
+     *
+     * @param callTarget
+     * @param function
+     * @param totalSize
+     * @param arguments R arguments for a given index
+     * @return {@link ArrayList}
+     */
+    private ArrayList<Object> runAfterDeoptInParallel(Invocation inv, RootCallTarget callTarget, RFunction function, int totalSize, IntFunction<Object[]> arguments) {
+        ProfilerLog.write(ProfilerType.DEOPTTRACE, "DEOPT_PARALLEL", System.nanoTime());
+        invalidateCaches(function, callTarget);
+        inv.wasBatch = false;
+        checkIfRFunctionIsInCache(function, callTarget);
+        return DeoptRecovery.rerun(totalSize, i -> callTarget.call(arguments.apply(i)), FastRGPUOptions.deoptThreads);
+    }
+
+    private static ArrayList<Object> runAfterDeoptWithThreadID(RAbstractVector input, RootCallTarget callTarget, RFunction function, RAbstractVector[] additionalArgs, Object firstValue, int threadID) {
         checkIfRFunctionIsInCache(function, callTarget);
         ArrayList<Object> output = addOutputElement(firstValue);
-        Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, threadID);
+        Object[] argsPackage = ASTxUtils.createRArguments(function, input, additionalArgs, threadID);
         Object value = callTarget.call(argsPackage);
         output.add(value);
         return output;
@@ -535,7 +887,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             // Type inference -> execution of the first element
             int nArgs = ASTxUtils.getNumberOfArguments(function);
             String[] argsName = ASTxUtils.getArgumentsNames(function);
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, 0);
+            Object[] argsPackage = ASTxUtils.createRArguments(function, input, additionalArgs, 0);
             Object value = function.getTarget().call(argsPackage);
 
             // Inter-operable objects
@@ -545,7 +897,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             Class<?>[] typeObject = ASTxUtils.createListSubTypes(interop, value);
             Interoperable interoperable = (interop != null) ? new Interoperable(interop, typeObject) : null;
 
-            RFunctionMetadata metadata = new RFunctionMetadata(nArgs, argsName, argsPackage, value, outputType, interop, typeObject, interoperable);
+            RFunctionMetadata metadata = new RFunctionMetadata(nArgs, argsName, value, outputType, interop, typeObject, interoperable);
             RGPUCache.INSTANCE.getCachedObjects(function).insertRFuctionMetadata(metadata);
             return metadata;
         } else {
@@ -563,31 +915,34 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
      * @param additionalArgs
      * @return {@link RFunctionMetadata}.
      */
-    private static RFunctionMetadata getCachedFunctionMetadata(RAbstractVector input, RFunction function, RAbstractVector[] additionalArgs) {
-        if (RGPUCache.INSTANCE.getCachedObjects(function).getRFunctionMetadata() == null) {
-            // Type inference -> execution of the first element
-            int nArgs = ASTxUtils.getNumberOfArguments(function);
-            String[] argsName = ASTxUtils.getArgumentsNames(function);
-            Object[] argsPackage = ASTxUtils.createRArguments(nArgs, function, input, additionalArgs, argsName, 0);
-            Object value = function.getTarget().call(argsPackage);
+    private static RFunctionMetadata inferFunctionMetadata(RAbstractVector input, RFunction function, RAbstractVector[] additionalArgs) {
+        // Type inference -> execution of the first element
+        int nArgs = ASTxUtils.getNumberOfArguments(function);
+        String[] argsName = ASTxUtils.getArgumentsNames(function);
+        Object[] argsPackage = ASTxUtils.createRArguments(function, input, additionalArgs, 0);
+        Object value = function.getTarget().call(argsPackage);
 
-            // Inter-operable objects
-            TypeInfo outputType = ASTxUtils.obtainTypeInfo(value);
-            InteropTable interopOutput = ASTxUtils.obtainInterop(outputType);
+        // Inter-operable objects
+        TypeInfo outputType = ASTxUtils.obtainTypeInfo(value);
+        InteropTable interopOutput = ASTxUtils.obtainInterop(outputType);
+
+        Class<?>[] typeObject = ASTxUtils.createListSubTypes(interopOutput, value);
+        Interoperable interoperable = (interopOutput != null) ? new Interoperable(interopOutput, typeObject) : null;
 
-            Class<?>[] typeObject = ASTxUtils.createListSubTypes(interopOutput, value);
-            Interoperable interoperable = (interopOutput != null) ? new Interoperable(interopOutput, typeObject) : null;
+        return new RFunctionMetadata(nArgs, argsName, value, outputType, interopOutput, typeObject, interoperable);
+    }
 
-            RFunctionMetadata metadata = new RFunctionMetadata(nArgs, argsName, argsPackage, value, outputType, interopOutput, typeObject, interoperable);
+    private static RFunctionMetadata getCachedFunctionMetadata(RAbstractVector input, RFunction function, RAbstractVector[] additionalArgs) {
+        if (RGPUCache.INSTANCE.getCachedObjects(function).getRFunctionMetadata() == null) {
+            RFunctionMetadata metadata = inferFunctionMetadata(input, function, additionalArgs);
             RGPUCache.INSTANCE.getCachedObjects(function).insertRFuctionMetadata(metadata);
             return metadata;
-
         } else {
             return RGPUCache.INSTANCE.getCachedObjects(function).getRFunctionMetadata();
         }
     }
 
-    private RAbstractVector computeOpenCLMApply(PArray<?> input, RFunction function, RootCallTarget target, PArray<?>[] additionalArgs, Object[] lexicalScopes, int numArgumentsOriginalFunction) {
+    private Object computeOpenCLMApply(Invocation inv, PArray<?> input, RFunction function, RootCallTarget target, PArray<?>[] additionalArgs, Object[] lexicalScopes, int numArgumentsOriginalFunction) {
         // Get the meta-data from the cache
         RFunctionMetadata cachedFunctionMetadata = getCachedFunctionMetadata(input, function, additionalArgs);
         int nArgs = cachedFunctionMetadata.getnArgs();
@@ -598,6 +953,8 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
 
         int totalSize = ASTxUtils.getSize(input, additionalArgs);
         TypeInfoList inputTypeList = ASTxUtils.createTypeInfoListForInputWithPArrays(input, additionalArgs);
+        RGPUCache.INSTANCE.getCachedObjects(function).setInputTypes(inputTypeList);
+        createHintKey(inv, function, inputTypeList, outputType);
 
         // Marshal from R to OpenCL (PArray)
         long startMarshal = System.nanoTime();
@@ -608,34 +965,42 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         ArrayList<Object> result = null;
         long startExecution = System.nanoTime();
         try {
-            result = runJavaOpenCLJIT(input, target, function, nArgs, additionalArgs, argsName, value, inputPArrayFormat, interoperable, lexicalScopes, totalSize, numArgumentsOriginalFunction);
+            result = runJavaOpenCLJIT(inv, input, target, function, nArgs, additionalArgs, argsName, value, inputPArrayFormat, inputTypeList, interoperable, lexicalScopes, totalSize, numArgumentsOriginalFunction);
         } catch (AcceleratorExecutionException e) {
 
             if (ASTxOptions.debug) {
                 System.out.println("Running in the DEOPT mode");
             }
 
-            int threadID = e.getThreadID();
-            boolean executionValid = false;
-            int deoptCounter = 0;
-            while (!executionValid) {
-                runAfterDeoptWithID(input, target, function, nArgs, additionalArgs, argsName, value, threadID);
-                invalidateCaches(function, target);
-                try {
-                    result = runJavaOpenCLJIT(input, target, function, nArgs, additionalArgs, argsName, value, inputPArrayFormat, interoperable, lexicalScopes, totalSize,
-                                    numArgumentsOriginalFunction);
-                    executionValid = true;
-                } catch (AcceleratorExecutionException e1) {
-                    threadID = e1.getThreadID();
-                    deoptCounter++;
-                    if (deoptCounter > 10) {
+            if (FastRGPUOptions.parallelDeopt) {
+                ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(function);
+                result = runAfterDeoptInParallel(inv, target, function, totalSize, i -> frames.get().pack(input, additionalArgs, i));
+            } else {
+                int threadID = e.getThreadID();
+                boolean executionValid = false;
+                int deoptCounter = 0;
+                while (!executionValid) {
+                    runAfterDeoptWithID(input, target, function, additionalArgs, value, threadID);
+                    invalidateCaches(function, target);
+                    try {
+                        result = runJavaOpenCLJIT(inv, input, target, function, nArgs, additionalArgs, argsName, value, inputPArrayFormat, inputTypeList, interoperable, lexicalScopes, totalSize,
+                                        numArgumentsOriginalFunction);
                         executionValid = true;
-                        throw new RuntimeException("Too many deoptimizations");
+                    } catch (AcceleratorExecutionException e1) {
+                        threadID = e1.getThreadID();
+                        deoptCounter++;
+                        if (deoptCounter > 10) {
+                            executionValid = true;
+                            throw new RuntimeException("Too many deoptimizations");
+                        }
                     }
                 }
             }
         }
         long endExecution = System.nanoTime();
+        if (isDeviceResult(result)) {
+            return result.get(0);
+        }
 
         // Marshal from OpenCL to R
         boolean isGPUExecution = RGPUCache.INSTANCE.getCachedObjects(function).isGPUExecution();
@@ -651,19 +1016,19 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
 
     private static void writeProfilerIntoBuffers(long startMarshal, long endMarshal, long startExecution, long endExecution, long startUnmarshal, long endUnmarshal) {
         // Marshal
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_MARSHAL, "start", startMarshal);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_MARSHAL, "end", endMarshal);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_MARSHAL, "end-start", (endMarshal - startMarshal));
+        ProfilerLog.write(ProfilerType.TRUFFLE_MARSHAL, "start", startMarshal);
+        ProfilerLog.write(ProfilerType.TRUFFLE_MARSHAL, "end", endMarshal);
+        ProfilerLog.write(ProfilerType.TRUFFLE_MARSHAL, "end-start", (endMarshal - startMarshal));
 
         // Execution
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_EXECUTE, "start", startExecution);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_EXECUTE, "end", endExecution);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_EXECUTE, "end-start", (endExecution - startExecution));
+        ProfilerLog.write(ProfilerType.TRUFFLE_EXECUTE, "start", startExecution);
+        ProfilerLog.write(ProfilerType.TRUFFLE_EXECUTE, "end", endExecution);
+        ProfilerLog.write(ProfilerType.TRUFFLE_EXECUTE, "end-start", (endExecution - startExecution));
 
         // Unmarshal
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_UNMARSHAL, "start", startUnmarshal);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_UNMARSHAL, "end", endUnmarshal);
-        Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_UNMARSHAL, "end-start", (endUnmarshal - startUnmarshal));
+        ProfilerLog.write(ProfilerType.TRUFFLE_UNMARSHAL, "start", startUnmarshal);
+        ProfilerLog.write(ProfilerType.TRUFFLE_UNMARSHAL, "end", endUnmarshal);
+        ProfilerLog.write(ProfilerType.TRUFFLE_UNMARSHAL, "end-start", (endUnmarshal - startUnmarshal));
     }
 
     @SuppressWarnings("deprecation")
@@ -675,17 +1040,17 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         }
     }
 
-    private void getBytesInputData(int nArgs, TypeInfoList inputTypeList) {
+    private void getBytesInputData(Invocation inv, int nArgs, TypeInfoList inputTypeList) {
         for (int i = 0; i < nArgs; i++) {
             TypeInfo t = inputTypeList.get(i);
-            getSizeType(t);
+            getSizeType(inv, t);
         }
     }
 
-    private RAbstractVector computeOpenCLMApply(RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, Object[] lexicalScopes,
+    private Object computeOpenCLMApply(Invocation inv, RAbstractVector input, RFunction function, RootCallTarget target, RAbstractVector[] additionalArgs, Object[] lexicalScopes,
                     int numArgumentsOriginalFunction) {
 
-        Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "StartRunning", System.nanoTime());
+        ProfilerLog.write(ProfilerType.DEOPTTRACE, "StartRunning", System.nanoTime());
 
         // Meta-data objects from the cache
         RFunctionMetadata cachedFunctionMetadata = getCachedFunctionMetadata(input, function, additionalArgs);
@@ -699,8 +1064,10 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         int extraParams = nArgs - numArgumentsOriginalFunction;
         TypeInfoList inputTypeList = createTypeInfoList(input, additionalArgs, extraParams);
 
-        getBytesInputData(nArgs, inputTypeList);
-        getSizeType(outputType);
+        getBytesInputData(inv, nArgs, inputTypeList);
+        getSizeType(inv, outputType);
+        RGPUCache.INSTANCE.getCachedObjects(function).setInputTypes(inputTypeList);
+        createHintKey(inv, function, inputTypeList, outputType);
 
         // Marshal from R to OpenCL (PArray)
         long startMarshal = System.nanoTime();
@@ -714,7 +1081,7 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             if (ASTxOptions.runOnASTIntepreterOnly) {
                 result = runInASTInterpreter(input, target, function, nArgs, additionalArgs, argsName, value);
             } else {
-                result = runJavaOpenCLJIT(input, target, function, nArgs, additionalArgs, argsName, value, inputPArray, interoperable, lexicalScopes, numArgumentsOriginalFunction);
+                result = runJavaOpenCLJIT(inv, input, target, function, nArgs, additionalArgs, argsName, value, inputPArray, inputTypeList, interoperable, lexicalScopes, numArgumentsOriginalFunction);
             }
         } catch (AcceleratorExecutionException e) {
 
@@ -724,39 +1091,50 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
              * the function as usual and compiles/runs the new version on GPU. The new version also
              * can fail, so we catch the exception again and repeat the same process. If it fails
              * more than 10 times, we just deopt and run in the interpreter.
+             *
+             * With the parallel deopt mode (default), the device results below the thread that
+             * failed are kept and the rest of the iterations run with Java threads.
              */
             if (ASTxOptions.debug) {
                 System.out.println("Running in the DEOPT mode");
             }
-            int threadID = e.getThreadID();
-            boolean executionValid = false;
-            int deoptCounter = 0;
-            while (!executionValid) {
-                Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "DEOPT_CACHED", System.nanoTime());
-                runAfterDeoptWithThreadID(input, target, function, nArgs, additionalArgs, argsName, value, threadID);
-                invalidateCaches(function, target);
-                try {
-                    Profiler.getInstance().writeInBuffer(ProfilerType.DEOPTTRACE, "RE_RUN", System.nanoTime());
-                    result = runJavaOpenCLJIT(input, target, function, nArgs, additionalArgs, argsName, value, inputPArray, interoperable, lexicalScopes, numArgumentsOriginalFunction);
-                    executionValid = true;
-                } catch (AcceleratorExecutionException e1) {
-                    threadID = e1.getThreadID();
-                    deoptCounter++;
-                    if (deoptCounter > 10) {
+            if (FastRGPUOptions.parallelDeopt) {
+                ThreadLocal<RArgumentsFrame> frames = RArgumentsFrame.perThread(function);
+                result = runAfterDeoptInParallel(inv, target, function, input.getLength(), i -> frames.get().pack(input, additionalArgs, i));
+            } else {
+                int threadID = e.getThreadID();
+                boolean executionValid = false;
+                int deoptCounter = 0;
+                while (!executionValid) {
+                    ProfilerLog.write(ProfilerType.DEOPTTRACE, "DEOPT_CACHED", System.nanoTime());
+                    runAfterDeoptWithThreadID(input, target, function, additionalArgs, value, threadID);
+                    invalidateCaches(function, target);
+                    try {
+                        ProfilerLog.write(ProfilerType.DEOPTTRACE, "RE_RUN", System.nanoTime());
+                        result = runJavaOpenCLJIT(inv, input, target, function, nArgs, additionalArgs, argsName, value, inputPArray, inputTypeList, interoperable, lexicalScopes, numArgumentsOriginalFunction);
                         executionValid = true;
-                        throw new RuntimeException("Too many deoptimizations, not possible to run on again");
+                    } catch (AcceleratorExecutionException e1) {
+                        threadID = e1.getThreadID();
+                        deoptCounter++;
+                        if (deoptCounter > 10) {
+                            executionValid = true;
+                            throw new RuntimeException("Too many deoptimizations, not possible to run on again");
+                        }
                     }
                 }
             }
         }
         boolean isGPUExecution = RGPUCache.INSTANCE.getCachedObjects(function).isGPUExecution();
         long endExecution = System.nanoTime();
+        if (isDeviceResult(result)) {
+            return result.get(0);
+        }
 
         // Marshal from OpenCL to R
         long startUnmarshal = System.nanoTime();
         RAbstractVector resultFastR = null;
-        if (wasBatch) {
-            resultFastR = getResultFromPArrayBatch(outputType, result);
+        if (inv.wasBatch) {
+            resultFastR = getResultFromPArrayBatch(inv, outputType, result);
         } else {
             resultFastR = getResult(isGPUExecution, outputType, result);
         }
@@ -768,19 +1146,23 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         return resultFastR;
     }
 
-    private void getSizeType(TypeInfo t) {
+    private static boolean isDeviceResult(ArrayList<Object> result) {
+        return result.size() == 1 && result.get(0) instanceof DeviceResidentArray;
+    }
+
+    private void getSizeType(Invocation inv, TypeInfo t) {
         if (t == TypeInfo.DOUBLE) {
-            typeSizes.add(8);
+            inv.typeSizes.add(8);
         } else if (t == TypeInfo.RDoubleVector) {
-            typeSizes.add(8);
+            inv.typeSizes.add(8);
         } else if (t == TypeInfo.RDoubleSequence) {
-            typeSizes.add(8);
+            inv.typeSizes.add(8);
         } else if (t == TypeInfo.INT) {
-            typeSizes.add(4);
+            inv.typeSizes.add(4);
         } else if (t == TypeInfo.RIntVector) {
-            typeSizes.add(4);
+            inv.typeSizes.add(4);
         } else if (t == TypeInfo.RIntSequence) {
-            typeSizes.add(4);
+            inv.typeSizes.add(4);
         } else {
             if (ASTxOptions.debug) {
                 System.err.println("Data Type not supported yet::" + t);
@@ -817,8 +1199,8 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     }
 
     @SuppressWarnings("rawtypes")
-    private double[] getDoubleVector(TypeInfo outputType, ArrayList<Object> result) {
-        int totalSize = totalSizeWhenBatch;
+    private double[] getDoubleVector(Invocation inv, TypeInfo outputType, ArrayList<Object> result) {
+        int totalSize = inv.totalSizeWhenBatch;
         double[] finalResultDouble = new double[totalSize];
         int destPos = 0;
         for (Object o : result) {
@@ -830,8 +1212,8 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     }
 
     @SuppressWarnings("rawtypes")
-    private int[] getIntVector(TypeInfo outputType, ArrayList<Object> result) {
-        int totalSize = totalSizeWhenBatch;
+    private int[] getIntVector(Invocation inv, TypeInfo outputType, ArrayList<Object> result) {
+        int totalSize = inv.totalSizeWhenBatch;
         int[] finalResult = new int[totalSize];
         int destPos = 0;
         for (Object o : result) {
@@ -842,11 +1224,11 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         return finalResult;
     }
 
-    private RAbstractVector getResultFromPArrayBatch(TypeInfo outputType, ArrayList<Object> result) {
+    private RAbstractVector getResultFromPArrayBatch(Invocation inv, TypeInfo outputType, ArrayList<Object> result) {
         if (outputType == TypeInfo.DOUBLE) {
-            return RDataFactory.createDoubleVector(getDoubleVector(outputType, result), false);
+            return RDataFactory.createDoubleVector(getDoubleVector(inv, outputType, result), false);
         } else if (outputType == TypeInfo.INT) {
-            return RDataFactory.createIntVector(getIntVector(outputType, result), false);
+            return RDataFactory.createIntVector(getIntVector(inv, outputType, result), false);
         } else {
             throw new RuntimeException("Data Type not supported yet: " + outputType);
         }
@@ -873,19 +1255,19 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         return additionalInputs;
     }
 
-    private RAbstractVector computeOpenCLMApplyForRVector(RArgsValuesAndNames args, boolean isRewritten, RVector[] vectors, Object[] lexicalScopes, RFunction function,
+    private Object computeOpenCLMApplyForRVector(Invocation inv, RArgsValuesAndNames args, boolean isRewritten, RVector[] vectors, Object[] lexicalScopes, RFunction function,
                     RAbstractVector inputRArray,
                     RootCallTarget target, int numArgumentsOriginalFunction) {
-        RAbstractVector mapResult = null;
+        Object mapResult = null;
         RAbstractVector[] additionalInputs = getAddiotionalInputs(args, isRewritten, vectors, lexicalScopes);
-        mapResult = computeOpenCLMApply(inputRArray, function, target, additionalInputs, lexicalScopes, numArgumentsOriginalFunction);
+        mapResult = computeOpenCLMApply(inv, inputRArray, function, target, additionalInputs, lexicalScopes, numArgumentsOriginalFunction);
         return mapResult;
     }
 
-    private RAbstractVector computeOpenCLMApplyForPArray(RArgsValuesAndNames args, Object[] lexicalScopes, RFunction function, PArray<?> parrayInput,
+    private Object computeOpenCLMApplyForPArray(Invocation inv, RArgsValuesAndNames args, Object[] lexicalScopes, RFunction function, PArray<?> parrayInput,
                     RootCallTarget target, int numArgumentsOriginalFunction) {
         PArray<?>[] additionalInputs = ASTxUtils.getPArrayWithAdditionalArguments(args);
-        return computeOpenCLMApply(parrayInput, function, target, additionalInputs, lexicalScopes, numArgumentsOriginalFunction);
+        return computeOpenCLMApply(inv, parrayInput, function, target, additionalInputs, lexicalScopes, numArgumentsOriginalFunction);
     }
 
     @SuppressWarnings("deprecation")
@@ -900,9 +1282,9 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     private static void printProfiler(long start, long end, String component) {
         // Write profiler information into a buffer
         if (ASTxOptions.profileOpenCL_ASTx) {
-            Profiler.getInstance().writeInBuffer(component + " start-end", (end - start));
-            Profiler.getInstance().writeInBuffer(component + " start", start);
-            Profiler.getInstance().writeInBuffer(component + " end", end);
+            ProfilerLog.write(component + " start-end", (end - start));
+            ProfilerLog.write(component + " start", start);
+            ProfilerLog.write(component + " end", end);
         }
     }
 
@@ -957,22 +1339,22 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             filterScopeVarNames = valueOfScopeArrays.getNameVars();
             vectors = valueOfScopeArrays.getVector();
         }
-        RCacheObjects cachedObjects = new RCacheObjects(function.getTarget(), scopeVars, lexicalScopes);
+        RCacheObjects cachedObjects = new RCacheObjects(function.getTarget(), scopeVars, lexicalScopes, filterScopeVarNames);
         target = RGPUCache.INSTANCE.updateCacheObjects(function, cachedObjects);
         lookupFunction.insert(function, firstParam, args);
         return new MetaData(target, lexicalScopes, vectors, filterScopeVarNames, scopeVars);
     }
 
     @SuppressWarnings("rawtypes")
-    private RAbstractVector execute(RArgsValuesAndNames args, boolean isRewritten, RVector[] vectors, Object[] lexicalScopes, RFunction function, RAbstractVector inputRArray, RootCallTarget target,
+    private Object execute(Invocation inv, RArgsValuesAndNames args, boolean isRewritten, RVector[] vectors, Object[] lexicalScopes, RFunction function, RAbstractVector inputRArray, RootCallTarget target,
                     int numArgumentsOriginalFunction, boolean parrayFormat, PArray parrayInput) {
-        RAbstractVector mapResult = null;
+        Object mapResult = null;
         if (!parrayFormat) {
-            mapResult = computeOpenCLMApplyForRVector(args, isRewritten, vectors, lexicalScopes, function, inputRArray, target, numArgumentsOriginalFunction);
+            mapResult = computeOpenCLMApplyForRVector(inv, args, isRewritten, vectors, lexicalScopes, function, inputRArray, target, numArgumentsOriginalFunction);
         } else {
             // Note this path with {@link Parray} as input does not allow the experimental
             // optimisation node scope rewriting.
-            mapResult = computeOpenCLMApplyForPArray(args, lexicalScopes, function, parrayInput, target, numArgumentsOriginalFunction);
+            mapResult = computeOpenCLMApplyForPArray(inv, args, lexicalScopes, function, parrayInput, target, numArgumentsOriginalFunction);
         }
         return mapResult;
     }
@@ -980,11 +1362,10 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
     @Override
     public Object call(RArgsValuesAndNames args) {
 
-        Profiler.getInstance().print("\nIteration: " + iteration++);
+        ProfilerLog.print("\nIteration: " + iteration.getAndIncrement());
 
         checkJVMOptions();
-        compileIndex = 1;
-        typeSizes.clear();
+        Invocation inv = new Invocation();
 
         long start = System.nanoTime();
 
@@ -1000,7 +1381,19 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
         PArray<?> parrayInput = null;
         boolean parrayFormat = false;
 
-        if (firstParam instanceof RAbstractVector) {
+        if (firstParam instanceof DeviceResidentArray) {
+            @SuppressWarnings("unchecked")
+            DeviceResidentArray<AcceleratorPArray, RAbstractVector> deviceInput = (DeviceResidentArray<AcceleratorPArray, RAbstractVector>) firstParam;
+            if (args.getLength() == 2 && !ASTxOptions.rewriteWithInputReferences) {
+                Object deviceResult = runWithDeviceInput(deviceInput, function);
+                if (deviceResult != null) {
+                    printProfiler(start, System.nanoTime(), "gpu");
+                    return deviceResult;
+                }
+            }
+            inputRArray = deviceInput.getHost();
+            firstParam = inputRArray;
+        } else if (firstParam instanceof RAbstractVector) {
             inputRArray = (RAbstractVector) firstParam;
         } else if (firstParam instanceof PArray) {
             parrayFormat = true;
@@ -1035,7 +1428,18 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
                 filterScopeVarNames = insertIntoCache.getFilterScopeVarNames();
                 scopeVars = insertIntoCache.getScopeVars();
             } else {
-                lexicalScopes = RGPUCache.INSTANCE.getCachedObjects(function).getLexicalScopeVars();
+                RCacheObjects cachedObjects = RGPUCache.INSTANCE.getCachedObjects(function);
+                lexicalScopes = cachedObjects.getLexicalScopeVars();
+                if (lexicalScopes != null && cachedObjects.getLexicalScopeNames() != null && !ASTxUtils.refreshScopeArrays(function, cachedObjects.getLexicalScopeNames(), lexicalScopes)) {
+                    // A scope variable changed its type or length
+                    invalidateCaches(function, target);
+                    MetaData insertIntoCache = insertIntoCache(function, args, firstParam);
+                    target = insertIntoCache.getTarget();
+                    lexicalScopes = insertIntoCache.getLexicalScopes();
+                    vectors = insertIntoCache.getVectors();
+                    filterScopeVarNames = insertIntoCache.getFilterScopeVarNames();
+                    scopeVars = insertIntoCache.getScopeVars();
+                }
             }
         }
 
@@ -1050,13 +1454,11 @@ public final class OpenCLMApply extends RExternalBuiltinNode {
             }
             function = scopeRewritting;
             isRewritten = true;
-            RCacheObjects cachedObjects = new RCacheObjects(function.getTarget(), scopeVars, lexicalScopes);
+            RCacheObjects cachedObjects = new RCacheObjects(function.getTarget(), scopeVars, lexicalScopes, filterScopeVarNames);
             target = RGPUCache.INSTANCE.updateCacheObjects(function, cachedObjects);
         }
 
-        RAbstractVector mapResult = execute(args, isRewritten, vectors, lexicalScopes, function, inputRArray, target, numArgumentsOriginalFunction, parrayFormat, parrayInput);
-
-        compileIndex = 1;
+        Object mapResult = execute(inv, args, isRewritten, vectors, lexicalScopes, function, inputRArray, target, numArgumentsOriginalFunction, parrayFormat, parrayInput);
 
         long end = System.nanoTime();
         printProfiler(start, end, "gpu");
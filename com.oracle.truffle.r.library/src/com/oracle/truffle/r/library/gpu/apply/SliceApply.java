@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.apply;
+
+import java.util.ArrayList;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+import com.oracle.truffle.r.library.gpu.pipeline.Chunk;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkPlanner;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RDoubleVectorSlice;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Row and column apply over a double matrix. The function receives each row (<code>margin</code>
+ * 1) or column (<code>margin</code> 2) as a {@link com.oracle.truffle.r.runtime.data.RDoubleVectorSlice}
+ * of the matrix data, with no copy. The slices are split in balanced blocks that run on the shared
+ * parallel pool ({@link AsyncStageExecutor#getParallel()}), and the results keep the order of the
+ * slices. Slices returned in the results are copied, and the matrix is marked shared so that a
+ * later update of it does not change a slice kept by the function.
+ */
+public final class SliceApply {
+
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private static final int LOGICAL = 0;
+    private static final int INTEGER = 1;
+    private static final int DOUBLE = 2;
+
+    private SliceApply() {
+        // empty constructor
+    }
+
+    /**
+     * @param nrow
+     * @param ncol
+     * @param margin 1 for rows, 2 for columns
+     * @return number of slices
+     */
+    public static int numberOfSlices(int nrow, int ncol, int margin) {
+        return margin == 1 ? nrow : ncol;
+    }
+
+    private static RAbstractDoubleVector slice(RDoubleVector matrix, int nrow, int ncol, int margin, int idx) {
+        if (margin == 1) {
+            return RDataFactory.createDoubleVectorSlice(matrix, idx, nrow, ncol);
+        }
+        return RDataFactory.createDoubleVectorSlice(matrix, idx * nrow, 1, nrow);
+    }
+
+    private static void runBlock(RDoubleVector matrix, int nrow, int ncol, int margin, RFunction function, RootCallTarget target, Object[] extra, Object[] results, int from, int to) {
+        RArgumentsFrame frame = new RArgumentsFrame(function);
+        for (int i = from; i < to; i++) {
+            results[i] = target.call(frame.packSlice(slice(matrix, nrow, ncol, margin, i), extra));
+        }
+    }
+
+    /**
+     * Call <code>function</code> on every row or column of <code>matrix</code>.
+     *
+     * @param matrix column-major data of a <code>nrow x ncol</code> matrix
+     * @param nrow
+     * @param ncol
+     * @param margin 1 for rows, 2 for columns
+     * @param function
+     * @param target
+     * @param extra arguments passed as they are after the slice
+     * @param nThreads
+     * @return the result of each slice, in order
+     */
+    public static Object[] apply(RDoubleVector matrix, int nrow, int ncol, int margin, RFunction function, RootCallTarget target, Object[] extra, int nThreads) {
+        // a slice may outlive the call, e.g. in a closure, an update of X must copy the data
+        matrix.makeSharedPermanent();
+        int n = numberOfSlices(nrow, ncol, margin);
+        Object[] results = new Object[n];
+        int numBlocks = Math.min(n, Math.max(1, nThreads) * BLOCKS_PER_THREAD);
+        if (nThreads <= 1 || numBlocks <= 1) {
+            runBlock(matrix, nrow, ncol, margin, function, target, extra, results, 0, n);
+            return results;
+        }
+
+        ArrayList<Chunk> chunks = ChunkPlanner.balanced(n, numBlocks);
+        ArrayList<Runnable> blocks = new ArrayList<>(numBlocks);
+        for (Chunk chunk : chunks) {
+            int from = chunk.getOffset();
+            int to = from + chunk.getSize();
+            blocks.add(() -> runBlock(matrix, nrow, ncol, margin, function, target, extra, results, from, to));
+        }
+        AsyncStageExecutor.getParallel().runAll(blocks);
+        return results;
+    }
+
+    /**
+     * @return the type of an atomic result, LOGICAL &lt; INTEGER &lt; DOUBLE, or -1
+     */
+    private static int kind(Object value) {
+        if (value instanceof Byte || value instanceof RAbstractLogicalVector) {
+            return LOGICAL;
+        } else if (value instanceof Integer || value instanceof RAbstractIntVector) {
+            return INTEGER;
+        } else if (value instanceof Double || value instanceof RAbstractDoubleVector) {
+            return DOUBLE;
+        }
+        return -1;
+    }
+
+    private static int lengthOf(Object value) {
+        return value instanceof RAbstractVector ? ((RAbstractVector) value).getLength() : 1;
+    }
+
+    private static byte logicalAt(Object value, int idx) {
+        return value instanceof Byte ? (Byte) value : ((RAbstractLogicalVector) value).getDataAt(idx);
+    }
+
+    private static int intAt(Object value, int idx) {
+        if (value instanceof Byte || value instanceof RAbstractLogicalVector) {
+            return RRuntime.logical2int(logicalAt(value, idx));
+        }
+        return value instanceof Integer ? (Integer) value : ((RAbstractIntVector) value).getDataAt(idx);
+    }
+
+    private static double doubleAt(Object value, int idx) {
+        if (value instanceof Byte || value instanceof RAbstractLogicalVector) {
+            return RRuntime.logical2double(logicalAt(value, idx));
+        } else if (value instanceof Integer) {
+            int v = (Integer) value;
+            return RRuntime.isNA(v) ? RRuntime.DOUBLE_NA : v;
+        } else if (value instanceof Double) {
+            return (Double) value;
+        } else if (value instanceof RAbstractIntVector) {
+            int v = ((RAbstractIntVector) value).getDataAt(idx);
+            return RRuntime.isNA(v) ? RRuntime.DOUBLE_NA : v;
+        }
+        return ((RAbstractDoubleVector) value).getDataAt(idx);
+    }
+
+    /**
+     * A result that is a slice, or that contains one, would keep seeing the matrix data, so it is
+     * copied.
+     */
+    private static Object detach(Object value) {
+        if (value instanceof RDoubleVectorSlice) {
+            return ((RDoubleVectorSlice) value).materialize();
+        } else if (value instanceof RList) {
+            RList list = (RList) value;
+            RList copy = null;
+            for (int i = 0; i < list.getLength(); i++) {
+                Object element = list.getDataAt(i);
+                Object detached = detach(element);
+                if (detached != element) {
+                    if (copy == null) {
+                        // the list may be referenced elsewhere
+                        copy = (RList) list.copy();
+                    }
+                    copy.updateDataAt(i, detached, null);
+                }
+            }
+            return copy == null ? list : copy;
+        }
+        return value;
+    }
+
+    private static RStringVector namesOf(Object value) {
+        return value instanceof RVector ? ((RVector) value).getNames() : null;
+    }
+
+    /**
+     * Same as {@link #combine(Object[], RStringVector)} without names.
+     *
+     * @param results
+     * @return {@link RAbstractVector}
+     */
+    public static RAbstractVector combine(Object[] results) {
+        return combine(results, null);
+    }
+
+    /**
+     * Combine the results as <code>apply</code> does: a vector when every slice gives one value, a
+     * matrix with one column per slice when every slice gives <code>k</code> values, and a list
+     * otherwise. Logical, integer and double results give the widest of their types. The names of
+     * the slices are the names of the vector or of the list, or the column names of the matrix,
+     * whose row names are the names of the first result.
+     *
+     * @param results
+     * @param sliceNames row names (<code>margin</code> 1) or column names (<code>margin</code> 2) of
+     *            the matrix, or <code>null</code>
+     * @return {@link RAbstractVector}
+     */
+    public static RAbstractVector combine(Object[] results, RStringVector sliceNames) {
+        int k = -1;
+        int type = LOGICAL;
+        for (Object value : results) {
+            int kind = kind(value);
+            if (kind < 0 || (k != -1 && lengthOf(value) != k)) {
+                k = -1;
+                break;
+            }
+            k = lengthOf(value);
+            type = Math.max(type, kind);
+        }
+        if (k == -1 || k == 0) {
+            Object[] data = new Object[results.length];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = detach(results[i]);
+            }
+            RList list = RDataFactory.createList(data);
+            if (sliceNames != null) {
+                list.setNames(sliceNames);
+            }
+            return list;
+        }
+
+        RVector result = combineAtomic(results, k, type);
+        if (k == 1) {
+            if (sliceNames != null) {
+                result.setNames(sliceNames);
+            }
+        } else {
+            RStringVector valueNames = namesOf(results[0]);
+            if (sliceNames != null || valueNames != null) {
+                Object rowNames = valueNames == null ? RNull.instance : valueNames;
+                Object columnNames = sliceNames == null ? RNull.instance : sliceNames;
+                result.setDimNames(RDataFactory.createList(new Object[]{rowNames, columnNames}));
+            }
+        }
+        return result;
+    }
+
+    private static RVector combineAtomic(Object[] results, int k, int type) {
+        int n = results.length;
+        int[] dims = k == 1 ? null : new int[]{k, n};
+        boolean complete = true;
+        switch (type) {
+            case LOGICAL: {
+                byte[] data = new byte[n * k];
+                for (int j = 0; j < n; j++) {
+                    for (int i = 0; i < k; i++) {
+                        byte v = logicalAt(results[j], i);
+                        complete &= !RRuntime.isNA(v);
+                        data[j * k + i] = v;
+                    }
+                }
+                return RDataFactory.createLogicalVector(data, complete, dims);
+            }
+            case INTEGER: {
+                int[] data = new int[n * k];
+                for (int j = 0; j < n; j++) {
+                    for (int i = 0; i < k; i++) {
+                        int v = intAt(results[j], i);
+                        complete &= !RRuntime.isNA(v);
+                        data[j * k + i] = v;
+                    }
+                }
+                return RDataFactory.createIntVector(data, complete, dims);
+            }
+            default: {
+                double[] data = new double[n * k];
+                for (int j = 0; j < n; j++) {
+                    for (int i = 0; i < k; i++) {
+                        double v = doubleAt(results[j], i);
+                        complete &= !RRuntime.isNA(v);
+                        data[j * k + i] = v;
+                    }
+                }
+                return RDataFactory.createDoubleVector(data, complete, dims);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * Bounded pool of daemon threads for asynchronous stages. A stage that depends on another one is
+ * chained to the completion of its input, so no thread waits for it. The idle threads are reclaimed
+ * after <code>keepAliveMillis</code>.
+ *
+ * Failures and cancellations propagate along the chain: a stage whose input failed completes with
+ * the same cause, and {@link #join(Future)} rethrows it to the caller.
+ *
+ * The data-parallel parts of the GPU runtime (batch pipelines, deoptimization recovery, fused
+ * pipelines, reductions and <code>marawacc.apply</code>) share the {@link #getParallel()} pool.
+ */
+public final class AsyncStageExecutor {
+
+    private static final long PARALLEL_KEEP_ALIVE_MILLIS = 60_000;
+
+    private static AsyncStageExecutor parallel;
+
+    private final ThreadPoolExecutor pool;
+
+    private static final class StageThread extends Thread {
+        private final AsyncStageExecutor owner;
+
+        StageThread(AsyncStageExecutor owner, Runnable runnable, String name) {
+            super(runnable, name);
+            this.owner = owner;
+            setDaemon(true);
+        }
+    }
+
+    public AsyncStageExecutor(String name, int nThreads, long keepAliveMillis) {
+        final AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(1, nThreads);
+        pool = new ThreadPoolExecutor(size, size, keepAliveMillis, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                        runnable -> new StageThread(this, runnable, name + "-" + counter.getAndIncrement()));
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Pool with <code>astx.marawacc.parallelThreads</code> threads for the data-parallel work of the
+     * GPU runtime.
+     *
+     * @return {@link AsyncStageExecutor}
+     */
+    public static synchronized AsyncStageExecutor getParallel() {
+        if (parallel == null) {
+            parallel = new AsyncStageExecutor("astx-parallel", FastRGPUOptions.parallelThreads, PARALLEL_KEEP_ALIVE_MILLIS);
+        }
+        return parallel;
+    }
+
+    /**
+     * @return true when the current thread belongs to this pool
+     */
+    public boolean isPoolThread() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof StageThread && ((StageThread) thread).owner == this;
+    }
+
+    /**
+     * Run the tasks and wait for all of them. The caller runs the first task and the rest run in the
+     * pool. The first failure is rethrown as in {@link #join(Future)}, and the tasks that did not
+     * start yet are cancelled.
+     *
+     * A thread of this pool runs all the tasks itself, one after the other: nested parallel work
+     * never waits for threads of the pool it is holding.
+     *
+     * @param tasks
+     */
+    public void runAll(List<? extends Runnable> tasks) {
+        if (tasks.size() <= 1 || isPoolThread()) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        ArrayList<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size() - 1);
+        try {
+            for (int i = 1; i < tasks.size(); i++) {
+                futures.add(CompletableFuture.runAsync(tasks.get(i), pool));
+            }
+            tasks.get(0).run();
+            for (CompletableFuture<Void> future : futures) {
+                join(future);
+            }
+        } finally {
+            for (CompletableFuture<Void> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Stage with no input.
+     *
+     * @param stage
+     * @return {@link CompletableFuture}
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> stage) {
+        return CompletableFuture.supplyAsync(stage, pool);
+    }
+
+    /**
+     * Stage that runs in the pool when <code>previous</code> completes.
+     *
+     * @param previous
+     * @param stage
+     * @return {@link CompletableFuture}
+     */
+    public <T, R> CompletableFuture<R> then(CompletableFuture<T> previous, Function<? super T, ? extends R> stage) {
+        return previous.thenApplyAsync(stage, pool);
+    }
+
+    /**
+     * Wait for a stage and return its value. The cause of a failed stage is rethrown as it is when
+     * it is unchecked, and wrapped in a {@link RuntimeException} otherwise.
+     *
+     * @param future
+     * @return value of the stage
+     */
+    public static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an asynchronous stage", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Cause of a failed stage as an unchecked exception. Completion and execution wrappers are
+     * removed, and errors are rethrown as they are.
+     *
+     * @param cause
+     * @return {@link RuntimeException}
+     */
+    public static RuntimeException unwrap(Throwable cause) {
+        Throwable t = cause;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof CancellationException) {
+            return (CancellationException) t;
+        } else if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    public int getMaximumPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * @return number of threads currently alive in the pool
+     */
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache with LRU eviction shared by the GPU caches. Keys are compared by identity. The cache is
+ * bounded in number of entries and in bytes: each entry accounts for the host or device memory it
+ * retains. The least recently used entries are evicted when any bound is exceeded (the last entry
+ * inserted is always kept). With weak keys, the entries of keys that were collected (e.g. closures
+ * that went out of scope) are removed too.
+ *
+ * The {@link EvictionListener} is called for every entry removed by the cache itself, outside of
+ * the lock of the cache, so it can release the buffers and executors that the value holds.
+ * {@link #remove(Object)} does not call it.
+ *
+ * A bound <code>&lt;= 0</code> means unbounded.
+ */
+public final class BoundedCache<K, V> {
+
+    @FunctionalInterface
+    public interface EvictionListener<K, V> {
+        /**
+         * @param key the key, or <code>null</code> when it was collected
+         * @param value
+         */
+        void evicted(K key, V value);
+    }
+
+    private interface Ref {
+        Object referent();
+    }
+
+    private static final class StrongKey implements Ref {
+        private final Object referent;
+
+        StrongKey(Object referent) {
+            this.referent = referent;
+        }
+
+        public Object referent() {
+            return referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Ref && ((Ref) obj).referent() == referent;
+        }
+    }
+
+    private static final class WeakKey extends WeakReference<Object> implements Ref {
+        private final int hash;
+
+        WeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            Object referent = get();
+            return referent != null && obj instanceof Ref && ((Ref) obj).referent() == referent;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private long bytes;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final boolean weakKeys;
+    private final EvictionListener<K, V> listener;
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final LinkedHashMap<Ref, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long evictions;
+
+    public BoundedCache(String name, int maxEntries, long maxBytes, boolean weakKeys, EvictionListener<K, V> listener) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weakKeys = weakKeys;
+        this.listener = listener;
+    }
+
+    public V get(K key) {
+        synchronized (this) {
+            Entry<V> entry = map.get(new StrongKey(key));
+            if (entry != null) {
+                return entry.value;
+            }
+        }
+        notifyEvicted(expunge());
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @param retainedBytes host or device bytes retained by the entry
+     */
+    public void put(K key, V value, long retainedBytes) {
+        ArrayList<Object[]> evicted;
+        synchronized (this) {
+            evicted = expunge();
+            Ref ref = weakKeys ? new WeakKey(key, queue) : new StrongKey(key);
+            Entry<V> old = map.remove(ref);
+            if (old != null) {
+                bytes -= old.bytes;
+            }
+            map.put(ref, new Entry<>(value, retainedBytes));
+            bytes += retainedBytes;
+            evicted.addAll(evictExceeding());
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Update the bytes retained by the entry of <code>key</code>, e.g. after its device buffers
+     * were allocated.
+     *
+     * @param key
+     * @param retainedBytes
+     */
+    public void setBytes(K key, long retainedBytes) {
+        ArrayList<Object[]> evicted;
+        synchronized (this) {
+            evicted = expunge();
+            Entry<V> entry = map.get(new StrongKey(key));
+            if (entry != null) {
+                bytes += retainedBytes - entry.bytes;
+                entry.bytes = retainedBytes;
+                evicted.addAll(evictExceeding());
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = map.remove(new StrongKey(key));
+        if (entry == null) {
+            return null;
+        }
+        bytes -= entry.bytes;
+        return entry.value;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the values of the entries whose key is still alive
+     */
+    public synchronized ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(map.size());
+        for (Map.Entry<Ref, Entry<V>> e : map.entrySet()) {
+            if (e.getKey().referent() != null) {
+                values.add(e.getValue().value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Evict every entry.
+     */
+    public void clear() {
+        ArrayList<Object[]> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Ref, Entry<V>> e : map.entrySet()) {
+                evicted.add(new Object[]{e.getKey().referent(), e.getValue().value});
+            }
+            map.clear();
+            bytes = 0;
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "[entries=" + map.size() + ", bytes=" + bytes + ", evictions=" + evictions + "]";
+    }
+
+    private ArrayList<Object[]> expunge() {
+        ArrayList<Object[]> evicted = new ArrayList<>();
+        Reference<?> ref;
+        while ((ref = queue.poll()) != null) {
+            Entry<V> entry = map.remove(ref);
+            if (entry != null) {
+                bytes -= entry.bytes;
+                evictions++;
+                evicted.add(new Object[]{null, entry.value});
+            }
+        }
+        return evicted;
+    }
+
+    private ArrayList<Object[]> evictExceeding() {
+        ArrayList<Object[]> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Ref, Entry<V>>> it = map.entrySet().iterator();
+        while (map.size() > 1 && ((maxEntries > 0 && map.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes))) {
+            Map.Entry<Ref, Entry<V>> eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue().bytes;
+            evictions++;
+            evicted.add(new Object[]{eldest.getKey().referent(), eldest.getValue().value});
+        }
+        return evicted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyEvicted(ArrayList<Object[]> evicted) {
+        if (listener == null) {
+            return;
+        }
+        for (Object[] e : evicted) {
+            listener.evicted((K) e[0], (V) e[1]);
+        }
+    }
+}
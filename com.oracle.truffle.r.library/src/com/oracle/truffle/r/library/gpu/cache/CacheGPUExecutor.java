@@ -22,26 +22,171 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
-import java.util.HashMap;
-
 import uk.ac.ed.jpai.graal.GraalOpenCLCompilationUnit;
 import uk.ac.ed.jpai.graal.GraalOpenCLExecutor;
 
+import com.oracle.truffle.r.library.gpu.device.DeviceResidency;
+import com.oracle.truffle.r.library.gpu.device.ResidencyTracker;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * Executors of the OpenCL binaries. Each executor keeps its device buffers between runs, and the
+ * entries account for those bytes (see {@link #setDeviceBytes}). When an executor is evicted, its
+ * results still on the device are copied to the host and its buffers are not reused any more.
+ *
+ * An executor owns its device buffers, so two threads running the same binary at the same time
+ * get one executor each (see {@link PerThread}). The executors of threads that finished are released
+ * the next time the binary is used, or with the entry, and they are counted in the bytes of the
+ * entry until then.
+ */
 public class CacheGPUExecutor {
 
-    private HashMap<GraalOpenCLCompilationUnit, GraalOpenCLExecutor> cache;
+    private final BoundedCache<GraalOpenCLCompilationUnit, PerThread<GraalOpenCLExecutor>> cache;
+    private final BoundedCache<GraalOpenCLCompilationUnit, PerThread<GraalOpenCLExecutor[]>> pipelineCache;
 
     public static final CacheGPUExecutor INSTANCE = new CacheGPUExecutor();
 
     private CacheGPUExecutor() {
-        this.cache = new HashMap<>();
+        this.cache = new BoundedCache<>("CacheGPUExecutor", FastRGPUOptions.cacheMaxKernels, FastRGPUOptions.cacheMaxBytes, true, (unit, executors) -> releaseAll(executors));
+        this.pipelineCache = new BoundedCache<>("CacheGPUExecutor.pipeline", FastRGPUOptions.cacheMaxKernels, FastRGPUOptions.cacheMaxBytes, true, (unit, executors) -> releaseAllPipelines(executors));
     }
 
+    /**
+     * Executor of <code>unit</code> for the current thread.
+     *
+     * @param unit
+     * @param executor
+     */
     public void insert(GraalOpenCLCompilationUnit unit, GraalOpenCLExecutor executor) {
-        cache.put(unit, executor);
+        PerThread<GraalOpenCLExecutor> executors;
+        synchronized (this) {
+            executors = cache.get(unit);
+            if (executors == null) {
+                executors = new PerThread<>(CacheGPUExecutor::release);
+                cache.put(unit, executors);
+            }
+        }
+        executors.releaseFinished();
+        GraalOpenCLExecutor old = executors.put(executor);
+        if (old != null && old != executor) {
+            release(old);
+        }
+        cache.setBytes(unit, executors.totalBytes());
     }
 
+    /**
+     * @param unit
+     * @return the executor of <code>unit</code> for the current thread, or null
+     */
     public GraalOpenCLExecutor getExecutor(GraalOpenCLCompilationUnit unit) {
-        return cache.get(unit);
+        PerThread<GraalOpenCLExecutor> executors = cache.get(unit);
+        if (executors == null) {
+            return null;
+        }
+        if (executors.releaseFinished()) {
+            cache.setBytes(unit, executors.totalBytes());
+        }
+        return executors.get();
+    }
+
+    /**
+     * Bytes of the device buffers of one executor of <code>unit</code>.
+     *
+     * @param unit
+     * @param bytes
+     */
+    public void setDeviceBytes(GraalOpenCLCompilationUnit unit, long bytes) {
+        PerThread<GraalOpenCLExecutor> executors = cache.get(unit);
+        if (executors != null) {
+            executors.setBytesEach(bytes);
+            cache.setBytes(unit, executors.totalBytes());
+        }
+    }
+
+    /**
+     * One executor per chunk in flight for the pipelined batch execution, for the current thread.
+     *
+     * @param unit
+     * @param depth
+     * @return {@link GraalOpenCLExecutor}[]
+     */
+    public GraalOpenCLExecutor[] getPipelineExecutors(GraalOpenCLCompilationUnit unit, int depth) {
+        PerThread<GraalOpenCLExecutor[]> perThread;
+        synchronized (this) {
+            perThread = pipelineCache.get(unit);
+            if (perThread == null) {
+                perThread = new PerThread<>(CacheGPUExecutor::releaseAll);
+                pipelineCache.put(unit, perThread);
+            }
+        }
+        boolean released = perThread.releaseFinished();
+        GraalOpenCLExecutor[] executors = perThread.get();
+        if (executors == null || executors.length != depth) {
+            if (executors != null) {
+                perThread.remove();
+                releaseAll(executors);
+            }
+            executors = new GraalOpenCLExecutor[depth];
+            for (int i = 0; i < depth; i++) {
+                executors[i] = new GraalOpenCLExecutor();
+            }
+            perThread.put(executors);
+            released = true;
+        }
+        if (released) {
+            pipelineCache.setBytes(unit, perThread.totalBytes());
+        }
+        return executors;
+    }
+
+    /**
+     * @param unit
+     * @param bytes bytes of the device buffers of the pipeline executors of one thread
+     */
+    public void setPipelineDeviceBytes(GraalOpenCLCompilationUnit unit, long bytes) {
+        PerThread<GraalOpenCLExecutor[]> executors = pipelineCache.get(unit);
+        if (executors != null) {
+            executors.setBytesEach(bytes);
+            pipelineCache.setBytes(unit, executors.totalBytes());
+        }
+    }
+
+    /**
+     * Remove the executors of <code>unit</code> of all the threads, e.g. after a deoptimization.
+     *
+     * @param unit
+     */
+    public void release(GraalOpenCLCompilationUnit unit) {
+        PerThread<GraalOpenCLExecutor> executors = cache.remove(unit);
+        if (executors != null) {
+            releaseAll(executors);
+        }
+        PerThread<GraalOpenCLExecutor[]> pipelines = pipelineCache.remove(unit);
+        if (pipelines != null) {
+            releaseAllPipelines(pipelines);
+        }
+    }
+
+    private static void releaseAll(PerThread<GraalOpenCLExecutor> executors) {
+        for (GraalOpenCLExecutor executor : executors.removeAll()) {
+            release(executor);
+        }
+    }
+
+    private static void releaseAllPipelines(PerThread<GraalOpenCLExecutor[]> pipelines) {
+        for (GraalOpenCLExecutor[] executors : pipelines.removeAll()) {
+            releaseAll(executors);
+        }
+    }
+
+    private static void releaseAll(GraalOpenCLExecutor[] executors) {
+        for (GraalOpenCLExecutor executor : executors) {
+            release(executor);
+        }
+    }
+
+    private static void release(GraalOpenCLExecutor executor) {
+        DeviceResidency.INSTANCE.evict(executor, null);
+        ResidencyTracker.INSTANCE.invalidate(executor);
     }
 }
@@ -22,38 +22,60 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
 
 import uk.ac.ed.datastructures.common.PArray;
 
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
+/**
+ * Last inputs of each function, to know when the device buffers have to be allocated again. Only
+ * their identity is needed, so neither the functions nor the inputs are kept alive by the cache.
+ */
 public class CacheInputBuffers {
 
-    private static CacheInputBuffers instance;
+    private static final CacheInputBuffers instance = new CacheInputBuffers();
 
-    private HashMap<RFunction, RAbstractVector[]> cacheRType;
-    private HashMap<RFunction, PArray<?>[]> cachePArray;
+    private BoundedCache<RFunction, WeakReference<?>[]> cacheRType;
+    private BoundedCache<RFunction, WeakReference<?>[]> cachePArray;
 
     public static CacheInputBuffers getInstance() {
-        if (instance == null) {
-            instance = new CacheInputBuffers();
-        }
         return instance;
     }
 
     private CacheInputBuffers() {
-        cacheRType = new HashMap<>();
-        cachePArray = new HashMap<>();
+        cacheRType = new BoundedCache<>("CacheInputBuffers", FastRGPUOptions.cacheMaxFunctions, 0, true, null);
+        cachePArray = new BoundedCache<>("CacheInputBuffers.parray", FastRGPUOptions.cacheMaxFunctions, 0, true, null);
+    }
+
+    private static WeakReference<?>[] references(Object[] values) {
+        WeakReference<?>[] references = new WeakReference<?>[values.length];
+        for (int i = 0; i < values.length; i++) {
+            references[i] = new WeakReference<>(values[i]);
+        }
+        return references;
+    }
+
+    private static boolean sameReferences(WeakReference<?>[] references, Object[] values) {
+        if (references == null || references.length != values.length) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (references[i].get() != values[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void add(RFunction function, RAbstractVector[] values) {
-        cacheRType.put(function, values);
+        cacheRType.put(function, references(values));
     }
 
     public void add(RFunction function, PArray<?>[] values) {
-        cachePArray.put(function, values);
+        cachePArray.put(function, references(values));
     }
 
     public boolean constainsRVector(RFunction function) {
@@ -65,26 +87,10 @@ public class CacheInputBuffers {
     }
 
     public boolean check(RFunction function, RAbstractVector[] vector) {
-        RAbstractVector[] values = cacheRType.get(function);
-        int i = 0;
-        for (RAbstractVector v : values) {
-            if (v != vector[i]) {
-                return false;
-            }
-            i++;
-        }
-        return true;
+        return sameReferences(cacheRType.get(function), vector);
     }
 
     public boolean check(RFunction function, PArray<?>[] vector) {
-        PArray<?>[] values = cachePArray.get(function);
-        int i = 0;
-        for (PArray<?> v : values) {
-            if (v != vector[i]) {
-                return false;
-            }
-            i++;
-        }
-        return true;
+        return sameReferences(cachePArray.get(function), vector);
     }
 }
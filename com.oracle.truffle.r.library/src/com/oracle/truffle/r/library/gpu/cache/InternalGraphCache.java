@@ -22,36 +22,90 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
-import java.util.HashMap;
+import java.util.Objects;
 
 import uk.ac.ed.jpai.graal.GraalOpenCLCompilationUnit;
 
 import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 
+/**
+ * OpenCL binaries of the compiled graphs. A binary is built for the types of its input, so the
+ * lookup is keyed by the graph and the input types: a graph called with other types has no binary
+ * until it is compiled again for them. When a binary is evicted, replaced or deoptimized, the
+ * executors that run it are released as well.
+ */
 public class InternalGraphCache {
 
-    private HashMap<StructuredGraph, GraalOpenCLCompilationUnit> cache;
+    private static final class Binary {
+        private final GraalOpenCLCompilationUnit unit;
+        private final TypeInfoList inputTypes;
+
+        Binary(GraalOpenCLCompilationUnit unit, TypeInfoList inputTypes) {
+            this.unit = unit;
+            this.inputTypes = inputTypes;
+        }
+    }
+
+    private BoundedCache<StructuredGraph, Binary> cache;
 
     public static final InternalGraphCache INSTANCE = new InternalGraphCache();
 
     private InternalGraphCache() {
-        cache = new HashMap<>();
+        cache = new BoundedCache<>("InternalGraphCache", FastRGPUOptions.cacheMaxKernels, 0, true, (graph, binary) -> CacheGPUExecutor.INSTANCE.release(binary.unit));
     }
 
-    public void installGPUBinaryIntoCache(StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit) {
-        if (!cache.containsKey(graph)) {
-            cache.put(graph, gpuCompilationUnit);
+    /**
+     * Install the binary of <code>graph</code> built for <code>inputTypes</code>. A binary of the
+     * same graph for other input types is replaced.
+     *
+     * @param graph
+     * @param inputTypes
+     * @param gpuCompilationUnit
+     */
+    public void installGPUBinaryIntoCache(StructuredGraph graph, TypeInfoList inputTypes, GraalOpenCLCompilationUnit gpuCompilationUnit) {
+        if (graph == null) {
+            return;
+        }
+        Binary old = cache.get(graph);
+        if (old != null && Objects.equals(old.inputTypes, inputTypes)) {
+            return;
+        }
+        cache.put(graph, new Binary(gpuCompilationUnit, inputTypes));
+        if (old != null && old.unit != gpuCompilationUnit) {
+            CacheGPUExecutor.INSTANCE.release(old.unit);
         }
     }
 
-    public GraalOpenCLCompilationUnit getGPUCompilationUnit(StructuredGraph graph) {
-        if (cache.containsKey(graph)) {
-            return cache.get(graph);
+    /**
+     * @param graph
+     * @param inputTypes
+     * @return the binary of <code>graph</code> built for <code>inputTypes</code>, or
+     *         <code>null</code>
+     */
+    public GraalOpenCLCompilationUnit getGPUCompilationUnit(StructuredGraph graph, TypeInfoList inputTypes) {
+        if (graph == null) {
+            return null;
+        }
+        Binary binary = cache.get(graph);
+        if (binary == null || !Objects.equals(binary.inputTypes, inputTypes)) {
+            return null;
         }
-        return null;
+        return binary.unit;
     }
 
     public void deoptimize(StructuredGraph graph) {
-        cache.remove(graph);
+        if (graph == null) {
+            return;
+        }
+        Binary binary = cache.remove(graph);
+        if (binary != null) {
+            CacheGPUExecutor.INSTANCE.release(binary.unit);
+        }
+    }
+
+    public int size() {
+        return cache.size();
     }
 }
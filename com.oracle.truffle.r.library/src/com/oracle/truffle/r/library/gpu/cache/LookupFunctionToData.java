@@ -1,8 +1,9 @@
 package com.oracle.truffle.r.library.gpu.cache;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.runtime.data.RFunction;
 
 /**
@@ -10,14 +11,15 @@ import com.oracle.truffle.r.runtime.data.RFunction;
  * not the one previously observed, then the check returns false and the function, although was was
  * compiled before, has to be recompile for the new types.
  *
+ * Neither the functions nor the data are kept alive by the table.
  */
 public class LookupFunctionToData {
 
     // public static LookupFunctionToData INSTANCE = new LookupFunctionToData();
-    private HashMap<RFunction, Object[]> table;
+    private BoundedCache<RFunction, WeakReference<?>[]> table;
 
     public LookupFunctionToData() {
-        table = new HashMap<>();
+        table = new BoundedCache<>("LookupFunctionToData", FastRGPUOptions.cacheMaxFunctions, 0, true, null);
     }
 
     private static Object[] buildObjectArrayForRereferences(Object[] args) {
@@ -32,14 +34,14 @@ public class LookupFunctionToData {
     }
 
     public boolean checkData(RFunction function, Object... args) {
-        if (table.containsKey(function)) {
-            Object[] cachedArgs = table.get(function);
+        WeakReference<?>[] cachedArgs = table.get(function);
+        if (cachedArgs != null) {
             Object[] references = buildObjectArrayForRereferences(args);
             if (cachedArgs.length != references.length) {
                 return false;
             }
             for (int i = 0; i < cachedArgs.length; i++) {
-                if (cachedArgs[i] != references[i]) {
+                if (cachedArgs[i].get() != references[i]) {
                     return false;
                 }
             }
@@ -51,7 +53,11 @@ public class LookupFunctionToData {
 
     public void insert(RFunction function, Object... args) {
         Object[] references = buildObjectArrayForRereferences(args);
-        table.put(function, references);
+        WeakReference<?>[] weakReferences = new WeakReference<?>[references.length];
+        for (int i = 0; i < references.length; i++) {
+            weakReferences[i] = new WeakReference<>(references[i]);
+        }
+        table.put(function, weakReferences);
     }
 
     public void clear() {
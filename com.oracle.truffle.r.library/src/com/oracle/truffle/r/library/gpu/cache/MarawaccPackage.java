@@ -25,7 +25,11 @@ package com.oracle.truffle.r.library.gpu.cache;
 import uk.ac.ed.datastructures.common.PArray;
 import uk.ac.ed.jpai.ArrayFunction;
 
+import com.oracle.truffle.r.library.gpu.fusion.PipelineStage;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
+import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
+import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 public class MarawaccPackage {
 
@@ -33,6 +37,10 @@ public class MarawaccPackage {
     private TypeInfo type;
     @SuppressWarnings("rawtypes") private PArray pArray;
     private Object output;
+    private PipelineStage stage;
+    private RAbstractVector input;
+    private RAbstractVector[] additionalArgs;
+    private TypeInfoList inputTypes;
 
     public MarawaccPackage(ArrayFunction<?, ?> function) {
         this.arrayFunction = function;
@@ -46,11 +54,42 @@ public class MarawaccPackage {
         return this.type;
     }
 
+    /**
+     * Input of the first operation of a pipeline. It is marshalled the first time it is needed: a
+     * fused pipeline reads the R vectors directly.
+     *
+     * @return {@link PArray}
+     */
     @SuppressWarnings("rawtypes")
     public PArray getpArray() {
+        if (pArray == null && input != null) {
+            pArray = ASTxUtils.marshal(input, additionalArgs, inputTypes);
+        }
         return pArray;
     }
 
+    public void setInput(RAbstractVector input, RAbstractVector[] additionalArgs, TypeInfoList inputTypes) {
+        this.input = input;
+        this.additionalArgs = additionalArgs;
+        this.inputTypes = inputTypes;
+    }
+
+    public RAbstractVector getInput() {
+        return input;
+    }
+
+    public RAbstractVector[] getAdditionalArgs() {
+        return additionalArgs;
+    }
+
+    public void setStage(PipelineStage stage) {
+        this.stage = stage;
+    }
+
+    public PipelineStage getStage() {
+        return stage;
+    }
+
     @SuppressWarnings("rawtypes")
     public void setpArray(PArray pArray) {
         this.pArray = pArray;
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One value per thread, e.g. the executors of a compilation unit, which own device buffers. The
+ * threads are strongly referenced, so the value of a thread that finished is not dropped silently:
+ * it is handed to the release function the next time the values are used (see
+ * {@link #releaseFinished()}), or by the owner of this object when it removes all of them.
+ */
+public final class PerThread<E> {
+
+    private final HashMap<Thread, E> values = new HashMap<>();
+    private final Consumer<E> release;
+    private volatile long bytesEach;
+
+    /**
+     * @param release called with the value of a thread that finished
+     */
+    public PerThread(Consumer<E> release) {
+        this.release = release;
+    }
+
+    /**
+     * @return the value of the current thread, or null
+     */
+    public synchronized E get() {
+        return values.get(Thread.currentThread());
+    }
+
+    /**
+     * @param value new value of the current thread
+     * @return the previous value of the current thread, or null
+     */
+    public synchronized E put(E value) {
+        return values.put(Thread.currentThread(), value);
+    }
+
+    /**
+     * @return the value of the current thread, or null
+     */
+    public synchronized E remove() {
+        return values.remove(Thread.currentThread());
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * @param bytes bytes retained by the value of one thread
+     */
+    public void setBytesEach(long bytes) {
+        this.bytesEach = bytes;
+    }
+
+    /**
+     * @return bytes retained by the values of all the threads
+     */
+    public synchronized long totalBytes() {
+        return bytesEach * values.size();
+    }
+
+    /**
+     * Remove all the values, without releasing them.
+     *
+     * @return the values of all the threads
+     */
+    public synchronized ArrayList<E> removeAll() {
+        ArrayList<E> all = new ArrayList<>(values.values());
+        values.clear();
+        return all;
+    }
+
+    /**
+     * Release the values of the threads that finished.
+     *
+     * @return true if any value was released
+     */
+    public boolean releaseFinished() {
+        ArrayList<E> finished = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Thread, E>> it = values.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Thread, E> entry = it.next();
+                if (!entry.getKey().isAlive()) {
+                    finished.add(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (E value : finished) {
+            release.accept(value);
+        }
+        return !finished.isEmpty();
+    }
+}
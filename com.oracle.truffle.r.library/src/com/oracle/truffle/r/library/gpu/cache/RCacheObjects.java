@@ -22,21 +22,26 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
 
 public class RCacheObjects {
 
     private RootCallTarget rootCallTarget;
     private String[] scopeVars;
     private Object[] lexicalScopeVars;
-    private boolean gpuExecution = false;
+    private String[] lexicalScopeNames;
+    private volatile boolean gpuExecution = false;
 
-    private RFunctionMetadata rfunctionMetadata;
-    private int idExecution;
+    private volatile RFunctionMetadata rfunctionMetadata;
+    private volatile TypeInfoList inputTypes;
+    private final AtomicInteger idExecution = new AtomicInteger();
 
     public RCacheObjects(RootCallTarget rootCallTarget) {
         this.rootCallTarget = rootCallTarget;
-        this.idExecution = 0;
+        this.idExecution.set(0);
     }
 
     public RCacheObjects(RootCallTarget rootCallTarget, String[] scopeVarsName, Object[] lexicalScopeVars) {
@@ -45,6 +50,11 @@ public class RCacheObjects {
         this.lexicalScopeVars = lexicalScopeVars;
     }
 
+    public RCacheObjects(RootCallTarget rootCallTarget, String[] scopeVarsName, Object[] lexicalScopeVars, String[] lexicalScopeNames) {
+        this(rootCallTarget, scopeVarsName, lexicalScopeVars);
+        this.lexicalScopeNames = lexicalScopeNames;
+    }
+
     public RootCallTarget getRootCallTarget() {
         return rootCallTarget;
     }
@@ -57,6 +67,30 @@ public class RCacheObjects {
         return lexicalScopeVars;
     }
 
+    /**
+     * @return bytes of the lexical-scope arrays retained by this entry
+     */
+    public long getRetainedBytes() {
+        long bytes = 0;
+        if (lexicalScopeVars != null) {
+            for (Object scope : lexicalScopeVars) {
+                if (scope instanceof double[]) {
+                    bytes += 8L * ((double[]) scope).length;
+                } else if (scope instanceof int[]) {
+                    bytes += 4L * ((int[]) scope).length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return names of the variables of {@link #getLexicalScopeVars()}, in the same order
+     */
+    public String[] getLexicalScopeNames() {
+        return lexicalScopeNames;
+    }
+
     public void insertRFuctionMetadata(RFunctionMetadata metadata) {
         this.rfunctionMetadata = metadata;
     }
@@ -65,12 +99,20 @@ public class RCacheObjects {
         return this.rfunctionMetadata;
     }
 
+    public void setInputTypes(TypeInfoList inputTypes) {
+        this.inputTypes = inputTypes;
+    }
+
+    public TypeInfoList getInputTypes() {
+        return inputTypes;
+    }
+
     public void incID() {
-        idExecution++;
+        idExecution.incrementAndGet();
     }
 
     public int getIDExecution() {
-        return idExecution;
+        return idExecution.get();
     }
 
     public void enableGPUExecution() {
@@ -84,6 +126,6 @@ public class RCacheObjects {
     public void deoptimize() {
         this.gpuExecution = false;
         this.rootCallTarget.resetIDForOpenCL();
-        this.idExecution = 0;
+        this.idExecution.set(0);
     }
 }
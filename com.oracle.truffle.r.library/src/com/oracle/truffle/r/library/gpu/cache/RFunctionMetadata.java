@@ -27,11 +27,16 @@ import uk.ac.ed.datastructures.interop.Interoperable;
 
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 
+/**
+ * Types and first value of an R function, inferred from its first call. It is stored in the entry of
+ * the function in {@link RGPUCache}, whose key is weak, so it must not reference the function: the
+ * {@link com.oracle.truffle.r.runtime.RArguments} of the first call hold the function and would keep
+ * the entry alive forever. They are built again when needed.
+ */
 public class RFunctionMetadata {
 
     private int nArgs;
     private String[] argsName;
-    private Object[] argsPackageFirstInput;
     private Object firstValue;
 
     private TypeInfo outputType;
@@ -40,11 +45,10 @@ public class RFunctionMetadata {
     private Class<?>[] typeObject;
     private Interoperable interoperable;
 
-    public RFunctionMetadata(int nArgs, String[] argsName, Object[] argsPackageFirstInput, Object firstValue, TypeInfo outputType, InteropTable interop, Class<?>[] typeObject,
+    public RFunctionMetadata(int nArgs, String[] argsName, Object firstValue, TypeInfo outputType, InteropTable interop, Class<?>[] typeObject,
                     Interoperable interoperable) {
         this.nArgs = nArgs;
         this.argsName = argsName;
-        this.argsPackageFirstInput = argsPackageFirstInput;
         this.firstValue = firstValue;
         this.outputType = outputType;
         this.interop = interop;
@@ -76,10 +80,6 @@ public class RFunctionMetadata {
         return argsName;
     }
 
-    public Object[] getArgsPackageFirstInput() {
-        return argsPackageFirstInput;
-    }
-
     public Object getFirstValue() {
         return firstValue;
     }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeVisitor;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.r.nodes.access.variables.ReadVariableNode;
+import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
+import com.oracle.truffle.r.nodes.function.FunctionExpressionNode;
+import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.runtime.HasSignature;
+import com.oracle.truffle.r.runtime.data.RFunction;
+
+/**
+ * Formal arguments of an {@link RFunction}: number, names and the {@link ArgumentsSignature} used
+ * to build the {@link com.oracle.truffle.r.runtime.RArguments}. They are taken once from the root
+ * node of the function, for closures and builtins alike, and cached by call target.
+ *
+ * It also records if the frame of a call may outlive the call: the body creates a closure (which
+ * captures the frame) or calls one of the functions in {@link #FRAME_ACCESS}. The arguments array of
+ * such a function must not be reused for the next call.
+ */
+public final class RFunctionSignature {
+
+    private static final Map<RootCallTarget, RFunctionSignature> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Functions that give access to the frame of the caller.
+     */
+    private static final Set<String> FRAME_ACCESS = new HashSet<>(Arrays.asList("environment", "sys.frame", "sys.frames", "sys.function", "sys.call", "match.call", "parent.frame", "as.environment",
+                    "local", "eval", "evalq", "delayedAssign", "makeActiveBinding", "~"));
+
+    private final ArgumentsSignature signature;
+    private final String[] names;
+    private final boolean frameMayEscape;
+
+    private RFunctionSignature(ArgumentsSignature signature, boolean frameMayEscape) {
+        this.signature = signature;
+        this.frameMayEscape = frameMayEscape;
+        this.names = new String[signature.getLength()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = signature.getName(i);
+        }
+    }
+
+    /**
+     * @param function
+     * @return {@link RFunctionSignature}
+     */
+    public static RFunctionSignature get(RFunction function) {
+        RootCallTarget target = function.getTarget();
+        RFunctionSignature entry = cache.get(target);
+        if (entry == null) {
+            RootNode root = function.getRootNode();
+            entry = new RFunctionSignature(((HasSignature) root).getSignature(), frameMayEscape(root));
+            cache.put(target, entry);
+        }
+        return entry;
+    }
+
+    private static boolean frameMayEscape(RootNode root) {
+        if (!(root instanceof FunctionDefinitionNode)) {
+            // builtins do not expose their frame
+            return false;
+        }
+        boolean[] escapes = new boolean[1];
+        root.accept(new NodeVisitor() {
+            public boolean visit(Node node) {
+                if (node instanceof FunctionExpressionNode || (node instanceof ReadVariableNode && FRAME_ACCESS.contains(((ReadVariableNode) node).getIdentifier()))) {
+                    escapes[0] = true;
+                }
+                return !escapes[0];
+            }
+        });
+        return escapes[0];
+    }
+
+    public ArgumentsSignature getSignature() {
+        return signature;
+    }
+
+    public int getLength() {
+        return names.length;
+    }
+
+    /**
+     * @return true if a closure or an environment may keep the frame of a call alive
+     */
+    public boolean frameMayEscape() {
+        return frameMayEscape;
+    }
+
+    /**
+     * @return a copy of the names of the formal arguments
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+}
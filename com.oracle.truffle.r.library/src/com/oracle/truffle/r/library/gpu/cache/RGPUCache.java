@@ -22,19 +22,27 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
-import java.util.HashMap;
+import uk.ac.ed.marawacc.compilation.MarawaccGraalIRCache;
 
+import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.runtime.data.RFunction;
 
+/**
+ * Compilation state of the R functions used with the GPU builtins. Functions are weakly referenced:
+ * the entry of a closure that is not reachable any more is removed, and so are its graph and its
+ * OpenCL binary when no other function shares the call target. The entries account for the bytes of
+ * their lexical-scope arrays.
+ */
 public class RGPUCache {
 
-    private HashMap<RFunction, RCacheObjects> cache;
+    private BoundedCache<RFunction, RCacheObjects> cache;
 
     public static final RGPUCache INSTANCE = new RGPUCache();
 
     private RGPUCache() {
-        cache = new HashMap<>();
+        cache = new BoundedCache<>("RGPUCache", FastRGPUOptions.cacheMaxFunctions, FastRGPUOptions.cacheMaxBytes, true, (function, cachedObjects) -> release(cachedObjects));
     }
 
     public void insertFunction(RFunction function, RootCallTarget target) {
@@ -45,16 +53,18 @@ public class RGPUCache {
     }
 
     public RootCallTarget lookup(RFunction function) {
-        if (!cache.containsKey(function)) {
-            RCacheObjects cachedObject = new RCacheObjects(function.getTarget());
+        RCacheObjects cachedObject = cache.get(function);
+        if (cachedObject == null) {
+            cachedObject = new RCacheObjects(function.getTarget());
             cache.put(function, cachedObject);
         }
-        return cache.get(function).getRootCallTarget();
+        return cachedObject.getRootCallTarget();
     }
 
     public RootCallTarget getCallTarget(RFunction function) {
-        if (cache.containsKey(function)) {
-            return cache.get(function).getRootCallTarget();
+        RCacheObjects cachedObject = cache.get(function);
+        if (cachedObject != null) {
+            return cachedObject.getRootCallTarget();
         }
         return null;
     }
@@ -64,14 +74,33 @@ public class RGPUCache {
     }
 
     public RCacheObjects getCachedObjects(RFunction function) {
-        if (cache.containsKey(function)) {
-            return cache.get(function);
-        }
-        return null;
+        return cache.get(function);
     }
 
     public RootCallTarget updateCacheObjects(RFunction function, RCacheObjects cachedObjects) {
-        cache.put(function, cachedObjects);
+        cache.put(function, cachedObjects, cachedObjects.getRetainedBytes());
         return cachedObjects.getRootCallTarget();
     }
+
+    public BoundedCache<RFunction, RCacheObjects> getCache() {
+        return cache;
+    }
+
+    /**
+     * Release the graph and the OpenCL binary of an evicted function, unless another function in
+     * the cache still uses the same call target.
+     */
+    private void release(RCacheObjects cachedObjects) {
+        RootCallTarget target = cachedObjects.getRootCallTarget();
+        for (RCacheObjects other : cache.values()) {
+            if (other.getRootCallTarget() == target) {
+                return;
+            }
+        }
+        StructuredGraph graph = MarawaccGraalIRCache.getInstance().getCompiledGraph(target.getIDForOpenCL());
+        if (graph != null) {
+            MarawaccGraalIRCache.getInstance().deoptimize(target.getIDForOpenCL());
+            InternalGraphCache.INSTANCE.deoptimize(graph);
+        }
+    }
 }
@@ -22,89 +22,108 @@
  */
 package com.oracle.truffle.r.library.gpu.cache;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
 import uk.ac.ed.datastructures.common.PArray;
 import uk.ac.ed.jpai.ArrayFunction;
 
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * Asynchronous execution of the marawacc pipelines. Every stage runs in a shared and bounded
+ * {@link AsyncStageExecutor}. A stage starts when the previous one in the pipeline completes, and a
+ * failure or a cancellation is propagated to the next stages and to the R caller.
+ *
+ * The stages are kept in a {@link BoundedCache} weakly keyed by their {@link ArrayFunction}. With
+ * the asynchronous memoisation the oldest stages are dropped when there are more than
+ * <code>astx.marawacc.cacheMaxFutures</code>.
+ */
 public class RMarawaccFutures {
 
     public static final RMarawaccFutures INSTANCE = new RMarawaccFutures();
 
-    @SuppressWarnings("rawtypes") private LinkedList<Future<PArray>> executionQueue;
-    @SuppressWarnings("rawtypes") private ArrayList<Future<PArray>> futuresList;
-    private HashMap<ArrayFunction<?, ?>, Integer> index;
-    private ArrayList<MarawaccPackage> packages;
-    private int position;
+    private static final long KEEP_ALIVE_MILLIS = 60000;
+
+    @SuppressWarnings("rawtypes")
+    private static final class Stage {
+        private final CompletableFuture<PArray> future;
+        private final MarawaccPackage marawaccPackage;
+
+        Stage(CompletableFuture<PArray> future, MarawaccPackage marawaccPackage) {
+            this.future = future;
+            this.marawaccPackage = marawaccPackage;
+        }
+    }
+
+    private final AsyncStageExecutor executor;
+    @SuppressWarnings("rawtypes") private CompletableFuture<PArray> last;
+    private final BoundedCache<ArrayFunction<?, ?>, Stage> stages;
 
     private RMarawaccFutures() {
-        executionQueue = new LinkedList<>();
-        futuresList = new ArrayList<>();
-        index = new HashMap<>();
-        packages = new ArrayList<>();
+        executor = new AsyncStageExecutor("astx-marawacc-future", FastRGPUOptions.asyncThreads, KEEP_ALIVE_MILLIS);
+        stages = new BoundedCache<>("RMarawaccFutures", FastRGPUOptions.cacheMaxFutures, 0, true, null);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    public void addFuture(MarawaccPackage marawaccPackage) {
-        ExecutorService executor = Executors.newFixedThreadPool(1);
-        Callable<PArray> task = null;
-        if (executionQueue.isEmpty()) {
-            task = () -> {
-                return marawaccPackage.getArrayFunction().apply(marawaccPackage.getpArray());
-            };
+    public synchronized void addFuture(MarawaccPackage marawaccPackage) {
+        ArrayFunction function = marawaccPackage.getArrayFunction();
+        CompletableFuture<PArray> future = null;
+        if (last == null) {
+            PArray input = marawaccPackage.getpArray();
+            future = executor.submit(() -> (PArray) function.apply(input));
         } else {
-            Future<PArray> element = executionQueue.removeFirst();
-            task = () -> {
-                while (!element.isDone()) {
-                    // wait
-                }
-                PArray input = element.get();
-                return marawaccPackage.getArrayFunction().apply(input);
-            };
+            future = executor.then(last, input -> (PArray) function.apply(input));
         }
-        Future<PArray> future = executor.submit(task);
 
-        futuresList.add(future);
-        executionQueue.addLast(future);
-        packages.add(marawaccPackage);
-        index.put(marawaccPackage.getArrayFunction(), position);
-        position++;
+        last = future;
+        stages.put(function, new Stage(future, marawaccPackage));
     }
 
-    @SuppressWarnings("rawtypes")
-    public PArray getPArray(int idx) throws InterruptedException, ExecutionException {
-        return futuresList.get(idx).get();
+    private Stage getStage(ArrayFunction<?, ?> arrayFunction) {
+        Stage stage = stages.get(arrayFunction);
+        if (stage == null) {
+            throw new RuntimeException("No asynchronous stage for this marawacc function (evicted or not submitted)");
+        }
+        return stage;
     }
 
+    /**
+     * It waits for the stage of <code>arrayFunction</code>. If the stage, or any stage it depends
+     * on, failed or was cancelled the exception is thrown to the caller.
+     *
+     * @param arrayFunction
+     * @return {@link PArray}
+     */
     @SuppressWarnings("rawtypes")
     public PArray getPArray(ArrayFunction arrayFunction) {
-        try {
-            return getPArray(index.get(arrayFunction));
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return AsyncStageExecutor.join(getStage(arrayFunction).future);
     }
 
     @SuppressWarnings("rawtypes")
     public MarawaccPackage getPackageForArrayFunction(ArrayFunction arrayFunction) {
-        return packages.get(index.get(arrayFunction));
+        return getStage(arrayFunction).marawaccPackage;
+    }
+
+    /**
+     * Cancel the stages that did not start yet. The next stages of the pipeline complete with a
+     * {@link java.util.concurrent.CancellationException}.
+     */
+    public synchronized void cancel() {
+        for (Stage stage : stages.values()) {
+            stage.future.cancel(false);
+        }
     }
 
-    public void clean() {
-        executionQueue.clear();
+    public synchronized void clean() {
+        last = null;
         if (!ASTxOptions.useAsyncMemoisation) {
-            futuresList.clear();
-            index.clear();
+            for (Stage stage : stages.values()) {
+                // stages that nobody will ask for
+                stage.future.cancel(false);
+            }
+            stages.clear();
         }
-        position = 0;
     }
 }
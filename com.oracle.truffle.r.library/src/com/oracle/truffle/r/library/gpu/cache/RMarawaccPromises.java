@@ -24,9 +24,14 @@ package com.oracle.truffle.r.library.gpu.cache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import uk.ac.ed.jpai.ArrayFunction;
 
+/**
+ * Operations of the marawacc pipelines built so far. The builtins can be called from several
+ * threads, so all the accesses take the lock of the instance.
+ */
 public class RMarawaccPromises {
 
     public static final RMarawaccPromises INSTANCE = new RMarawaccPromises();
@@ -40,26 +45,37 @@ public class RMarawaccPromises {
         index = new HashMap<>();
     }
 
-    public void addPromise(MarawaccPackage marawaccPackage) {
+    public synchronized void addPromise(MarawaccPackage marawaccPackage) {
         promises.add(marawaccPackage);
         index.put(marawaccPackage.getArrayFunction(), size);
         size++;
     }
 
     @SuppressWarnings("rawtypes")
-    public MarawaccPackage getPackageForArrayFunction(ArrayFunction arrayFunction) {
+    public synchronized MarawaccPackage getPackageForArrayFunction(ArrayFunction arrayFunction) {
         return promises.get(index.get(arrayFunction));
     }
 
-    public MarawaccPackage getPackage(int idx) {
+    public synchronized MarawaccPackage getPackage(int idx) {
         return promises.get(idx);
     }
 
-    public MarawaccPackage getLast() {
+    /**
+     * Operations of the pipeline that ends with <code>arrayFunction</code>, in order.
+     *
+     * @param arrayFunction
+     * @return {@link List} of {@link MarawaccPackage}
+     */
+    @SuppressWarnings("rawtypes")
+    public synchronized List<MarawaccPackage> getPipeline(ArrayFunction arrayFunction) {
+        return new ArrayList<>(promises.subList(0, index.get(arrayFunction) + 1));
+    }
+
+    public synchronized MarawaccPackage getLast() {
         return promises.get(size - 1);
     }
 
-    public void clean() {
+    public synchronized void clean() {
         promises.clear();
         index.clear();
         size = 0;
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One entry of the {@link WarmUpHintStore}: the R source of a function that was compiled to OpenCL
+ * in a previous session, and its metadata.
+ */
+public final class WarmUpHint {
+
+    private final WarmUpHintKey key;
+    private final String source;
+    private final Map<String, String> metadata;
+
+    public WarmUpHint(WarmUpHintKey key, String source, Map<String, String> metadata) {
+        this.key = key;
+        this.source = source;
+        this.metadata = Collections.unmodifiableMap(new TreeMap<>(metadata));
+    }
+
+    public WarmUpHintKey getKey() {
+        return key;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Checksum of the source and the metadata, stored with the entry to detect corrupted files.
+     *
+     * @return String
+     */
+    String checksum() {
+        StringBuilder builder = new StringBuilder(key.getHash()).append('\n');
+        builder.append(source.length()).append(':').append(source).append('\n');
+        for (Map.Entry<String, String> e : metadata.entrySet()) {
+            builder.append(e.getKey()).append('=').append(e.getValue().length()).append(':').append(e.getValue()).append('\n');
+        }
+        return WarmUpHintKey.sha256(builder.toString());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Key of the {@link WarmUpHintStore}. It is the SHA-256 of everything that changes the
+ * generated kernel of a function: the source of the R function, the input and output types, the names of the
+ * lexical-scope variables and the backend options.
+ */
+public final class WarmUpHintKey {
+
+    private final String hash;
+
+    private WarmUpHintKey(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * @param functionSource
+     * @param inputTypes
+     * @param outputType
+     * @param scopeVars (can be null)
+     * @param options
+     * @return {@link WarmUpHintKey}
+     */
+    public static WarmUpHintKey create(String functionSource, String inputTypes, String outputType, String[] scopeVars, String options) {
+        StringBuilder builder = new StringBuilder();
+        append(builder, "source", functionSource);
+        append(builder, "input", inputTypes);
+        append(builder, "output", outputType);
+        if (scopeVars != null) {
+            for (String var : scopeVars) {
+                append(builder, "scope", var);
+            }
+        }
+        append(builder, "options", options);
+        return new WarmUpHintKey(sha256(builder.toString()));
+    }
+
+    private static void append(StringBuilder builder, String field, String value) {
+        // length prefix, so that different splits of the same text give different keys
+        String v = value == null ? "" : value;
+        builder.append(field).append(':').append(v.length()).append(':').append(v).append('\n');
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : bytes) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof WarmUpHintKey && ((WarmUpHintKey) obj).hash.equals(hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return hash;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * On-disk record of the functions that were compiled to OpenCL, shared by all the R sessions of the
+ * same user. It is a warm-up hint, not a kernel cache: Marawacc generates the OpenCL code and builds
+ * the binary in a single step, so neither can be stored. When a function is found here, it is
+ * compiled by Truffle on its first call instead of after the interpreter warmup, and the OpenCL
+ * code generation and build run as usual.
+ *
+ * There is one file per {@link WarmUpHintKey} in the directory, with the R source of the function,
+ * the metadata and a checksum. Entries that fail the checksum are removed when they are read. When
+ * the directory grows over the maximum size, the least recently used entries are removed.
+ *
+ * The store is best effort: I/O errors are ignored and behave as a miss.
+ */
+public final class WarmUpHintStore {
+
+    private static final String SUFFIX = ".hint";
+    private static final String KEY = "key";
+    private static final String CHECKSUM = "checksum";
+    private static final String SOURCE = "source";
+    private static final String META_PREFIX = "meta.";
+
+    private static WarmUpHintStore instance;
+
+    private final File directory;
+    private final long maxBytes;
+
+    public WarmUpHintStore(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the store configured with <code>-Dastx.marawacc.warmUpHintsDir</code> and
+     *         <code>-Dastx.marawacc.warmUpHintsMaxBytes</code>
+     */
+    public static synchronized WarmUpHintStore getInstance() {
+        if (instance == null) {
+            instance = new WarmUpHintStore(new File(FastRGPUOptions.warmUpHintsDir), FastRGPUOptions.warmUpHintsMaxBytes);
+        }
+        return instance;
+    }
+
+    private File fileFor(WarmUpHintKey key) {
+        return new File(directory, key.getHash() + SUFFIX);
+    }
+
+    /**
+     * @param key
+     * @return {@link WarmUpHint} or null if it is not in the store or it is corrupted
+     */
+    public synchronized WarmUpHint load(WarmUpHintKey key) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            file.delete();
+            return null;
+        }
+        String source = properties.getProperty(SOURCE);
+        String checksum = properties.getProperty(CHECKSUM);
+        if (source == null || checksum == null || !key.getHash().equals(properties.getProperty(KEY))) {
+            file.delete();
+            return null;
+        }
+        HashMap<String, String> metadata = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(META_PREFIX)) {
+                metadata.put(name.substring(META_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        WarmUpHint entry = new WarmUpHint(key, source, metadata);
+        if (!checksum.equals(entry.checksum())) {
+            file.delete();
+            return null;
+        }
+        // LRU order
+        file.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * Store the entry, replacing any previous one with the same key.
+     *
+     * @param entry
+     * @return true if the entry was written
+     */
+    public synchronized boolean store(WarmUpHint entry) {
+        Properties properties = new Properties();
+        properties.setProperty(KEY, entry.getKey().getHash());
+        properties.setProperty(SOURCE, entry.getSource());
+        for (Map.Entry<String, String> e : entry.getMetadata().entrySet()) {
+            properties.setProperty(META_PREFIX + e.getKey(), e.getValue());
+        }
+        properties.setProperty(CHECKSUM, entry.checksum());
+
+        File file = fileFor(entry.getKey());
+        try {
+            Files.createDirectories(directory.toPath());
+            Path tmp = Files.createTempFile(directory.toPath(), entry.getKey().getHash(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, null);
+            }
+            if (Files.size(tmp) > maxBytes) {
+                Files.delete(tmp);
+                return false;
+            }
+            try {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        evict(file);
+        return true;
+    }
+
+    /**
+     * Remove the least recently used entries until the store is under the maximum size. The entry
+     * just written is kept.
+     */
+    private void evict(File keep) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        ArrayList<File> candidates = new ArrayList<>();
+        for (File f : files) {
+            total += f.length();
+            if (!f.equals(keep)) {
+                candidates.add(f);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : candidates) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized void remove(WarmUpHintKey key) {
+        fileFor(key).delete();
+    }
+
+    /**
+     * @return total size in bytes of the entries on disk
+     */
+    public synchronized long size() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        long total = 0;
+        if (files != null) {
+            for (File f : files) {
+                total += f.length();
+            }
+        }
+        return total;
+    }
+}
@@ -76,4 +76,18 @@ public final class ASTxTruffleCompiler {
         }
         return false;
     }
+
+    /**
+     * Compile the function with Graal.
+     *
+     * @param function
+     * @param background if false, the call returns when the compilation has finished
+     * @return false if Graal is not available
+     */
+    public static boolean compileFunction(RFunction function, boolean background) throws InvocationTargetException, IllegalAccessException {
+        if (compiler != null) {
+            return compiler.compile(function.getTarget(), background);
+        }
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.deoptimization;
+
+import java.util.ArrayList;
+import java.util.function.IntFunction;
+
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+
+/**
+ * Recovery after a deoptimization on the device. The iterations from <code>deoptIndex</code> on
+ * are split in blocks that run on the shared {@link AsyncStageExecutor#getParallel()} pool, and the
+ * result keeps the sequential order. The device results below <code>deoptIndex</code> are kept.
+ *
+ * The deoptimization buffer of the device only holds the thread that wrote it last, not the lowest
+ * one that deoptimized, so after a device deoptimization all the iterations run again (see
+ * {@link #rerun}).
+ */
+public final class DeoptRecovery {
+
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private DeoptRecovery() {
+        // empty constructor
+    }
+
+    /**
+     * Run all the iterations again with Java threads.
+     *
+     * @param totalSize
+     * @param iteration runs one iteration in the interpreter
+     * @param nThreads
+     * @return {@link ArrayList} with <code>totalSize</code> elements in sequential order
+     */
+    public static ArrayList<Object> rerun(int totalSize, IntFunction<Object> iteration, int nThreads) {
+        return recover(null, 0, totalSize, iteration, nThreads);
+    }
+
+    /**
+     * @param device result of the device for an index below <code>deoptIndex</code>
+     * @param deoptIndex first index that was not computed on the device
+     * @param totalSize
+     * @param iteration runs one iteration in the interpreter
+     * @param nThreads
+     * @return {@link ArrayList} with <code>totalSize</code> elements in sequential order
+     */
+    public static ArrayList<Object> recover(IntFunction<Object> device, int deoptIndex, int totalSize, IntFunction<Object> iteration, int nThreads) {
+        ArrayList<Object> result = new ArrayList<>(totalSize);
+        for (int i = 0; i < deoptIndex; i++) {
+            result.add(device.apply(i));
+        }
+
+        int remaining = totalSize - deoptIndex;
+        if (remaining <= 0) {
+            return result;
+        }
+        int numBlocks = Math.min(remaining, Math.max(1, nThreads) * BLOCKS_PER_THREAD);
+        if (nThreads <= 1 || numBlocks == 1) {
+            for (int i = deoptIndex; i < totalSize; i++) {
+                result.add(iteration.apply(i));
+            }
+            return result;
+        }
+
+        final Object[][] values = new Object[numBlocks][];
+        ArrayList<Runnable> blocks = new ArrayList<>(numBlocks);
+        int base = remaining / numBlocks;
+        int remainder = remaining % numBlocks;
+        int from = deoptIndex;
+        for (int b = 0; b < numBlocks; b++) {
+            final int block = b;
+            final int start = from;
+            final int end = start + base + (b < remainder ? 1 : 0);
+            blocks.add(() -> {
+                Object[] blockValues = new Object[end - start];
+                for (int i = start; i < end; i++) {
+                    blockValues[i - start] = iteration.apply(i);
+                }
+                values[block] = blockValues;
+            });
+            from = end;
+        }
+        AsyncStageExecutor.getParallel().runAll(blocks);
+        for (Object[] blockValues : values) {
+            for (Object value : blockValues) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -2,52 +2,186 @@ package com.oracle.truffle.r.library.gpu.deoptimization;
 
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
 
-import com.oracle.truffle.api.source.Source;
-import com.oracle.truffle.r.library.gpu.exceptions.MarawaccRuntimeDeoptException;
-import com.oracle.truffle.r.library.gpu.utils.__LINE__;
-import com.oracle.truffle.r.runtime.context.Engine.ParseException;
-import com.oracle.truffle.r.runtime.context.RContext;
-import com.oracle.truffle.r.runtime.data.RDoubleSequence;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.library.gpu.utils.RArgumentsFrame;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RFunction;
-import com.oracle.truffle.r.runtime.data.RIntSequence;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 public class MarawaccDeopt {
 
+    // Types of the simplified result, in coercion order
+    private static final int LOGICAL = 0;
+    private static final int INTEGER = 1;
+    private static final int DOUBLE = 2;
+    private static final int CHARACTER = 3;
+
     /**
-     * Deoptimisation to LApply R function. It reconstructs the source code and launch the R
-     * application in the same RContext.
+     * Deoptimisation to the R semantics of <code>sapply</code> and <code>mapply</code>. It calls the
+     * call target of the function for each element, with the enclosing environment of the
+     * function, so the compiled state of the function is kept. The shorter inputs are recycled and
+     * the results are simplified as <code>sapply</code> does: an atomic vector when all of them
+     * have length one, a matrix when all of them have the same length, and a list otherwise.
      *
      * @param input
+     * @param additionalArgs
      * @param function
+     * @param target
      * @return {@link RAbstractVector}
      */
-    public static RAbstractVector deoptToLApply(RAbstractVector input, RFunction function) {
-
+    public static RAbstractVector deoptToLApply(RAbstractVector input, RAbstractVector[] additionalArgs, RFunction function, RootCallTarget target) {
         if (ASTxOptions.debug) {
             System.out.println("DEOPTIMIZING");
         }
-        StringBuffer buffer = new StringBuffer("sapply(");
-        if (input instanceof RIntSequence) {
-            RIntSequence ref = (RIntSequence) input;
-            buffer.append(ref.getStart() + ":");
-            buffer.append(ref.getEnd() + " ,");
-        } else if (input instanceof RDoubleSequence) {
-            RDoubleSequence ref = (RDoubleSequence) input;
-            buffer.append(ref.getStart() + ":");
-            buffer.append(ref.getEnd() + " ,");
-        } else {
-            throw new MarawaccRuntimeDeoptException("Data type for deoptimization not supported yet: " + __LINE__.print());
-        }
-
-        buffer.append(function.getRootNode().getSourceSection().getCode() + ")");
-        System.out.println(buffer.toString());
-        Source source = Source.fromText(buffer.toString(), "<eval>").withMimeType("application/x-r");
-        try {
-            return (RAbstractVector) RContext.getEngine().parseAndEval(source, false);
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return null;
+        int length = input.getLength();
+        if (additionalArgs != null) {
+            for (RAbstractVector arg : additionalArgs) {
+                length = (length == 0 || arg.getLength() == 0) ? 0 : Math.max(length, arg.getLength());
+            }
+        }
+
+        Object[] results = new Object[length];
+        RArgumentsFrame frame = new RArgumentsFrame(function);
+        for (int i = 0; i < length; i++) {
+            results[i] = target.call(frame.packRecycled(input, additionalArgs, i));
+        }
+
+        RAbstractVector output = simplify(results);
+        if (output instanceof RVector && ((RVector) output).getDimensions() == null && length > 0 && additionalArgs == null) {
+            RStringVector names = useNames(input);
+            if (names != null) {
+                ((RVector) output).setNames(names);
+            }
+        }
+        return output;
+    }
+
+    private static RStringVector useNames(RAbstractVector input) {
+        if (input instanceof RVector && ((RVector) input).getNames() != null) {
+            return ((RVector) input).getNames();
+        } else if (input instanceof RAbstractStringVector) {
+            RAbstractStringVector strings = (RAbstractStringVector) input;
+            String[] names = new String[strings.getLength()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = strings.getDataAt(i);
+            }
+            return RDataFactory.createStringVector(names, strings.isComplete());
+        }
+        return null;
+    }
+
+    private static int kind(Object value) {
+        if (value instanceof Byte || value instanceof RAbstractLogicalVector) {
+            return LOGICAL;
+        } else if (value instanceof Integer || value instanceof RAbstractIntVector) {
+            return INTEGER;
+        } else if (value instanceof Double || value instanceof RAbstractDoubleVector) {
+            return DOUBLE;
+        } else if (value instanceof String || value instanceof RAbstractStringVector) {
+            return CHARACTER;
+        }
+        return -1;
+    }
+
+    private static int length(Object value) {
+        return (value instanceof RAbstractVector) ? ((RAbstractVector) value).getLength() : 1;
+    }
+
+    private static Object elementAt(Object value, int idx) {
+        return (value instanceof RAbstractVector) ? ((RAbstractVector) value).getDataAtAsObject(idx) : value;
+    }
+
+    private static int asInt(Object value) {
+        return (value instanceof Byte) ? RRuntime.logical2int((Byte) value) : (Integer) value;
+    }
+
+    private static double asDouble(Object value) {
+        if (value instanceof Byte) {
+            return RRuntime.logical2double((Byte) value);
+        } else if (value instanceof Integer) {
+            return RRuntime.int2double((Integer) value);
+        }
+        return (Double) value;
+    }
+
+    private static String asString(Object value) {
+        if (value instanceof Byte) {
+            return RRuntime.logicalToString((Byte) value);
+        } else if (value instanceof Integer) {
+            return RRuntime.intToString((Integer) value);
+        } else if (value instanceof Double) {
+            return RRuntime.doubleToString((Double) value);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Simplify the results of the calls as <code>sapply</code> does.
+     *
+     * @param results
+     * @return {@link RAbstractVector}
+     */
+    public static RAbstractVector simplify(Object[] results) {
+        int n = results.length;
+        if (n == 0) {
+            return RDataFactory.createList();
+        }
+        int type = LOGICAL;
+        int len = length(results[0]);
+        for (Object result : results) {
+            int k = kind(result);
+            if (k < 0 || len == 0 || length(result) != len) {
+                return RDataFactory.createList(results);
+            }
+            type = Math.max(type, k);
+        }
+
+        int[] dims = (len > 1) ? new int[]{len, n} : null;
+        int total = len * n;
+        switch (type) {
+            case LOGICAL: {
+                byte[] data = new byte[total];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < len; j++) {
+                        data[i * len + j] = (Byte) elementAt(results[i], j);
+                    }
+                }
+                return RDataFactory.createLogicalVector(data, false, dims);
+            }
+            case INTEGER: {
+                int[] data = new int[total];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < len; j++) {
+                        data[i * len + j] = asInt(elementAt(results[i], j));
+                    }
+                }
+                return RDataFactory.createIntVector(data, false, dims);
+            }
+            case DOUBLE: {
+                double[] data = new double[total];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < len; j++) {
+                        data[i * len + j] = asDouble(elementAt(results[i], j));
+                    }
+                }
+                return RDataFactory.createDoubleVector(data, false, dims);
+            }
+            default: {
+                String[] data = new String[total];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < len; j++) {
+                        data[i * len + j] = asString(elementAt(results[i], j));
+                    }
+                }
+                return RDataFactory.createStringVector(data, false, dims);
+            }
         }
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.device;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+/**
+ * Results that are still on the device, grouped by the executor that owns their buffers. The
+ * registry only keeps weak references: a result that is not reachable from R any more is never
+ * copied back.
+ */
+public final class DeviceResidency {
+
+    public static final DeviceResidency INSTANCE = new DeviceResidency();
+
+    private final IdentityHashMap<Object, ArrayList<WeakReference<DeviceResidentArray<?, ?>>>> live = new IdentityHashMap<>();
+
+    private DeviceResidency() {
+        // empty constructor
+    }
+
+    public synchronized void register(DeviceResidentArray<?, ?> array) {
+        ArrayList<WeakReference<DeviceResidentArray<?, ?>>> list = live.get(array.getOwner());
+        if (list == null) {
+            list = new ArrayList<>();
+            live.put(array.getOwner(), list);
+        }
+        list.add(new WeakReference<>(array));
+    }
+
+    /**
+     * Decide if <code>owner</code> has to allocate new buffers for its next kernel. A result of the
+     * owner used as input (<code>input</code>) must not share its buffers with the output, so it
+     * forces a new allocation. When the buffers are reused, the results of the owner still on the
+     * device are copied to the host first, except the input.
+     *
+     * @param owner
+     * @param input the input of the next kernel if it is on the device, or null
+     * @param newAllocation the owner was asked for new buffers
+     * @return true if the owner has to allocate new buffers
+     */
+    public boolean prepareBuffers(Object owner, DeviceResidentArray<?, ?> input, boolean newAllocation) {
+        boolean ownInput = input != null && input.getOwner() == owner;
+        boolean allocate = newAllocation || ownInput;
+        if (!allocate) {
+            evict(owner, input);
+        }
+        return allocate;
+    }
+
+    /**
+     * Copy to the host the results of <code>owner</code> that are still on the device, before the
+     * owner overwrites its buffers. The result passed in <code>keep</code> (the input of the next
+     * kernel) stays on the device.
+     *
+     * @param owner
+     * @param keep
+     * @return number of results copied to the host
+     */
+    public int evict(Object owner, DeviceResidentArray<?, ?> keep) {
+        ArrayList<DeviceResidentArray<?, ?>> toCopy = new ArrayList<>();
+        synchronized (this) {
+            ArrayList<WeakReference<DeviceResidentArray<?, ?>>> list = live.get(owner);
+            if (list == null) {
+                return 0;
+            }
+            Iterator<WeakReference<DeviceResidentArray<?, ?>>> it = list.iterator();
+            while (it.hasNext()) {
+                DeviceResidentArray<?, ?> array = it.next().get();
+                if (array == null || !array.isOnDevice()) {
+                    it.remove();
+                } else if (array != keep) {
+                    toCopy.add(array);
+                    it.remove();
+                }
+            }
+            if (list.isEmpty()) {
+                live.remove(owner);
+            }
+        }
+        for (DeviceResidentArray<?, ?> array : toCopy) {
+            array.getHost();
+        }
+        return toCopy.size();
+    }
+
+    /**
+     * @param owner
+     * @return number of results of <code>owner</code> that are still on the device
+     */
+    public synchronized int getNumberOfLiveArrays(Object owner) {
+        ArrayList<WeakReference<DeviceResidentArray<?, ?>>> list = live.get(owner);
+        if (list == null) {
+            return 0;
+        }
+        int count = 0;
+        for (WeakReference<DeviceResidentArray<?, ?>> ref : list) {
+            DeviceResidentArray<?, ?> array = ref.get();
+            if (array != null && array.isOnDevice()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.device;
+
+import java.util.function.Function;
+
+/**
+ * Result of a kernel that stays in the device memory until it is read. The host copy is made once,
+ * the first time {@link #getHost()} is called, and then the device reference is released. While
+ * the result is on the device, the next kernel can take {@link #getDevice()} as its input and no
+ * copy is made in either direction.
+ *
+ * The buffers of the device belong to the executor that produced them (the <code>owner</code>).
+ * Before the owner reuses its buffers for a new kernel, the results still on the device are copied
+ * to the host by {@link DeviceResidency#evict(Object, DeviceResidentArray)}. When a result is the
+ * input of its own owner, the owner allocates new buffers instead.
+ *
+ * @param <D> array on the device
+ * @param <H> array on the host
+ */
+public final class DeviceResidentArray<D, H> {
+
+    private final Object owner;
+    private final int size;
+    private final Object elementType;
+    private final Function<D, H> copyToHost;
+
+    private D device;
+    private H host;
+
+    public DeviceResidentArray(Object owner, D device, int size, Object elementType, Function<D, H> copyToHost) {
+        this.owner = owner;
+        this.device = device;
+        this.size = size;
+        this.elementType = elementType;
+        this.copyToHost = copyToHost;
+    }
+
+    public Object getOwner() {
+        return owner;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object getElementType() {
+        return elementType;
+    }
+
+    /**
+     * @return the array on the device, or <code>null</code> when it was already copied to the host
+     */
+    public synchronized D getDevice() {
+        return device;
+    }
+
+    public synchronized boolean isOnDevice() {
+        return device != null;
+    }
+
+    /**
+     * Copy the result to the host the first time it is read.
+     *
+     * @return host array
+     */
+    public synchronized H getHost() {
+        if (host == null) {
+            host = copyToHost.apply(device);
+            device = null;
+        }
+        return host;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceResidentArray[size=" + size + ", type=" + elementType + (isOnDevice() ? ", device]" : ", host]");
+    }
+}
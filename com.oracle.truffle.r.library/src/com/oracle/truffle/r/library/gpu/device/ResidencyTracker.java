@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.device;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * Records which version of the host data was last transferred to a copy owned by someone else (a
+ * device buffer of an executor, or the lexical-scope arrays of a compiled function). A slot is
+ * current while it still refers to the same source object with the same version, and then the
+ * transfer can be skipped.
+ *
+ * Sources without a version (<code>version < 0</code>) are never current. Owners and sources are
+ * only weakly referenced.
+ */
+public final class ResidencyTracker {
+
+    public static final ResidencyTracker INSTANCE = new ResidencyTracker();
+
+    /**
+     * Version of the sources that cannot tell whether they were modified.
+     */
+    public static final int UNVERSIONED = -1;
+
+    private final WeakHashMap<Object, Entry> entries = new WeakHashMap<>();
+
+    private static final class Stamp {
+        private final WeakReference<Object> source;
+        private final int version;
+
+        Stamp(Object source, int version) {
+            this.source = new WeakReference<>(source);
+            this.version = version;
+        }
+
+        boolean matches(Object other, int otherVersion) {
+            return otherVersion >= 0 && version == otherVersion && source.get() == other;
+        }
+    }
+
+    private static final class Entry {
+        private Stamp[] stamps = new Stamp[0];
+        private Object resident;
+
+        Stamp get(int slot) {
+            return slot < stamps.length ? stamps[slot] : null;
+        }
+
+        void set(int slot, Stamp stamp) {
+            if (slot >= stamps.length) {
+                stamps = Arrays.copyOf(stamps, slot + 1);
+            }
+            stamps[slot] = stamp;
+        }
+    }
+
+    private ResidencyTracker() {
+        // empty constructor
+    }
+
+    /**
+     * @param owner
+     * @param slot
+     * @param source
+     * @param version
+     * @return <code>true</code> when the copy in <code>slot</code> of <code>owner</code> was made
+     *         from <code>source</code> at the same <code>version</code>
+     */
+    public synchronized boolean isCurrent(Object owner, int slot, Object source, int version) {
+        Entry entry = entries.get(owner);
+        if (entry == null) {
+            return false;
+        }
+        Stamp stamp = entry.get(slot);
+        return stamp != null && stamp.matches(source, version);
+    }
+
+    public synchronized void record(Object owner, int slot, Object source, int version) {
+        Entry entry = entries.get(owner);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(owner, entry);
+        }
+        entry.set(slot, new Stamp(source, version));
+    }
+
+    /**
+     * Resident copy of <code>sources</code> recorded with {@link #setResident}.
+     *
+     * @param owner
+     * @param sources
+     * @param versions
+     * @return the resident copy, or <code>null</code> when any of the sources changed
+     */
+    public synchronized Object getResident(Object owner, Object[] sources, int[] versions) {
+        Entry entry = entries.get(owner);
+        if (entry == null || entry.resident == null || entry.stamps.length != sources.length) {
+            return null;
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (!entry.stamps[i].matches(sources[i], versions[i])) {
+                return null;
+            }
+        }
+        return entry.resident;
+    }
+
+    /**
+     * Record <code>resident</code> as the copy of <code>sources</code> owned by <code>owner</code>.
+     *
+     * @param owner
+     * @param sources
+     * @param versions
+     * @param resident
+     */
+    public synchronized void setResident(Object owner, Object[] sources, int[] versions, Object resident) {
+        Entry entry = new Entry();
+        entry.stamps = new Stamp[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            entry.stamps[i] = new Stamp(sources[i], versions[i]);
+        }
+        entry.resident = resident;
+        entries.put(owner, entry);
+    }
+
+    /**
+     * Forget every copy owned by <code>owner</code>, e.g. when its buffers are allocated again.
+     *
+     * @param owner
+     */
+    public synchronized void invalidate(Object owner) {
+        entries.remove(owner);
+    }
+}
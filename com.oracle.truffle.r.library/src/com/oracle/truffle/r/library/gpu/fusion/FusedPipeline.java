@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.fusion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+import com.oracle.truffle.r.library.gpu.reduction.ParallelReduction;
+
+/**
+ * Fusion of a marawacc pipeline for the Java threads backend. A sequence of maps, optionally
+ * followed by a reduce, runs as a single pass over the input: every element goes through all the
+ * maps before the next one is read, so no intermediate array is created.
+ *
+ * The maps run in parallel over contiguous ranges of the input, on the shared
+ * {@link AsyncStageExecutor#getParallel()} pool. A reduce declared associative runs as a
+ * {@link ParallelReduction} over the mapped elements. Otherwise the reduce keeps the sequential
+ * semantics of <code>marawacc.reduce</code> (a left fold from the neutral element): the input is
+ * processed in blocks of {@link #BLOCK_SIZE} elements that are mapped in parallel and folded in
+ * order, so only one block is alive at a time.
+ */
+public final class FusedPipeline {
+
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    private FusedPipeline() {
+        // empty constructor
+    }
+
+    /**
+     * A pipeline can be fused when it has at least one stage, all the stages but the last one are
+     * maps and there is at most one reduce, at the end.
+     *
+     * @param stages
+     * @return boolean
+     */
+    public static boolean isFusible(List<PipelineStage> stages) {
+        if (stages == null || stages.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < stages.size() - 1; i++) {
+            if (stages.get(i) == null || stages.get(i).getKind() != PipelineStage.Kind.MAP) {
+                return false;
+            }
+        }
+        return stages.get(stages.size() - 1) != null;
+    }
+
+    /**
+     * Run the pipeline over <code>size</code> elements.
+     *
+     * @param size
+     * @param source element <code>i</code> of the input
+     * @param stages
+     * @return the mapped elements, or a list with one element when the pipeline ends with a reduce
+     */
+    public static ArrayList<Object> run(int size, IntFunction<Object> source, List<PipelineStage> stages) {
+        if (!isFusible(stages)) {
+            throw new RuntimeException("Pipeline cannot be fused");
+        }
+        PipelineStage last = stages.get(stages.size() - 1);
+        boolean reduce = last.getKind() == PipelineStage.Kind.REDUCE;
+        List<PipelineStage> maps = reduce ? stages.subList(0, stages.size() - 1) : stages;
+
+        Function<Object, Object> composed = Function.identity();
+        for (PipelineStage stage : maps) {
+            composed = composed.andThen(stage.getMapFunction());
+        }
+        int nThreads = 1;
+        for (PipelineStage stage : stages) {
+            nThreads = Math.max(nThreads, stage.getNumberOfThreads());
+        }
+        final Function<Object, Object> element = composed;
+
+        ArrayList<Object> result = new ArrayList<>();
+        if (!reduce) {
+            Object[] values = new Object[size];
+            mapRange(0, size, source, element, values, 0, nThreads);
+            for (Object v : values) {
+                result.add(v);
+            }
+        } else if (last.isAssociative()) {
+            result.add(ParallelReduction.reduce(size, i -> element.apply(source.apply(i)), last.getReduceFunction(), last.getNeutral(), nThreads, true));
+        } else {
+            Object acc = last.getNeutral();
+            Object[] block = new Object[Math.min(size, BLOCK_SIZE)];
+            for (int from = 0; from < size; from += BLOCK_SIZE) {
+                int to = Math.min(size, from + BLOCK_SIZE);
+                mapRange(from, to, source, element, block, from, nThreads);
+                for (int i = 0; i < to - from; i++) {
+                    acc = last.getReduceFunction().apply(acc, block[i]);
+                }
+            }
+            result.add(acc);
+        }
+        return result;
+    }
+
+    /**
+     * Map <code>[from, to)</code> into <code>output[i - offset]</code> with up to
+     * <code>nThreads</code> threads.
+     */
+    private static void mapRange(int from, int to, IntFunction<Object> source, Function<Object, Object> element, Object[] output, int offset, int nThreads) {
+        int total = to - from;
+        int numBlocks = Math.min(total, Math.max(1, nThreads));
+        if (numBlocks <= 1) {
+            for (int i = from; i < to; i++) {
+                output[i - offset] = element.apply(source.apply(i));
+            }
+            return;
+        }
+
+        ArrayList<Runnable> tasks = new ArrayList<>(numBlocks);
+        int base = total / numBlocks;
+        int remainder = total % numBlocks;
+        int start = from;
+        for (int b = 0; b < numBlocks; b++) {
+            final int s = start;
+            final int e = s + base + (b < remainder ? 1 : 0);
+            tasks.add(() -> {
+                for (int i = s; i < e; i++) {
+                    output[i - offset] = element.apply(source.apply(i));
+                }
+            });
+            start = e;
+        }
+        AsyncStageExecutor.getParallel().runAll(tasks);
+    }
+}
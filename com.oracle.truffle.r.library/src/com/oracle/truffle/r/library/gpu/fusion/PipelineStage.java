@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.fusion;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Element-wise description of one operation of a marawacc pipeline. It is recorded when the
+ * pipeline is built (<code>marawacc.map</code>, <code>marawacc.reduce</code>) and used by
+ * {@link FusedPipeline} at <code>marawacc.execute</code>.
+ */
+public final class PipelineStage {
+
+    public enum Kind {
+        MAP,
+        REDUCE
+    }
+
+    private final Kind kind;
+    private final Function<Object, Object> map;
+    private final BinaryOperator<Object> reduce;
+    private final Object neutral;
+    private final boolean associative;
+    private final int nThreads;
+
+    private PipelineStage(Kind kind, Function<Object, Object> map, BinaryOperator<Object> reduce, Object neutral, boolean associative, int nThreads) {
+        this.kind = kind;
+        this.map = map;
+        this.reduce = reduce;
+        this.neutral = neutral;
+        this.associative = associative;
+        this.nThreads = nThreads;
+    }
+
+    public static PipelineStage map(Function<Object, Object> function, int nThreads) {
+        return new PipelineStage(Kind.MAP, function, null, null, false, nThreads);
+    }
+
+    /**
+     * @param function
+     * @param neutral
+     * @param associative when it is true the reduction can be computed in parallel with a tree
+     * @param nThreads threads for an associative reduction
+     * @return {@link PipelineStage}
+     */
+    public static PipelineStage reduce(BinaryOperator<Object> function, Object neutral, boolean associative, int nThreads) {
+        return new PipelineStage(Kind.REDUCE, null, function, neutral, associative, nThreads);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Function<Object, Object> getMapFunction() {
+        return map;
+    }
+
+    public BinaryOperator<Object> getReduceFunction() {
+        return reduce;
+    }
+
+    public Object getNeutral() {
+        return neutral;
+    }
+
+    public boolean isAssociative() {
+        return associative;
+    }
+
+    public int getNumberOfThreads() {
+        return nThreads;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.intrinsics;
+
+import com.oracle.truffle.r.library.gpu.utils.ColumnarMarshal;
+
+/**
+ * Counter-based random number generator (Philox4x32-10, Salmon et al., SC'11). The value of each
+ * element only depends on <code>(seed, stream, index)</code>: there is no state to share between
+ * threads, and the numbers are the same whatever the number of threads or the chunking of the
+ * input.
+ *
+ * The counter is <code>{index, stream}</code> (two 64-bit halves) and the key is the 64-bit seed.
+ * The generator only uses <code>int</code> arithmetic and no allocation, so it can be inlined in the
+ * functions that run on the device.
+ */
+public final class Philox {
+
+    private static final int M0 = 0xD2511F53;
+    private static final int M1 = 0xCD9E8D57;
+    private static final int W0 = 0x9E3779B9;
+    private static final int W1 = 0xBB67AE85;
+
+    private static final int ROUNDS = 10;
+
+    private static final double TWO_POW_53 = 9007199254740992.0;
+
+    /**
+     * The four words of the block for the given counter and key.
+     *
+     * @param c0
+     * @param c1
+     * @param c2
+     * @param c3
+     * @param k0
+     * @param k1
+     * @return int[]
+     */
+    public static int[] block(int c0, int c1, int c2, int c3, int k0, int k1) {
+        int x0 = c0;
+        int x1 = c1;
+        int x2 = c2;
+        int x3 = c3;
+        int key0 = k0;
+        int key1 = k1;
+        for (int r = 0; r < ROUNDS; r++) {
+            long p0 = (M0 & 0xFFFFFFFFL) * (x0 & 0xFFFFFFFFL);
+            long p1 = (M1 & 0xFFFFFFFFL) * (x2 & 0xFFFFFFFFL);
+            int y0 = (int) (p1 >>> 32) ^ x1 ^ key0;
+            int y1 = (int) p1;
+            int y2 = (int) (p0 >>> 32) ^ x3 ^ key1;
+            int y3 = (int) p0;
+            x0 = y0;
+            x1 = y1;
+            x2 = y2;
+            x3 = y3;
+            key0 += W0;
+            key1 += W1;
+        }
+        return new int[]{x0, x1, x2, x3};
+    }
+
+    /**
+     * Uniform double in <code>[0, 1)</code> with 53 random bits.
+     *
+     * @param seed
+     * @param stream
+     * @param index
+     * @return double
+     */
+    public static double uniform(long seed, long stream, long index) {
+        int x0 = (int) index;
+        int x1 = (int) (index >>> 32);
+        int x2 = (int) stream;
+        int x3 = (int) (stream >>> 32);
+        int key0 = (int) seed;
+        int key1 = (int) (seed >>> 32);
+        for (int r = 0; r < ROUNDS; r++) {
+            long p0 = (M0 & 0xFFFFFFFFL) * (x0 & 0xFFFFFFFFL);
+            long p1 = (M1 & 0xFFFFFFFFL) * (x2 & 0xFFFFFFFFL);
+            int y0 = (int) (p1 >>> 32) ^ x1 ^ key0;
+            int y1 = (int) p1;
+            int y2 = (int) (p0 >>> 32) ^ x3 ^ key1;
+            int y3 = (int) p0;
+            x0 = y0;
+            x1 = y1;
+            x2 = y2;
+            x3 = y3;
+            key0 += W0;
+            key1 += W1;
+        }
+        long a = (x0 & 0xFFFFFFFFL) >>> 5;
+        long b = (x1 & 0xFFFFFFFFL) >>> 6;
+        return ((a << 26) + b) / TWO_POW_53;
+    }
+
+    /**
+     * Elements <code>[offset, offset + size)</code> of a stream, computed in parallel for large
+     * sizes.
+     *
+     * @param size
+     * @param seed
+     * @param stream
+     * @param offset
+     * @return double[]
+     */
+    public static double[] uniformVector(int size, long seed, long stream, long offset) {
+        return ColumnarMarshal.doubleColumn(size, i -> uniform(seed, stream, offset + i));
+    }
+
+    private Philox() {
+        // empty constructor
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.intrinsics;
+
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+
+/**
+ * <code>marawacc.random(seed, stream, index)</code>: element <code>index</code> of the random
+ * stream <code>stream</code>, uniform in <code>[0, 1)</code>. See {@link Philox}.
+ */
+public abstract class PhiloxRandomBuiltin extends RExternalBuiltinNode.Arg3 {
+
+    @Specialization
+    public double generate(int seed, int stream, int index) {
+        return Philox.uniform(seed, stream, index);
+    }
+
+    @Specialization
+    public double generate(Object seed, Object stream, Object index) {
+        return Philox.uniform(castLong(seed), castLong(stream), castLong(index));
+    }
+
+    private long castLong(Object value) {
+        return (long) castDouble(castVector(value)).getDataAt(0);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.options;
+
+/**
+ * Options for the FastR side of the GPU runtime. The Marawacc options (
+ * {@code uk.ac.ed.accelerator.truffle.ASTxOptions}) live in the Marawacc suite; the options in this
+ * class control features that are implemented in FastR-GPU itself. All of them are read once from
+ * the JVM system properties with the same <code>astx.marawacc.*</code> prefix.
+ */
+public final class FastRGPUOptions {
+
+    /**
+     * Overlap copy-in, compute and copy-out of consecutive chunks when the input does not fit into
+     * the device memory.
+     */
+    public static final boolean pipelinedBatch = getBoolean("astx.marawacc.pipelinedBatch", false);
+
+    /**
+     * Number of chunks in flight in the pipelined batch mode. Each chunk in flight owns its own
+     * device buffers. Three chunks give a full overlap of copy-in, compute and copy-out.
+     */
+    public static final int pipelineDepth = getInteger("astx.marawacc.pipelineDepth", 3);
+
+    /**
+     * Maximum size in bytes of a single device allocation. When it is not set, a quarter of the
+     * global memory of the device is assumed (the OpenCL minimum).
+     */
+    public static final long maxAllocationBytes = getLong("astx.marawacc.maxAllocationBytes", 0);
+
+    /**
+     * Record the functions compiled to OpenCL on disk, so the next sessions compile them on their
+     * first call (see {@code WarmUpHintStore}).
+     */
+    public static final boolean warmUpHints = getBoolean("astx.marawacc.warmUpHints", false);
+
+    public static final String warmUpHintsDir = System.getProperty("astx.marawacc.warmUpHintsDir", System.getProperty("user.home") + "/.fastr-gpu/hints");
+
+    public static final long warmUpHintsMaxBytes = getLong("astx.marawacc.warmUpHintsMaxBytes", 64L * 1024 * 1024);
+
+    /**
+     * After a deoptimization on the device, run all the iterations again with Java threads instead
+     * of one by one in the interpreter.
+     */
+    public static final boolean parallelDeopt = getBoolean("astx.marawacc.parallelDeopt", false);
+
+    public static final int deoptThreads = getInteger("astx.marawacc.deoptThreads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Marshal int and double arguments as one primitive column per argument instead of one boxed
+     * tuple per element.
+     */
+    public static final boolean columnarMarshal = getBoolean("astx.marawacc.columnarMarshal", true);
+
+    /**
+     * Number of threads shared by the asynchronous marawacc stages. Idle threads are reclaimed.
+     */
+    public static final int asyncThreads = getInteger("astx.marawacc.asyncThreads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of <code>astx.async</code> tasks running at the same time.
+     */
+    public static final int asyncWorkers = getInteger("astx.marawacc.asyncWorkers", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Threads of the pool shared by the data-parallel work of the runtime: batch pipelines,
+     * deoptimization recovery, fused pipelines, reductions and <code>marawacc.apply</code>. Work
+     * split in more blocks than threads waits in a queue.
+     */
+    public static final int parallelThreads = getInteger("astx.marawacc.parallelThreads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Run chains of <code>marawacc.map</code> and a final <code>marawacc.reduce</code> as a single
+     * pass over the input, with no intermediate arrays.
+     */
+    public static final boolean fusion = getBoolean("astx.marawacc.fusion", true);
+
+    /**
+     * Threads for the reductions declared associative.
+     */
+    public static final int reduceThreads = getInteger("astx.marawacc.reduceThreads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Keep the results of the kernels on the device. They are copied to the host the first time they
+     * are read, and passed straight to the next kernel when they are its input.
+     */
+    public static final boolean deviceResident = getBoolean("astx.marawacc.deviceResident", false);
+
+    /**
+     * Bounds of the GPU caches. The least recently used entries are evicted when a cache holds more
+     * functions or kernels than these, or retains more bytes than <code>cacheMaxBytes</code>.
+     */
+    public static final int cacheMaxFunctions = getInteger("astx.marawacc.cacheMaxFunctions", 256);
+
+    public static final int cacheMaxKernels = getInteger("astx.marawacc.cacheMaxKernels", 64);
+
+    public static final long cacheMaxBytes = getLong("astx.marawacc.cacheMaxBytes", 1024L * 1024 * 1024);
+
+    /**
+     * Stages of the asynchronous pipelines kept when the asynchronous memoisation is enabled.
+     */
+    public static final int cacheMaxFutures = getInteger("astx.marawacc.cacheMaxFutures", 256);
+
+    static boolean getBoolean(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    static int getInteger(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    static long getLong(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private FastRGPUOptions() {
+        // empty constructor
+    }
+}
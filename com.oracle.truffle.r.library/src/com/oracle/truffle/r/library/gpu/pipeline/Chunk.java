@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import java.util.ArrayList;
+
+/**
+ * A contiguous range of the input processed as one unit in batch execution.
+ */
+public final class Chunk {
+
+    private final int index;
+    private final int offset;
+    private final int size;
+
+    public Chunk(int index, int offset, int size) {
+        this.index = index;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Split <code>totalSize</code> elements in chunks of at most <code>chunkSize</code> elements.
+     * The last chunk takes the remainder.
+     *
+     * @param totalSize
+     * @param chunkSize
+     * @return {@link ArrayList} of {@link Chunk}
+     */
+    public static ArrayList<Chunk> split(int totalSize, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        int offset = 0;
+        int idx = 0;
+        while (offset < totalSize) {
+            int size = Math.min(chunkSize, totalSize - offset);
+            chunks.add(new Chunk(idx++, offset, size));
+            offset += size;
+        }
+        return chunks;
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk(" + index + ", offset=" + offset + ", size=" + size + ")";
+    }
+}
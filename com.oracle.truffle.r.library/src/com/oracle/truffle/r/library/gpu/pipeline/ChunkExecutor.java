@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import com.oracle.truffle.r.library.gpu.exceptions.AcceleratorExecutionException;
+
+/**
+ * The three stages of the batch execution for one {@link Chunk}. The {@link ChunkPipeline} calls
+ * the stages of a chunk in order (copy-in, compute, copy-out), but the stages of different chunks
+ * might run at the same time on different threads.
+ *
+ * Implementations are given the <code>slot</code> of the chunk. There are never two chunks in
+ * flight with the same slot, so any state (e.g. device buffers) indexed by slot is owned by a
+ * single chunk at a time.
+ *
+ * @param <D> data on the device
+ * @param <R> result on the host
+ */
+public interface ChunkExecutor<D, R> {
+
+    D copyToDevice(Chunk chunk, int slot) throws AcceleratorExecutionException;
+
+    D execute(Chunk chunk, int slot, D input) throws AcceleratorExecutionException;
+
+    R copyToHost(Chunk chunk, int slot, D output) throws AcceleratorExecutionException;
+}
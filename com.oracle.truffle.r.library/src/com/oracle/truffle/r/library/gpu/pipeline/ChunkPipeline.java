@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+import com.oracle.truffle.r.library.gpu.exceptions.AcceleratorExecutionException;
+
+/**
+ * Batch execution of a list of {@link Chunk}s with a {@link ChunkExecutor}.
+ *
+ * With <code>depth == 1</code> the chunks are processed one after the other (copy-in, compute,
+ * copy-out). With a bigger depth the compute stage runs on a thread of the shared
+ * {@link AsyncStageExecutor#getParallel()} pool, and the caller thread copies chunks in and out:
+ * while chunk <code>i</code> computes, chunk <code>i + 1</code> is copied to the device and chunk
+ * <code>i - 1</code> is copied back to the host. At most <code>depth</code> chunks are in flight,
+ * and each of them owns a different slot. Results are always returned in chunk order.
+ *
+ * A pipeline holds one thread of the pool, whose progress only depends on the caller, so
+ * concurrent pipelines cannot wait for each other. A pipeline started from a thread of the pool
+ * runs sequentially. The first failure of any stage cancels the rest of the pipeline and it is
+ * re-thrown to the caller.
+ *
+ * @param <D> data on the device
+ * @param <R> result on the host
+ */
+public final class ChunkPipeline<D, R> {
+
+    public static final int COPY_IN_START = 0;
+    public static final int COPY_IN_END = 1;
+    public static final int COMPUTE_START = 2;
+    public static final int COMPUTE_END = 3;
+    public static final int COPY_OUT_START = 4;
+    public static final int COPY_OUT_END = 5;
+
+    private final ChunkExecutor<D, R> executor;
+    private final int depth;
+    private long[][] timestamps;
+    private ArrayList<R> completed;
+
+    public ChunkPipeline(ChunkExecutor<D, R> executor, int depth) {
+        this.executor = executor;
+        this.depth = Math.max(1, depth);
+    }
+
+    private static final class InFlight<D> {
+        private final Chunk chunk;
+        private final int slot;
+        private final long[] time;
+        private D data;
+        private Throwable failure;
+
+        InFlight(Chunk chunk, int slot, long[] time) {
+            this.chunk = chunk;
+            this.slot = slot;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Run all the chunks and return the host results in chunk order.
+     *
+     * @param chunks
+     * @return {@link ArrayList}
+     * @throws AcceleratorExecutionException
+     */
+    public ArrayList<R> run(List<Chunk> chunks) throws AcceleratorExecutionException {
+        timestamps = new long[chunks.size()][6];
+        if (depth == 1 || chunks.size() == 1 || AsyncStageExecutor.getParallel().isPoolThread()) {
+            return runSequential(chunks);
+        } else {
+            return runPipelined(chunks);
+        }
+    }
+
+    /**
+     * Timestamps (<code>System.nanoTime</code>) of the stages for each chunk of the last run,
+     * indexed by the <code>COPY_*</code> and <code>COMPUTE_*</code> constants.
+     *
+     * @return long[][]
+     */
+    public long[][] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Results of the chunks that were copied back to the host, in chunk order. After a failure they
+     * are the results of the chunks before the one that failed.
+     *
+     * @return {@link ArrayList}
+     */
+    public ArrayList<R> getCompletedResults() {
+        return completed;
+    }
+
+    private ArrayList<R> runSequential(List<Chunk> chunks) throws AcceleratorExecutionException {
+        ArrayList<R> results = new ArrayList<>(chunks.size());
+        completed = results;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            long[] time = timestamps[i];
+            time[COPY_IN_START] = System.nanoTime();
+            D input = executor.copyToDevice(chunk, 0);
+            time[COPY_IN_END] = System.nanoTime();
+            time[COMPUTE_START] = time[COPY_IN_END];
+            D output = executor.execute(chunk, 0, input);
+            time[COMPUTE_END] = System.nanoTime();
+            time[COPY_OUT_START] = time[COMPUTE_END];
+            results.add(executor.copyToHost(chunk, 0, output));
+            time[COPY_OUT_END] = System.nanoTime();
+        }
+        return results;
+    }
+
+    private ArrayList<R> runPipelined(List<Chunk> chunks) throws AcceleratorExecutionException {
+        final int numChunks = chunks.size();
+        final LinkedBlockingQueue<InFlight<D>> computeQueue = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<InFlight<D>> hostQueue = new LinkedBlockingQueue<>();
+        // Tells the compute stage to stop when the caller leaves early
+        final InFlight<D> stop = new InFlight<>(null, -1, null);
+
+        CompletableFuture<Void> compute = AsyncStageExecutor.getParallel().submit(() -> {
+            for (int i = 0; i < numChunks; i++) {
+                InFlight<D> inFlight;
+                try {
+                    inFlight = computeQueue.take();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+                if (inFlight == stop) {
+                    return null;
+                }
+                if (inFlight.failure == null) {
+                    try {
+                        inFlight.time[COMPUTE_START] = System.nanoTime();
+                        inFlight.data = executor.execute(inFlight.chunk, inFlight.slot, inFlight.data);
+                        inFlight.time[COMPUTE_END] = System.nanoTime();
+                    } catch (Throwable t) {
+                        inFlight.failure = t;
+                    }
+                }
+                hostQueue.offer(inFlight);
+                if (inFlight.failure != null) {
+                    return null;
+                }
+            }
+            return null;
+        });
+
+        ArrayList<R> results = new ArrayList<>(numChunks);
+        completed = results;
+        int copiedIn = 0;
+        boolean copyInFailed = false;
+        try {
+            while (results.size() < numChunks) {
+                // A computed chunk is copied out first, it frees a slot
+                InFlight<D> inFlight = hostQueue.poll();
+                if (inFlight == null && !copyInFailed && copiedIn < numChunks && copiedIn - results.size() < depth) {
+                    copyInFailed = !copyIn(chunks.get(copiedIn), copiedIn, computeQueue);
+                    copiedIn++;
+                    continue;
+                }
+                if (inFlight == null) {
+                    inFlight = hostQueue.take();
+                }
+                if (inFlight.failure != null) {
+                    rethrow(inFlight.failure);
+                }
+                inFlight.time[COPY_OUT_START] = System.nanoTime();
+                results.add(executor.copyToHost(inFlight.chunk, inFlight.slot, inFlight.data));
+                inFlight.time[COPY_OUT_END] = System.nanoTime();
+                inFlight.data = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch pipeline interrupted", e);
+        } finally {
+            computeQueue.offer(stop);
+            compute.cancel(false);
+        }
+        return results;
+    }
+
+    private boolean copyIn(Chunk chunk, int index, LinkedBlockingQueue<InFlight<D>> computeQueue) {
+        InFlight<D> inFlight = new InFlight<>(chunk, index % depth, timestamps[index]);
+        try {
+            inFlight.time[COPY_IN_START] = System.nanoTime();
+            inFlight.data = executor.copyToDevice(inFlight.chunk, inFlight.slot);
+            inFlight.time[COPY_IN_END] = System.nanoTime();
+        } catch (Throwable t) {
+            // Reported in chunk order, after the results of the chunks before it
+            inFlight.failure = t;
+        }
+        computeQueue.offer(inFlight);
+        return inFlight.failure == null;
+    }
+
+    private static void rethrow(Throwable failure) throws AcceleratorExecutionException {
+        if (failure instanceof AcceleratorExecutionException) {
+            throw (AcceleratorExecutionException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else {
+            throw new RuntimeException(failure);
+        }
+    }
+}
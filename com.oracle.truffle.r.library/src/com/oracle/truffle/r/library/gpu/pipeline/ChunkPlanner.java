@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import java.util.ArrayList;
+
+/**
+ * Splits the input of a kernel in {@link Chunk}s that fit into the device memory.
+ *
+ * The memory needed by a chunk of <code>n</code> elements is
+ * <code>fixedBytes + n * sum(bytesPerElement)</code>, where <code>bytesPerElement</code> has one
+ * entry per device buffer that grows with the input (each input array and the output) and
+ * <code>fixedBytes</code> accounts for the buffers that do not (lexical-scope arrays and the deopt
+ * buffer). With <code>depth</code> chunks in flight all of them have to fit at the same time. Each
+ * single buffer must also fit into the maximum allocation of the device.
+ *
+ * All sizes are computed with <code>long</code> arithmetic. The number of chunks is the minimum
+ * needed, and the elements are distributed evenly among them: chunk sizes differ in at most one
+ * element.
+ */
+public final class ChunkPlanner {
+
+    private final DeviceLimits limits;
+    private final int depth;
+
+    public ChunkPlanner(DeviceLimits limits, int depth) {
+        this.limits = limits;
+        this.depth = Math.max(1, depth);
+    }
+
+    /**
+     * Maximum number of elements of one chunk.
+     *
+     * @param bytesPerElement
+     * @param fixedBytes
+     * @param largestFixedBuffer
+     * @return long
+     */
+    public long maxChunkElements(long[] bytesPerElement, long fixedBytes, long largestFixedBuffer) {
+        long global = limits.getGlobalMemory();
+        long maxAllocation = limits.getMaxAllocation();
+        if (largestFixedBuffer > maxAllocation || fixedBytes * depth >= global) {
+            throw new RuntimeException("Lexical scope data does not fit into the device memory: " + fixedBytes + " bytes");
+        }
+
+        long elementBytes = 0;
+        long largestElement = 0;
+        for (long b : bytesPerElement) {
+            elementBytes += b;
+            largestElement = Math.max(largestElement, b);
+        }
+        if (elementBytes == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        long byGlobal = (global / depth - fixedBytes) / elementBytes;
+        long byAllocation = maxAllocation / largestElement;
+        long max = Math.min(byGlobal, byAllocation);
+        if (max <= 0) {
+            throw new RuntimeException("A single element does not fit into the device memory");
+        }
+        return max;
+    }
+
+    /**
+     * Plan the chunks for <code>totalElements</code> elements. It returns one chunk when the whole
+     * input fits into the device.
+     *
+     * @param totalElements
+     * @param bytesPerElement
+     * @param fixedBytes
+     * @param largestFixedBuffer
+     * @return {@link ArrayList} of {@link Chunk}
+     */
+    public ArrayList<Chunk> plan(int totalElements, long[] bytesPerElement, long fixedBytes, long largestFixedBuffer) {
+        long maxChunk = maxChunkElements(bytesPerElement, fixedBytes, largestFixedBuffer);
+        if (maxChunk >= totalElements) {
+            return balanced(totalElements, 1);
+        }
+        int numChunks = (int) ((totalElements + maxChunk - 1) / maxChunk);
+        return balanced(totalElements, numChunks);
+    }
+
+    /**
+     * Split <code>totalElements</code> in <code>numChunks</code> chunks whose sizes differ in at
+     * most one element.
+     *
+     * @param totalElements
+     * @param numChunks
+     * @return {@link ArrayList} of {@link Chunk}
+     */
+    public static ArrayList<Chunk> balanced(int totalElements, int numChunks) {
+        ArrayList<Chunk> chunks = new ArrayList<>(numChunks);
+        int base = totalElements / numChunks;
+        int remainder = totalElements % numChunks;
+        int offset = 0;
+        for (int i = 0; i < numChunks; i++) {
+            int size = base + (i < remainder ? 1 : 0);
+            chunks.add(new Chunk(i, offset, size));
+            offset += size;
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import uk.ac.ed.accelerator.profiler.ProfilerType;
+import uk.ac.ed.datastructures.common.AcceleratorPArray;
+import uk.ac.ed.datastructures.common.PArray;
+import uk.ac.ed.jpai.graal.GraalOpenCLCompilationUnit;
+import uk.ac.ed.jpai.graal.GraalOpenCLExecutor;
+
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.truffle.r.library.gpu.exceptions.AcceleratorExecutionException;
+import com.oracle.truffle.r.library.gpu.utils.ProfilerLog;
+
+/**
+ * {@link ChunkExecutor} for the Marawacc OpenCL backend. Each slot has its own
+ * {@link GraalOpenCLExecutor}, and therefore its own device buffers, so that the chunks in flight
+ * do not overwrite each other.
+ */
+@SuppressWarnings("rawtypes")
+public final class OpenCLChunkExecutor implements ChunkExecutor<AcceleratorPArray, PArray> {
+
+    private final PArray<?> input;
+    private final StructuredGraph graph;
+    private final GraalOpenCLCompilationUnit gpuCompilationUnit;
+    private final GraalOpenCLExecutor[] executors;
+
+    public OpenCLChunkExecutor(PArray<?> input, StructuredGraph graph, GraalOpenCLCompilationUnit gpuCompilationUnit, GraalOpenCLExecutor[] executors) {
+        this.input = input;
+        this.graph = graph;
+        this.gpuCompilationUnit = gpuCompilationUnit;
+        this.executors = executors;
+    }
+
+    @Override
+    public AcceleratorPArray copyToDevice(Chunk chunk, int slot) {
+        GraalOpenCLExecutor executor = executors[slot];
+        executor.setNewAllocation(true);
+        return executor.copyToDevice(input, gpuCompilationUnit.getInputType(), chunk.getSize(), chunk.getOffset());
+    }
+
+    @Override
+    public AcceleratorPArray execute(Chunk chunk, int slot, AcceleratorPArray deviceInput) {
+        return executors[slot].executeOnTheDevice(graph, deviceInput, gpuCompilationUnit.getOuputType(), gpuCompilationUnit.getScopeArrays());
+    }
+
+    @Override
+    public PArray copyToHost(Chunk chunk, int slot, AcceleratorPArray deviceOutput) throws AcceleratorExecutionException {
+        GraalOpenCLExecutor executor = executors[slot];
+        PArray result = executor.copyToHost(deviceOutput, gpuCompilationUnit.getOuputType());
+        PArray<Integer> deopt = executor.getDeoptBuffer();
+        if (deopt != null) {
+            if (deopt.get(0) != 0) {
+                // Thread IDs are relative to the chunk
+                int threadID = chunk.getOffset() + deopt.get(0);
+                ProfilerLog.write(ProfilerType.GENERAL_LOG_MESSAGE, "Deoptimization in thread:", threadID);
+                throw new AcceleratorExecutionException("Deoptimization in thread: ", threadID);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.pipeline;
+
+import uk.ac.ed.jpai.graal.GraalOpenCLExecutor;
+
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
+
+/**
+ * {@link DeviceLimits} of the OpenCL device behind a {@link GraalOpenCLExecutor}.
+ *
+ * Marawacc only exposes the global memory of the device. Unless
+ * <code>-Dastx.marawacc.maxAllocationBytes</code> is set, the maximum single allocation is the
+ * minimum that OpenCL guarantees for <code>CL_DEVICE_MAX_MEM_ALLOC_SIZE</code>, a quarter of the
+ * global memory.
+ */
+public final class OpenCLDeviceLimits implements DeviceLimits {
+
+    private final long globalMemory;
+
+    public OpenCLDeviceLimits(GraalOpenCLExecutor executor) {
+        this.globalMemory = executor.getGlobalMaxGPUMemory();
+    }
+
+    @Override
+    public long getGlobalMemory() {
+        return globalMemory;
+    }
+
+    @Override
+    public long getMaxAllocation() {
+        if (FastRGPUOptions.maxAllocationBytes > 0) {
+            return Math.min(FastRGPUOptions.maxAllocationBytes, globalMemory);
+        }
+        return globalMemory / 4;
+    }
+}
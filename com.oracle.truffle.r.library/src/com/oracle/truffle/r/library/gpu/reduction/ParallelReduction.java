@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.reduction;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+
+/**
+ * Reduction for the Java threads backend.
+ *
+ * When the operator is not declared associative, the input is folded left from the neutral element,
+ * one element at a time, as <code>Reduce</code> does in R.
+ *
+ * When the operator is associative, the input is split in chunks of {@link #CHUNK_SIZE} elements
+ * that are folded in parallel on the shared {@link AsyncStageExecutor#getParallel()} pool, and the
+ * partial results are combined with a balanced tree in the order of the chunks. The shape of the
+ * chunks and of the tree depends only on the size of the input, so the result (also for floating
+ * point operators) does not depend on the number of threads.
+ */
+public final class ParallelReduction {
+
+    public static final int CHUNK_SIZE = 1 << 12;
+
+    private ParallelReduction() {
+        // empty constructor
+    }
+
+    /**
+     * @param size
+     * @param source element <code>i</code> of the input
+     * @param operator
+     * @param neutral
+     * @param nThreads
+     * @param associative
+     * @return result of the reduction, <code>neutral</code> for an empty input
+     */
+    public static Object reduce(int size, IntFunction<Object> source, BinaryOperator<Object> operator, Object neutral, int nThreads, boolean associative) {
+        if (!associative || size <= CHUNK_SIZE) {
+            return fold(neutral, 0, size, source, operator);
+        }
+
+        final int numChunks = (int) ((size + (long) CHUNK_SIZE - 1) / CHUNK_SIZE);
+        final Object[] partials = new Object[numChunks];
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int c;
+            while ((c = next.getAndIncrement()) < numChunks) {
+                int start = c * CHUNK_SIZE;
+                int end = Math.min(size, start + CHUNK_SIZE);
+                partials[c] = fold(source.apply(start), start + 1, end, source, operator);
+            }
+        };
+
+        int workers = Math.min(numChunks, Math.max(1, nThreads));
+        ArrayList<Runnable> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(worker);
+        }
+        AsyncStageExecutor.getParallel().runAll(tasks);
+        return operator.apply(neutral, combine(partials, operator));
+    }
+
+    private static Object fold(Object initial, int from, int to, IntFunction<Object> source, BinaryOperator<Object> operator) {
+        Object acc = initial;
+        for (int i = from; i < to; i++) {
+            acc = operator.apply(acc, source.apply(i));
+        }
+        return acc;
+    }
+
+    /**
+     * Combine the partial results with a balanced tree: <code>(p0 + p1) + (p2 + p3)</code> and so
+     * on, always keeping the order of the partials.
+     *
+     * @param partials
+     * @param operator
+     * @return combined value
+     */
+    public static Object combine(Object[] partials, BinaryOperator<Object> operator) {
+        Object[] level = partials.clone();
+        int length = level.length;
+        while (length > 1) {
+            int half = length / 2;
+            for (int i = 0; i < half; i++) {
+                level[i] = operator.apply(level[2 * i], level[2 * i + 1]);
+            }
+            if ((length & 1) == 1) {
+                level[half] = level[length - 1];
+                length = half + 1;
+            } else {
+                length = half;
+            }
+        }
+        return level[0];
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.sequences;
+
+/**
+ * Encoding of the closed-form sequences in the three-element {@link uk.ac.ed.datastructures.common.PArray}
+ * that is sent to the device instead of the data: <code>{start, stride, value}</code>.
+ *
+ * The element <code>i</code> of a sequence is <code>start + stride * ((i / each) % period)</code>.
+ * The OpenCL kernels understand three cases: affine (<code>value</code> is not used), flag (
+ * <code>start + stride * (i / value)</code>) and compass (<code>start + stride * (i % value)</code>).
+ * Sequences that repeat each element and also wrap around have no encoding and are marshalled by
+ * formula.
+ */
+public final class ClosedFormSequences {
+
+    public enum Encoding {
+        AFFINE,
+        FLAG,
+        COMPASS,
+        NONE
+    }
+
+    /**
+     * Encoding of a sequence of <code>length</code> elements. Flag and compass sequences are only
+     * encoded when <code>typeOfSequences</code> is enabled.
+     *
+     * @param length
+     * @param each
+     * @param period
+     * @param typeOfSequences
+     * @return {@link Encoding}
+     */
+    public static Encoding encoding(int length, int each, int period, boolean typeOfSequences) {
+        boolean repeated = each > 1;
+        boolean tiled = (long) period * Math.max(each, 1) < length;
+        if (!repeated && !tiled) {
+            return Encoding.AFFINE;
+        } else if (!typeOfSequences || (repeated && tiled)) {
+            return Encoding.NONE;
+        }
+        return repeated ? Encoding.FLAG : Encoding.COMPASS;
+    }
+
+    public static int encodedValue(Encoding encoding, int each, int period) {
+        switch (encoding) {
+            case FLAG:
+                return each;
+            case COMPASS:
+                return period;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Element <code>idx</code> of an encoded integer sequence.
+     *
+     * @param start
+     * @param stride
+     * @param idx
+     * @param encoding
+     * @param value
+     * @return int
+     */
+    public static int intAt(int start, int stride, int idx, Encoding encoding, int value) {
+        return start + stride * position(idx, encoding, value);
+    }
+
+    public static double doubleAt(double start, double stride, int idx, Encoding encoding, int value) {
+        return start + stride * position(idx, encoding, value);
+    }
+
+    private static int position(int idx, Encoding encoding, int value) {
+        switch (encoding) {
+            case FLAG:
+                return idx / value;
+            case COMPASS:
+                return idx % value;
+            case AFFINE:
+                return idx;
+            default:
+                throw new RuntimeException("Sequence without encoding");
+        }
+    }
+
+    private ClosedFormSequences() {
+        // empty constructor
+    }
+}
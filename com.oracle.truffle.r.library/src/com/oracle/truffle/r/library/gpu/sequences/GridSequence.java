@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.sequences;
+
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RIntSequence;
+import com.oracle.truffle.r.runtime.data.RList;
+
+/**
+ * Index pairs of a <code>rows x cols</code> iteration space in column-major order, as
+ * <code>list(row, col)</code>:
+ *
+ * <pre>
+ * row: 1 2 3 1 2 3 ...
+ * col: 1 1 1 2 2 2 ...
+ * </pre>
+ *
+ * Both vectors are closed-form sequences, so the grid is never allocated.
+ */
+public abstract class GridSequence extends RExternalBuiltinNode.Arg2 {
+
+    private static int extractValue(Object value) {
+        if (value instanceof Double) {
+            return ((Double) value).intValue();
+        } else if (value instanceof Integer) {
+            return ((Integer) value).intValue();
+        }
+        throw new RuntimeException("Type not supported: " + value.getClass());
+    }
+
+    @Specialization
+    protected RList buildGridSequence(Object rowsObject, Object colsObject) {
+        int rows = extractValue(rowsObject);
+        int cols = extractValue(colsObject);
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new RuntimeException("Invalid grid size: " + rows + " x " + cols);
+        }
+        int length = rows * cols;
+        RIntSequence row = RDataFactory.createIntSequence(1, 1, length, 1, rows);
+        RIntSequence col = RDataFactory.createIntSequence(1, 1, length, rows, cols);
+        return RDataFactory.createList(new Object[]{row, col}, RDataFactory.createStringVector(new String[]{"row", "col"}, RDataFactory.COMPLETE_VECTOR));
+    }
+}
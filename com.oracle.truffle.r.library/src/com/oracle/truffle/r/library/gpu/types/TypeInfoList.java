@@ -49,6 +49,16 @@ public class TypeInfoList implements Iterable<TypeInfo> {
         return listTypes.iterator();
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof TypeInfoList) && listTypes.equals(((TypeInfoList) obj).listTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return listTypes.hashCode();
+    }
+
     @Override
     public String toString() {
         StringBuffer buffer = new StringBuffer("TypeInfoList(");
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.types;
+
+import java.lang.ref.WeakReference;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Types seen at one call site of a parallel builtin: the input and output types inferred for the
+ * last function and classes of the input vectors. While the same function is called with inputs of
+ * the same classes, the builtin takes the types from here instead of running the type analysis
+ * again. The first element of the output is still checked with {@link Entry#matchesOutput}.
+ *
+ * The profile is read by the builtin on each call, outside compiled code, so an entry is guarded by
+ * a plain flag. It is invalidated when a different function or different input classes are
+ * recorded, or with {@link #invalidate()} when the output of a call does not have the recorded
+ * type.
+ */
+public final class TypeProfile {
+
+    public static final class Entry {
+
+        private final WeakReference<RFunction> function;
+        private final WeakReference<RootCallTarget> target;
+        private final Class<?>[] inputClasses;
+        private final String[] argsName;
+        private final TypeInfoList inputTypes;
+        private final TypeInfo outputType;
+        private final Class<?> outputClass;
+        private volatile boolean valid = true;
+
+        Entry(RFunction function, RootCallTarget target, Class<?>[] inputClasses, String[] argsName, TypeInfoList inputTypes, TypeInfo outputType, Class<?> outputClass) {
+            this.function = new WeakReference<>(function);
+            this.target = new WeakReference<>(target);
+            this.inputClasses = inputClasses;
+            this.argsName = argsName;
+            this.inputTypes = inputTypes;
+            this.outputType = outputType;
+            this.outputClass = outputClass;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public String[] getArgumentsNames() {
+            return argsName;
+        }
+
+        public TypeInfoList getInputTypes() {
+            return inputTypes;
+        }
+
+        public TypeInfo getOutputType() {
+            return outputType;
+        }
+
+        /**
+         * @param value first element of the output
+         * @return true if the value has the recorded output type
+         */
+        public boolean matchesOutput(Object value) {
+            return outputClass.isInstance(value);
+        }
+
+        boolean matches(RFunction f, RootCallTarget t, RAbstractVector input, RAbstractVector[] additionalArgs) {
+            if (!valid || function.get() != f || target.get() != t) {
+                return false;
+            }
+            int n = additionalArgs == null ? 0 : additionalArgs.length;
+            if (inputClasses.length != n + 1 || inputClasses[0] != input.getClass()) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (inputClasses[i + 1] != additionalArgs[i].getClass()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private volatile Entry entry;
+
+    /**
+     * @param function
+     * @param target
+     * @param input
+     * @param additionalArgs
+     * @return the {@link Entry} recorded for this function and input classes, or null
+     */
+    public Entry lookup(RFunction function, RootCallTarget target, RAbstractVector input, RAbstractVector[] additionalArgs) {
+        Entry e = entry;
+        if (e != null && e.matches(function, target, input, additionalArgs)) {
+            return e;
+        }
+        return null;
+    }
+
+    /**
+     * Record the types inferred for a call. The previous entry, if any, is invalidated. Only scalar
+     * outputs ({@link TypeInfo#INT} and {@link TypeInfo#DOUBLE}) are recorded: the type of lists and
+     * tuples depends on their content, not only on their class.
+     *
+     * @param function
+     * @param target
+     * @param input
+     * @param additionalArgs
+     * @param argsName
+     * @param inputTypes
+     * @param outputType
+     * @param output value of the first element
+     */
+    public synchronized void record(RFunction function, RootCallTarget target, RAbstractVector input, RAbstractVector[] additionalArgs, String[] argsName, TypeInfoList inputTypes, TypeInfo outputType,
+                    Object output) {
+        invalidate();
+        if ((outputType != TypeInfo.INT || !(output instanceof Integer)) && (outputType != TypeInfo.DOUBLE || !(output instanceof Double))) {
+            return;
+        }
+        int n = additionalArgs == null ? 0 : additionalArgs.length;
+        Class<?>[] inputClasses = new Class<?>[n + 1];
+        inputClasses[0] = input.getClass();
+        for (int i = 0; i < n; i++) {
+            inputClasses[i + 1] = additionalArgs[i].getClass();
+        }
+        entry = new Entry(function, target, inputClasses, argsName, inputTypes, outputType, output.getClass());
+    }
+
+    public synchronized void invalidate() {
+        Entry e = entry;
+        if (e != null) {
+            e.valid = false;
+            entry = null;
+        }
+    }
+}
@@ -23,13 +23,10 @@
 package com.oracle.truffle.r.library.gpu.utils;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 
 import uk.ac.ed.accelerator.common.GraalAcceleratorOptions;
-import uk.ac.ed.accelerator.profiler.Profiler;
 import uk.ac.ed.accelerator.profiler.ProfilerType;
 import uk.ac.ed.accelerator.truffle.ASTxOptions;
 import uk.ac.ed.datastructures.common.PArray;
@@ -51,12 +48,18 @@ import uk.ac.ed.datastructures.tuples.Tuple9;
 import uk.ac.ed.marawacc.graal.CompilerUtils;
 
 import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.frame.Frame;
+import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.nodes.Node;
-import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.r.library.gpu.cache.RFunctionSignature;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidentArray;
+import com.oracle.truffle.r.library.gpu.device.ResidencyTracker;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccRuntimeTypeException;
 import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
+import com.oracle.truffle.r.library.gpu.options.FastRGPUOptions;
 import com.oracle.truffle.r.library.gpu.phases.GPUBoxingEliminationPhase;
 import com.oracle.truffle.r.library.gpu.phases.GPUCheckCastRemovalPhase;
 import com.oracle.truffle.r.library.gpu.phases.GPUFixedGuardRemovalPhase;
@@ -69,13 +72,13 @@ import com.oracle.truffle.r.library.gpu.phases.scope.ScopeData;
 import com.oracle.truffle.r.library.gpu.phases.scope.ScopeDetectionPhase;
 import com.oracle.truffle.r.library.gpu.scope.ASTLexicalScoping;
 import com.oracle.truffle.r.library.gpu.scope.ASTxPrinter;
+import com.oracle.truffle.r.library.gpu.sequences.ClosedFormSequences;
+import com.oracle.truffle.r.library.gpu.sequences.ClosedFormSequences.Encoding;
 import com.oracle.truffle.r.library.gpu.types.TypeInfo;
 import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
-import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.nodes.function.PromiseHelperNode;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.RRuntime;
-import com.oracle.truffle.r.runtime.context.Engine.ParseException;
-import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleSequence;
@@ -85,9 +88,14 @@ import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
-import com.oracle.truffle.r.runtime.data.RSequence.TypeOfSequence;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.RPromise;
+import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
 
@@ -97,12 +105,6 @@ import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
  */
 public class ASTxUtils {
 
-    private static final String regExpForArguments = "^function[ ]*\\(([a-zA-Z]+([, ]*[a-zA-Z0-9]+)*)\\)";
-    private static final Pattern pattern = Pattern.compile(regExpForArguments);
-
-    private static final String signature = "^function[ ]*.*\\)";
-    private static final Pattern patternSignature = Pattern.compile(signature);
-
     /**
      * It returns the number of arguments for an {@link RFunction}.
      *
@@ -110,19 +112,7 @@ public class ASTxUtils {
      * @return int
      */
     public static int getNumberOfArguments(RFunction function) {
-        // If function is builtin
-        if (function.getRBuiltin() != null) {
-            return function.getRBuiltin().getSignature().getLength();
-        }
-
-        String sourceCode = function.getTarget().getRootNode().getSourceSection().getCode();
-        Matcher matcher = pattern.matcher(sourceCode);
-        int nArgs = 1;
-        if (matcher.find()) {
-            String[] args = matcher.group(1).split(",");
-            nArgs = args.length;
-        }
-        return nArgs;
+        return RFunctionSignature.get(function).getLength();
     }
 
     /**
@@ -132,90 +122,106 @@ public class ASTxUtils {
      * @return String[]
      */
     public static String[] getArgumentsNames(RFunction function) {
-
-        String[] args = null;
-
-        // If function is builtin
-        if (function.getRBuiltin() != null) {
-            int numArgs = function.getRBuiltin().getSignature().getLength();
-            args = new String[numArgs];
-            for (int i = 0; i < numArgs; i++) {
-                args[i] = function.getRBuiltin().getSignature().getName(i);
-            }
-            return args;
-        }
-
-        String sourceCode = function.getRootNode().getSourceSection().getCode();
-        Matcher matcher = pattern.matcher(sourceCode);
-
-        if (matcher.find()) {
-            args = matcher.group(1).replace(" ", "").split(",");
-        }
-        return args;
+        return RFunctionSignature.get(function).getNames();
     }
 
+    /**
+     * Source of the function with the additional arguments appended to its formal arguments.
+     *
+     * @param function
+     * @param additionalArguments
+     * @return String
+     */
     public static String rewriteFunction(RFunction function, String[] additionalArguments) {
-        String newSourceCode = null;
         String sourceCode = function.getRootNode().getSourceSection().getCode();
-        Matcher matcher = pattern.matcher(sourceCode);
-
-        String argsAdd = "";
+        int open = sourceCode.indexOf('(');
+        int close = findClosingParenthesis(sourceCode, open);
+        if (open < 0 || close < 0) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder(sourceCode.substring(0, close));
+        boolean first = RFunctionSignature.get(function).getLength() == 0;
         for (String s : additionalArguments) {
-            argsAdd += ", " + s;
+            header.append(first ? "" : ", ").append(s);
+            first = false;
         }
+        return header.append(sourceCode.substring(close)).toString();
+    }
 
-        if (matcher.find()) {
-            String group = matcher.group(1);
-            String newGroup = "function(" + group + argsAdd + ")";
-            Matcher m = patternSignature.matcher(sourceCode);
-            if (m.find()) {
-                newSourceCode = sourceCode.replace(m.group(0), newGroup);
+    /**
+     * Index of the parenthesis that closes the one at <code>open</code>. Parentheses in default
+     * values and strings are skipped.
+     */
+    private static int findClosingParenthesis(String code, int open) {
+        if (open < 0) {
+            return -1;
+        }
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
             }
         }
-        return newSourceCode;
+        return -1;
+    }
+
+    private static Object[] createPackage(RFunction function, Object[] argsRFunction) {
+        return RArguments.create(function, null, null, 0, argsRFunction, RFunctionSignature.get(function).getSignature(), null);
     }
 
     /**
      * It builds the {@link RArguments} for the function calling.
      *
-     * @param nArgs
      * @param function
      * @param input
      * @param args
-     * @param nameArgs
      * @return Object[]
      */
-    public static Object[] createRArguments(int nArgs, RFunction function, RAbstractVector input, RAbstractVector[] args, String[] nameArgs) {
-        // prepare args for the function with varargs
-        Object[] argsRFunction = new Object[nArgs];
-        argsRFunction[0] = input.getDataAtAsObject(0);
-
-        if (args != null) {
-            for (int i = 0; i < args.length; i++) {
-                argsRFunction[i + 1] = args[i].getDataAtAsObject(0);
-            }
-        }
-
-        // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+    public static Object[] createRArguments(RFunction function, RAbstractVector input, RAbstractVector[] args) {
+        return createRArguments(function, input, args, 0);
     }
 
-    public static Object[] createRArguments(int nArgs, RFunction function, RAbstractVector input, RAbstractVector[] args, String[] nameArgs, int idx) {
-        // prepare args for the function with varargs
-        Object[] argsRFunction = new Object[nArgs];
+    /**
+     * Arguments of the element <code>idx</code> of the inputs.
+     *
+     * @param argsRFunction
+     * @param input
+     * @param args
+     * @param idx
+     */
+    public static void fillArguments(Object[] argsRFunction, RAbstractVector input, RAbstractVector[] args, int idx) {
         argsRFunction[0] = input.getDataAtAsObject(idx);
         if (args != null) {
             for (int i = 0; i < args.length; i++) {
                 argsRFunction[i + 1] = args[i].getDataAtAsObject(idx);
             }
         }
+    }
+
+    public static Object[] createRArguments(RFunction function, RAbstractVector input, RAbstractVector[] args, int idx) {
+        // prepare args for the function with varargs
+        Object[] argsRFunction = new Object[getNumberOfArguments(function)];
+        fillArguments(argsRFunction, input, args, idx);
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
-    public static Object[] createRArguments(int nArgs, RFunction function, RAbstractVector input, RAbstractVector[] args, String[] nameArgs, int idx, RVector[] lexicalScopes) {
+    public static Object[] createRArguments(int nArgs, RFunction function, RAbstractVector input, RAbstractVector[] args, int idx, RVector[] lexicalScopes) {
         // prepare args for the function with varargs
         Object[] argsRFunction = new Object[nArgs];
 
@@ -234,29 +240,36 @@ public class ASTxUtils {
         }
 
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
-    @SuppressWarnings("unchecked")
     public static Object getFromSequence(PArray<?> input, int idx) {
-        if (input.getClassObject() == Integer.class) {
-            int value = ((PArray<Integer>) input).get(0) + ((PArray<Integer>) input).get(1) * idx;
-            return value;
-        } else if (input.getClassObject() == Double.class) {
-            double value = ((PArray<Double>) input).get(0) + ((PArray<Double>) input).get(1) * idx;
-            return value;
-        } else {
-            throw new RuntimeException("Error, data type not supported yet: " + input.getClassObject());
+        return getSequence(input, idx);
+    }
+
+    private static Encoding getEncoding(PArray<?> parray) {
+        if (parray.isFlag()) {
+            return Encoding.FLAG;
+        } else if (parray.isCompass()) {
+            return Encoding.COMPASS;
         }
+        return Encoding.AFFINE;
     }
 
+    /**
+     * Element <code>idx</code> of a sequence encoded as <code>{start, stride, value}</code>.
+     */
     @SuppressWarnings("unchecked")
     private static Object getSequence(PArray<?> parray, int idx) {
+        Encoding encoding = getEncoding(parray);
         if (parray.getClassObject() == Integer.class) {
-            return (((PArray<Integer>) parray).get(0) + ((PArray<Integer>) parray).get(1) * idx);
+            PArray<Integer> p = (PArray<Integer>) parray;
+            int value = (encoding == Encoding.AFFINE) ? 0 : p.get(2);
+            return ClosedFormSequences.intAt(p.get(0), p.get(1), idx, encoding, value);
         } else if (parray.getClassObject() == Double.class) {
-            return (((PArray<Double>) parray).get(0) + ((PArray<Double>) parray).get(1) * idx);
+            PArray<Double> p = (PArray<Double>) parray;
+            int value = (encoding == Encoding.AFFINE) ? 0 : p.get(2).intValue();
+            return ClosedFormSequences.doubleAt(p.get(0), p.get(1), idx, encoding, value);
         } else {
             throw new RuntimeException("Error, data type not supported yet: " + parray.getClassObject());
         }
@@ -265,19 +278,29 @@ public class ASTxUtils {
     /**
      * Prepare {@link RArguments} for the function.
      *
-     * @param nArgs
      * @param function
      * @param input
      * @param args
-     * @param nameArgs
      * @param idx
      *
      * @return Object[]
      */
-    public static Object[] createRArguments(int nArgs, RFunction function, PArray<?> input, PArray<?>[] args, String[] nameArgs, int idx) {
+    public static Object[] createRArguments(RFunction function, PArray<?> input, PArray<?>[] args, int idx) {
         // prepare args for the function with varargs
-        Object[] argsRFunction = new Object[nArgs];
+        Object[] argsRFunction = new Object[getNumberOfArguments(function)];
+        fillArguments(argsRFunction, input, args, idx);
+        return createPackage(function, argsRFunction);
+    }
 
+    /**
+     * Arguments of the element <code>idx</code> of the inputs in {@link PArray} format.
+     *
+     * @param argsRFunction
+     * @param input
+     * @param args
+     * @param idx
+     */
+    public static void fillArguments(Object[] argsRFunction, PArray<?> input, PArray<?>[] args, int idx) {
         if (!input.isSequence()) {
             argsRFunction[0] = input.get(idx);
         } else {
@@ -293,9 +316,6 @@ public class ASTxUtils {
                 }
             }
         }
-
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
     }
 
     public static Object[] createRArguments(int nArgs, RFunction function, Object input, RAbstractVector[] args, String[] nameArgs, int idx) {
@@ -308,8 +328,7 @@ public class ASTxUtils {
             }
         }
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
     public static Object[] createRArgumentsForReduction(int nArgs, int neutral, RFunction function, RAbstractVector input, RAbstractVector[] args, String[] nameArgs, int idx) {
@@ -324,11 +343,10 @@ public class ASTxUtils {
             }
         }
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
-    public static Object[] createRArgumentsForReduction(int nArgs, int neutral, RFunction function, Object input, RAbstractVector[] args, String[] nameArgs, int idx) {
+    public static Object[] createRArgumentsForReduction(int nArgs, Object neutral, RFunction function, Object input, RAbstractVector[] args, String[] nameArgs, int idx) {
         // prepare args for the function with varargs
         Object[] argsRFunction = new Object[nArgs];
         // First we insert the neutral element
@@ -340,8 +358,7 @@ public class ASTxUtils {
             }
         }
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
     public static Object[] createRArgumentsForReduction(int nArgs, Object neutral, RFunction function, RAbstractVector input, RAbstractVector[] args, String[] nameArgs, int idx) {
@@ -357,13 +374,24 @@ public class ASTxUtils {
             }
         }
         // Create the package
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
-    @SuppressWarnings("rawtypes")
     private static Object[] createObjectArrayFromTuple(int nArgs, Object input, int startIndex) {
         Object[] argsRFunction = new Object[nArgs];
+        fillArgumentsFromTuple(argsRFunction, input, startIndex);
+        return argsRFunction;
+    }
+
+    /**
+     * Unpack an element (a value or a tuple) into the arguments from <code>startIndex</code>.
+     *
+     * @param argsRFunction
+     * @param input
+     * @param startIndex
+     */
+    @SuppressWarnings("rawtypes")
+    public static void fillArgumentsFromTuple(Object[] argsRFunction, Object input, int startIndex) {
         if (!(input instanceof Tuple)) {
             argsRFunction[startIndex] = input;
         } else if (input instanceof Tuple2) {
@@ -385,7 +413,6 @@ public class ASTxUtils {
             argsRFunction[startIndex + 3] = ((Tuple5) input)._4();
             argsRFunction[startIndex + 4] = ((Tuple5) input)._5();
         }
-        return argsRFunction;
     }
 
     /**
@@ -400,8 +427,7 @@ public class ASTxUtils {
     public static Object[] createRArguments(int nArgs, RFunction function, Object input, String[] nameArgs) {
         int startIDX = 0;
         Object[] argsRFunction = createObjectArrayFromTuple(nArgs, input, startIDX);
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
     }
 
     public static Object[] createRArguments(int nArgs, RFunction function, Object acc, Object input, String[] nameArgs) {
@@ -409,8 +435,36 @@ public class ASTxUtils {
         Object[] argsRFunction = createObjectArrayFromTuple(nArgs, input, startIndex);
 
         argsRFunction[0] = acc;
-        Object[] argsPackage = RArguments.create(function, null, null, 0, argsRFunction, ArgumentsSignature.get(nameArgs), null);
-        return argsPackage;
+        return createPackage(function, argsRFunction);
+    }
+
+    /**
+     * Neutral element of a reduction with its R type: {@link Integer}, {@link Double} or
+     * {@link Byte} for logical values.
+     *
+     * @param value
+     * @return {@link Object}
+     */
+    public static Object getNeutralElement(Object value) {
+        Object neutral = value;
+        if (neutral instanceof RAbstractVector && ((RAbstractVector) neutral).getLength() == 1) {
+            neutral = ((RAbstractVector) neutral).getDataAtAsObject(0);
+        }
+        if (neutral instanceof Integer || neutral instanceof Double || neutral instanceof Byte) {
+            return neutral;
+        }
+        throw new MarawaccRuntimeTypeException("Neutral element not supported: " + value + " [ " + __LINE__.print() + "]");
+    }
+
+    public static boolean getLogicalFlag(Object value) {
+        if (value instanceof Byte) {
+            return RRuntime.fromLogical((Byte) value);
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof RAbstractLogicalVector && ((RAbstractLogicalVector) value).getLength() == 1) {
+            return RRuntime.fromLogical(((RAbstractLogicalVector) value).getDataAt(0));
+        }
+        return false;
     }
 
     public static String getSourceCode(RFunction function) {
@@ -665,97 +719,121 @@ public class ASTxUtils {
     }
 
     /**
-     * Method for updating the references when a {@link PArray} is represented as primitive type.
+     * Columns of a {@link PArray} of tuples when all of them are stored as primitive arrays.
      *
      * @param array
-     * @return {@link RList}
+     * @return int[] and double[] columns or null
      */
-    public static RList composeRListFromTuple2(PArray<Tuple2<?, ?>> array) {
-
-        if (!array.isPrimitiveArray(0)) {
-            // DEOPT TO THE OLD STRATEGY
-            System.out.println("UNMARSHAL OLD");
-            return getRListFromTuple2(array);
-        }
-
-        long start = System.nanoTime();
-        RuntimeObjectTypeInfo runtimeObjectTypeInfo = array.getRuntimeObjectTypeInfo();
-        RuntimeObjectTypeInfo[] nestedTypes = runtimeObjectTypeInfo.getNestedTypes();
-
-        int i = 0;
-        final int TUPLE_DIM = 2;
-        Object[] data = new Object[array.size() * TUPLE_DIM];
-        for (RuntimeObjectTypeInfo r : nestedTypes) {
-            if (r.getClassObject() == Double.class) {
-                double[] asDoubleArray = array.asDoubleArray(i);
-                final int j = i;
-                IntStream.range(0, array.size()).parallel().forEach(idx -> {
-                    data[idx * TUPLE_DIM + j] = asDoubleArray[idx];
-                });
-
-            } else if (r.getClassObject() == Integer.class) {
-                int[] asIntegerArray = array.asIntegerArray(0);
-                final int j = i;
-                IntStream.range(0, array.size()).parallel().forEach(idx -> {
-                    data[idx * TUPLE_DIM + j] = asIntegerArray[idx];
-                });
+    @SuppressWarnings("rawtypes")
+    private static Object[] getPrimitiveColumns(PArray array) {
+        RuntimeObjectTypeInfo[] nestedTypes = array.getRuntimeObjectTypeInfo().getNestedTypes();
+        Object[] columns = new Object[nestedTypes.length];
+        for (int i = 0; i < nestedTypes.length; i++) {
+            if (!array.isPrimitiveArray(i)) {
+                return null;
+            }
+            if (nestedTypes[i].getClassObject() == Double.class) {
+                columns[i] = array.asDoubleArray(i);
+            } else if (nestedTypes[i].getClassObject() == Integer.class) {
+                columns[i] = array.asIntegerArray(i);
             } else {
-                throw new RuntimeException("Data type not supported yet: " + r.getClassObject());
+                return null;
             }
-
-            i++;
         }
+        return columns;
+    }
 
-        RList list = RDataFactory.createList(data, new int[]{TUPLE_DIM, array.size()});
-        long end = System.nanoTime();
+    public static int getTupleDimension(TypeInfo type) {
+        switch (type) {
+            case TUPLE2:
+                return 2;
+            case TUPLE3:
+                return 3;
+            case TUPLE4:
+                return 4;
+            case TUPLE5:
+                return 5;
+            case TUPLE6:
+                return 6;
+            case TUPLE7:
+                return 7;
+            case TUPLE8:
+                return 8;
+            case TUPLE9:
+                return 9;
+            case TUPLE10:
+                return 10;
+            case TUPLE11:
+                return 11;
+            default:
+                return 0;
+        }
+    }
 
-        if (ASTxOptions.profileOpenCL_ASTx) {
-            Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_RLIST_CONVERSION, "start", start);
-            Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_RLIST_CONVERSION, "end", end);
-            Profiler.getInstance().writeInBuffer(ProfilerType.TRUFFLE_RLIST_CONVERSION, "total", (end - start));
+    /**
+     * Un-marshal a {@link PArray} of tuples of any dimension into a list of lists. When the tuple
+     * fields are stored as primitive columns the rows are built in parallel from the columns,
+     * otherwise every tuple is read from the PArray.
+     *
+     * @param array
+     * @param dim
+     * @return {@link RList}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static RList getRListFromTuples(PArray array, int dim) {
+        Object[] columns = getPrimitiveColumns(array);
+        if (columns == null) {
+            switch (dim) {
+                case 2:
+                    return getRListFromTuple2(array);
+                case 3:
+                    return getRListFromTuple3(array);
+                case 4:
+                    return getRListFromTuple4(array);
+                case 5:
+                    return getRListFromTuple5(array);
+                case 6:
+                    return getRListFromTuple6(array);
+                default:
+                    throw new MarawaccRuntimeTypeException("Tuple not supported yet: " + dim + " [ " + __LINE__.print() + "]");
+            }
         }
 
-        return list;
+        Object[][] rows = ColumnarMarshal.rows(columns, array.size());
+        RList output = RDataFactory.createList(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            output.setElement(i, RDataFactory.createList(rows[i]));
+        }
+        return output;
     }
 
-    public static RList composeRListFromTuple6(PArray<Tuple6<?, ?, ?, ?, ?, ?>> array) {
-
-        if (!array.isPrimitiveArray(0)) {
+    /**
+     * Method for updating the references when a {@link PArray} is represented as primitive type.
+     * The result is a list-matrix with one column per tuple.
+     *
+     * @param array
+     * @param dim
+     * @return {@link RList}
+     */
+    @SuppressWarnings("rawtypes")
+    public static RList composeRListFromTuples(PArray array, int dim) {
+        Object[] columns = getPrimitiveColumns(array);
+        if (columns == null) {
             // DEOPT TO THE OLD STRATEGY
-            return getRListFromTuple6(array);
+            return getRListFromTuples(array, dim);
         }
 
-        final int TUPLE_DIM = 6;
-
-        RuntimeObjectTypeInfo runtimeObjectTypeInfo = array.getRuntimeObjectTypeInfo();
-        RuntimeObjectTypeInfo[] nestedTypes = runtimeObjectTypeInfo.getNestedTypes();
-
-        int i = 0;
-        Object[] data = new Object[array.size() * TUPLE_DIM];
-        for (RuntimeObjectTypeInfo r : nestedTypes) {
-
-            if (r.getClassObject() == Double.class) {
-                double[] asDoubleArray = array.asDoubleArray(i);
-                final int j = i;
-                IntStream.range(0, array.size()).parallel().forEach(idx -> {
-                    data[idx * TUPLE_DIM + j] = asDoubleArray[idx];
-                });
-
-            } else if (r.getClassObject() == Integer.class) {
-                int[] asIntegerArray = array.asIntegerArray(0);
-                final int j = i;
-                IntStream.range(0, array.size()).parallel().forEach(idx -> {
-                    data[idx * TUPLE_DIM + j] = asIntegerArray[idx];
-                });
-
-            } else {
-                throw new RuntimeException("Data type not supported yet: " + r.getClassObject());
-            }
+        long start = System.nanoTime();
+        Object[] data = ColumnarMarshal.interleave(columns, array.size());
+        RList list = RDataFactory.createList(data, new int[]{dim, array.size()});
+        long end = System.nanoTime();
 
-            i++;
+        if (ASTxOptions.profileOpenCL_ASTx) {
+            ProfilerLog.write(ProfilerType.TRUFFLE_RLIST_CONVERSION, "start", start);
+            ProfilerLog.write(ProfilerType.TRUFFLE_RLIST_CONVERSION, "end", end);
+            ProfilerLog.write(ProfilerType.TRUFFLE_RLIST_CONVERSION, "total", (end - start));
         }
 
-        RList list = RDataFactory.createList(data, new int[]{TUPLE_DIM, array.size()});
         return list;
     }
 
@@ -908,16 +986,8 @@ public class ASTxUtils {
             return getIntVectorFromPArray(result);
         } else if (type == TypeInfo.DOUBLE) {
             return getDoubleVectorFromPArray(result);
-        } else if (type == TypeInfo.TUPLE2) {
-            return getRListFromTuple2(result);
-        } else if (type == TypeInfo.TUPLE3) {
-            return getRListFromTuple3(result);
-        } else if (type == TypeInfo.TUPLE4) {
-            return getRListFromTuple4(result);
-        } else if (type == TypeInfo.TUPLE5) {
-            return getRListFromTuple5(result);
-        } else if (type == TypeInfo.TUPLE6) {
-            return getRListFromTuple6(result);
+        } else if (getTupleDimension(type) > 0) {
+            return getRListFromTuples(result, getTupleDimension(type));
         } else {
             throw new MarawaccRuntimeTypeException("Data type not supported yet " + result.get(0).getClass() + " [ " + __LINE__.print() + "]");
         }
@@ -942,16 +1012,8 @@ public class ASTxUtils {
             return getDoubleVector(result);
         } else if (type == TypeInfo.LIST) {
             return getRList(result);
-        } else if (type == TypeInfo.TUPLE2) {
-            return getRListFromTuple2(result);
-        } else if (type == TypeInfo.TUPLE3) {
-            return getRListFromTuple3(result);
-        } else if (type == TypeInfo.TUPLE4) {
-            return getRListFromTuple4(result);
-        } else if (type == TypeInfo.TUPLE5) {
-            return getRListFromTuple5(result);
-        } else if (type == TypeInfo.TUPLE6) {
-            return getRListFromTuple6(result);
+        } else if (getTupleDimension(type) > 0) {
+            return getRListFromTuples(result, getTupleDimension(type));
         } else {
             throw new MarawaccRuntimeTypeException("Data type not supported yet " + result.get(0).getClass() + " [ " + __LINE__.print() + "]");
         }
@@ -963,10 +1025,8 @@ public class ASTxUtils {
             return getIntVector(result);
         } else if (type == TypeInfo.DOUBLE) {
             return getDoubleVector(result);
-        } else if (type == TypeInfo.TUPLE2) {
-            return composeRListFromTuple2(result);
-        } else if (type == TypeInfo.TUPLE6) {
-            return composeRListFromTuple6(result);
+        } else if (getTupleDimension(type) > 0) {
+            return composeRListFromTuples(result, getTupleDimension(type));
         } else {
             throw new MarawaccRuntimeTypeException("Data type not supported yet " + result.get(0).getClass() + " [ " + __LINE__.print() + "]");
         }
@@ -998,19 +1058,32 @@ public class ASTxUtils {
         System.out.println(array);
     }
 
+    /**
+     * Encoding of the sequence for the device, or {@link Encoding#NONE} if it has to be marshalled
+     * element by element.
+     *
+     * @param input
+     * @return {@link Encoding}
+     */
+    public static Encoding getSequenceEncoding(RSequence input) {
+        return ClosedFormSequences.encoding(input.getLength(), input.getEach(), input.getPeriod(), ASTxOptions.useTypeOfSequences);
+    }
+
+    public static boolean isEncodableSequence(RSequence input) {
+        return getSequenceEncoding(input) != Encoding.NONE;
+    }
+
     public static int getValueForRepetitionSequence(RIntSequence input) {
-        int value = 0;
-        if (input.getType() != null) {
-            if (input.getType() == TypeOfSequence.Flag) {
-                value = input.getRepetitions();
-            } else if (input.getType() == TypeOfSequence.Compass) {
-                value = input.getMax();
-            }
-        }
-        return value;
+        return ClosedFormSequences.encodedValue(getSequenceEncoding(input), input.getEach(), input.getPeriod());
     }
 
     public static PArray<?> buildIntPArrayForSequence(RIntSequence input) {
+        Encoding encoding = getSequenceEncoding(input);
+        if (encoding == Encoding.NONE) {
+            // No encoding for the device: marshal by formula
+            return marshalSimplePArrays(TypeInfo.RIntSequence, input);
+        }
+
         // Build the PArray with the meta-data needed for the sequence computation
         PArray<Integer> parray = new PArray<>(3, TypeFactory.Integer(), StorageMode.OPENCL_BYTE_BUFFER);
 
@@ -1023,12 +1096,12 @@ public class ASTxUtils {
 
         if (ASTxOptions.useTypeOfSequences) {
             // Set the type of optimize sequence
-            if (input.getType() != TypeOfSequence.Basic) {
+            if (encoding != Encoding.AFFINE) {
                 int value = getValueForRepetitionSequence(input);
                 parray.put(2, value);
 
                 // Set type of sequence. It could be: < compass | flag >
-                if (input.getType() == TypeOfSequence.Compass) {
+                if (encoding == Encoding.COMPASS) {
                     parray.setCompass(true);    // e.g.: 1 2 3 4 1 2 ...
                 } else {
                     parray.setFlag(true);       // e.g.: 1 1 1 2 2 2 ...
@@ -1057,18 +1130,16 @@ public class ASTxUtils {
     }
 
     public static double getValueForRepetitionSequence(RDoubleSequence input) {
-        double value = 0;
-        if (input.getType() != null) {
-            if (input.getType() == TypeOfSequence.Flag) {
-                value = input.getRepetitions();
-            } else if (input.getType() == TypeOfSequence.Compass) {
-                value = input.getMax();
-            }
-        }
-        return value;
+        return ClosedFormSequences.encodedValue(getSequenceEncoding(input), input.getEach(), input.getPeriod());
     }
 
     public static PArray<?> buildDoublePArrayForSequence(RDoubleSequence input) {
+        Encoding encoding = getSequenceEncoding(input);
+        if (encoding == Encoding.NONE) {
+            // No encoding for the device: marshal by formula
+            return marshalSimplePArrays(TypeInfo.RDoubleSequence, input);
+        }
+
         PArray<Double> parray = new PArray<>(3, TypeFactory.Double(), StorageMode.OPENCL_BYTE_BUFFER);
         double start = input.start();
         double stride = input.stride();
@@ -1079,12 +1150,12 @@ public class ASTxUtils {
 
         if (ASTxOptions.useTypeOfSequences) {
             // Set the type of optimize sequence
-            if (input.getType() != TypeOfSequence.Basic) {
+            if (encoding != Encoding.AFFINE) {
                 double value = getValueForRepetitionSequence(input);
                 parray.put(2, value);
 
                 // Set type of sequence. It could be: < compass | flag >
-                if (input.getType() == TypeOfSequence.Compass) {
+                if (encoding == Encoding.COMPASS) {
                     parray.setCompass(true);    // e.g.: 1 2 3 4 1 2 ...
                 } else {
                     parray.setFlag(true);       // e.g.: 1 1 1 2 2 2 ...
@@ -1169,18 +1240,14 @@ public class ASTxUtils {
     }
 
     private static int[] materializeIntSequence(RIntSequence sequence) {
-        final int start = sequence.start();
-        final int stride = sequence.stride();
         int[] array = new int[sequence.getLength()];
-        IntStream.range(0, array.length).parallel().forEach(i -> array[i] = start + stride * i);
+        IntStream.range(0, array.length).parallel().forEach(i -> array[i] = sequence.getDataAt(i));
         return array;
     }
 
     private static double[] materializeDoubleSequence(RDoubleSequence sequence) {
-        final double start = sequence.start();
-        final double stride = sequence.stride();
         double[] array = new double[sequence.getLength()];
-        IntStream.range(0, array.length).parallel().forEach(i -> array[i] = start + stride * i);
+        IntStream.range(0, array.length).parallel().forEach(i -> array[i] = sequence.getDataAt(i));
         return array;
     }
 
@@ -1189,7 +1256,7 @@ public class ASTxUtils {
         PArray parray = null;
         switch (type) {
             case RIntSequence:
-                if (ASTxOptions.optimizeRSequence) {
+                if (ASTxOptions.optimizeRSequence && isEncodableSequence((RSequence) input)) {
                     parray = buildIntPArrayForSequence((RIntSequence) input);
                     // Guarantee the new parray primitive branch in marawacc
                     GraalAcceleratorOptions.newPArraysPrimitive = true;
@@ -1200,22 +1267,22 @@ public class ASTxUtils {
                 }
                 break;
             case RIntVector:
-                int[] dataInt = ((RIntVector) input).getDataWithoutCopying();
+                int[] dataInt = ((RIntVector) input).getReadonlyData();
                 parray = new PArray<>(input.getLength(), TypeFactory.Integer(), StorageMode.OPENCL_BYTE_BUFFER, false);
                 parray.setIntArray(dataInt);
                 break;
             case RDoubleSequence:
-                if (ASTxOptions.optimizeRSequence) {
+                if (ASTxOptions.optimizeRSequence && isEncodableSequence((RSequence) input)) {
                     parray = buildDoublePArrayForSequence((RDoubleSequence) input);
                     GraalAcceleratorOptions.newPArraysPrimitive = true;
                 } else {
                     double[] array = materializeDoubleSequence((RDoubleSequence) input);
-                    parray = new PArray<>(input.getLength(), TypeFactory.Integer(), StorageMode.OPENCL_BYTE_BUFFER, false);
+                    parray = new PArray<>(input.getLength(), TypeFactory.Double(), StorageMode.OPENCL_BYTE_BUFFER, false);
                     parray.setDoubleArray(array);
                 }
                 break;
             case RDoubleVector:
-                double[] dataDouble = ((RDoubleVector) input).getDataWithoutCopying();
+                double[] dataDouble = ((RDoubleVector) input).getReadonlyData();
                 parray = new PArray<>(input.getLength(), TypeFactory.Double(), StorageMode.OPENCL_BYTE_BUFFER, false);
                 parray.setDoubleArray(dataDouble);
                 break;
@@ -1248,84 +1315,177 @@ public class ASTxUtils {
     public static PArray<?> marshalWithTuples(RAbstractVector input, RAbstractVector[] additionalArgs, TypeInfoList infoList) {
         String returns = composeReturnType(infoList);
         PArray parray = new PArray<>(input.getLength(), TypeFactory.Tuple(returns), StorageMode.OPENCL_BYTE_BUFFER);
-        switch (infoList.size()) {
+        if (infoList.size() < 2 || infoList.size() > 11) {
+            throw new MarawaccRuntimeTypeException("Tuple not supported yet: " + infoList.size() + " [ " + __LINE__.print() + "]");
+        }
+
+        // Read every argument once as a column, box the tuples in parallel and store them in order
+        Object[] columns = getColumns(input, additionalArgs, infoList.size());
+        Tuple[] tuples = new Tuple[parray.size()];
+        ColumnarMarshal.range(tuples.length).forEach(k -> tuples[k] = newTuple(ColumnarMarshal.row(columns, k)));
+        for (int k = 0; k < tuples.length; k++) {
+            parray.put(k, tuples[k]);
+        }
+        return parray;
+    }
+
+    /**
+     * Boxed tuple with the values of one row.
+     *
+     * @param row
+     * @return {@link Tuple}
+     */
+    @SuppressWarnings("rawtypes")
+    private static Tuple newTuple(Object[] row) {
+        switch (row.length) {
             case 2:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple2<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k)));
-                }
-                return parray;
+                return new Tuple2<>(row[0], row[1]);
             case 3:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple3<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k)));
-                }
-                return parray;
+                return new Tuple3<>(row[0], row[1], row[2]);
             case 4:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple4<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k)));
-                }
-                return parray;
+                return new Tuple4<>(row[0], row[1], row[2], row[3]);
             case 5:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple5<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k)));
-                }
-                return parray;
+                return new Tuple5<>(row[0], row[1], row[2], row[3], row[4]);
             case 6:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple6<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k)));
-                }
-                return parray;
-
+                return new Tuple6<>(row[0], row[1], row[2], row[3], row[4], row[5]);
             case 7:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple7<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k), additionalArgs[5].getDataAtAsObject(k)));
-                }
-                return parray;
-
+                return new Tuple7<>(row[0], row[1], row[2], row[3], row[4], row[5], row[6]);
             case 8:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple8<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k), additionalArgs[5].getDataAtAsObject(k), additionalArgs[6].getDataAtAsObject(k)));
-                }
-                return parray;
-
+                return new Tuple8<>(row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7]);
             case 9:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple9<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k), additionalArgs[5].getDataAtAsObject(k), additionalArgs[6].getDataAtAsObject(k),
-                                    additionalArgs[7].getDataAtAsObject(k)));
-                }
-                return parray;
-
+                return new Tuple9<>(row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8]);
             case 10:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple10<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k), additionalArgs[5].getDataAtAsObject(k), additionalArgs[6].getDataAtAsObject(k),
-                                    additionalArgs[7].getDataAtAsObject(k), additionalArgs[8].getDataAtAsObject(k)));
-                }
-                return parray;
-
+                return new Tuple10<>(row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8], row[9]);
             case 11:
-                for (int k = 0; k < parray.size(); k++) {
-                    parray.put(k, new Tuple11<>(input.getDataAtAsObject(k), additionalArgs[0].getDataAtAsObject(k), additionalArgs[1].getDataAtAsObject(k), additionalArgs[2].getDataAtAsObject(k),
-                                    additionalArgs[3].getDataAtAsObject(k), additionalArgs[4].getDataAtAsObject(k), additionalArgs[5].getDataAtAsObject(k), additionalArgs[6].getDataAtAsObject(k),
-                                    additionalArgs[7].getDataAtAsObject(k), additionalArgs[8].getDataAtAsObject(k), additionalArgs[9].getDataAtAsObject(k)));
+                return new Tuple11<>(row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8], row[9], row[10]);
+            default:
+                throw new MarawaccRuntimeTypeException("Tuple not supported yet: " + row.length + " [ " + __LINE__.print() + "]");
+        }
+    }
+
+    /**
+     * Column view of an R vector: the backing array for int and double vectors (no copy), the
+     * materialized values for sequences and other int and double vectors, or the boxed values
+     * otherwise.
+     *
+     * @param input
+     * @return int[], double[] or {@link Object}[]
+     */
+    public static Object getColumn(RAbstractVector input) {
+        final int size = input.getLength();
+        if (input instanceof RIntVector) {
+            return ((RIntVector) input).getReadonlyData();
+        } else if (input instanceof RDoubleVector) {
+            return ((RDoubleVector) input).getReadonlyData();
+        } else if (input instanceof RIntSequence) {
+            return materializeIntSequence((RIntSequence) input);
+        } else if (input instanceof RDoubleSequence) {
+            return materializeDoubleSequence((RDoubleSequence) input);
+        } else if (input instanceof RAbstractIntVector) {
+            RAbstractIntVector vector = (RAbstractIntVector) input;
+            return ColumnarMarshal.intColumn(size, vector::getDataAt);
+        } else if (input instanceof RAbstractDoubleVector) {
+            RAbstractDoubleVector vector = (RAbstractDoubleVector) input;
+            return ColumnarMarshal.doubleColumn(size, vector::getDataAt);
+        }
+        Object[] boxed = new Object[size];
+        ColumnarMarshal.range(size).forEach(i -> boxed[i] = input.getDataAtAsObject(i));
+        return boxed;
+    }
+
+    private static Object[] getColumns(RAbstractVector input, RAbstractVector[] additionalArgs, int numColumns) {
+        Object[] columns = new Object[numColumns];
+        columns[0] = getColumn(input);
+        for (int i = 1; i < numColumns; i++) {
+            columns[i] = getColumn(additionalArgs[i - 1]);
+        }
+        return columns;
+    }
+
+    /**
+     * Element <code>i</code> of the input as the Java threads backend receives it: the value of the
+     * input vector, or a tuple with the values of all the arguments.
+     *
+     * @param input
+     * @param additionalArgs
+     * @return {@link IntFunction}
+     */
+    public static IntFunction<Object> elementSource(RAbstractVector input, RAbstractVector[] additionalArgs) {
+        if (additionalArgs == null || additionalArgs.length == 0) {
+            return input::getDataAtAsObject;
+        }
+        Object[] columns = getColumns(input, additionalArgs, additionalArgs.length + 1);
+        return i -> newTuple(ColumnarMarshal.row(columns, i));
+    }
+
+    /**
+     * True when all the arguments can be marshalled as primitive columns.
+     *
+     * @param input
+     * @param additionalArgs
+     * @return boolean
+     */
+    public static boolean isColumnar(RAbstractVector input, RAbstractVector[] additionalArgs) {
+        if (!(input instanceof RAbstractIntVector || input instanceof RAbstractDoubleVector)) {
+            return false;
+        }
+        if (additionalArgs != null) {
+            if (additionalArgs.length > 10) {
+                return false;
+            }
+            for (RAbstractVector v : additionalArgs) {
+                if (!(v instanceof RAbstractIntVector || v instanceof RAbstractDoubleVector) || v.getLength() < input.getLength()) {
+                    return false;
                 }
-                return parray;
+            }
+        }
+        return true;
+    }
 
-            default:
-                throw new MarawaccRuntimeTypeException("Tuple not supported yet: " + infoList.size() + " [ " + __LINE__.print() + "]");
+    /**
+     * Struct-of-arrays marshal: one primitive column per argument for any number of arguments, with
+     * no boxing. Vectors are passed by reference, sequences and the rest of the int and double
+     * vectors are materialized in parallel.
+     *
+     * @param input
+     * @param additionalArgs
+     * @param infoList
+     * @return {@link PArray}
+     */
+    @SuppressWarnings({"rawtypes"})
+    public static PArray<?> marshalColumnar(RAbstractVector input, RAbstractVector[] additionalArgs, TypeInfoList infoList) {
+        int numColumns = (additionalArgs == null) ? 1 : infoList.size();
+        Object[] columns = getColumns(input, additionalArgs, numColumns);
+        PArray parray;
+        if (numColumns == 1) {
+            if (columns[0] instanceof int[]) {
+                parray = new PArray<>(input.getLength(), TypeFactory.Integer(), StorageMode.OPENCL_BYTE_BUFFER, false);
+                parray.setIntArray((int[]) columns[0]);
+            } else {
+                parray = new PArray<>(input.getLength(), TypeFactory.Double(), StorageMode.OPENCL_BYTE_BUFFER, false);
+                parray.setDoubleArray((double[]) columns[0]);
+            }
+            return parray;
+        }
+
+        // PArray with no buffer allocation
+        parray = new PArray<>(input.getLength(), TypeFactory.Tuple(composeReturnType(infoList)), StorageMode.OPENCL_BYTE_BUFFER, false);
+        for (int i = 0; i < numColumns; i++) {
+            if (columns[i] instanceof int[]) {
+                parray.setIntArray(i, (int[]) columns[i]);
+            } else {
+                parray.setDoubleArray(i, (double[]) columns[i]);
+            }
         }
+        return parray;
     }
 
     @SuppressWarnings("rawtypes")
     private static void insertCorrectArray(TypeInfo typeInfo, PArray parray, RAbstractVector input, int idx) {
         if (typeInfo == TypeInfo.RIntVector) {
-            parray.setIntArray(idx, ((RIntVector) input).getDataWithoutCopying());
+            parray.setIntArray(idx, ((RIntVector) input).getReadonlyData());
         } else if (typeInfo == TypeInfo.RIntSequence) {
-            if (!ASTxOptions.optimizeRSequence) {
+            if (!ASTxOptions.optimizeRSequence || !isEncodableSequence((RSequence) input)) {
                 int[] array = materializeIntSequence((RIntSequence) input);
                 parray.setIntArray(idx, array);
             } else {
@@ -1349,16 +1509,22 @@ public class ASTxUtils {
                 GraalAcceleratorOptions.newPArraysPrimitive = true;
             }
         } else if (typeInfo == TypeInfo.RDoubleVector) {
-            parray.setDoubleArray(idx, ((RDoubleVector) input).getDataWithoutCopying());
+            parray.setDoubleArray(idx, ((RDoubleVector) input).getReadonlyData());
         } else if (typeInfo == TypeInfo.RDoubleSequence) {
-            if (!ASTxOptions.optimizeRSequence) {
+            if (!ASTxOptions.optimizeRSequence || !isEncodableSequence((RSequence) input)) {
                 double[] array = materializeDoubleSequence((RDoubleSequence) input);
                 parray.setDoubleArray(idx, array);
             } else {
                 GraalAcceleratorOptions.newPArraysPrimitive = true;
                 PArray parraySequence = buildDoublePArrayForSequence((RDoubleSequence) input);
                 parray.setTotalSize(input.getLength());
-                parray.setBuffer(idx, parraySequence.getArrayReference(), true);
+                if (parraySequence.isCompass()) {
+                    parray.setBufferCompassSequence(idx, parraySequence.getArrayReference(), true);
+                } else if (parraySequence.isFlag()) {
+                    parray.setBufferFlagSequence(idx, parraySequence.getArrayReference(), true);
+                } else {
+                    parray.setBuffer(idx, parraySequence.getArrayReference(), true);
+                }
             }
         } else {
             throw new MarawaccRuntimeTypeException("Tuple not supported yet: " + typeInfo + " [ " + __LINE__.print() + "]");
@@ -1420,14 +1586,15 @@ public class ASTxUtils {
                 } else if (additionalArgs[0] instanceof RDoubleSequence) {
                     b = buildDoublePArrayForSequence((RDoubleSequence) additionalArgs[0]);
                 } else {
-                    b = input.getPArray();
+                    b = additionalArgs[0].getPArray();
                     sequence = false;
                 }
 
                 parray.setBuffer(0, a.getArrayReference(), a.isSequence());
                 parray.setBuffer(1, b.getArrayReference(), b.isSequence());
 
-                parray.setSequence(sequence);
+                // sequences without encoding are marshalled element by element
+                parray.setSequence(sequence && a.isSequence() && b.isSequence());
                 parray.setTotalSize(input.getLength());
 
                 return parray;
@@ -1589,58 +1756,142 @@ public class ASTxUtils {
     }
 
     /**
-     * Given an array of scopeVars and the function, this method evaluates this variables and
-     * returns an array with only the arrays.
+     * Value of the variable <code>name</code> as seen from <code>frame</code>: the frame slot of the
+     * first enclosing frame that defines it. Promises are forced.
+     *
+     * @param name
+     * @param frame
+     * @return the value, or <code>null</code> when the variable is not defined
+     */
+    @TruffleBoundary
+    public static Object lookupScopeVariable(String name, Frame frame) {
+        Frame current = frame;
+        while (current != null) {
+            FrameSlot frameSlot = current.getFrameDescriptor().findFrameSlot(name);
+            if (frameSlot != null) {
+                Object value = current.getValue(frameSlot);
+                if (value != null && value != RMissing.instance) {
+                    if (value instanceof RPromise) {
+                        RPromise promise = (RPromise) value;
+                        value = promise.isEvaluated() ? promise.getValue() : PromiseHelperNode.evaluateSlowPath(null, promise);
+                    }
+                    return value;
+                }
+            }
+            current = RArguments.getEnclosingFrame(current);
+        }
+        return null;
+    }
+
+    /**
+     * Version of the contents of an R vector (see {@link RVector#getVersion()}). Only the int and
+     * double vectors bump their version on every write, and whenever their data array is handed out
+     * for writing. The copies made here read it with <code>getReadonlyData</code>.
+     *
+     * @param vector
+     * @return the version, or {@link ResidencyTracker#UNVERSIONED} when the vector cannot tell
+     */
+    public static int getVersion(Object vector) {
+        if (vector instanceof RIntVector || vector instanceof RDoubleVector) {
+            return ((RVector) vector).getVersion();
+        } else if (vector instanceof RSequence) {
+            // sequences are never modified
+            return 0;
+        }
+        return ResidencyTracker.UNVERSIONED;
+    }
+
+    /**
+     * Given an array of scopeVars and the function, this method reads these variables from the
+     * enclosing frames and returns a copy of the ones that are arrays. The version of each copy is
+     * recorded in the {@link ResidencyTracker} (see
+     * {@link #refreshScopeArrays(RFunction, String[], Object[])}).
      *
      * @param scopeVars
      * @param function
-     * @return Object[]
+     * @return {@link ScopeVarInfo}
      */
     public static ScopeVarInfo getValueOfScopeArrays(String[] scopeVars, RFunction function) {
-        LinkedList<Object> scopes = new LinkedList<>();
-        LinkedList<String> varNames = new LinkedList<>();
-        LinkedList<RVector> rVectors = new LinkedList<>();
+        ArrayList<Object> scopes = new ArrayList<>();
+        ArrayList<String> varNames = new ArrayList<>();
+        ArrayList<RVector> rVectors = new ArrayList<>();
+        MaterializedFrame frame = function.getEnclosingFrame();
         for (String var : scopeVars) {
-            StringBuffer scopeVar = new StringBuffer(var);
-            Source source = Source.fromText(scopeVar, "<eval>").withMimeType(RRuntime.R_APP_MIME);
-            MaterializedFrame frame = function.getEnclosingFrame();
-            Object val = null;
-            try {
-                val = RContext.getEngine().parseAndEval(source, frame, false);
-                boolean added = false;
-                if (val instanceof RVector) {
-                    rVectors.add((RVector) val);
-                    if (val instanceof RDoubleVector) {
-                        scopes.add(((RDoubleVector) val).getDataCopy());
-                        added = true;
-                    } else if (val instanceof RIntVector) {
-                        scopes.add(((RIntVector) val).getDataCopy());
-                        added = true;
-                    } else {
-                        throw new RuntimeException("Data type not supported yet");
-                    }
-                }
-                if (added) {
-                    varNames.add(var);
+            Object val = lookupScopeVariable(var, frame);
+            if (val instanceof RVector) {
+                rVectors.add((RVector) val);
+                if (val instanceof RDoubleVector) {
+                    scopes.add(((RDoubleVector) val).getDataCopy());
+                } else if (val instanceof RIntVector) {
+                    scopes.add(((RIntVector) val).getDataCopy());
+                } else {
+                    throw new RuntimeException("Data type not supported yet");
                 }
-            } catch (ParseException e) {
-                e.printStackTrace();
+                varNames.add(var);
             }
         }
 
-        RVector[] vectors = new RVector[rVectors.size()];
-        int i = 0;
-        for (RVector v : rVectors) {
-            vectors[i++] = v;
-        }
-
         if (scopes.isEmpty()) {
             return null;
         }
 
-        ScopeVarInfo scopeVarInfo = new ScopeVarInfo(scopes.toArray(), varNames.stream().toArray(String[]::new), vectors);
+        Object[] scopeArrays = scopes.toArray();
+        for (int i = 0; i < scopeArrays.length; i++) {
+            ResidencyTracker.INSTANCE.record(scopeArrays, i, rVectors.get(i), getVersion(rVectors.get(i)));
+        }
+        return new ScopeVarInfo(scopeArrays, varNames.toArray(new String[varNames.size()]), rVectors.toArray(new RVector[rVectors.size()]));
+    }
+
+    /**
+     * Update the lexical-scope arrays of a compiled function with the current values of the
+     * variables <code>names</code>. Only the arrays whose variable was re-assigned or modified since
+     * the last copy are copied again, in place, so the compiled kernel keeps its references.
+     *
+     * @param function
+     * @param names
+     * @param scopeArrays
+     * @return <code>false</code> when a variable changed its type or length, and the function has to
+     *         be compiled again
+     */
+    public static boolean refreshScopeArrays(RFunction function, String[] names, Object[] scopeArrays) {
+        MaterializedFrame frame = function.getEnclosingFrame();
+        for (int i = 0; i < scopeArrays.length; i++) {
+            if (!refreshScopeArray(scopeArrays, i, lookupScopeVariable(names[i], frame))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        return scopeVarInfo;
+    /**
+     * Update the lexical-scope array <code>idx</code> with the current value of its variable. The
+     * copy is skipped when the value is the vector of the last copy with the same version.
+     *
+     * @param scopeArrays
+     * @param idx
+     * @param value
+     * @return <code>false</code> when the value changed its type or length
+     */
+    public static boolean refreshScopeArray(Object[] scopeArrays, int idx, Object value) {
+        if (!(value instanceof RVector)) {
+            return false;
+        }
+        RVector vector = (RVector) value;
+        int version = getVersion(vector);
+        if (ResidencyTracker.INSTANCE.isCurrent(scopeArrays, idx, vector, version)) {
+            return true;
+        }
+        if (vector instanceof RDoubleVector && scopeArrays[idx] instanceof double[] && ((double[]) scopeArrays[idx]).length == vector.getLength()) {
+            double[] data = ((RDoubleVector) vector).getReadonlyData();
+            System.arraycopy(data, 0, scopeArrays[idx], 0, data.length);
+        } else if (vector instanceof RIntVector && scopeArrays[idx] instanceof int[] && ((int[]) scopeArrays[idx]).length == vector.getLength()) {
+            int[] data = ((RIntVector) vector).getReadonlyData();
+            System.arraycopy(data, 0, scopeArrays[idx], 0, data.length);
+        } else {
+            return false;
+        }
+        ResidencyTracker.INSTANCE.record(scopeArrays, idx, vector, version);
+        return true;
     }
 
     public static void printAST(RFunction function) {
@@ -1661,7 +1912,7 @@ public class ASTxUtils {
         RAbstractVector[] additionalInputs = new RAbstractVector[total];
 
         for (int i = 0; i < total; i++) {
-            additionalInputs[i] = (RAbstractVector) ((RList) args.getArgument(2)).getDataAt(i);
+            additionalInputs[i] = asRVector(((RList) args.getArgument(2)).getDataAt(i));
         }
         return additionalInputs;
     }
@@ -1669,11 +1920,24 @@ public class ASTxUtils {
     private static RAbstractVector[] getRExtraArgumentsFromRVector(RArgsValuesAndNames args) {
         RAbstractVector[] additionalInputs = new RAbstractVector[args.getLength() - 2];
         for (int i = 0; i < additionalInputs.length; i++) {
-            additionalInputs[i] = (RAbstractVector) args.getArgument(i + 2);
+            additionalInputs[i] = asRVector(args.getArgument(i + 2));
         }
         return additionalInputs;
     }
 
+    /**
+     * R vector of an argument. A result that is still on the device is copied to the host.
+     *
+     * @param arg
+     * @return {@link RAbstractVector}
+     */
+    public static RAbstractVector asRVector(Object arg) {
+        if (arg instanceof DeviceResidentArray) {
+            return (RAbstractVector) ((DeviceResidentArray<?, ?>) arg).getHost();
+        }
+        return (RAbstractVector) arg;
+    }
+
     public static RAbstractVector[] getRArrayWithAdditionalArguments(RArgsValuesAndNames args) {
         if (args.getLength() > 2) {
             if (args.getArgument(2) instanceof RList) {
@@ -1872,6 +2136,9 @@ public class ASTxUtils {
             // No marshal, just passing primitive vectors, we completely save the marshal and
             // unmarshal
             inputPArrayFormat = ASTxUtils.createPArrayForPrimitives(input, additionalArgs, inputTypeList);
+        } else if (FastRGPUOptions.columnarMarshal && isColumnar(input, additionalArgs)) {
+            // real marshal, one primitive column per argument
+            inputPArrayFormat = ASTxUtils.marshalColumnar(input, additionalArgs, inputTypeList);
         } else {
             // real marshal
             inputPArrayFormat = ASTxUtils.marshal(input, additionalArgs, inputTypeList);
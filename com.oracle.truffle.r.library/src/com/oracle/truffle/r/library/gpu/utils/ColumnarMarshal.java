@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.utils;
+
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Struct-of-arrays helpers for marshalling R vectors into PArrays and back. Each argument of a
+ * kernel is kept as one primitive column (<code>int[]</code> or <code>double[]</code>) instead of
+ * one boxed tuple per element. Loops over more than {@link #PARALLEL_THRESHOLD} elements run with
+ * the common fork-join pool.
+ */
+public final class ColumnarMarshal {
+
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    /**
+     * Index stream over <code>[0, size)</code>, parallel for large sizes.
+     *
+     * @param size
+     * @return {@link IntStream}
+     */
+    public static IntStream range(int size) {
+        IntStream stream = IntStream.range(0, size);
+        return (size >= PARALLEL_THRESHOLD) ? stream.parallel() : stream;
+    }
+
+    public static int[] intColumn(int size, IntUnaryOperator element) {
+        int[] column = new int[size];
+        range(size).forEach(i -> column[i] = element.applyAsInt(i));
+        return column;
+    }
+
+    public static double[] doubleColumn(int size, IntToDoubleFunction element) {
+        double[] column = new double[size];
+        range(size).forEach(i -> column[i] = element.applyAsDouble(i));
+        return column;
+    }
+
+    public static boolean isColumn(Object column) {
+        return column instanceof int[] || column instanceof double[];
+    }
+
+    /**
+     * Boxed element <code>idx</code> of a column (<code>int[]</code>, <code>double[]</code> or
+     * already boxed <code>Object[]</code>).
+     *
+     * @param column
+     * @param idx
+     * @return {@link Object}
+     */
+    public static Object get(Object column, int idx) {
+        if (column instanceof int[]) {
+            return ((int[]) column)[idx];
+        } else if (column instanceof double[]) {
+            return ((double[]) column)[idx];
+        } else if (column instanceof Object[]) {
+            return ((Object[]) column)[idx];
+        }
+        throw new RuntimeException("Column type not supported: " + column.getClass());
+    }
+
+    /**
+     * Element <code>idx</code> of every column (one tuple).
+     *
+     * @param columns
+     * @param idx
+     * @return {@link Object}[]
+     */
+    public static Object[] row(Object[] columns, int idx) {
+        Object[] row = new Object[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            row[j] = get(columns[j], idx);
+        }
+        return row;
+    }
+
+    /**
+     * All the rows of the columns, <code>rows[i][j] = columns[j][i]</code>.
+     *
+     * @param columns
+     * @param size
+     * @return {@link Object}[][]
+     */
+    public static Object[][] rows(Object[] columns, int size) {
+        Object[][] rows = new Object[size][];
+        range(size).forEach(i -> rows[i] = row(columns, i));
+        return rows;
+    }
+
+    /**
+     * Row-major flattening of the columns, <code>data[i * columns.length + j] = columns[j][i]</code>.
+     * This is the layout of an R list-matrix with dimensions <code>{columns.length, size}</code>.
+     *
+     * @param columns
+     * @param size
+     * @return {@link Object}[]
+     */
+    public static Object[] interleave(Object[] columns, int size) {
+        final int dim = columns.length;
+        Object[] data = new Object[size * dim];
+        for (int j = 0; j < dim; j++) {
+            final Object column = columns[j];
+            final int offset = j;
+            range(size).forEach(i -> data[i * dim + offset] = get(column, i));
+        }
+        return data;
+    }
+
+    private ColumnarMarshal() {
+        // empty constructor
+    }
+}
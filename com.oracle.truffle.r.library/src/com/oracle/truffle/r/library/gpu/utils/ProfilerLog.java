@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.utils;
+
+import uk.ac.ed.accelerator.profiler.Profiler;
+import uk.ac.ed.accelerator.profiler.ProfilerType;
+
+/**
+ * Writes into the Marawacc {@link Profiler} from several threads. The buffer of the profiler is
+ * not thread-safe, so all the writes of the ASTx runtime take the lock of the profiler instance.
+ */
+public final class ProfilerLog {
+
+    public static void write(ProfilerType type, String message, long value) {
+        Profiler profiler = Profiler.getInstance();
+        synchronized (profiler) {
+            profiler.writeInBuffer(type, message, value);
+        }
+    }
+
+    public static void write(ProfilerType type, String message, int value) {
+        Profiler profiler = Profiler.getInstance();
+        synchronized (profiler) {
+            profiler.writeInBuffer(type, message, value);
+        }
+    }
+
+    public static void write(ProfilerType type, String message, String value) {
+        Profiler profiler = Profiler.getInstance();
+        synchronized (profiler) {
+            profiler.writeInBuffer(type, message, value);
+        }
+    }
+
+    public static void write(String message, long value) {
+        Profiler profiler = Profiler.getInstance();
+        synchronized (profiler) {
+            profiler.writeInBuffer(message, value);
+        }
+    }
+
+    public static void print(String message) {
+        Profiler profiler = Profiler.getInstance();
+        synchronized (profiler) {
+            profiler.print(message);
+        }
+    }
+
+    private ProfilerLog() {
+        // empty constructor
+    }
+}
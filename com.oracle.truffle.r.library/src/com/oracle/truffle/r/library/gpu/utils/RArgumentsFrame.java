@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.gpu.utils;
+
+import uk.ac.ed.datastructures.common.PArray;
+
+import com.oracle.truffle.r.library.gpu.cache.RFunctionSignature;
+import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.runtime.RArguments;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Reusable {@link RArguments} for the element loops. The array passed to the call target is created
+ * once and only its arguments are replaced for the next element. A new array is created for every
+ * element when the frame of the function may escape the call (a closure or an environment that
+ * shares the array, see {@link RFunctionSignature#frameMayEscape()}), and when the previous call
+ * reified its environment (see {@link RArguments#isReusable(Object[], RFunction)}).
+ *
+ * An instance must be used by one thread at a time, and the array it returns is only valid until
+ * the next call to <code>pack</code>. Use {@link #perThread(RFunction)} for the lambdas that run on
+ * several threads.
+ */
+public final class RArgumentsFrame {
+
+    private final RFunction function;
+    private final ArgumentsSignature signature;
+    private final Object[] values;
+    private final boolean reuse;
+    private Object[] arguments;
+
+    public RArgumentsFrame(RFunction function) {
+        RFunctionSignature formals = RFunctionSignature.get(function);
+        this.function = function;
+        this.signature = formals.getSignature();
+        this.values = new Object[signature.getLength()];
+        this.reuse = !formals.frameMayEscape();
+    }
+
+    /**
+     * @param function
+     * @return one {@link RArgumentsFrame} per worker thread
+     */
+    public static ThreadLocal<RArgumentsFrame> perThread(RFunction function) {
+        return ThreadLocal.withInitial(() -> new RArgumentsFrame(function));
+    }
+
+    private Object[] pack() {
+        if (!reuse || arguments == null || !RArguments.isReusable(arguments, function)) {
+            // values is copied by create
+            arguments = RArguments.create(function, null, null, 0, values, signature, null);
+        } else {
+            RArguments.setArguments(arguments, values);
+        }
+        return arguments;
+    }
+
+    /**
+     * Arguments for the element <code>idx</code> of the inputs.
+     *
+     * @param input
+     * @param args
+     * @param idx
+     * @return Object[]
+     */
+    public Object[] pack(RAbstractVector input, RAbstractVector[] args, int idx) {
+        ASTxUtils.fillArguments(values, input, args, idx);
+        return pack();
+    }
+
+    /**
+     * Arguments for the element <code>idx</code> of the inputs. The shorter inputs are recycled, as
+     * <code>mapply</code> does.
+     *
+     * @param input
+     * @param args
+     * @param idx
+     * @return Object[]
+     */
+    public Object[] packRecycled(RAbstractVector input, RAbstractVector[] args, int idx) {
+        values[0] = input.getDataAtAsObject(idx % input.getLength());
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                values[i + 1] = args[i].getDataAtAsObject(idx % args[i].getLength());
+            }
+        }
+        return pack();
+    }
+
+    /**
+     * Arguments for the element <code>idx</code> of the inputs in {@link PArray} format.
+     *
+     * @param input
+     * @param args
+     * @param idx
+     * @return Object[]
+     */
+    public Object[] pack(PArray<?> input, PArray<?>[] args, int idx) {
+        ASTxUtils.fillArguments(values, input, args, idx);
+        return pack();
+    }
+
+    /**
+     * Arguments for one element (a value or a tuple).
+     *
+     * @param input
+     * @return Object[]
+     */
+    public Object[] pack(Object input) {
+        ASTxUtils.fillArgumentsFromTuple(values, input, 0);
+        return pack();
+    }
+
+    /**
+     * Arguments for one step of a reduction: the accumulator and one element.
+     *
+     * @param acc
+     * @param input
+     * @return Object[]
+     */
+    public Object[] pack(Object acc, Object input) {
+        values[0] = acc;
+        ASTxUtils.fillArgumentsFromTuple(values, input, 1);
+        return pack();
+    }
+
+    /**
+     * Arguments for one slice of a matrix, followed by the extra arguments as they are.
+     *
+     * @param slice
+     * @param extra
+     * @return Object[]
+     */
+    public Object[] packSlice(Object slice, Object[] extra) {
+        values[0] = slice;
+        if (extra != null) {
+            for (int i = 0; i < extra.length && i + 1 < values.length; i++) {
+                values[i + 1] = extra[i];
+            }
+        }
+        return pack();
+    }
+}
@@ -129,7 +129,7 @@ public abstract class AsDouble extends RBuiltinNode {
     @Specialization
     protected RDoubleSequence asDouble(RIntSequence sequence) {
         controlVisibility();
-        return RDataFactory.createDoubleSequence(sequence.getStart(), sequence.getStride(), sequence.getLength());
+        return RDataFactory.createDoubleSequence(sequence.getStart(), sequence.getStride(), sequence.getLength(), sequence.getEach(), sequence.getPeriod());
     }
 
     @Specialization
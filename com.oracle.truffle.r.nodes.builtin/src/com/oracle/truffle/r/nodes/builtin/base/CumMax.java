@@ -74,7 +74,13 @@ public abstract class CumMax extends RBuiltinNode {
         controlVisibility();
         int[] cmaxV = new int[v.getLength()];
 
-        if (v.getStride() < 0) { // all numbers are bigger than the first one
+        if (!v.isAffine()) {
+            cmaxV[0] = v.getDataAt(0);
+            for (int i = 1; i < v.getLength(); i++) {
+                cmaxV[i] = Math.max(cmaxV[i - 1], v.getDataAt(i));
+            }
+            return RDataFactory.createIntVector(cmaxV, RDataFactory.COMPLETE_VECTOR, v.getNames(attrProfiles));
+        } else if (v.getStride() < 0) { // all numbers are bigger than the first one
             Arrays.fill(cmaxV, v.getStart());
             return RDataFactory.createIntVector(cmaxV, RDataFactory.COMPLETE_VECTOR, v.getNames(attrProfiles));
         } else {
@@ -74,7 +74,13 @@ public abstract class CumMin extends RBuiltinNode {
         controlVisibility();
         int[] cminV = new int[v.getLength()];
 
-        if (v.getStride() > 0) {
+        if (!v.isAffine()) {
+            cminV[0] = v.getDataAt(0);
+            for (int i = 1; i < v.getLength(); i++) {
+                cminV[i] = Math.min(cminV[i - 1], v.getDataAt(i));
+            }
+            return RDataFactory.createIntVector(cminV, RDataFactory.COMPLETE_VECTOR, v.getNames(attrProfiles));
+        } else if (v.getStride() > 0) {
             // all numbers are bigger than the first one
             Arrays.fill(cminV, v.getStart());
             return RDataFactory.createIntVector(cminV, RDataFactory.COMPLETE_VECTOR, v.getNames(attrProfiles));
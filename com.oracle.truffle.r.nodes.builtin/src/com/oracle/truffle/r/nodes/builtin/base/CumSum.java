@@ -77,16 +77,14 @@ public abstract class CumSum extends RBuiltinNode {
     protected RIntVector cumsum(RIntSequence arg) {
         controlVisibility();
         int[] res = new int[arg.getLength()];
-        int current = arg.getStart();
         int prev = 0;
         int i;
         na.enable(true);
         for (i = 0; i < arg.getLength(); i++) {
-            prev = add.op(prev, current);
+            prev = add.op(prev, arg.getDataAt(i));
             if (na.check(prev)) {
                 break;
             }
-            current += arg.getStride();
             res[i] = prev;
         }
         if (!na.neverSeenNA()) {
@@ -21,6 +21,10 @@ import com.oracle.truffle.r.nodes.binary.CastTypeNodeGen;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.TypeofNode;
 import com.oracle.truffle.r.nodes.unary.TypeofNodeGen;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetComplex;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetInt;
 import com.oracle.truffle.r.runtime.RBuiltin;
 import com.oracle.truffle.r.runtime.RBuiltinKind;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -28,7 +32,12 @@ import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 public class DuplicatedFunctions {
@@ -37,43 +46,216 @@ public class DuplicatedFunctions {
         @Child protected CastTypeNode castTypeNode;
         @Child protected TypeofNode typeof;
 
+        /**
+         * Set of the elements of a vector. The atomic vector types use the primitive hash sets, so
+         * their elements are not boxed; any other container falls back to a {@link HashSet} of
+         * {@code getDataAtAsObject}.
+         */
+        private abstract static class ElementSet {
+
+            /**
+             * @return true if the element was already in the set
+             */
+            abstract boolean add(RAbstractContainer v, int i);
+
+            abstract boolean contains(RAbstractContainer v, int i);
+
+            /**
+             * Whether the elements of {@code v} can be added to or looked up in this set.
+             */
+            abstract boolean accepts(RAbstractContainer v);
+
+            static ElementSet create(RAbstractContainer x, int capacity) {
+                if (x instanceof RAbstractIntVector) {
+                    return new IntSet(capacity);
+                } else if (x instanceof RAbstractDoubleVector) {
+                    return new DoubleSet(capacity);
+                } else if (x instanceof RAbstractLogicalVector) {
+                    return new LogicalSet(capacity);
+                } else if (x instanceof RAbstractStringVector) {
+                    return new StringSet(capacity);
+                } else if (x instanceof RAbstractComplexVector) {
+                    return new ComplexSet(capacity);
+                } else {
+                    return new ObjectSet();
+                }
+            }
+        }
+
+        private static final class IntSet extends ElementSet {
+            private final NonRecursiveHashSetInt set;
+
+            IntSet(int capacity) {
+                set = new NonRecursiveHashSetInt(capacity);
+            }
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return set.add(((RAbstractIntVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(((RAbstractIntVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return v instanceof RAbstractIntVector;
+            }
+        }
+
+        private static final class LogicalSet extends ElementSet {
+            private final NonRecursiveHashSetInt set;
+
+            LogicalSet(int capacity) {
+                set = new NonRecursiveHashSetInt(Math.min(capacity, 3));
+            }
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return set.add(((RAbstractLogicalVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(((RAbstractLogicalVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return v instanceof RAbstractLogicalVector;
+            }
+        }
+
+        private static final class DoubleSet extends ElementSet {
+            private final NonRecursiveHashSetDouble set;
+
+            DoubleSet(int capacity) {
+                set = new NonRecursiveHashSetDouble(capacity);
+            }
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return set.add(((RAbstractDoubleVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(((RAbstractDoubleVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return v instanceof RAbstractDoubleVector;
+            }
+        }
+
+        private static final class StringSet extends ElementSet {
+            private final NonRecursiveHashSetCharacter set;
+
+            StringSet(int capacity) {
+                set = new NonRecursiveHashSetCharacter(capacity);
+            }
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return set.add(((RAbstractStringVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(((RAbstractStringVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return v instanceof RAbstractStringVector;
+            }
+        }
+
+        private static final class ComplexSet extends ElementSet {
+            private final NonRecursiveHashSetComplex set;
+
+            ComplexSet(int capacity) {
+                set = new NonRecursiveHashSetComplex(capacity);
+            }
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return set.add(((RAbstractComplexVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(((RAbstractComplexVector) v).getDataAt(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return v instanceof RAbstractComplexVector;
+            }
+        }
+
+        private static final class ObjectSet extends ElementSet {
+            private final HashSet<Object> set = new HashSet<>();
+
+            @Override
+            boolean add(RAbstractContainer v, int i) {
+                return !set.add(v.getDataAtAsObject(i));
+            }
+
+            @Override
+            boolean contains(RAbstractContainer v, int i) {
+                return set.contains(v.getDataAtAsObject(i));
+            }
+
+            @Override
+            boolean accepts(RAbstractContainer v) {
+                return true;
+            }
+        }
+
         /**
          * Code sharing vehicle for the slight differences in behavior between {@code duplicated}
          * and {@code anyDuplicated} and whether {@code fromLast} is {@code TRUE/FALSE}.
          */
         protected static class DupState {
             final RAbstractContainer x;
-            final HashSet<Object> vectorContents = new HashSet<>();
-            final HashSet<Object> incompContents;
+            final ElementSet vectorContents;
+            final ElementSet incompContents;
             final byte[] dupVec;
             int index;
 
             DupState(RAbstractContainer x, RAbstractContainer incomparables, boolean justIndex, boolean fromLast) {
                 this.x = x;
-                vectorContents.add(x.getDataAtAsObject(fromLast ? x.getLength() - 1 : 0));
-
+                ElementSet contents = ElementSet.create(x, x.getLength());
+                ElementSet incomp = null;
                 if (incomparables != null) {
-                    incompContents = new HashSet<>();
+                    incomp = ElementSet.create(x, incomparables.getLength());
+                    if (!incomp.accepts(incomparables)) {
+                        contents = new ObjectSet();
+                        incomp = new ObjectSet();
+                    }
                     for (int i = 0; i < incomparables.getLength(); i++) {
-                        incompContents.add(incomparables.getDataAtAsObject(i));
+                        incomp.add(incomparables, i);
                     }
-                } else {
-                    incompContents = null;
                 }
+                contents.add(x, fromLast ? x.getLength() - 1 : 0);
+                vectorContents = contents;
+                incompContents = incomp;
                 dupVec = justIndex ? null : new byte[x.getLength()];
             }
 
             boolean doIt(int i) {
-                if (incompContents == null || !incompContents.contains(x.getDataAtAsObject(i))) {
-                    if (vectorContents.contains(x.getDataAtAsObject(i))) {
+                if (incompContents == null || !incompContents.contains(x, i)) {
+                    if (vectorContents.add(x, i)) {
                         if (dupVec == null) {
                             index = i + 1;
                             return true;
                         } else {
                             dupVec[i] = RRuntime.LOGICAL_TRUE;
                         }
-                    } else {
-                        vectorContents.add(x.getDataAtAsObject(i));
                     }
                 } else {
                     if (dupVec != null) {
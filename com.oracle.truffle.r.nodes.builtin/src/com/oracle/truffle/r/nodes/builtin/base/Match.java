@@ -34,6 +34,14 @@ import com.oracle.truffle.api.utilities.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.CastStringNode;
 import com.oracle.truffle.r.nodes.unary.CastStringNodeGen;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapComplex;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetComplex;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetInt;
 import com.oracle.truffle.r.runtime.RBuiltin;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -520,328 +528,4 @@ public abstract class Match extends RBuiltinNode {
     private static boolean setCompleteState(boolean matchAll, int nomatch) {
         return nomatch != RRuntime.INT_NA || matchAll ? RDataFactory.COMPLETE_VECTOR : RDataFactory.INCOMPLETE_VECTOR;
     }
-
-    // simple implementations of non-recursive hash-maps to enable compilation
-    // TODO: consider replacing with a more efficient library implementation
-
-    private abstract static class NonRecursiveHashMap {
-
-        protected final int[] values;
-        protected int naValue;
-
-        protected NonRecursiveHashMap(int entryCount) {
-            int capacity = Math.max(entryCount * 3 / 2, 1);
-            values = new int[Integer.highestOneBit(capacity) << 1];
-        }
-
-        protected int index(int hash) {
-            // Multiply by -127
-            return ((hash << 1) - (hash << 8)) & (values.length - 1);
-        }
-    }
-
-    private static final class NonRecursiveHashMapCharacter extends NonRecursiveHashMap {
-
-        private final String[] keys;
-
-        public NonRecursiveHashMapCharacter(int approxCapacity) {
-            super(approxCapacity);
-            keys = new String[values.length];
-        }
-
-        public boolean put(String key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(key.hashCode());
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key.equals(keys[ind])) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(String key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static final class NonRecursiveHashMapComplex extends NonRecursiveHashMap {
-
-        private final RComplex[] keys;
-
-        public NonRecursiveHashMapComplex(int approxCapacity) {
-            super(approxCapacity);
-            keys = new RComplex[values.length];
-        }
-
-        public boolean put(RComplex key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(key.hashCode());
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key.equals(keys[ind])) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(RComplex key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static final class NonRecursiveHashMapDouble extends NonRecursiveHashMap {
-
-        private final double[] keys;
-        private int nanValue;
-
-        public NonRecursiveHashMapDouble(int approxCapacity) {
-            super(approxCapacity);
-            keys = new double[values.length];
-            Arrays.fill(keys, RRuntime.DOUBLE_NA);
-        }
-
-        public boolean put(double key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else if (Double.isNaN(key)) {
-                boolean ret = nanValue == 0;
-                nanValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Double.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(double key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else if (Double.isNaN(key)) {
-                return nanValue - 1;
-            } else {
-                int ind = index(Double.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static final class NonRecursiveHashMapInt extends NonRecursiveHashMap {
-
-        private final int[] keys;
-
-        public NonRecursiveHashMapInt(int approxCapacity) {
-            super(approxCapacity);
-            keys = new int[values.length];
-            Arrays.fill(keys, RRuntime.INT_NA);
-        }
-
-        public boolean put(int key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(int key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    public static class NonRecursiveHashSetInt {
-        private NonRecursiveHashMapInt map;
-
-        public NonRecursiveHashSetInt(int approxCapacity) {
-            map = new NonRecursiveHashMapInt(approxCapacity);
-        }
-
-        public boolean add(int value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(int value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
-    public static class NonRecursiveHashSetDouble {
-        private NonRecursiveHashMapDouble map;
-
-        public NonRecursiveHashSetDouble(int approxCapacity) {
-            map = new NonRecursiveHashMapDouble(approxCapacity);
-        }
-
-        public boolean add(double value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(double value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
-    public static class NonRecursiveHashSetCharacter {
-        private NonRecursiveHashMapCharacter map;
-
-        public NonRecursiveHashSetCharacter(int approxCapacity) {
-            map = new NonRecursiveHashMapCharacter(approxCapacity);
-        }
-
-        public boolean add(String value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(String value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
-    public static class NonRecursiveHashSetComplex {
-        private NonRecursiveHashMapComplex map;
-
-        public NonRecursiveHashSetComplex(int approxCapacity) {
-            map = new NonRecursiveHashMapComplex(approxCapacity);
-        }
-
-        public boolean add(RComplex value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(RComplex value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
 }
@@ -24,26 +24,64 @@ package com.oracle.truffle.r.nodes.builtin.base;
 
 import static com.oracle.truffle.r.runtime.RBuiltinKind.INTERNAL;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.utilities.BranchProfile;
+import com.oracle.truffle.api.utilities.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.unary.ChunkedReduction;
 import com.oracle.truffle.r.runtime.RBuiltin;
+import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleSequence;
+import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 
 @RBuiltin(name = "mean", kind = INTERNAL, parameterNames = {"x"})
 public abstract class Mean extends RBuiltinNode {
 
     private final BranchProfile emptyProfile = BranchProfile.create();
+    private final ConditionProfile parallelProfile = ConditionProfile.createBinaryProfile();
 
     @Child private BinaryArithmetic add = BinaryArithmetic.ADD.create();
     @Child private BinaryArithmetic div = BinaryArithmetic.DIV.create();
 
+    /**
+     * The sum of a vector of at least <code>ParallelVectorThreshold</code> elements, reduced in
+     * chunks or in closed form for sequences.
+     */
+    @TruffleBoundary
+    private static double parallelSum(RAbstractVector x) {
+        if (x instanceof RIntSequence) {
+            RIntSequence s = (RIntSequence) x;
+            return ChunkedReduction.sequenceSum(s.getStart(), s.getStride(), s.getLength(), s.getEach(), s.getPeriod());
+        } else if (x instanceof RDoubleSequence) {
+            RDoubleSequence s = (RDoubleSequence) x;
+            return ChunkedReduction.sequenceSum(s.getStart(), s.getStride(), s.getLength(), s.getEach(), s.getPeriod());
+        }
+        ChunkedReduction.Result sum;
+        if (x instanceof RAbstractDoubleVector) {
+            sum = ChunkedReduction.reduce(ChunkedReduction.Operation.SUM, ((RAbstractDoubleVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 0.0);
+            return sum.isNA() ? RRuntime.DOUBLE_NA : sum.getDoubleValue();
+        } else if (x instanceof RAbstractIntVector) {
+            sum = ChunkedReduction.reduce(ChunkedReduction.Operation.SUM, ((RAbstractIntVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 0);
+        } else {
+            sum = ChunkedReduction.reduce(ChunkedReduction.Operation.SUM, ((RAbstractLogicalVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 0);
+        }
+        return sum.isNA() ? RRuntime.DOUBLE_NA : (double) sum.getLongValue();
+    }
+
+    private double parallelMean(RAbstractVector x) {
+        double sum = parallelSum(x);
+        return RRuntime.isNA(sum) ? RRuntime.DOUBLE_NA : div.op(sum, x.getLength());
+    }
+
     @Specialization
     protected double mean(RAbstractDoubleVector x) {
         controlVisibility();
@@ -51,6 +89,9 @@ public abstract class Mean extends RBuiltinNode {
             emptyProfile.enter();
             return Double.NaN;
         }
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelMean(x);
+        }
         double sum = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             sum = add.op(sum, x.getDataAt(k));
@@ -65,6 +106,9 @@ public abstract class Mean extends RBuiltinNode {
             emptyProfile.enter();
             return Double.NaN;
         }
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelMean(x);
+        }
         double sum = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             sum = add.op(sum, x.getDataAt(k));
@@ -79,6 +123,9 @@ public abstract class Mean extends RBuiltinNode {
             emptyProfile.enter();
             return Double.NaN;
         }
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelMean(x);
+        }
         double sum = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             sum = add.op(sum, x.getDataAt(k));
@@ -104,16 +104,7 @@ public abstract class Order extends RPrecedenceBuiltinNode {
             dec = false;
         }
 
-        int[] indx = new int[n];
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = i;
-        }
-        orderVector1(indx, v, naLast, dec);
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = indx[i] + 1;
-        }
-
-        return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
+        return radixOrder(new Object[]{keyData(v)}, n, naLast, dec);
     }
 
     @Specialization(guards = {"oneVec(args)", "isFirstDoublePrecedence(args)"})
@@ -132,16 +123,7 @@ public abstract class Order extends RPrecedenceBuiltinNode {
             dec = false;
         }
 
-        int[] indx = new int[n];
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = i;
-        }
-        orderVector1(indx, v, naLast, dec);
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = indx[i] + 1;
-        }
-
-        return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
+        return radixOrder(new Object[]{keyData(v)}, n, naLast, dec);
     }
 
     @Specialization(guards = {"oneVec(args)", "isFirstLogicalPrecedence(args)"})
@@ -167,16 +149,7 @@ public abstract class Order extends RPrecedenceBuiltinNode {
             dec = false;
         }
 
-        int[] indx = new int[n];
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = i;
-        }
-        orderVector1(indx, v, naLast, dec);
-        for (int i = 0; i < indx.length; i++) {
-            indx[i] = indx[i] + 1;
-        }
-
-        return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
+        return radixOrder(new Object[]{keyData(v)}, n, naLast, dec);
     }
 
     @Specialization(guards = {"oneVec(args)", "isFirstComplexPrecedence( args)"})
@@ -239,11 +212,26 @@ public abstract class Order extends RPrecedenceBuiltinNode {
             dec = false;
         }
 
+        Object[] vectors = args.getArguments();
+        Object[] keys = new Object[vectors.length];
+        for (int k = 0; k < vectors.length; k++) {
+            keys[k] = keyData((RAbstractVector) vectors[k]);
+            if (keys[k] == null) {
+                keys = null;
+                break;
+            }
+        }
+        if (keys != null) {
+            return radixOrder(keys, n, naLast == RRuntime.LOGICAL_TRUE, dec);
+        }
+
         int[] indx = new int[n];
         for (int i = 0; i < indx.length; i++) {
             indx[i] = i;
         }
-        orderVector(indx, args.getArguments(), naLast, dec);
+        // greaterSub negates the comparison when decreasing, which would also move the NAs
+        byte cmpNaLast = dec ? (naLast == RRuntime.LOGICAL_TRUE ? RRuntime.LOGICAL_FALSE : RRuntime.LOGICAL_TRUE) : naLast;
+        orderVector(indx, vectors, cmpNaLast, dec);
         for (int i = 0; i < indx.length; i++) {
             indx[i] = indx[i] + 1;
         }
@@ -251,6 +239,30 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
     }
 
+    /**
+     * The data of a vector that {@link RadixOrder} can order, <code>null</code> for complex vectors.
+     */
+    private static Object keyData(RAbstractVector v) {
+        if (v instanceof RAbstractIntVector) {
+            return ((RAbstractIntVector) v).materialize().getDataWithoutCopying();
+        } else if (v instanceof RAbstractDoubleVector) {
+            return ((RAbstractDoubleVector) v).materialize().getDataWithoutCopying();
+        } else if (v instanceof RAbstractLogicalVector) {
+            return ((RAbstractLogicalVector) v).materialize().getDataWithoutCopying();
+        } else if (v instanceof RAbstractStringVector) {
+            return ((RAbstractStringVector) v).materialize().getDataWithoutCopying();
+        }
+        return null;
+    }
+
+    private static RIntVector radixOrder(Object[] keys, int n, boolean naLast, boolean dec) {
+        int[] indx = RadixOrder.order(keys, n, naLast, dec);
+        for (int i = 0; i < indx.length; i++) {
+            indx[i] = indx[i] + 1;
+        }
+        return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
+    }
+
     private boolean greaterSub(int i, int j, Object[] vectors, byte naLast, boolean dec) {
         int c = -1;
         for (int k = 0; k < vectors.length; k++) {
@@ -289,97 +301,6 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         }
     }
 
-    private void orderVector1(int[] indx, RAbstractIntVector dv, boolean naLast, boolean dec) {
-        int lo = 0;
-        int hi = indx.length - 1;
-        int numNa = 0;
-        if (!dv.isComplete()) {
-            boolean[] isNa = new boolean[indx.length];
-            for (int i = 0; i < isNa.length; i++) {
-                if (RRuntime.isNA(dv.getDataAt(i))) {
-                    isNa[i] = true;
-                    numNa++;
-                }
-            }
-
-            if (numNa > 0) {
-                if (!naLast) {
-                    for (int i = 0; i < isNa.length; i++) {
-                        isNa[i] = !isNa[i];
-                    }
-                }
-                sortNA(indx, isNa, lo, hi);
-                if (naLast) {
-                    hi -= numNa;
-                } else {
-                    lo += numNa;
-                }
-            }
-        }
-
-        sort(indx, dv, lo, hi, dec);
-    }
-
-    private void orderVector1(int[] indx, RAbstractDoubleVector dv, boolean naLast, boolean dec) {
-        int lo = 0;
-        int hi = indx.length - 1;
-        int numNa = 0;
-        boolean[] isNa = new boolean[indx.length];
-        for (int i = 0; i < isNa.length; i++) {
-            if (RRuntime.isNAorNaN(dv.getDataAt(i))) {
-                isNa[i] = true;
-                numNa++;
-            }
-        }
-
-        if (numNa > 0) {
-            if (!naLast) {
-                for (int i = 0; i < isNa.length; i++) {
-                    isNa[i] = !isNa[i];
-                }
-            }
-            sortNA(indx, isNa, lo, hi);
-            if (naLast) {
-                hi -= numNa;
-            } else {
-                lo += numNa;
-            }
-        }
-
-        sort(indx, dv, lo, hi, dec);
-    }
-
-    private void orderVector1(int[] indx, RAbstractStringVector dv, boolean naLast, boolean dec) {
-        int lo = 0;
-        int hi = indx.length - 1;
-        int numNa = 0;
-        if (!dv.isComplete()) {
-            boolean[] isNa = new boolean[indx.length];
-            for (int i = 0; i < isNa.length; i++) {
-                if (RRuntime.isNA(dv.getDataAt(i))) {
-                    isNa[i] = true;
-                    numNa++;
-                }
-            }
-
-            if (numNa > 0) {
-                if (!naLast) {
-                    for (int i = 0; i < isNa.length; i++) {
-                        isNa[i] = !isNa[i];
-                    }
-                }
-                sortNA(indx, isNa, lo, hi);
-                if (naLast) {
-                    hi -= numNa;
-                } else {
-                    lo += numNa;
-                }
-            }
-        }
-
-        sort(indx, dv, lo, hi, dec);
-    }
-
     private void orderVector1(int[] indx, RAbstractComplexVector dv, boolean naLast, boolean dec) {
         int lo = 0;
         int hi = indx.length - 1;
@@ -434,92 +355,6 @@ public abstract class Order extends RPrecedenceBuiltinNode {
 
     }
 
-    private void sort(int[] indx, RAbstractDoubleVector dv, int lo, int hi, boolean dec) {
-        int t = 0;
-        for (; SINCS[t] > hi - lo + 1; t++) {
-        }
-        for (int h = SINCS[t]; t < 16; h = SINCS[++t]) {
-            for (int i = lo + h; i <= hi; i++) {
-                int itmp = indx[i];
-                int j = i;
-                while (j >= lo + h) {
-                    int a = indx[j - h];
-                    int b = itmp;
-                    if (decProfile.profile(dec)) {
-                        if (!((dv.getDataAt(a)) < dv.getDataAt(b) || (dv.getDataAt(a) == dv.getDataAt(b) && a > b))) {
-                            break;
-                        }
-                    } else {
-                        if (!((dv.getDataAt(a)) > dv.getDataAt(b) || (dv.getDataAt(a) == dv.getDataAt(b) && a > b))) {
-                            break;
-                        }
-
-                    }
-                    indx[j] = indx[j - h];
-                    j -= h;
-                }
-                indx[j] = itmp;
-            }
-        }
-    }
-
-    private void sort(int[] indx, RAbstractIntVector dv, int lo, int hi, boolean dec) {
-        int t = 0;
-        for (; SINCS[t] > hi - lo + 1; t++) {
-        }
-        for (int h = SINCS[t]; t < 16; h = SINCS[++t]) {
-            for (int i = lo + h; i <= hi; i++) {
-                int itmp = indx[i];
-                int j = i;
-                while (j >= lo + h) {
-                    int a = indx[j - h];
-                    int b = itmp;
-                    if (decProfile.profile(dec)) {
-                        if (!((dv.getDataAt(a)) < dv.getDataAt(b) || (dv.getDataAt(a) == dv.getDataAt(b) && a > b))) {
-                            break;
-                        }
-                    } else {
-                        if (!((dv.getDataAt(a)) > dv.getDataAt(b) || (dv.getDataAt(a) == dv.getDataAt(b) && a > b))) {
-                            break;
-                        }
-
-                    }
-                    indx[j] = indx[j - h];
-                    j -= h;
-                }
-                indx[j] = itmp;
-            }
-        }
-    }
-
-    private void sort(int[] indx, RAbstractStringVector dv, int lo, int hi, boolean dec) {
-        int t = 0;
-        for (; SINCS[t] > hi - lo + 1; t++) {
-        }
-        for (int h = SINCS[t]; t < 16; h = SINCS[++t]) {
-            for (int i = lo + h; i <= hi; i++) {
-                int itmp = indx[i];
-                int j = i;
-                while (j >= lo + h) {
-                    int a = indx[j - h];
-                    int b = itmp;
-                    if (decProfile.profile(dec)) {
-                        if (!(dv.getDataAt(a).compareTo(dv.getDataAt(b)) < 0 || (dv.getDataAt(a).compareTo(dv.getDataAt(b)) == 0 && a > b))) {
-                            break;
-                        }
-                    } else {
-                        if (!(dv.getDataAt(a).compareTo(dv.getDataAt(b)) > 0 || (dv.getDataAt(a).compareTo(dv.getDataAt(b)) == 0 && a > b))) {
-                            break;
-                        }
-                    }
-                    indx[j] = indx[j - h];
-                    j -= h;
-                }
-                indx[j] = itmp;
-            }
-        }
-    }
-
     private static boolean lt(RComplex a, RComplex b) {
         if (a.getRealPart() == b.getRealPart()) {
             return a.getImaginaryPart() < b.getImaginaryPart();
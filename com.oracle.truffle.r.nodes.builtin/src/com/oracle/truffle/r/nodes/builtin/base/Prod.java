@@ -11,8 +11,11 @@
 package com.oracle.truffle.r.nodes.builtin.base;
 
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.utilities.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.unary.ChunkedReduction;
 import com.oracle.truffle.r.runtime.RBuiltin;
 import com.oracle.truffle.r.runtime.RBuiltinKind;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -22,6 +25,7 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.RNode;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 
@@ -39,6 +43,8 @@ public abstract class Prod extends RBuiltinNode {
 
     @Child private BinaryArithmetic prod = BinaryArithmetic.MULTIPLY.create();
 
+    private final ConditionProfile parallelProfile = ConditionProfile.createBinaryProfile();
+
     @Specialization
     protected Object prod(RArgsValuesAndNames args) {
         if (prodRecursive == null) {
@@ -49,9 +55,29 @@ public abstract class Prod extends RBuiltinNode {
         return prodRecursive.executeObject(args.getArgument(0));
     }
 
+    /**
+     * The product of a vector of at least <code>ParallelVectorThreshold</code> elements, reduced in
+     * chunks.
+     */
+    @TruffleBoundary
+    private static double parallelProduct(RAbstractVector x) {
+        ChunkedReduction.Result result;
+        if (x instanceof RAbstractDoubleVector) {
+            result = ChunkedReduction.reduce(ChunkedReduction.Operation.PROD, ((RAbstractDoubleVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 1.0);
+        } else if (x instanceof RAbstractIntVector) {
+            result = ChunkedReduction.reduce(ChunkedReduction.Operation.PROD, ((RAbstractIntVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 1);
+        } else {
+            result = ChunkedReduction.reduce(ChunkedReduction.Operation.PROD, ((RAbstractLogicalVector) x).materialize().getDataWithoutCopying(), x.getLength(), false, 1);
+        }
+        return result.isNA() ? RRuntime.DOUBLE_NA : result.getDoubleValue();
+    }
+
     @Specialization
     protected double prod(RAbstractDoubleVector x) {
         controlVisibility();
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelProduct(x);
+        }
         double product = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             product = prod.op(product, x.getDataAt(k));
@@ -62,6 +88,9 @@ public abstract class Prod extends RBuiltinNode {
     @Specialization
     protected double prod(RAbstractIntVector x) {
         controlVisibility();
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelProduct(x);
+        }
         double product = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             product = prod.op(product, x.getDataAt(k));
@@ -72,6 +101,9 @@ public abstract class Prod extends RBuiltinNode {
     @Specialization
     protected double prod(RAbstractLogicalVector x) {
         controlVisibility();
+        if (parallelProfile.profile(ChunkedReduction.isParallel(x.getLength()))) {
+            return parallelProduct(x);
+        }
         double product = x.getDataAt(0);
         for (int k = 1; k < x.getLength(); k++) {
             product = prod.op(product, x.getDataAt(k));
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Stable LSD radix order of <code>int</code> (integers and factors), <code>double</code>,
+ * <code>byte</code> (logicals) and <code>String</code> keys.
+ *
+ * Each key is mapped to an unsigned <code>long</code> that sorts in the same order as the values:
+ * doubles by their IEEE bits with the negative values flipped, strings by their rank among the
+ * distinct values. Only the digits needed for the range of the keys are sorted, 8 bits per counting
+ * pass below 64K elements and 11 bits above, so a factor with less than 256 levels (2048 on the
+ * longer vectors) is ordered with a single pass. NA (and NaN) get a key below or above all the
+ * values, depending on <code>naLast</code> only. Several keys are ordered from the last to the
+ * first, and ties keep their original order.
+ *
+ * Vectors of at least <code>ParallelVectorThreshold</code> elements compute the histograms and
+ * scatter the elements of each pass in chunks on the common {@link ForkJoinPool}. The chunk
+ * offsets are assigned in chunk order, so the result is the same as the sequential one.
+ */
+public final class RadixOrder {
+
+    private static final int THRESHOLD = FastROptions.ParallelVectorThreshold.getIntValue();
+    private static final int MIN_CHUNK = 1 << 16;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // never produced by a value: the doubles below -Inf are NaN
+    private static final long NA_KEY = Long.MIN_VALUE;
+
+    private final int length;
+    private final int chunks;
+    private final int digitBits;
+    private int[] index;
+    private long[] keys;
+    private int[] index2;
+    private long[] keys2;
+
+    private RadixOrder(int length) {
+        this.length = length;
+        this.chunks = numberOfChunks(length);
+        this.digitBits = length < (1 << 16) ? 8 : 11;
+        this.index = new int[length];
+        for (int i = 0; i < length; i++) {
+            index[i] = i;
+        }
+        this.keys = new long[length];
+        this.index2 = new int[length];
+        this.keys2 = new long[length];
+    }
+
+    /**
+     * Order the elements by the first key, the ties by the second one and so on.
+     *
+     * @param keys <code>int[]</code>, <code>double[]</code>, <code>byte[]</code> or
+     *            <code>String[]</code> arrays of the same length
+     * @param length
+     * @param naLast
+     * @param decreasing
+     * @return the 0-based permutation
+     */
+    @TruffleBoundary
+    public static int[] order(Object[] keys, int length, boolean naLast, boolean decreasing) {
+        RadixOrder order = new RadixOrder(length);
+        if (length > 1) {
+            for (int k = keys.length - 1; k >= 0; k--) {
+                order.sortBy(keyFunction(keys[k]), naLast, decreasing);
+            }
+        }
+        return order.index;
+    }
+
+    private static IntToLongFunction keyFunction(Object key) {
+        if (key instanceof int[]) {
+            int[] data = (int[]) key;
+            return i -> data[i] == RRuntime.INT_NA ? NA_KEY : data[i];
+        } else if (key instanceof double[]) {
+            double[] data = (double[]) key;
+            return i -> doubleKey(data[i]);
+        } else if (key instanceof byte[]) {
+            byte[] data = (byte[]) key;
+            return i -> data[i] == RRuntime.LOGICAL_NA ? NA_KEY : data[i];
+        } else if (key instanceof String[]) {
+            long[] ranks = ranks((String[]) key);
+            return i -> ranks[i];
+        }
+        throw new IllegalArgumentException("unsupported radix key: " + key);
+    }
+
+    static long doubleKey(double value) {
+        if (RRuntime.isNAorNaN(value)) {
+            return NA_KEY;
+        }
+        // -0.0 and 0.0 are equal
+        long bits = Double.doubleToRawLongBits(value == 0.0 ? 0.0 : value);
+        return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+    }
+
+    private static long[] ranks(String[] data) {
+        HashMap<String, Integer> distinct = new HashMap<>();
+        for (String s : data) {
+            if (!RRuntime.isNA(s)) {
+                distinct.putIfAbsent(s, 0);
+            }
+        }
+        String[] sorted = distinct.keySet().toArray(new String[distinct.size()]);
+        Arrays.parallelSort(sorted);
+        for (int r = 0; r < sorted.length; r++) {
+            distinct.put(sorted[r], r);
+        }
+        long[] ranks = new long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            ranks[i] = RRuntime.isNA(data[i]) ? NA_KEY : distinct.get(data[i]);
+        }
+        return ranks;
+    }
+
+    private static int numberOfChunks(int length) {
+        if (THRESHOLD <= 0 || length < THRESHOLD) {
+            return 1;
+        }
+        int threads = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD;
+        return Math.max(1, Math.min(threads, length / MIN_CHUNK));
+    }
+
+    private int chunkStart(int c) {
+        return (int) ((long) length * c / chunks);
+    }
+
+    private void forEachChunk(IntConsumer body) {
+        if (chunks == 1) {
+            body.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(body);
+        }
+    }
+
+    private void sortBy(IntToLongFunction key, boolean naLast, boolean decreasing) {
+        final int[] idx = index;
+        final long[] k = keys;
+        long[] mins = new long[chunks];
+        long[] maxs = new long[chunks];
+        int[] nas = new int[chunks];
+        forEachChunk(c -> {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            int na = 0;
+            for (int i = chunkStart(c); i < chunkStart(c + 1); i++) {
+                long value = key.applyAsLong(idx[i]);
+                k[i] = value;
+                if (value == NA_KEY) {
+                    na++;
+                } else {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            mins[c] = min;
+            maxs[c] = max;
+            nas[c] = na;
+        });
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int numNA = 0;
+        for (int c = 0; c < chunks; c++) {
+            min = Math.min(min, mins[c]);
+            max = Math.max(max, maxs[c]);
+            numNA += nas[c];
+        }
+        if (numNA == length) {
+            return;
+        }
+
+        // unsigned offset from the first value in the requested direction, NA below or above
+        final long range = max - min;
+        final long lo = min;
+        final long hi = max;
+        final boolean shift = numNA > 0 && !naLast;
+        forEachChunk(c -> {
+            for (int i = chunkStart(c); i < chunkStart(c + 1); i++) {
+                long value = k[i];
+                if (value == NA_KEY) {
+                    k[i] = naLast ? range + 1 : 0;
+                } else {
+                    long r = decreasing ? hi - value : value - lo;
+                    k[i] = shift ? r + 1 : r;
+                }
+            }
+        });
+        long top = numNA > 0 ? range + 1 : range;
+        int bits = 64 - Long.numberOfLeadingZeros(top);
+        for (int s = 0; s < bits; s += digitBits) {
+            pass(s);
+        }
+    }
+
+    private void pass(int shift) {
+        final int buckets = 1 << digitBits;
+        final int mask = buckets - 1;
+        final int[] idx = index;
+        final long[] k = keys;
+        final int[] idx2 = index2;
+        final long[] k2 = keys2;
+        int[][] counts = new int[chunks][buckets];
+        forEachChunk(c -> {
+            int[] count = counts[c];
+            for (int i = chunkStart(c); i < chunkStart(c + 1); i++) {
+                count[(int) (k[i] >>> shift) & mask]++;
+            }
+        });
+
+        int position = 0;
+        for (int b = 0; b < buckets; b++) {
+            int start = position;
+            for (int c = 0; c < chunks; c++) {
+                int count = counts[c][b];
+                counts[c][b] = position;
+                position += count;
+            }
+            if (position - start == length) {
+                // all the elements have the same digit
+                return;
+            }
+        }
+
+        forEachChunk(c -> {
+            int[] offset = counts[c];
+            for (int i = chunkStart(c); i < chunkStart(c + 1); i++) {
+                int p = offset[(int) (k[i] >>> shift) & mask]++;
+                idx2[p] = idx[i];
+                k2[p] = k[i];
+            }
+        });
+        index = idx2;
+        keys = k2;
+        index2 = idx;
+        keys2 = k;
+    }
+}
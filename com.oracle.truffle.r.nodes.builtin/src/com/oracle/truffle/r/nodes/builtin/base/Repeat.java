@@ -33,8 +33,12 @@ import com.oracle.truffle.r.runtime.RBuiltin;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RAttributeProfiles;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleSequence;
 import com.oracle.truffle.r.runtime.data.RFactor;
+import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
@@ -103,6 +107,38 @@ public abstract class Repeat extends RBuiltinNode {
         throw RError.error(this, RError.Message.INVALID_ARGUMENT, "times");
     }
 
+    /**
+     * Length of the result when {@code x} is repeated by formula, or -1 when it cannot be.
+     */
+    protected static long closedFormLength(RSequence x, RAbstractIntVector times, int lengthOut, int each) {
+        if (!x.isAffine() || x.getLength() == 0 || times.getLength() != 1) {
+            return -1;
+        }
+        long length;
+        if (!RRuntime.isNA(lengthOut)) {
+            length = lengthOut;
+        } else {
+            length = (long) x.getLength() * (each > 1 ? each : 1) * times.getDataAt(0);
+        }
+        return length > 0 && length <= Integer.MAX_VALUE ? length : -1;
+    }
+
+    /**
+     * Repeating an affine sequence gives a sequence whose elements are computed by formula, so the
+     * result is never allocated.
+     */
+    @Specialization(guards = "closedFormLength(x, times, lengthOut, each) > 0")
+    public RIntSequence repSequence(RIntSequence x, RAbstractIntVector times, int lengthOut, int each) {
+        int length = (int) closedFormLength(x, times, lengthOut, each);
+        return RDataFactory.createIntSequence(x.getStart(), x.getStride(), length, each > 1 ? each : 1, x.getLength());
+    }
+
+    @Specialization(guards = "closedFormLength(x, times, lengthOut, each) > 0")
+    public RDoubleSequence repSequence(RDoubleSequence x, RAbstractIntVector times, int lengthOut, int each) {
+        int length = (int) closedFormLength(x, times, lengthOut, each);
+        return RDataFactory.createDoubleSequence(x.getStart(), x.getStride(), length, each > 1 ? each : 1, x.getLength());
+    }
+
     @Specialization(guards = {"each > 1", "!hasNames(x)"})
     public RAbstractVector repEachNoNames(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each) {
         if (times.getLength() > 1) {
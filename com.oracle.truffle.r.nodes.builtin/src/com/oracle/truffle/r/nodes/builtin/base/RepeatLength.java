@@ -23,12 +23,15 @@ import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleSequence;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RRaw;
 import com.oracle.truffle.r.runtime.data.RRawVector;
+import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 
@@ -105,6 +108,27 @@ public abstract class RepeatLength extends RBuiltinNode {
     //
     // Specialization for vector values
     //
+
+    protected static boolean isClosedForm(RSequence value, int length) {
+        return value.isAffine() && value.getLength() > 0 && length > 0;
+    }
+
+    /**
+     * An affine sequence wraps around as a closed-form sequence, so the result is never allocated
+     * (see {@link Repeat}).
+     */
+    @Specialization(guards = "isClosedForm(value, length)")
+    protected RIntSequence repLen(RIntSequence value, int length) {
+        controlVisibility();
+        return RDataFactory.createIntSequence(value.getStart(), value.getStride(), length, 1, value.getLength());
+    }
+
+    @Specialization(guards = "isClosedForm(value, length)")
+    protected RDoubleSequence repLen(RDoubleSequence value, int length) {
+        controlVisibility();
+        return RDataFactory.createDoubleSequence(value.getStart(), value.getStride(), length, 1, value.getLength());
+    }
+
     @Specialization
     protected RIntVector repLen(RAbstractIntVector value, int length) {
         controlVisibility();
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Partial sorting (introselect) for {@code psort}. After {@code partialSort(data, positions)} the
+ * element at each position is the one a full sort would put there, the elements before it are not
+ * greater and the elements after it are not smaller. NA (and NaN) are greater than all the values.
+ *
+ * All the positions are placed in one recursive pass: each three-way partition around a
+ * median-of-three pivot fixes the positions that fall among the elements equal to the pivot, and
+ * only the sides that still contain positions are partitioned again. A range that needs more than
+ * <code>2 * log2(n)</code> partitions, or is small, is sorted.
+ */
+public final class Selection {
+
+    private static final int SMALL = 16;
+
+    private static final Comparator<String> STRING_NA_LAST = (a, b) -> RRuntime.isNA(a) ? (RRuntime.isNA(b) ? 0 : 1) : (RRuntime.isNA(b) ? -1 : a.compareTo(b));
+
+    private Selection() {
+        // empty constructor
+    }
+
+    private static int depthLimit(int length) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(Math.max(length, 1)));
+    }
+
+    // first position in positions[from, to) that is not below value
+    private static int lowerBound(int[] positions, int from, int to, int value) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (positions[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param data
+     * @param positions 0-based positions, sorted increasingly
+     */
+    @TruffleBoundary
+    public static void partialSort(double[] data, int[] positions) {
+        select(data, 0, data.length - 1, positions, 0, positions.length, depthLimit(data.length));
+    }
+
+    private static boolean less(double a, double b) {
+        return a < b || (b != b && a == a);
+    }
+
+    private static void select(double[] a, int from, int to, int[] positions, int pFrom, int pTo, int depth) {
+        int lo = from;
+        int hi = to;
+        int first = pFrom;
+        int remaining = depth;
+        while (first < pTo && lo < hi) {
+            if (hi - lo < SMALL || remaining-- == 0) {
+                // Arrays.sort also puts NaN last
+                Arrays.sort(a, lo, hi + 1);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double x = a[lo];
+            double y = a[mid];
+            double z = a[hi];
+            double pivot = less(x, y) ? (less(y, z) ? y : (less(x, z) ? z : x)) : (less(x, z) ? x : (less(y, z) ? z : y));
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i <= gt) {
+                double v = a[i];
+                if (less(v, pivot)) {
+                    a[i++] = a[lt];
+                    a[lt++] = v;
+                } else if (less(pivot, v)) {
+                    a[i] = a[gt];
+                    a[gt--] = v;
+                } else {
+                    i++;
+                }
+            }
+            int leftEnd = lowerBound(positions, first, pTo, lt);
+            int rightStart = lowerBound(positions, leftEnd, pTo, gt + 1);
+            select(a, lo, lt - 1, positions, first, leftEnd, remaining);
+            lo = gt + 1;
+            first = rightStart;
+        }
+    }
+
+    /**
+     * Integer version of {@link #partialSort(double[], int[])}.
+     *
+     * @param data
+     * @param positions
+     */
+    @TruffleBoundary
+    public static void partialSort(int[] data, int[] positions) {
+        // x - 1 keeps the order of the values and turns NA (the minimum int) into the maximum
+        for (int i = 0; i < data.length; i++) {
+            data[i]--;
+        }
+        select(data, 0, data.length - 1, positions, 0, positions.length, depthLimit(data.length));
+        for (int i = 0; i < data.length; i++) {
+            data[i]++;
+        }
+    }
+
+    private static void select(int[] a, int from, int to, int[] positions, int pFrom, int pTo, int depth) {
+        int lo = from;
+        int hi = to;
+        int first = pFrom;
+        int remaining = depth;
+        while (first < pTo && lo < hi) {
+            if (hi - lo < SMALL || remaining-- == 0) {
+                Arrays.sort(a, lo, hi + 1);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int x = a[lo];
+            int y = a[mid];
+            int z = a[hi];
+            int pivot = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i <= gt) {
+                int v = a[i];
+                if (v < pivot) {
+                    a[i++] = a[lt];
+                    a[lt++] = v;
+                } else if (v > pivot) {
+                    a[i] = a[gt];
+                    a[gt--] = v;
+                } else {
+                    i++;
+                }
+            }
+            int leftEnd = lowerBound(positions, first, pTo, lt);
+            int rightStart = lowerBound(positions, leftEnd, pTo, gt + 1);
+            select(a, lo, lt - 1, positions, first, leftEnd, remaining);
+            lo = gt + 1;
+            first = rightStart;
+        }
+    }
+
+    /**
+     * String version of {@link #partialSort(double[], int[])}.
+     *
+     * @param data
+     * @param positions
+     */
+    @TruffleBoundary
+    public static void partialSort(String[] data, int[] positions) {
+        select(data, 0, data.length - 1, positions, 0, positions.length, depthLimit(data.length));
+    }
+
+    private static void select(String[] a, int from, int to, int[] positions, int pFrom, int pTo, int depth) {
+        int lo = from;
+        int hi = to;
+        int first = pFrom;
+        int remaining = depth;
+        while (first < pTo && lo < hi) {
+            if (hi - lo < SMALL || remaining-- == 0) {
+                Arrays.sort(a, lo, hi + 1, STRING_NA_LAST);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            String x = a[lo];
+            String y = a[mid];
+            String z = a[hi];
+            String pivot;
+            if (STRING_NA_LAST.compare(x, y) < 0) {
+                pivot = STRING_NA_LAST.compare(y, z) < 0 ? y : (STRING_NA_LAST.compare(x, z) < 0 ? z : x);
+            } else {
+                pivot = STRING_NA_LAST.compare(x, z) < 0 ? x : (STRING_NA_LAST.compare(y, z) < 0 ? z : y);
+            }
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i <= gt) {
+                String v = a[i];
+                int c = STRING_NA_LAST.compare(v, pivot);
+                if (c < 0) {
+                    a[i++] = a[lt];
+                    a[lt++] = v;
+                } else if (c > 0) {
+                    a[i] = a[gt];
+                    a[gt--] = v;
+                } else {
+                    i++;
+                }
+            }
+            int leftEnd = lowerBound(positions, first, pTo, lt);
+            int rightStart = lowerBound(positions, leftEnd, pTo, gt + 1);
+            select(a, lo, lt - 1, positions, first, leftEnd, remaining);
+            lo = gt + 1;
+            first = rightStart;
+        }
+    }
+
+    /**
+     * Logicals have three values, so they are sorted with one counting pass (NA last).
+     *
+     * @param data
+     */
+    public static void sort(byte[] data) {
+        int falses = 0;
+        int trues = 0;
+        for (byte b : data) {
+            if (b == RRuntime.LOGICAL_FALSE) {
+                falses++;
+            } else if (b == RRuntime.LOGICAL_TRUE) {
+                trues++;
+            }
+        }
+        Arrays.fill(data, 0, falses, RRuntime.LOGICAL_FALSE);
+        Arrays.fill(data, falses, falses + trues, RRuntime.LOGICAL_TRUE);
+        Arrays.fill(data, falses + trues, data.length, RRuntime.LOGICAL_NA);
+    }
+}
@@ -43,11 +43,12 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 /**
  * The internal functions mandated by {@code base/sort.R}. N.B. We use the standard JDK sorting
- * algorithms and not the specific algorithms specified in the R manual entry. TODO: implement psort
- * and radixsort.
+ * algorithms and not the specific algorithms specified in the R manual entry, except for
+ * {@code psort} and {@code radixsort}.
  */
 public class SortFunctions {
 
@@ -179,30 +180,56 @@ public class SortFunctions {
 
     }
 
+    /**
+     * Partial sort with {@link Selection}: only the elements at the {@code partial} positions are
+     * guaranteed to be in their sorted place, with no greater element before and no smaller after.
+     */
     @RBuiltin(name = "psort", kind = INTERNAL, parameterNames = {"x", "partial"})
     public abstract static class PartialSort extends Adapter {
-        @SuppressWarnings("unused")
-        @Specialization
-        protected RDoubleVector sort(RAbstractDoubleVector vec, Object partial) {
-            return jdkSort(vec, RRuntime.LOGICAL_FALSE);
+
+        private int[] positions(RAbstractVector partial, int length) {
+            int[] positions = new int[partial.getLength()];
+            for (int i = 0; i < positions.length; i++) {
+                int p = partial instanceof RAbstractIntVector ? ((RAbstractIntVector) partial).getDataAt(i) : (int) ((RAbstractDoubleVector) partial).getDataAt(i);
+                if (p < 1 || p > length) {
+                    throw RError.error(this, RError.Message.INDEX_OUTSIDE_BOUNDS, p);
+                }
+                positions[i] = p - 1;
+            }
+            Arrays.sort(positions);
+            return positions;
         }
 
-        @SuppressWarnings("unused")
-        @Specialization
-        protected RIntVector sort(RAbstractIntVector vec, Object partial) {
-            return jdkSort(vec, RRuntime.LOGICAL_FALSE);
+        @Specialization(guards = "isIndex(partial)")
+        protected RDoubleVector sort(RAbstractDoubleVector vec, RAbstractVector partial) {
+            double[] data = vec.materialize().getDataCopy();
+            Selection.partialSort(data, positions(partial, data.length));
+            return RDataFactory.createDoubleVector(data, vec.isComplete());
         }
 
-        @SuppressWarnings("unused")
-        @Specialization
-        protected RStringVector sort(RAbstractStringVector vec, Object partial) {
-            return jdkSort(vec, RRuntime.LOGICAL_FALSE);
+        @Specialization(guards = "isIndex(partial)")
+        protected RIntVector sort(RAbstractIntVector vec, RAbstractVector partial) {
+            int[] data = vec.materialize().getDataCopy();
+            Selection.partialSort(data, positions(partial, data.length));
+            return RDataFactory.createIntVector(data, vec.isComplete());
         }
 
-        @SuppressWarnings("unused")
-        @Specialization
-        protected RLogicalVector sort(RAbstractLogicalVector vec, Object partial) {
-            return jdkSort(vec, RRuntime.LOGICAL_FALSE);
+        @Specialization(guards = "isIndex(partial)")
+        protected RStringVector sort(RAbstractStringVector vec, RAbstractVector partial) {
+            String[] data = vec.materialize().getDataCopy();
+            Selection.partialSort(data, positions(partial, data.length));
+            return RDataFactory.createStringVector(data, vec.isComplete());
+        }
+
+        @Specialization(guards = "isIndex(partial)")
+        protected RLogicalVector sort(RAbstractLogicalVector vec, RAbstractVector partial) {
+            byte[] data = vec.materialize().getDataCopy();
+            Selection.sort(data);
+            return RDataFactory.createLogicalVector(data, vec.isComplete());
+        }
+
+        protected static boolean isIndex(RAbstractVector partial) {
+            return partial instanceof RAbstractIntVector || partial instanceof RAbstractDoubleVector;
         }
 
         @SuppressWarnings("unused")
@@ -212,12 +239,25 @@ public class SortFunctions {
         }
     }
 
+    /**
+     * The ordering permutation of an integer vector or factor, see {@link RadixOrder}.
+     */
     @RBuiltin(name = "radixsort", kind = INTERNAL, parameterNames = {"zz", "na.last", "decreasing"})
     public abstract static class RadixSort extends RBuiltinNode {
-        @SuppressWarnings("unused")
         @Specialization
+        protected RIntVector radixSort(RAbstractIntVector zz, byte naLast, byte decreasing) {
+            int[] data = zz.materialize().getDataWithoutCopying();
+            int[] order = RadixOrder.order(new Object[]{data}, data.length, RRuntime.fromLogical(naLast), RRuntime.fromLogical(decreasing));
+            for (int i = 0; i < order.length; i++) {
+                order[i]++;
+            }
+            return RDataFactory.createIntVector(order, RDataFactory.COMPLETE_VECTOR);
+        }
+
+        @SuppressWarnings("unused")
+        @Fallback
         protected Object radixSort(Object zz, Object naLast, Object decreasing) {
-            throw RError.nyi(this, ".Internal(raxdixsort)");
+            throw RError.nyi(this, ".Internal(radixsort)");
         }
     }
 
@@ -81,11 +81,8 @@ public abstract class Sqrt extends RBuiltinNode {
     protected RDoubleVector sqrt(RIntSequence xs) {
         controlVisibility();
         double[] res = new double[xs.getLength()];
-        int current = xs.getStart();
         for (int i = 0; i < xs.getLength(); i++) {
-            double sqrt = Math.sqrt(current);
-            res[i] = sqrt;
-            current += xs.getStride();
+            res[i] = Math.sqrt(xs.getDataAt(i));
         }
         RDoubleVector result = RDataFactory.createDoubleVector(res, na.neverSeenNA(), dimensionsProfile.profile(xs.getDimensions()), xs.getNames(attrProfiles));
         result.copyRegAttributesFrom(xs);
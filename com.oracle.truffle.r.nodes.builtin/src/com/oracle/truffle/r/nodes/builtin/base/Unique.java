@@ -24,16 +24,17 @@ package com.oracle.truffle.r.nodes.builtin.base;
 
 import static com.oracle.truffle.r.runtime.RBuiltinKind.INTERNAL;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.utilities.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetComplex;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetInt;
 import com.oracle.truffle.r.runtime.RBuiltin;
-import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
@@ -44,7 +45,6 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
-import com.oracle.truffle.r.runtime.data.RRaw;
 import com.oracle.truffle.r.runtime.data.RRawVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RVector;
@@ -59,19 +59,12 @@ import com.oracle.truffle.r.runtime.nodes.RNode;
 
 // Implements default S3 method
 @RBuiltin(name = "unique", kind = INTERNAL, parameterNames = {"x", "incomparables", "fromLast", "nmax", "..."})
-// TODO A more efficient implementation is in order; GNU R uses hash tables so perhaps we should
-// consider using one of the existing libraries that offer hash table implementations for primitive
-// types
 public abstract class Unique extends RBuiltinNode {
 
     protected abstract Object execute(VirtualFrame frame, Object vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg);
 
-    private static final long BIG_THRESHOLD = 100;
-
     @Child private Unique uniqueRecursive;
 
-    private final ConditionProfile bigProfile = ConditionProfile.createBinaryProfile();
-
     protected RVector uniqueRecursive(VirtualFrame frame, RVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
         if (uniqueRecursive == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
@@ -94,186 +87,31 @@ public abstract class Unique extends RBuiltinNode {
     @SuppressWarnings("unused")
     @Specialization
     protected RStringVector doUnique(RAbstractStringVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
-            Utils.NonRecursiveHashSet<String> set = new Utils.NonRecursiveHashSet<>(vec.getLength());
-            String[] data = new String[vec.getLength()];
-            int ind = 0;
-            for (int i = 0; i < vec.getLength(); i++) {
-                String val = vec.getDataAt(i);
-                if (!set.add(val)) {
-                    data[ind++] = val;
-                }
-            }
-            return RDataFactory.createStringVector(Arrays.copyOf(data, ind), vec.isComplete());
-        } else {
-            ArrayList<String> dataList = new ArrayList<>(vec.getLength());
-            for (int i = 0; i < vec.getLength(); i++) {
-                String s = vec.getDataAt(i);
-                if (!dataList.contains(s)) {
-                    dataList.add(s);
-                }
-            }
-            String[] data = new String[dataList.size()];
-            dataList.toArray(data);
-            return RDataFactory.createStringVector(data, vec.isComplete());
-        }
-    }
-
-    // these are intended to stay private as they will go away once we figure out which external
-    // library to use
-
-    private static class IntArray {
-        int[] backingArray;
-        int index;
-
-        public IntArray(int len) {
-            this.backingArray = new int[len];
-            index = 0;
-        }
-
-        public boolean contains(int val) {
-            for (int i = 0; i < index; i++) {
-                if (backingArray[i] == val) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        public void add(int val) {
-            backingArray[index++] = val;
-        }
-
-        public int[] toArray() {
-            int[] newArray = new int[index];
-            for (int i = 0; i < index; i++) {
-                newArray[i] = backingArray[i];
-            }
-            return newArray;
-        }
-    }
-
-    private static class DoubleArray {
-        double[] backingArray;
-        int index;
-
-        public DoubleArray(int len) {
-            this.backingArray = new double[len];
-            index = 0;
-        }
-
-        public boolean contains(double val) {
-            for (int i = 0; i < index; i++) {
-                if (backingArray[i] == val) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        public void add(double val) {
-            backingArray[index++] = val;
-        }
-
-        public double[] toArray() {
-            double[] newArray = new double[index];
-            for (int i = 0; i < index; i++) {
-                newArray[i] = backingArray[i];
-            }
-            return newArray;
-        }
-    }
-
-    private static class DoubleArrayForComplex {
-        double[] backingArray;
-        int index;
-
-        public DoubleArrayForComplex(int len) {
-            this.backingArray = new double[len << 1];
-            index = 0;
-        }
-
-        public boolean contains(RComplex val) {
-            for (int i = 0; i < index; i++) {
-                if (backingArray[i << 1] == val.getRealPart() && backingArray[i << 1 + 1] == val.getImaginaryPart()) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        public void add(RComplex val) {
-            backingArray[index++] = val.getRealPart();
-            backingArray[index++] = val.getImaginaryPart();
-        }
-
-        public double[] toArray() {
-            double[] newArray = new double[index];
-            for (int i = 0; i < index; i++) {
-                newArray[i] = backingArray[i];
-            }
-            return newArray;
-        }
-    }
-
-    private static class ByteArray {
-        byte[] backingArray;
-        int index;
-
-        public ByteArray(int len) {
-            this.backingArray = new byte[len];
-            index = 0;
-        }
-
-        public boolean contains(byte val) {
-            for (int i = 0; i < index; i++) {
-                if (backingArray[i] == val) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        public void add(byte val) {
-            backingArray[index++] = val;
-        }
-
-        public byte[] toArray() {
-            byte[] newArray = new byte[index];
-            for (int i = 0; i < index; i++) {
-                newArray[i] = backingArray[i];
+        NonRecursiveHashSetCharacter set = new NonRecursiveHashSetCharacter(vec.getLength());
+        String[] data = new String[vec.getLength()];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength(); i++) {
+            String val = vec.getDataAt(i);
+            if (!set.add(val)) {
+                data[ind++] = val;
             }
-            return newArray;
         }
+        return RDataFactory.createStringVector(Arrays.copyOf(data, ind), vec.isComplete());
     }
 
     @SuppressWarnings("unused")
     @Specialization
     protected RIntVector doUnique(RAbstractIntVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
-            NonRecursiveHashSetInt set = new NonRecursiveHashSetInt();
-            int[] data = new int[16];
-            int ind = 0;
-            for (int i = 0; i < vec.getLength(); i++) {
-                int val = vec.getDataAt(i);
-                if (!set.add(val)) {
-                    if (ind == data.length) {
-                        data = Arrays.copyOf(data, data.length << 1);
-                    }
-                    data[ind++] = val;
-                }
-            }
-            return RDataFactory.createIntVector(Arrays.copyOf(data, ind), vec.isComplete());
-        } else {
-            IntArray dataList = new IntArray(vec.getLength());
-            for (int i = 0; i < vec.getLength(); i++) {
-                int val = vec.getDataAt(i);
-                if (!dataList.contains(val)) {
-                    dataList.add(val);
-                }
+        NonRecursiveHashSetInt set = new NonRecursiveHashSetInt(vec.getLength());
+        int[] data = new int[vec.getLength()];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength(); i++) {
+            int val = vec.getDataAt(i);
+            if (!set.add(val)) {
+                data[ind++] = val;
             }
-            return RDataFactory.createIntVector(dataList.toArray(), vec.isComplete());
         }
+        return RDataFactory.createIntVector(Arrays.copyOf(data, ind), vec.isComplete());
     }
 
     @SuppressWarnings("unused")
@@ -286,145 +124,74 @@ public abstract class Unique extends RBuiltinNode {
         return list.getLength() == 1;
     }
 
-    private static final class NonRecursiveHashSetInt {
-
-        private int[] keys;
-        private int size;
-        private boolean containsZero;
-
-        public NonRecursiveHashSetInt() {
-            keys = new int[64];
-        }
-
-        public boolean add(int key) {
-            if (key == 0) {
-                if (containsZero) {
-                    return true;
-                } else {
-                    containsZero = true;
-                    return false;
-                }
-            }
-            int ind = Math.abs(Integer.hashCode(key)) & (keys.length - 1);
-            while (true) {
-                if (keys[ind] == 0) {
-                    keys[ind] = key;
-                    size++;
-                    if (size << 1 == keys.length) {
-                        int[] newKeys = new int[keys.length << 1];
-                        for (int rehashKey : keys) {
-                            if (rehashKey != 0) {
-                                int tmpInd = Math.abs(Integer.hashCode(rehashKey)) & (newKeys.length - 1);
-                                while (newKeys[tmpInd] != 0) {
-                                    assert newKeys[tmpInd] != rehashKey;
-                                    tmpInd = (tmpInd + 1) & (newKeys.length - 1);
-                                }
-                                newKeys[tmpInd] = rehashKey;
-                            }
-                        }
-
-                        keys = newKeys;
-                    }
-                    return false;
-                } else if (key == keys[ind]) {
-                    return true;
-                } else {
-                    ind = (ind + 1) & (keys.length - 1);
-                }
-            }
-        }
-    }
-
     @SuppressWarnings("unused")
     @Specialization
     protected RDoubleVector doUnique(RAbstractDoubleVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
-            Utils.NonRecursiveHashSetDouble set = new Utils.NonRecursiveHashSetDouble(vec.getLength());
-            double[] data = new double[vec.getLength()];
-            int ind = 0;
-            for (int i = 0; i < vec.getLength(); i++) {
-                double val = vec.getDataAt(i);
-                if (!set.add(val)) {
-                    data[ind++] = val;
-                }
-            }
-            return RDataFactory.createDoubleVector(Arrays.copyOf(data, ind), vec.isComplete());
-        } else {
-            DoubleArray dataList = new DoubleArray(vec.getLength());
-            for (int i = 0; i < vec.getLength(); i++) {
-                double val = vec.getDataAt(i);
-                if (!dataList.contains(val)) {
-                    dataList.add(val);
-                }
+        NonRecursiveHashSetDouble set = new NonRecursiveHashSetDouble(vec.getLength());
+        double[] data = new double[vec.getLength()];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength(); i++) {
+            double val = vec.getDataAt(i);
+            if (!set.add(val)) {
+                data[ind++] = val;
             }
-            return RDataFactory.createDoubleVector(dataList.toArray(), vec.isComplete());
         }
+        return RDataFactory.createDoubleVector(Arrays.copyOf(data, ind), vec.isComplete());
     }
 
     @SuppressWarnings("unused")
     @Specialization
     protected RLogicalVector doUnique(RAbstractLogicalVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        ByteArray dataList = new ByteArray(vec.getLength());
-        for (int i = 0; i < vec.getLength(); i++) {
+        // TRUE, FALSE and NA: at most three distinct values
+        byte[] data = new byte[3];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength() && ind < data.length; i++) {
             byte val = vec.getDataAt(i);
-            if (!dataList.contains(val)) {
-                dataList.add(val);
+            if (!contains(data, ind, val)) {
+                data[ind++] = val;
+            }
+        }
+        return RDataFactory.createLogicalVector(Arrays.copyOf(data, ind), vec.isComplete());
+    }
+
+    private static boolean contains(byte[] data, int length, byte val) {
+        for (int i = 0; i < length; i++) {
+            if (data[i] == val) {
+                return true;
             }
         }
-        return RDataFactory.createLogicalVector(dataList.toArray(), vec.isComplete());
+        return false;
     }
 
     @SuppressWarnings("unused")
     @Specialization
     protected RComplexVector doUnique(RAbstractComplexVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
-            Utils.NonRecursiveHashSet<RComplex> set = new Utils.NonRecursiveHashSet<>(vec.getLength());
-            double[] data = new double[vec.getLength() * 2];
-            int ind = 0;
-            for (int i = 0; i < vec.getLength(); i++) {
-                RComplex val = vec.getDataAt(i);
-                if (!set.add(val)) {
-                    data[ind++] = val.getRealPart();
-                    data[ind++] = val.getImaginaryPart();
-                }
-            }
-            return RDataFactory.createComplexVector(Arrays.copyOf(data, ind), vec.isComplete());
-        } else {
-            DoubleArrayForComplex dataList = new DoubleArrayForComplex(vec.getLength());
-            for (int i = 0; i < vec.getLength(); i++) {
-                RComplex s = vec.getDataAt(i);
-                if (!dataList.contains(s)) {
-                    dataList.add(s);
-                }
+        NonRecursiveHashSetComplex set = new NonRecursiveHashSetComplex(vec.getLength());
+        double[] data = new double[vec.getLength() * 2];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength(); i++) {
+            RComplex val = vec.getDataAt(i);
+            if (!set.add(val)) {
+                data[ind++] = val.getRealPart();
+                data[ind++] = val.getImaginaryPart();
             }
-            return RDataFactory.createComplexVector(dataList.toArray(), vec.isComplete());
         }
+        return RDataFactory.createComplexVector(Arrays.copyOf(data, ind), vec.isComplete());
     }
 
     @SuppressWarnings("unused")
     @Specialization
     protected RRawVector doUnique(RAbstractRawVector vec, byte incomparables, byte fromLast, Object nmax, RArgsValuesAndNames vararg) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
-            Utils.NonRecursiveHashSet<RRaw> set = new Utils.NonRecursiveHashSet<>(vec.getLength());
-            byte[] data = new byte[vec.getLength()];
-            int ind = 0;
-            for (int i = 0; i < vec.getLength(); i++) {
-                RRaw val = vec.getDataAt(i);
-                if (!set.add(val)) {
-                    data[ind++] = val.getValue();
-                }
+        boolean[] seen = new boolean[256];
+        byte[] data = new byte[Math.min(vec.getLength(), seen.length)];
+        int ind = 0;
+        for (int i = 0; i < vec.getLength() && ind < data.length; i++) {
+            byte val = vec.getDataAt(i).getValue();
+            if (!seen[val & 0xFF]) {
+                seen[val & 0xFF] = true;
+                data[ind++] = val;
             }
-            return RDataFactory.createRawVector(Arrays.copyOf(data, ind));
-        } else {
-            ByteArray dataList = new ByteArray(vec.getLength());
-            for (int i = 0; i < vec.getLength(); i++) {
-                byte val = vec.getDataAt(i).getValue();
-                if (!dataList.contains(val)) {
-                    dataList.add(val);
-                }
-            }
-            return RDataFactory.createRawVector(dataList.toArray());
         }
+        return RDataFactory.createRawVector(Arrays.copyOf(data, ind));
     }
-
 }
@@ -31,7 +31,7 @@ import com.oracle.truffle.r.runtime.nodes.RFastPathNode;
 
 public abstract class SetDiffFastPath extends RFastPathNode {
 
-    @Specialization(guards = "x.getStride() == 1")
+    @Specialization(guards = {"x.getStride() == 1", "x.isAffine()"})
     protected Object setdiff(RIntSequence x, RAbstractIntVector y) {
         int xLength = x.getLength();
         int xStart = x.getStart();
@@ -28,6 +28,7 @@ import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.library.astx.threads.RAsyncFunctionNodeGen;
 import com.oracle.truffle.r.library.astx.threads.RThreadSyncNodeGen;
+import com.oracle.truffle.r.library.astx.threads.RThreadsJoinAllNodeGen;
 import com.oracle.truffle.r.library.fastr.FastRCallCountingFactory;
 import com.oracle.truffle.r.library.fastr.FastRCompileNodeGen;
 import com.oracle.truffle.r.library.fastr.FastRContextFactory;
@@ -43,8 +44,11 @@ import com.oracle.truffle.r.library.fastr.FastRTreeNodeGen;
 import com.oracle.truffle.r.library.fastr.FastRTypeofNodeGen;
 import com.oracle.truffle.r.library.fastr.InteropExportNodeGen;
 import com.oracle.truffle.r.library.fastr.InteropImportNodeGen;
+import com.oracle.truffle.r.library.gpu.MarawaccApplyBuiltin;
+import com.oracle.truffle.r.library.gpu.MarawaccCompileBuiltin;
 import com.oracle.truffle.r.library.gpu.MarawaccExecuteNodeGen;
 import com.oracle.truffle.r.library.gpu.MarawaccGetNodeGen;
+import com.oracle.truffle.r.library.gpu.MarawaccHostBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.MarawaccInitilizationNodeGen;
 import com.oracle.truffle.r.library.gpu.MarawaccMapBuiltin;
 import com.oracle.truffle.r.library.gpu.MarawaccOCLInfoBuiltinNodeGen;
@@ -57,12 +61,15 @@ import com.oracle.truffle.r.library.gpu.OpenCLMApply;
 import com.oracle.truffle.r.library.gpu.PArrayBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.RListProbeNodeGen;
 import com.oracle.truffle.r.library.gpu.TestFunctionNodeGen;
+import com.oracle.truffle.r.library.gpu.intrinsics.PhiloxRandomBuiltinNodeGen;
+import com.oracle.truffle.r.library.gpu.intrinsics.PhiloxVectorBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.intrinsics.RRandomBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.nodes.utils.RGCBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.nodes.utils.RNanoTimeBuiltinNodeGen;
 import com.oracle.truffle.r.library.gpu.sequences.CompassSequence;
 import com.oracle.truffle.r.library.gpu.sequences.CompassSequenceNodeGen;
 import com.oracle.truffle.r.library.gpu.sequences.FlagSequenceNodeGen;
+import com.oracle.truffle.r.library.gpu.sequences.GridSequenceNodeGen;
 import com.oracle.truffle.r.library.gpu.tuples.ASTxTuple2NodeGen;
 import com.oracle.truffle.r.library.gpu.tuples.ASTxTuple3NodeGen;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
@@ -174,6 +181,10 @@ public abstract class FastR extends RBuiltinNode {
                 return new OpenCLMApply();
             case "marawacc.sapply":
                 return new MarawaccSapplyBuiltin();
+            case "marawacc.apply":
+                return new MarawaccApplyBuiltin();
+            case "marawacc.compile":
+                return new MarawaccCompileBuiltin();
             case "marawacc.execute":
                 return MarawaccExecuteNodeGen.create();
             case "marawacc.get":
@@ -191,6 +202,10 @@ public abstract class FastR extends RBuiltinNode {
                 return MarawaccInitilizationNodeGen.create();
             case "builtin.random":
                 return RRandomBuiltinNodeGen.create();
+            case "marawacc.random":
+                return PhiloxRandomBuiltinNodeGen.create();
+            case "marawacc.runif":
+                return PhiloxVectorBuiltinNodeGen.create();
 
             case "marawacc.isOpenCL": // Check if OpenCL is enabled
                 return OpenCLAvailabilityNodeGen.create();
@@ -210,6 +225,8 @@ public abstract class FastR extends RBuiltinNode {
                 return FlagSequenceNodeGen.create();
             case "compassSequence":
                 return CompassSequenceNodeGen.create();
+            case "gridSequence":
+                return GridSequenceNodeGen.create();
 
                 /*
                  * ***************************************************
@@ -218,6 +235,8 @@ public abstract class FastR extends RBuiltinNode {
                  */
             case "marawacc.parray":
                 return PArrayBuiltinNodeGen.create();
+            case "marawacc.host":
+                return MarawaccHostBuiltinNodeGen.create();
 
                 /*
                  * ***************************************************
@@ -228,6 +247,8 @@ public abstract class FastR extends RBuiltinNode {
                 return RAsyncFunctionNodeGen.create();
             case "astx.sync":
                 return RThreadSyncNodeGen.create();
+            case "astx.syncAll":
+                return RThreadsJoinAllNodeGen.create();
 
                 /*
                  * ***************************************************
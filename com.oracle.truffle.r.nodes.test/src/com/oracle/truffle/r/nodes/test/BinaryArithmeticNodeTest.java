@@ -24,6 +24,7 @@ package com.oracle.truffle.r.nodes.test;
 
 import static com.oracle.truffle.r.nodes.test.TestUtilities.createHandle;
 import static com.oracle.truffle.r.runtime.data.RDataFactory.createDoubleSequence;
+import static com.oracle.truffle.r.runtime.data.RDataFactory.createDoubleVector;
 import static com.oracle.truffle.r.runtime.data.RDataFactory.createDoubleVectorFromScalar;
 import static com.oracle.truffle.r.runtime.data.RDataFactory.createEmptyComplexVector;
 import static com.oracle.truffle.r.runtime.data.RDataFactory.createEmptyDoubleVector;
@@ -65,6 +66,7 @@ import org.junit.runner.RunWith;
 import com.oracle.truffle.r.nodes.binary.BinaryArithmeticNode;
 import com.oracle.truffle.r.nodes.test.TestUtilities.NodeHandle;
 import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.RAttributes;
 import com.oracle.truffle.r.runtime.data.RAttributes.RAttribute;
@@ -74,6 +76,7 @@ import com.oracle.truffle.r.runtime.data.RScalarVector;
 import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RShareable;
 import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmeticFactory;
@@ -296,6 +299,73 @@ public class BinaryArithmeticNodeTest extends BinaryVectorTest {
         assertFold(false, createDoubleSequence(1, 3, 10), createDoubleSequence(2, 5, 5), ADD, SUBTRACT, MULTIPLY, INTEGER_DIV);
     }
 
+    @Test
+    public void testParallelChunks() {
+        // 1001 = 7 * 11 * 13, the pattern repeats with the operand of length 7
+        double[] left = new double[1001];
+        for (int i = 0; i < left.length; i++) {
+            left[i] = i % 11 == 0 ? RRuntime.DOUBLE_NA : i % 13 == 0 ? Double.NaN : (i - 500) * 0.75;
+        }
+        double[] completeLeft = new double[left.length];
+        for (int i = 0; i < left.length; i++) {
+            completeLeft[i] = (i - 500) * 0.75;
+        }
+        double[] right = new double[]{2, 0, RRuntime.DOUBLE_NA, -3, 0.5, Double.NaN, 7};
+        double[] completeRight = new double[]{2, 0.25, -1, -3, 0.5, 5, 7};
+
+        // at least the threshold and not a multiple of 7, the operand of length 7 is recycled at
+        // different offsets per chunk
+        int length = Math.max(FastROptions.ParallelVectorThreshold.getIntValue(), left.length) + 1;
+        if (length % right.length == 0) {
+            length++;
+        }
+        for (BinaryArithmeticFactory factory : new BinaryArithmeticFactory[]{ADD, SUBTRACT, MULTIPLY, DIV, INTEGER_DIV, MOD}) {
+            assertParallelChunks(factory, completeLeft, completeRight, true, length, true);
+            assertParallelChunks(factory, left, right, true, length, false);
+            assertParallelChunks(factory, left, right, false, length, false);
+
+            RAbstractDoubleVector result = (RAbstractDoubleVector) executeArithmetic(factory, createDoubleVector(repeat(left, length), false), createDoubleVector(right.clone(), false));
+            // NA op 2
+            Assert.assertTrue(RRuntime.isNA(result.getDataAt(0)));
+            // NaN op 7
+            Assert.assertTrue(Double.isNaN(result.getDataAt(13)) && !RRuntime.isNA(result.getDataAt(13)));
+            // NaN op NA
+            Assert.assertTrue(Double.isNaN(result.getDataAt(65)) && !RRuntime.isNA(result.getDataAt(65)));
+            // NA op 0
+            Assert.assertEquals(factory != MOD, RRuntime.isNA(result.getDataAt(22)));
+        }
+    }
+
+    /**
+     * Computes the operation on <code>pattern</code> and on <code>pattern</code> repeated to
+     * <code>length</code> elements, which is computed in chunks, and checks that the results are
+     * the same.
+     */
+    private void assertParallelChunks(BinaryArithmeticFactory factory, double[] pattern, double[] other, boolean patternLeft, int length, boolean expectedComplete) {
+        // the operands are copied since a temporary operand may hold the result
+        RAbstractDoubleVector[] results = new RAbstractDoubleVector[2];
+        double[][] operands = new double[][]{pattern.clone(), repeat(pattern, length)};
+        for (int t = 0; t < results.length; t++) {
+            RAbstractDoubleVector patternVector = createDoubleVector(operands[t], expectedComplete);
+            RAbstractDoubleVector otherVector = createDoubleVector(other.clone(), expectedComplete);
+            results[t] = (RAbstractDoubleVector) (patternLeft ? executeArithmetic(factory, patternVector, otherVector) : executeArithmetic(factory, otherVector, patternVector));
+        }
+        RAbstractDoubleVector result = results[1];
+        Assert.assertEquals(length, result.getLength());
+        Assert.assertEquals(expectedComplete, result.isComplete());
+        for (int i = 0; i < length; i++) {
+            Assert.assertEquals(Double.doubleToRawLongBits(results[0].getDataAt(i % pattern.length)), Double.doubleToRawLongBits(result.getDataAt(i)));
+        }
+    }
+
+    private static double[] repeat(double[] pattern, int length) {
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = pattern[i % pattern.length];
+        }
+        return result;
+    }
+
     @Theory
     public void testGeneric(BinaryArithmeticFactory factory) {
         // this should trigger the generic case
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.nodes.unary.ChunkedReduction;
+import com.oracle.truffle.r.nodes.unary.ChunkedReduction.Operation;
+import com.oracle.truffle.r.nodes.unary.ChunkedReduction.Result;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+public class ChunkedReductionTest {
+
+    private static final int SIZE = 5 * ChunkedReduction.CHUNK_SIZE + 17;
+
+    private static double[] randomDoubles(int size, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+        }
+        return data;
+    }
+
+    @Test
+    public void testSumDoesNotDependOnThreads() throws Exception {
+        double[] data = randomDoubles(SIZE, 7);
+        double expected = ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0.0).getDoubleValue();
+        for (int threads : new int[]{1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                double value = pool.submit(() -> ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0.0).getDoubleValue()).get();
+                assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testCompensatedSum() {
+        double[] data = new double[SIZE];
+        data[0] = 1.0;
+        for (int i = 1; i < SIZE; i++) {
+            data[i] = i % 2 == 1 ? 1e16 : -1e16;
+        }
+        // a plain sum loses the 1.0 in 1.0 + 1e16
+        assertEquals(1.0, ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0.0).getDoubleValue(), 0.0);
+    }
+
+    @Test
+    public void testNA() {
+        double[] data = randomDoubles(SIZE, 11);
+        data[3 * ChunkedReduction.CHUNK_SIZE + 5] = RRuntime.DOUBLE_NA;
+        data[10] = Double.NaN;
+        Result result = ChunkedReduction.reduce(Operation.MAX, data, SIZE, false, Double.NEGATIVE_INFINITY);
+        assertTrue(result.isNA());
+        assertTrue(RRuntime.isNA(result.getDoubleValue()));
+
+        Result removed = ChunkedReduction.reduce(Operation.MAX, data, SIZE, true, Double.NEGATIVE_INFINITY);
+        assertFalse(removed.isNA());
+        assertEquals(SIZE - 1, removed.getCount());
+        assertTrue(Double.isNaN(removed.getDoubleValue()));
+        assertFalse(RRuntime.isNA(removed.getDoubleValue()));
+    }
+
+    @Test
+    public void testIntegerSumOverflow() {
+        int[] data = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = Integer.MAX_VALUE - i;
+        }
+        long expected = 0;
+        for (int d : data) {
+            expected += d;
+        }
+        Result result = ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0);
+        assertEquals(expected, result.getLongValue());
+        assertTrue(result.getLongValue() > Integer.MAX_VALUE);
+
+        data[SIZE - 1] = RRuntime.INT_NA;
+        assertTrue(ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0).isNA());
+        assertEquals(expected - (Integer.MAX_VALUE - (SIZE - 1)), ChunkedReduction.reduce(Operation.SUM, data, SIZE, true, 0).getLongValue());
+    }
+
+    @Test
+    public void testLogical() {
+        byte[] data = new byte[SIZE];
+        int trues = 0;
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = (byte) (i % 3 == 0 ? 1 : 0);
+            trues += data[i];
+        }
+        data[1] = RRuntime.LOGICAL_NA;
+        assertTrue(ChunkedReduction.reduce(Operation.SUM, data, SIZE, false, 0).isNA());
+        Result result = ChunkedReduction.reduce(Operation.SUM, data, SIZE, true, 0);
+        assertEquals(trues, result.getLongValue());
+        assertEquals(SIZE - 1, result.getCount());
+    }
+
+    @Test
+    public void testMinMaxEmpty() {
+        int[] data = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = RRuntime.INT_NA;
+        }
+        Result result = ChunkedReduction.reduce(Operation.MIN, data, SIZE, true, Integer.MAX_VALUE);
+        assertEquals(0, result.getCount());
+        assertEquals(Integer.MAX_VALUE, result.getLongValue());
+        data[SIZE - 3] = -4;
+        data[7] = 12;
+        assertEquals(-4, ChunkedReduction.reduce(Operation.MIN, data, SIZE, true, Integer.MAX_VALUE).getLongValue());
+        assertEquals(12, ChunkedReduction.reduce(Operation.MAX, data, SIZE, true, Integer.MIN_VALUE + 1).getLongValue());
+    }
+
+    @Test
+    public void testSequenceSum() {
+        int[][] shapes = {{1, 1000}, {3, 5}, {4, 1}, {7, 13}, {1, 9}};
+        for (int[] shape : shapes) {
+            int each = shape[0];
+            int period = shape[1];
+            for (int length : new int[]{1, 2, 17, 1000, 1001}) {
+                int distinct = length / each + (length % each == 0 ? 0 : 1);
+                int p = period > distinct ? distinct : period;
+                long expected = 0;
+                double expectedDouble = 0;
+                for (int i = 0; i < length; i++) {
+                    expected += -3 + 7L * ((i / each) % p);
+                    expectedDouble += 0.5 - 0.25 * ((i / each) % p);
+                }
+                assertEquals(expected, ChunkedReduction.sequenceSum(-3, 7, length, each, p));
+                assertEquals(expectedDouble, ChunkedReduction.sequenceSum(0.5, -0.25, length, each, p), 1e-9);
+            }
+        }
+        assertEquals(1000000L * 1000001L / 2, ChunkedReduction.sequenceSum(1, 1, 1000000, 1, 1000000));
+        assertEquals(2, ChunkedReduction.presentValues(10, 5, 4));
+        assertEquals(4, ChunkedReduction.presentValues(100, 5, 4));
+    }
+}
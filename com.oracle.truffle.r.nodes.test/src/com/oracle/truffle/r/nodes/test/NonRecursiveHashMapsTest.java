@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapComplex;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.NonRecursiveHashMaps.NonRecursiveHashSetInt;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RComplex;
+
+public class NonRecursiveHashMapsTest {
+
+    @Test
+    public void testIntMapGrows() {
+        // the initial capacity is far too small, so the table has to resize many times
+        NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(1);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(50000) * 1024;
+            assertEquals(expected.containsKey(key), map.put(key, i));
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key : expected.keySet()) {
+            assertEquals(expected.get(key).intValue(), map.get(key));
+        }
+        assertEquals(-1, map.get(1));
+    }
+
+    @Test
+    public void testIntNA() {
+        NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(4);
+        assertEquals(-1, map.get(RRuntime.INT_NA));
+        assertFalse(map.put(RRuntime.INT_NA, 0));
+        assertTrue(map.put(RRuntime.INT_NA, 3));
+        assertFalse(map.put(0, 5));
+        assertEquals(3, map.get(RRuntime.INT_NA));
+        assertEquals(5, map.get(0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testDoubleSpecialValues() {
+        NonRecursiveHashMapDouble map = new NonRecursiveHashMapDouble(8);
+        map.put(RRuntime.DOUBLE_NA, 1);
+        map.put(Double.NaN, 2);
+        map.put(0.0, 3);
+        map.put(Double.POSITIVE_INFINITY, 4);
+        assertEquals(1, map.get(RRuntime.DOUBLE_NA));
+        assertEquals(2, map.get(Double.NaN));
+        assertEquals(2, map.get(Double.longBitsToDouble(0x7ff8000000000123L)));
+        assertEquals(3, map.get(-0.0));
+        assertEquals(4, map.get(Double.POSITIVE_INFINITY));
+        assertEquals(-1, map.get(Double.NEGATIVE_INFINITY));
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    public void testCharacterNA() {
+        NonRecursiveHashMapCharacter map = new NonRecursiveHashMapCharacter(2);
+        map.put(RRuntime.STRING_NA, 0);
+        assertEquals(0, map.get(RRuntime.STRING_NA));
+        assertEquals(-1, map.get("NA"));
+        for (int i = 0; i < 1000; i++) {
+            map.put("s" + i, i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get("s" + i));
+        }
+    }
+
+    @Test
+    public void testComplex() {
+        NonRecursiveHashMapComplex map = new NonRecursiveHashMapComplex(2);
+        map.put(RComplex.valueOf(RRuntime.DOUBLE_NA, 1), 0);
+        map.put(RComplex.valueOf(0.0, -0.0), 1);
+        map.put(RComplex.valueOf(1, 2), 2);
+        assertEquals(0, map.get(RComplex.valueOf(RRuntime.DOUBLE_NA, 5)));
+        assertEquals(1, map.get(RComplex.valueOf(-0.0, 0.0)));
+        assertEquals(2, map.get(RComplex.valueOf(1, 2)));
+        assertEquals(-1, map.get(RComplex.valueOf(2, 1)));
+    }
+
+    @Test
+    public void testSet() {
+        NonRecursiveHashSetInt set = new NonRecursiveHashSetInt(0);
+        assertFalse(set.add(42));
+        assertTrue(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+    }
+}
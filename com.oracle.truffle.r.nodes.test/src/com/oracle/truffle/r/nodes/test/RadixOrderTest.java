@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.nodes.builtin.base.RadixOrder;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+public class RadixOrderTest {
+
+    private static final int SIZE = 150000;
+
+    private static int compareKey(Object key, int a, int b, boolean naLast, boolean decreasing) {
+        boolean naA;
+        boolean naB;
+        int c;
+        if (key instanceof int[]) {
+            int[] data = (int[]) key;
+            naA = data[a] == RRuntime.INT_NA;
+            naB = data[b] == RRuntime.INT_NA;
+            c = Integer.compare(data[a], data[b]);
+        } else if (key instanceof double[]) {
+            double[] data = (double[]) key;
+            naA = RRuntime.isNAorNaN(data[a]);
+            naB = RRuntime.isNAorNaN(data[b]);
+            c = data[a] < data[b] ? -1 : data[a] > data[b] ? 1 : 0;
+        } else if (key instanceof byte[]) {
+            byte[] data = (byte[]) key;
+            naA = data[a] == RRuntime.LOGICAL_NA;
+            naB = data[b] == RRuntime.LOGICAL_NA;
+            c = Byte.compare(data[a], data[b]);
+        } else {
+            String[] data = (String[]) key;
+            naA = RRuntime.isNA(data[a]);
+            naB = RRuntime.isNA(data[b]);
+            c = naA || naB ? 0 : data[a].compareTo(data[b]);
+        }
+        if (naA || naB) {
+            return naA == naB ? 0 : (naA == naLast ? 1 : -1);
+        }
+        return decreasing ? -c : c;
+    }
+
+    private static int[] expected(Object[] keys, int length, boolean naLast, boolean decreasing) {
+        Integer[] boxed = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            boxed[i] = i;
+        }
+        Comparator<Integer> comparator = (a, b) -> {
+            for (Object key : keys) {
+                int c = compareKey(key, a, b, naLast, decreasing);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(a, b);
+        };
+        Arrays.sort(boxed, comparator);
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+
+    private static void check(Object[] keys, int length) {
+        for (boolean naLast : new boolean[]{true, false}) {
+            for (boolean decreasing : new boolean[]{false, true}) {
+                assertArrayEquals(expected(keys, length, naLast, decreasing), RadixOrder.order(keys, length, naLast, decreasing));
+            }
+        }
+    }
+
+    private static int[] randomInts(int size, int bound, long seed) {
+        Random random = new Random(seed);
+        int[] data = new int[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = random.nextInt(10) == 0 ? RRuntime.INT_NA : random.nextInt(bound) - bound / 2;
+        }
+        return data;
+    }
+
+    @Test
+    public void testIntegers() {
+        check(new Object[]{randomInts(1000, 100, 1)}, 1000);
+        check(new Object[]{randomInts(SIZE, Integer.MAX_VALUE, 2)}, SIZE);
+        check(new Object[]{new int[]{Integer.MAX_VALUE, RRuntime.INT_NA, -Integer.MAX_VALUE, 0}}, 4);
+    }
+
+    @Test
+    public void testDoubles() {
+        Random random = new Random(3);
+        double[] special = {RRuntime.DOUBLE_NA, Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE};
+        double[] data = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = random.nextInt(20) == 0 ? special[random.nextInt(special.length)] : (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 15);
+        }
+        check(new Object[]{data}, SIZE);
+        check(new Object[]{special}, special.length);
+    }
+
+    @Test
+    public void testLogicalsAndStrings() {
+        byte[] logicals = {RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_NA, RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_FALSE};
+        check(new Object[]{logicals}, logicals.length);
+        String[] strings = {"b", RRuntime.STRING_NA, "a", "", "b", "B", "aa", RRuntime.STRING_NA};
+        check(new Object[]{strings}, strings.length);
+    }
+
+    @Test
+    public void testSeveralKeys() {
+        int[] first = randomInts(SIZE, 8, 4);
+        Random random = new Random(5);
+        String[] second = new String[SIZE];
+        double[] third = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            second[i] = random.nextInt(10) == 0 ? RRuntime.STRING_NA : "s" + random.nextInt(50);
+            third[i] = random.nextInt(4);
+        }
+        check(new Object[]{first, second, third}, SIZE);
+    }
+
+    @Test
+    public void testParallelHistograms() {
+        // at least the default ParallelVectorThreshold, so the passes run in chunks
+        int size = (1 << 20) + 4321;
+        int[] first = randomInts(size, 1 << 24, 6);
+        Random random = new Random(7);
+        double[] second = new double[size];
+        for (int i = 0; i < size; i++) {
+            second[i] = random.nextInt(20) == 0 ? RRuntime.DOUBLE_NA : random.nextInt(1000) * 0.5;
+        }
+        check(new Object[]{first}, size);
+        check(new Object[]{randomInts(size, 64, 8), second}, size);
+    }
+}
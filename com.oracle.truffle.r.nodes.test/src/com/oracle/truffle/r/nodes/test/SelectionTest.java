@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.nodes.builtin.base.Selection;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+public class SelectionTest {
+
+    private static final int SIZE = 100001;
+
+    private static int[] randomPositions(Random random, int length, int count) {
+        return random.ints(count, 0, length).distinct().sorted().toArray();
+    }
+
+    private static int compare(double a, double b) {
+        return a < b ? -1 : a > b ? 1 : (a != a ? (b != b ? 0 : 1) : (b != b ? -1 : 0));
+    }
+
+    private static void checkDoubles(double[] data, int[] positions) {
+        double[] sorted = data.clone();
+        Arrays.sort(sorted);
+        double[] partial = data.clone();
+        Selection.partialSort(partial, positions);
+        for (int p : positions) {
+            assertEquals(0, compare(sorted[p], partial[p]));
+            for (int i = 0; i < partial.length; i++) {
+                int c = compare(partial[i], partial[p]);
+                assertTrue(i < p ? c <= 0 : i > p ? c >= 0 : true);
+            }
+        }
+        double[] resorted = partial.clone();
+        Arrays.sort(resorted);
+        assertArrayEquals(sorted, resorted, 0.0);
+    }
+
+    @Test
+    public void testDoubles() {
+        Random random = new Random(1);
+        double[] data = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = random.nextInt(30) == 0 ? (random.nextBoolean() ? RRuntime.DOUBLE_NA : Double.NaN) : random.nextGaussian();
+        }
+        checkDoubles(data, new int[]{SIZE / 2});
+        checkDoubles(data, new int[]{0, SIZE - 1});
+        checkDoubles(data, randomPositions(random, SIZE, 20));
+    }
+
+    @Test
+    public void testManyDuplicates() {
+        Random random = new Random(2);
+        double[] data = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = random.nextInt(3);
+        }
+        checkDoubles(data, randomPositions(random, SIZE, 10));
+        double[] sorted = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            sorted[i] = i;
+        }
+        checkDoubles(sorted, new int[]{SIZE / 3, SIZE / 2});
+    }
+
+    @Test
+    public void testIntegers() {
+        Random random = new Random(3);
+        int[] data = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = random.nextInt(20) == 0 ? RRuntime.INT_NA : random.nextInt();
+        }
+        int[] positions = randomPositions(random, SIZE, 15);
+        int[] partial = data.clone();
+        Selection.partialSort(partial, positions);
+        int[] sorted = data.clone();
+        for (int i = 0; i < SIZE; i++) {
+            sorted[i]--;
+        }
+        Arrays.sort(sorted);
+        for (int p : positions) {
+            assertEquals(sorted[p] + 1, partial[p]);
+        }
+    }
+
+    @Test
+    public void testStringsAndLogicals() {
+        String[] data = {"d", RRuntime.STRING_NA, "b", "a", "c", "b", RRuntime.STRING_NA, "e"};
+        String[] partial = data.clone();
+        Selection.partialSort(partial, new int[]{2, 5});
+        assertEquals("b", partial[2]);
+        assertEquals("e", partial[5]);
+        assertTrue(RRuntime.isNA(partial[6]) && RRuntime.isNA(partial[7]));
+
+        byte[] logicals = {RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_NA, RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_TRUE};
+        Selection.sort(logicals);
+        assertEquals(RRuntime.LOGICAL_FALSE, logicals[0]);
+        assertEquals(RRuntime.LOGICAL_TRUE, logicals[2]);
+        assertEquals(RRuntime.LOGICAL_NA, logicals[3]);
+    }
+}
@@ -42,6 +42,7 @@ import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
+import com.oracle.truffle.r.runtime.data.RVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -126,6 +127,9 @@ abstract class WriteIndexedVectorNode extends Node {
         assert totalDimensions == positions.length : "totalDimensions must be constant per vector write node";
 
         Object leftStore = left.getInternalStore();
+        if (left instanceof RVector) {
+            ((RVector) left).incVersion();
+        }
         Object rightStore = null;
         if (right instanceof RAbstractContainer) {
             RAbstractContainer rightContainer = (RAbstractContainer) right;
@@ -261,6 +265,9 @@ abstract class WriteIndexedVectorNode extends Node {
                     @Cached("createBinaryProfile()") ConditionProfile conditionProfile, //
                     @Cached("create()") CountedLoopConditionProfile profile) throws SlowPathException {
         // skip NA check. sequences never contain NA values.
+        if (!position.isAffine()) {
+            throw new SlowPathException("rewrite to doIntegerPosition");
+        }
         int rightIndex = rightBase;
         int start = startProfile.profile(position.getStart() - 1);
         int stride = strideProfile.profile(position.getStride());
@@ -22,6 +22,8 @@
  */
 package com.oracle.truffle.r.nodes.binary;
 
+import java.util.function.DoubleBinaryOperator;
+
 import com.oracle.truffle.r.nodes.primitive.BinaryMapNAFunctionNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -35,6 +37,7 @@ import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Add;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Div;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.IntegerDiv;
+import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Mod;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Multiply;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Subtract;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
@@ -106,6 +109,42 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
         return value;
     }
 
+    /**
+     * Same as {@link #applyDouble(double, double)} with the NA checks always enabled. There is no
+     * kernel for <code>^</code>, whose operation profiles the exponent.
+     */
+    @Override
+    public DoubleBinaryOperator getDoubleKernel() {
+        DoubleBinaryOperator op;
+        if (arithmetic instanceof Add) {
+            op = (left, right) -> left + right;
+        } else if (arithmetic instanceof Subtract) {
+            op = (left, right) -> left - right;
+        } else if (arithmetic instanceof Multiply) {
+            op = (left, right) -> left * right;
+        } else if (arithmetic instanceof Div) {
+            op = (left, right) -> left / right;
+        } else if (arithmetic instanceof IntegerDiv) {
+            op = IntegerDiv::floorDiv;
+        } else if (arithmetic instanceof Mod) {
+            op = BinaryArithmetic::fmod;
+        } else {
+            return null;
+        }
+        boolean mod = arithmetic instanceof Mod;
+        return (left, right) -> {
+            if (RRuntime.isNA(left)) {
+                // CORNER: Make sure NA%%0 == NaN
+                return mod && right == 0 ? Double.NaN : RRuntime.DOUBLE_NA;
+            }
+            if (RRuntime.isNA(right)) {
+                // CORNER: Make sure NaN op NA == NaN
+                return Double.isNaN(left) ? left : RRuntime.DOUBLE_NA;
+            }
+            return op.applyAsDouble(left, right);
+        };
+    }
+
     @Override
     public int applyInteger(int left, int right) {
         assert arithmetic.isSupportsIntResult();
@@ -189,10 +228,11 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 // result_stride = left_stride
                 // result_length = left_length
                 return foldSequence((RSequence) left, right.getDataAtAsObject(0), null, rightNACheck);
-            } else if (right instanceof RSequence && leftLength == rightLength) {
+            } else if (right instanceof RSequence && ((RSequence) left).hasSameShape((RSequence) right)) {
                 // result_start = left_start <op> right_start
                 // result_stride = left_stride <op> right_stride
                 // result_length = left_length = right_length
+                // (both sequences repeat and wrap around at the same indices)
                 RSequence otherSequence = (RSequence) right;
                 return foldSequence((RSequence) left, otherSequence.getStartObject(), otherSequence.getStrideObject(), rightNACheck);
             }
@@ -237,7 +277,7 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 return null;
             }
         }
-        return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength());
+        return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength(), castSequence.getEach(), castSequence.getPeriod());
     }
 
     private RAbstractVector foldIntSequence(RSequence sequence, Object otherStart, Object otherStride, NACheck otherNACheck) {
@@ -271,7 +311,7 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 return null;
             }
         }
-        return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength());
+        return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength(), castSequence.getEach(), castSequence.getPeriod());
     }
 
     private RAbstractVector foldIntSequenceIntResult(RSequence sequence, int otherStartInt, Object otherStride, NACheck otherNACheck) {
@@ -295,7 +335,7 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 return null;
             }
         }
-        return RDataFactory.createIntSequence(newStart, newStride, castSequence.getLength());
+        return RDataFactory.createIntSequence(newStart, newStride, castSequence.getLength(), castSequence.getEach(), castSequence.getPeriod());
     }
 
 }
@@ -22,6 +22,8 @@
  */
 package com.oracle.truffle.r.nodes.primitive;
 
+import java.util.function.DoubleBinaryOperator;
+
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
@@ -94,6 +96,15 @@ public abstract class BinaryMapFunctionNode extends RBaseNode {
         return null;
     }
 
+    /**
+     * Returns {@link #applyDouble(double, double)} as a function of the operands only, which reads
+     * and writes no node state, so that several threads can run it on chunks of a vector. The NA
+     * handling of the node is part of the kernel. Returns <code>null</code> if there is none.
+     */
+    public DoubleBinaryOperator getDoubleKernel() {
+        return null;
+    }
+
     /**
      * Enables the node for the two operation. Invoked once for each BinaryMap operation invocation.
      */
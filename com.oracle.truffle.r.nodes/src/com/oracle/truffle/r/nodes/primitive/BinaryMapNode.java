@@ -22,6 +22,11 @@
  */
 package com.oracle.truffle.r.nodes.primitive;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.utilities.BranchProfile;
@@ -31,6 +36,7 @@ import com.oracle.truffle.r.nodes.attributes.CopyAttributesNodeGen;
 import com.oracle.truffle.r.nodes.primitive.BinaryMapNodeFactory.VectorMapBinaryInternalNodeGen;
 import com.oracle.truffle.r.nodes.profile.CountedLoopConditionProfile;
 import com.oracle.truffle.r.nodes.profile.VectorLengthProfile;
+import com.oracle.truffle.r.runtime.FastROptions;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -57,9 +63,15 @@ import com.oracle.truffle.r.runtime.nodes.RNode;
  * is provided using a {@link BinaryMapFunctionNode}.
  *
  * The implementation tries to share input vectors if they are implementing {@link RShareable}.
+ *
+ * Double results of at least {@link FastROptions#ParallelVectorThreshold} elements are computed in
+ * chunks on the common {@link ForkJoinPool} when the function has a
+ * {@link BinaryMapFunctionNode#getDoubleKernel() kernel} that reads no node state.
  */
 public final class BinaryMapNode extends RBaseNode {
 
+    private static final int PARALLEL_THRESHOLD = FastROptions.ParallelVectorThreshold.getIntValue();
+
     @Child private VectorMapBinaryInternalNode vectorNode;
     @Child private BinaryMapFunctionNode function;
     @Child private CopyAttributesNode copyAttributes;
@@ -71,6 +83,8 @@ public final class BinaryMapNode extends RBaseNode {
     private final VectorLengthProfile rightLengthProfile = VectorLengthProfile.create();
     private final ConditionProfile dimensionsProfile;
     private final ConditionProfile maxLengthProfile;
+    private final ConditionProfile parallelProfile;
+    private final DoubleBinaryOperator doubleKernel;
     private final BranchProfile seenEmpty = BranchProfile.create();
     private final ConditionProfile shareLeft;
     private final ConditionProfile shareRight;
@@ -104,6 +118,8 @@ public final class BinaryMapNode extends RBaseNode {
         this.shareLeft = mayShareLeft ? ConditionProfile.createBinaryProfile() : null;
         this.shareRight = mayShareRight ? ConditionProfile.createBinaryProfile() : null;
         this.dimensionsProfile = mayContainMetadata ? ConditionProfile.createBinaryProfile() : null;
+        this.doubleKernel = resultType == RType.Double && argumentType == RType.Double ? function.getDoubleKernel() : null;
+        this.parallelProfile = doubleKernel != null ? ConditionProfile.createBinaryProfile() : null;
 
         this.copyAttributes = mayContainMetadata ? CopyAttributesNodeGen.create(copyAttributes) : null;
     }
@@ -112,6 +128,10 @@ public final class BinaryMapNode extends RBaseNode {
         return new BinaryMapNode(function, left, right, argumentType, resultType, copyAttributes);
     }
 
+    private static boolean isParallel(int length) {
+        return PARALLEL_THRESHOLD > 0 && length >= PARALLEL_THRESHOLD;
+    }
+
     public boolean isSupported(Object left, Object right) {
         return left.getClass() == leftClass && right.getClass() == rightClass;
     }
@@ -255,9 +275,16 @@ public final class BinaryMapNode extends RBaseNode {
             assert rightCast.getRType() == argumentType;
             assert isStoreCompatible(store, resultType, leftLength, rightLength);
 
-            vectorNode.execute(function, store, leftCast, leftLength, rightCast, rightLength);
-            RNode.reportWork(this, maxLength);
-            target.setComplete(function.isComplete());
+            if (parallelProfile != null && parallelProfile.profile(isParallel(maxLength))) {
+                // the workers only run the kernel, which does its own NA checks
+                boolean complete = vectorNode.applyInChunks(doubleKernel, (double[]) store, (RAbstractDoubleVector) leftCast, leftLength, (RAbstractDoubleVector) rightCast, rightLength);
+                RNode.reportWork(this, maxLength);
+                target.setComplete(complete);
+            } else {
+                vectorNode.execute(function, store, leftCast, leftLength, rightCast, rightLength);
+                RNode.reportWork(this, maxLength);
+                target.setComplete(function.isComplete());
+            }
         }
         if (mayContainMetadata) {
             target = copyAttributes.execute(target, left, leftLength, right, rightLength);
@@ -303,6 +330,9 @@ public final class BinaryMapNode extends RBaseNode {
 
     protected abstract static class VectorMapBinaryInternalNode extends RBaseNode {
 
+        private static final int MIN_CHUNK = 1 << 14;
+        private static final int CHUNKS_PER_THREAD = 4;
+
         private static final MapBinaryIndexedAction<byte[], RAbstractLogicalVector> LOGICAL_LOGICAL = //
         (arithmetic, result, resultIndex, left, leftIndex, right, rightIndex) -> {
             result[resultIndex] = arithmetic.applyLogical(left.getDataAt(leftIndex), right.getDataAt(rightIndex));
@@ -514,6 +544,74 @@ public final class BinaryMapNode extends RBaseNode {
             RError.warning(this, RError.Message.LENGTH_NOT_MULTI);
         }
 
+        /**
+         * Same as the loops above, over chunks of the result that run on the common
+         * {@link ForkJoinPool}. Each chunk starts recycling the operands at its own offset and runs
+         * the kernel, which touches no node state. Each chunk checks the part of the result it
+         * wrote for NA.
+         *
+         * @return <code>false</code> if the result contains NA
+         */
+        @TruffleBoundary
+        public boolean applyInChunks(DoubleBinaryOperator kernel, double[] result, RAbstractDoubleVector left, int leftLength, RAbstractDoubleVector right, int rightLength) {
+            int max = Math.max(leftLength, rightLength);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int chunkSize = Math.max(MIN_CHUNK, max / (pool.getParallelism() * CHUNKS_PER_THREAD));
+            boolean complete = pool.invoke(new ChunkTask(kernel, result, left, leftLength, right, rightLength, 0, max, chunkSize));
+            if (!multiples(leftLength, rightLength)) {
+                RError.warning(this, RError.Message.LENGTH_NOT_MULTI);
+            }
+            return complete;
+        }
+
+        @SuppressWarnings("serial")
+        private static final class ChunkTask extends RecursiveTask<Boolean> {
+
+            private final DoubleBinaryOperator kernel;
+            private final double[] result;
+            private final RAbstractDoubleVector left;
+            private final int leftLength;
+            private final RAbstractDoubleVector right;
+            private final int rightLength;
+            private final int from;
+            private final int to;
+            private final int chunkSize;
+
+            ChunkTask(DoubleBinaryOperator kernel, double[] result, RAbstractDoubleVector left, int leftLength, RAbstractDoubleVector right, int rightLength, int from, int to, int chunkSize) {
+                this.kernel = kernel;
+                this.result = result;
+                this.left = left;
+                this.leftLength = leftLength;
+                this.right = right;
+                this.rightLength = rightLength;
+                this.from = from;
+                this.to = to;
+                this.chunkSize = chunkSize;
+            }
+
+            @Override
+            protected Boolean compute() {
+                if (to - from > chunkSize) {
+                    int middle = from + (to - from) / 2;
+                    ChunkTask high = new ChunkTask(kernel, result, left, leftLength, right, rightLength, middle, to, chunkSize);
+                    high.fork();
+                    boolean lowComplete = new ChunkTask(kernel, result, left, leftLength, right, rightLength, from, middle, chunkSize).compute();
+                    return high.join() && lowComplete;
+                }
+                int j = from % leftLength;
+                int k = from % rightLength;
+                boolean complete = true;
+                for (int i = from; i < to; i++) {
+                    double value = kernel.applyAsDouble(left.getDataAt(j), right.getDataAt(k));
+                    result[i] = value;
+                    complete &= !RRuntime.isNA(value);
+                    j = Utils.incMod(j, leftLength);
+                    k = Utils.incMod(k, rightLength);
+                }
+                return complete;
+            }
+        }
+
         private interface MapBinaryIndexedAction<A, V extends RAbstractVector> {
 
             void perform(BinaryMapFunctionNode action, A store, int resultIndex, V left, int leftIndex, V right, int rightIndex);
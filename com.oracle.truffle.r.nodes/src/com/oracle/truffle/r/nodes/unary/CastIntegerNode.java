@@ -69,7 +69,8 @@ public abstract class CastIntegerNode extends CastIntegerBaseNode {
     @Specialization
     protected RIntSequence doDoubleSequence(RDoubleSequence operand) {
         naCheck.enable(operand);
-        return RDataFactory.createIntSequence(naCheck.convertDoubleToInt(operand.getStart()), naCheck.convertDoubleToInt(operand.getStride()), operand.getLength());
+        return RDataFactory.createIntSequence(naCheck.convertDoubleToInt(operand.getStart()), naCheck.convertDoubleToInt(operand.getStride()), operand.getLength(), operand.getEach(),
+                        operand.getPeriod());
     }
 
     private RIntVector createResultVector(RAbstractVector operand, int[] idata) {
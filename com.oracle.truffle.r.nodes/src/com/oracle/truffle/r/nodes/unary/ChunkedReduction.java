@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.unary;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Summary reductions (<code>sum</code>, <code>prod</code>, <code>min</code> and <code>max</code>)
+ * of long vectors on the common {@link ForkJoinPool}.
+ *
+ * The input is split in chunks of {@link #CHUNK_SIZE} elements that are folded in parallel, and the
+ * partial results are combined in the order of the chunks. The chunks depend only on the length of
+ * the input, so the result does not depend on the number of threads. Double sums are compensated
+ * (Neumaier) inside the chunks and in the combine step. Integer sums are accumulated in a
+ * <code>long</code>, so the caller can turn an overflow into NA.
+ *
+ * Sequences at or above the threshold are reduced in closed form, see
+ * {@link #sequenceSum(long, long, int, int, int)}. Shorter double sequences keep the rounding of
+ * the sequential loop.
+ */
+public final class ChunkedReduction {
+
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    private static final int THRESHOLD = FastROptions.ParallelVectorThreshold.getIntValue();
+
+    public enum Operation {
+        SUM,
+        PROD,
+        MIN,
+        MAX
+    }
+
+    /**
+     * Result of a reduction: the value (<code>long</code> for integer sums, minimum and maximum,
+     * <code>double</code> otherwise), the number of elements folded and whether an NA stopped it.
+     */
+    public static final class Result {
+
+        private final double doubleValue;
+        private final long longValue;
+        private final long count;
+        private final boolean na;
+
+        Result(double doubleValue, long longValue, long count, boolean na) {
+            this.doubleValue = doubleValue;
+            this.longValue = longValue;
+            this.count = count;
+            this.na = na;
+        }
+
+        public double getDoubleValue() {
+            return doubleValue;
+        }
+
+        public long getLongValue() {
+            return longValue;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public boolean isNA() {
+            return na;
+        }
+    }
+
+    private ChunkedReduction() {
+        // empty constructor
+    }
+
+    /**
+     * @param length
+     * @return true if a vector of this length is reduced in parallel
+     */
+    public static boolean isParallel(int length) {
+        return THRESHOLD > 0 && length >= THRESHOLD;
+    }
+
+    static int numberOfChunks(int length) {
+        return (int) ((length + (long) CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+
+    private static void forEachChunk(int chunks, IntConsumer fold) {
+        IntStream.range(0, chunks).parallel().forEach(fold);
+    }
+
+    static double max(double left, double right) {
+        // same as BinaryArithmetic.MAX: the first NaN wins, +0 over -0
+        if (left != left) {
+            return left;
+        } else if (left == 0.0d && right == 0.0d && Double.doubleToRawLongBits(left) == Double.doubleToRawLongBits(-0.0d)) {
+            return right;
+        }
+        return left >= right ? left : right;
+    }
+
+    static double min(double left, double right) {
+        // same as BinaryArithmetic.MIN: the first NaN wins, -0 over +0
+        if (left != left) {
+            return left;
+        } else if (left == 0.0d && right == 0.0d && Double.doubleToRawLongBits(right) == Double.doubleToRawLongBits(-0.0d)) {
+            return right;
+        }
+        return left <= right ? left : right;
+    }
+
+    private static double neutral(Operation op) {
+        switch (op) {
+            case SUM:
+                return 0.0;
+            case PROD:
+                return 1.0;
+            case MIN:
+                return Double.POSITIVE_INFINITY;
+            default:
+                return Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Reduce <code>data[0, length)</code>, starting from <code>start</code>. Without
+     * <code>naRm</code> the result is NA as soon as an element is NA; NaN is an ordinary value.
+     *
+     * @param op
+     * @param data
+     * @param length
+     * @param naRm
+     * @param start
+     * @return {@link Result} with a <code>double</code> value
+     */
+    @TruffleBoundary
+    public static Result reduce(Operation op, double[] data, int length, boolean naRm, double start) {
+        int chunks = numberOfChunks(length);
+        double[] values = new double[chunks];
+        double[] compensations = new double[chunks];
+        int[] counts = new int[chunks];
+        boolean[] nas = new boolean[chunks];
+        forEachChunk(chunks, c -> {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(length, from + CHUNK_SIZE);
+            double value = neutral(op);
+            double compensation = 0.0;
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                double d = data[i];
+                if (RRuntime.isNA(d)) {
+                    if (naRm) {
+                        continue;
+                    }
+                    nas[c] = true;
+                    break;
+                }
+                switch (op) {
+                    case SUM:
+                        double t = value + d;
+                        compensation += Math.abs(value) >= Math.abs(d) ? (value - t) + d : (d - t) + value;
+                        value = t;
+                        break;
+                    case PROD:
+                        value *= d;
+                        break;
+                    case MIN:
+                        value = min(value, d);
+                        break;
+                    default:
+                        value = max(value, d);
+                }
+                count++;
+            }
+            values[c] = value;
+            compensations[c] = compensation;
+            counts[c] = count;
+        });
+        return combine(op, values, compensations, counts, nas, start);
+    }
+
+    private static Result combine(Operation op, double[] values, double[] compensations, int[] counts, boolean[] nas, double start) {
+        double value = start;
+        double compensation = 0.0;
+        long count = 0;
+        for (int c = 0; c < values.length; c++) {
+            if (nas[c]) {
+                return new Result(RRuntime.DOUBLE_NA, 0, count + counts[c], true);
+            }
+            if (counts[c] == 0) {
+                continue;
+            }
+            count += counts[c];
+            double d = values[c];
+            switch (op) {
+                case SUM:
+                    double t = value + d;
+                    compensation += Math.abs(value) >= Math.abs(d) ? (value - t) + d : (d - t) + value;
+                    compensation += compensations[c];
+                    value = t;
+                    break;
+                case PROD:
+                    value *= d;
+                    break;
+                case MIN:
+                    value = min(value, d);
+                    break;
+                default:
+                    value = max(value, d);
+            }
+        }
+        if (op == Operation.SUM && RRuntime.isFinite(value)) {
+            // an infinite or NaN sum leaves the compensation as NaN
+            value += compensation;
+        }
+        return new Result(value, 0, count, false);
+    }
+
+    /**
+     * Integer version of {@link #reduce(Operation, double[], int, boolean, double)}. Sums,
+     * minimums and maximums are in the <code>long</code> value, products in the <code>double</code>
+     * value.
+     *
+     * @param op
+     * @param data
+     * @param length
+     * @param naRm
+     * @param start
+     * @return {@link Result}
+     */
+    @TruffleBoundary
+    public static Result reduce(Operation op, int[] data, int length, boolean naRm, long start) {
+        return reduceIntegers(op, i -> data[i], length, naRm, start);
+    }
+
+    /**
+     * Logical version of {@link #reduce(Operation, int[], int, boolean, long)}: <code>TRUE</code>
+     * is 1 and <code>FALSE</code> is 0.
+     *
+     * @param op
+     * @param data
+     * @param length
+     * @param naRm
+     * @param start
+     * @return {@link Result}
+     */
+    @TruffleBoundary
+    public static Result reduce(Operation op, byte[] data, int length, boolean naRm, long start) {
+        return reduceIntegers(op, i -> data[i] == RRuntime.LOGICAL_NA ? RRuntime.INT_NA : data[i], length, naRm, start);
+    }
+
+    private static Result reduceIntegers(Operation op, IntUnaryOperator element, int length, boolean naRm, long start) {
+        int chunks = numberOfChunks(length);
+        long[] values = new long[chunks];
+        double[] products = new double[chunks];
+        int[] counts = new int[chunks];
+        boolean[] nas = new boolean[chunks];
+        forEachChunk(chunks, c -> {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(length, from + CHUNK_SIZE);
+            long value = op == Operation.MIN ? Long.MAX_VALUE : op == Operation.MAX ? Long.MIN_VALUE : 0;
+            double product = 1.0;
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                int d = element.applyAsInt(i);
+                if (d == RRuntime.INT_NA) {
+                    if (naRm) {
+                        continue;
+                    }
+                    nas[c] = true;
+                    break;
+                }
+                switch (op) {
+                    case SUM:
+                        value += d;
+                        break;
+                    case PROD:
+                        product *= d;
+                        break;
+                    case MIN:
+                        value = Math.min(value, d);
+                        break;
+                    default:
+                        value = Math.max(value, d);
+                }
+                count++;
+            }
+            values[c] = value;
+            products[c] = product;
+            counts[c] = count;
+        });
+
+        long value = start;
+        double product = op == Operation.PROD ? start : 1.0;
+        long count = 0;
+        for (int c = 0; c < chunks; c++) {
+            if (nas[c]) {
+                return new Result(RRuntime.DOUBLE_NA, RRuntime.INT_NA, count + counts[c], true);
+            }
+            if (counts[c] == 0) {
+                continue;
+            }
+            count += counts[c];
+            switch (op) {
+                case SUM:
+                    value += values[c];
+                    break;
+                case PROD:
+                    product *= products[c];
+                    break;
+                case MIN:
+                    value = Math.min(value, values[c]);
+                    break;
+                default:
+                    value = Math.max(value, values[c]);
+            }
+        }
+        return new Result(product, value, count, false);
+    }
+
+    /**
+     * Number of distinct values that appear in a sequence of <code>length</code> elements where
+     * each value is repeated <code>each</code> times and the values wrap around after
+     * <code>period</code>.
+     *
+     * @param length
+     * @param each
+     * @param period
+     * @return int
+     */
+    public static int presentValues(int length, int each, int period) {
+        long blocks = (length + (long) each - 1) / each;
+        return (int) Math.min(blocks, period);
+    }
+
+    // sum of start + stride * j for j in [0, m), without overflow for int values
+    private static long arithmeticSum(long start, long stride, long m) {
+        if (m == 0) {
+            return 0;
+        }
+        long firstPlusLast = 2 * start + (m - 1) * stride;
+        return (m % 2 == 0) ? (m / 2) * firstPlusLast : m * (firstPlusLast / 2);
+    }
+
+    /**
+     * Sum of <code>start + stride * ((i / each) % period)</code> for <code>i</code> in
+     * <code>[0, length)</code>, computed in closed form.
+     *
+     * @param start
+     * @param stride
+     * @param length
+     * @param each
+     * @param period
+     * @return long
+     */
+    public static long sequenceSum(long start, long stride, int length, int each, int period) {
+        if (length == 0) {
+            return 0;
+        }
+        long blocks = (length + (long) each - 1) / each;
+        long last = length - (blocks - 1) * each;
+        long cycles = (blocks - 1) / period;
+        long remainder = (blocks - 1) % period;
+        long full = cycles * arithmeticSum(start, stride, period) + arithmeticSum(start, stride, remainder);
+        return each * full + last * (start + stride * remainder);
+    }
+
+    /**
+     * Double version of {@link #sequenceSum(long, long, int, int, int)}.
+     *
+     * @param start
+     * @param stride
+     * @param length
+     * @param each
+     * @param period
+     * @return double
+     */
+    public static double sequenceSum(double start, double stride, int length, int each, int period) {
+        if (length == 0) {
+            return 0.0;
+        }
+        long blocks = (length + (long) each - 1) / each;
+        long last = length - (blocks - 1) * each;
+        long cycles = (blocks - 1) / period;
+        long remainder = (blocks - 1) % period;
+        double full = cycles * arithmeticSum(start, stride, period) + arithmeticSum(start, stride, remainder);
+        return each * full + last * (start + stride * remainder);
+    }
+
+    private static double arithmeticSum(double start, double stride, long m) {
+        if (m == 0) {
+            return 0.0;
+        }
+        return m * (2 * start + (m - 1) * stride) / 2;
+    }
+}
@@ -48,13 +48,11 @@ public class ScalarUnaryArithmeticNode extends UnaryMapNAFunctionNode {
             return operand;
         } else if (arithmetic instanceof Negate && operand instanceof RSequence) {
             if (operand instanceof RIntSequence) {
-                int start = ((RIntSequence) operand).getStart();
-                int stride = ((RIntSequence) operand).getStride();
-                return RDataFactory.createIntSequence(applyInteger(start), applyInteger(stride), operandLength);
+                RIntSequence sequence = (RIntSequence) operand;
+                return RDataFactory.createIntSequence(applyInteger(sequence.getStart()), applyInteger(sequence.getStride()), operandLength, sequence.getEach(), sequence.getPeriod());
             } else if (operand instanceof RDoubleSequence) {
-                double start = ((RDoubleSequence) operand).getStart();
-                double stride = ((RDoubleSequence) operand).getStride();
-                return RDataFactory.createDoubleSequence(applyDouble(start), applyDouble(stride), operandLength);
+                RDoubleSequence sequence = (RDoubleSequence) operand;
+                return RDataFactory.createDoubleSequence(applyDouble(sequence.getStart()), applyDouble(sequence.getStride()), operandLength, sequence.getEach(), sequence.getPeriod());
             }
         }
         return null;
@@ -65,12 +65,31 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
     private final NACheck na = NACheck.create();
 
     private final ConditionProfile naRmProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile parallelProfile = ConditionProfile.createBinaryProfile();
     private final BranchProfile warningProfile = BranchProfile.create();
 
+    /**
+     * Operation of the parallel reduction of long vectors, <code>null</code> when the arithmetic
+     * has no parallel version.
+     */
+    private final ChunkedReduction.Operation operation;
+
     protected UnaryArithmeticReduceNode(ReduceSemantics semantics, BinaryArithmeticFactory factory) {
         this.factory = factory;
         this.semantics = semantics;
         this.arithmetic = factory.create();
+        this.operation = parallelOperation(factory);
+    }
+
+    private static ChunkedReduction.Operation parallelOperation(BinaryArithmeticFactory factory) {
+        if (factory == BinaryArithmetic.ADD) {
+            return ChunkedReduction.Operation.SUM;
+        } else if (factory == BinaryArithmetic.MIN) {
+            return ChunkedReduction.Operation.MIN;
+        } else if (factory == BinaryArithmetic.MAX) {
+            return ChunkedReduction.Operation.MAX;
+        }
+        return null;
     }
 
     protected UnaryArithmeticReduceNode(UnaryArithmeticReduceNode op) {
@@ -94,6 +113,41 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
         }
     }
 
+    private boolean isParallel(int length) {
+        return operation != null && parallelProfile.profile(ChunkedReduction.isParallel(length));
+    }
+
+    private int integerOverflow() {
+        warningProfile.enter();
+        RError.warning(this, RError.Message.INTEGER_OVERFLOW);
+        return RRuntime.INT_NA;
+    }
+
+    private int toInt(long value) {
+        // same as the sequential sum: NA with a warning when the result does not fit
+        return value > Integer.MAX_VALUE || value <= RRuntime.INT_NA ? integerOverflow() : (int) value;
+    }
+
+    private int intResult(ChunkedReduction.Result result) {
+        if (result.isNA()) {
+            return RRuntime.INT_NA;
+        }
+        if (result.getCount() == 0) {
+            emptyWarning();
+        }
+        return toInt(result.getLongValue());
+    }
+
+    private double doubleResult(ChunkedReduction.Result result) {
+        if (result.isNA()) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (result.getCount() == 0) {
+            emptyWarning();
+        }
+        return result.getDoubleValue();
+    }
+
     @SuppressWarnings("unused")
     @Specialization(guards = "semantics.isNullInt()")
     protected int doInt(RNull operand, boolean naRm, boolean finite) {
@@ -205,7 +259,12 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
     @Specialization
     protected int doIntVector(RIntVector operand, boolean naRm, boolean finite) {
         boolean profiledNaRm = naRmProfile.profile(naRm);
+        if (isParallel(operand.getLength())) {
+            return intResult(ChunkedReduction.reduce(operation, operand.getDataWithoutCopying(), operand.getLength(), profiledNaRm, semantics.getIntStart()));
+        }
         int result = semantics.getIntStart();
+        // the sum is accumulated in a long like the parallel one, so only the total can overflow
+        long sum = result;
         na.enable(operand);
         int opCount = 0;
         int[] data = operand.getDataWithoutCopying();
@@ -217,6 +276,8 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
                 } else {
                     return RRuntime.INT_NA;
                 }
+            } else if (operation == ChunkedReduction.Operation.SUM) {
+                sum += d;
             } else {
                 result = arithmetic.op(result, d);
             }
@@ -225,12 +286,15 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
         if (opCount == 0) {
             emptyWarning();
         }
-        return result;
+        return operation == ChunkedReduction.Operation.SUM ? toInt(sum) : result;
     }
 
     @Specialization
     protected double doDoubleVector(RDoubleVector operand, boolean naRm, boolean finite) {
         boolean profiledNaRm = naRmProfile.profile(naRm);
+        if (isParallel(operand.getLength())) {
+            return doubleResult(ChunkedReduction.reduce(operation, operand.getDataWithoutCopying(), operand.getLength(), profiledNaRm, semantics.getDoubleStart()));
+        }
         double result = semantics.getDoubleStart();
         na.enable(operand);
         int opCount = 0;
@@ -257,6 +321,9 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
     @Specialization
     protected int doLogicalVector(RLogicalVector operand, boolean naRm, boolean finite) {
         boolean profiledNaRm = naRmProfile.profile(naRm);
+        if (isParallel(operand.getLength())) {
+            return intResult(ChunkedReduction.reduce(operation, operand.getDataWithoutCopying(), operand.getLength(), profiledNaRm, semantics.getIntStart()));
+        }
         int result = semantics.getIntStart();
         na.enable(operand);
         int opCount = 0;
@@ -282,25 +349,45 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNode {
 
     @Specialization
     protected int doIntSequence(RIntSequence operand, @SuppressWarnings("unused") boolean naRm, boolean finite) {
+        if (isParallel(operand.getLength())) {
+            // closed form: the values of a sequence are monotone and never NA
+            int start = semantics.getIntStart();
+            if (operation == ChunkedReduction.Operation.SUM) {
+                return toInt(start + ChunkedReduction.sequenceSum(operand.getStart(), operand.getStride(), operand.getLength(), operand.getEach(), operand.getPeriod()));
+            }
+            int present = ChunkedReduction.presentValues(operand.getLength(), operand.getEach(), operand.getPeriod());
+            return arithmetic.op(arithmetic.op(start, operand.getDataAt(0)), operand.getStart() + operand.getStride() * (present - 1));
+        }
         int result = semantics.getIntStart();
-        int current = operand.getStart();
+        long sum = result;
         for (int i = 0; i < operand.getLength(); i++) {
-            result = arithmetic.op(result, current);
-            current += operand.getStride();
+            if (operation == ChunkedReduction.Operation.SUM) {
+                sum += operand.getDataAt(i);
+            } else {
+                result = arithmetic.op(result, operand.getDataAt(i));
+            }
         }
         if (operand.getLength() == 0) {
             emptyWarning();
         }
-        return result;
+        return operation == ChunkedReduction.Operation.SUM ? toInt(sum) : result;
     }
 
     @Specialization
     protected double doDoubleSequence(RDoubleSequence operand, @SuppressWarnings("unused") boolean naRm, boolean finite) {
+        if (isParallel(operand.getLength())) {
+            // closed form as above, shorter double sequences keep the rounding of the loop
+            double start = semantics.getDoubleStart();
+            if (operation == ChunkedReduction.Operation.SUM) {
+                return start + ChunkedReduction.sequenceSum(operand.getStart(), operand.getStride(), operand.getLength(), operand.getEach(), operand.getPeriod());
+            }
+            int present = ChunkedReduction.presentValues(operand.getLength(), operand.getEach(), operand.getPeriod());
+            return arithmetic.op(arithmetic.op(start, operand.getDataAt(0)), operand.getStart() + operand.getStride() * (present - 1));
+        }
         double result = semantics.getDoubleStart();
-        double current = operand.getStart();
+        // same values as indexing the sequence, accumulating the stride rounds differently
         for (int i = 0; i < operand.getLength(); i++) {
-            result = arithmetic.op(result, current);
-            current += operand.getStride();
+            result = arithmetic.op(result, operand.getDataAt(i));
         }
         if (operand.getLength() == 0) {
             emptyWarning();
@@ -54,6 +54,7 @@ public enum FastROptions {
     NewStateTransition("Experimental state transition implementation", true),
     RefCountIncrementOnly("Disable reference count decrements for experimental state transition implementation", false),
     UseInternalGraphics("Whether the internal (Java) graphics subsystem should be used", true),
+    ParallelVectorThreshold("ParallelVectorThreshold=n; Element-wise double arithmetic and sum, prod, mean, min and max on vectors of at least n elements run on the fork-join pool, 0 disables", "1048576", true),
 
     // Promises optimizations
     EagerEval("If enabled, overrides all other EagerEval switches (see EagerEvalHelper)", false),
@@ -88,6 +89,15 @@ public enum FastROptions {
         return (String) value;
     }
 
+    public int getIntValue() {
+        assert !isBoolean;
+        try {
+            return Integer.parseInt((String) value);
+        } catch (NumberFormatException e) {
+            return Integer.parseInt((String) defaultValue);
+        }
+    }
+
     private static FastROptions[] VALUES = values();
 
     static void setValue(String name, Object value) {
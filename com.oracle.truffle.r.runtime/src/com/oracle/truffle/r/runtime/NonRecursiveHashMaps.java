@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import com.oracle.truffle.r.runtime.data.RComplex;
+
+/**
+ * Open-addressing hash maps from keys to non-negative <code>int</code> values (typically the index
+ * of the key in a vector), and the corresponding sets, specialized for the element types of R
+ * vectors. They do not recurse, so they can be used in compiled code.
+ *
+ * The capacity is a power of two and the table doubles when it is three quarters full, so a probe
+ * sequence (linear) stays short. Hash codes are mixed with a multiplicative hash before they are
+ * masked, which spreads sequential and aligned keys. NA has a slot of its own, and so does NaN for
+ * doubles; <code>-0.0</code> and <code>0.0</code> are the same key. {@code get} returns -1 for
+ * absent keys, and {@code put} returns whether the key was already present.
+ */
+public final class NonRecursiveHashMaps {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private NonRecursiveHashMaps() {
+        // empty constructor
+    }
+
+    static int mix(long hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int capacityFor(int entries) {
+        long needed = Math.max(MIN_CAPACITY, entries + (long) entries / 3 + 1);
+        return (int) Math.min(MAX_CAPACITY, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static long doubleKey(double key) {
+        // -0.0 == 0.0
+        return key == 0.0 ? 0L : Double.doubleToRawLongBits(key);
+    }
+
+    private abstract static class Table {
+
+        /** Value plus one of each slot, 0 for an empty slot. */
+        protected int[] values;
+        protected int mask;
+        protected int size;
+        private int threshold;
+        protected int naValue;
+
+        protected Table(int approxCapacity) {
+            allocate(capacityFor(approxCapacity));
+        }
+
+        protected final void allocate(int capacity) {
+            values = new int[capacity];
+            mask = capacity - 1;
+            threshold = capacity - (capacity >>> 2);
+        }
+
+        protected final void added() {
+            if (++size >= threshold && values.length < MAX_CAPACITY) {
+                int[] oldValues = values;
+                allocate(oldValues.length << 1);
+                rehash(oldValues);
+            }
+        }
+
+        /**
+         * Move the occupied slots of the old arrays to the new ones, which are empty.
+         */
+        protected abstract void rehash(int[] oldValues);
+
+        protected final int freeSlot(int hash) {
+            int ind = hash & mask;
+            while (values[ind] != 0) {
+                ind = (ind + 1) & mask;
+            }
+            return ind;
+        }
+
+        protected final boolean putNA(int value) {
+            boolean present = naValue != 0;
+            naValue = value + 1;
+            return present;
+        }
+
+        public int size() {
+            return size + (naValue != 0 ? 1 : 0);
+        }
+    }
+
+    public static final class NonRecursiveHashMapInt extends Table {
+
+        private int[] keys;
+
+        public NonRecursiveHashMapInt(int approxCapacity) {
+            super(approxCapacity);
+            keys = new int[values.length];
+        }
+
+        public boolean put(int key, int value) {
+            assert value >= 0;
+            if (key == RRuntime.INT_NA) {
+                return putNA(value);
+            }
+            int ind = mix(key) & mask;
+            while (values[ind] != 0) {
+                if (keys[ind] == key) {
+                    values[ind] = value + 1;
+                    return true;
+                }
+                ind = (ind + 1) & mask;
+            }
+            keys[ind] = key;
+            values[ind] = value + 1;
+            added();
+            return false;
+        }
+
+        public int get(int key) {
+            if (key == RRuntime.INT_NA) {
+                return naValue - 1;
+            }
+            int ind = mix(key) & mask;
+            while (values[ind] != 0) {
+                if (keys[ind] == key) {
+                    return values[ind] - 1;
+                }
+                ind = (ind + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        protected void rehash(int[] oldValues) {
+            int[] oldKeys = keys;
+            keys = new int[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = freeSlot(mix(oldKeys[i]));
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    public static final class NonRecursiveHashMapDouble extends Table {
+
+        private long[] keys;
+        private int nanValue;
+
+        public NonRecursiveHashMapDouble(int approxCapacity) {
+            super(approxCapacity);
+            keys = new long[values.length];
+        }
+
+        public boolean put(double key, int value) {
+            assert value >= 0;
+            if (RRuntime.isNA(key)) {
+                return putNA(value);
+            } else if (Double.isNaN(key)) {
+                boolean present = nanValue != 0;
+                nanValue = value + 1;
+                return present;
+            }
+            long bits = doubleKey(key);
+            int ind = mix(bits) & mask;
+            while (values[ind] != 0) {
+                if (keys[ind] == bits) {
+                    values[ind] = value + 1;
+                    return true;
+                }
+                ind = (ind + 1) & mask;
+            }
+            keys[ind] = bits;
+            values[ind] = value + 1;
+            added();
+            return false;
+        }
+
+        public int get(double key) {
+            if (RRuntime.isNA(key)) {
+                return naValue - 1;
+            } else if (Double.isNaN(key)) {
+                return nanValue - 1;
+            }
+            long bits = doubleKey(key);
+            int ind = mix(bits) & mask;
+            while (values[ind] != 0) {
+                if (keys[ind] == bits) {
+                    return values[ind] - 1;
+                }
+                ind = (ind + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        protected void rehash(int[] oldValues) {
+            long[] oldKeys = keys;
+            keys = new long[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = freeSlot(mix(oldKeys[i]));
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return super.size() + (nanValue != 0 ? 1 : 0);
+        }
+    }
+
+    public static final class NonRecursiveHashMapCharacter extends Table {
+
+        private String[] keys;
+
+        public NonRecursiveHashMapCharacter(int approxCapacity) {
+            super(approxCapacity);
+            keys = new String[values.length];
+        }
+
+        public boolean put(String key, int value) {
+            assert value >= 0;
+            if (RRuntime.isNA(key)) {
+                return putNA(value);
+            }
+            int ind = mix(key.hashCode()) & mask;
+            while (values[ind] != 0) {
+                if (key.equals(keys[ind])) {
+                    values[ind] = value + 1;
+                    return true;
+                }
+                ind = (ind + 1) & mask;
+            }
+            keys[ind] = key;
+            values[ind] = value + 1;
+            added();
+            return false;
+        }
+
+        public int get(String key) {
+            if (RRuntime.isNA(key)) {
+                return naValue - 1;
+            }
+            int ind = mix(key.hashCode()) & mask;
+            while (values[ind] != 0) {
+                if (key.equals(keys[ind])) {
+                    return values[ind] - 1;
+                }
+                ind = (ind + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        protected void rehash(int[] oldValues) {
+            String[] oldKeys = keys;
+            keys = new String[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = freeSlot(mix(oldKeys[i].hashCode()));
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    public static final class NonRecursiveHashMapComplex extends Table {
+
+        private long[] realKeys;
+        private long[] imaginaryKeys;
+
+        public NonRecursiveHashMapComplex(int approxCapacity) {
+            super(approxCapacity);
+            realKeys = new long[values.length];
+            imaginaryKeys = new long[values.length];
+        }
+
+        private static int hash(long re, long im) {
+            return mix(re * 31 + im);
+        }
+
+        public boolean put(RComplex key, int value) {
+            assert value >= 0;
+            if (RRuntime.isNA(key)) {
+                return putNA(value);
+            }
+            long re = doubleKey(key.getRealPart());
+            long im = doubleKey(key.getImaginaryPart());
+            int ind = hash(re, im) & mask;
+            while (values[ind] != 0) {
+                if (realKeys[ind] == re && imaginaryKeys[ind] == im) {
+                    values[ind] = value + 1;
+                    return true;
+                }
+                ind = (ind + 1) & mask;
+            }
+            realKeys[ind] = re;
+            imaginaryKeys[ind] = im;
+            values[ind] = value + 1;
+            added();
+            return false;
+        }
+
+        public int get(RComplex key) {
+            if (RRuntime.isNA(key)) {
+                return naValue - 1;
+            }
+            long re = doubleKey(key.getRealPart());
+            long im = doubleKey(key.getImaginaryPart());
+            int ind = hash(re, im) & mask;
+            while (values[ind] != 0) {
+                if (realKeys[ind] == re && imaginaryKeys[ind] == im) {
+                    return values[ind] - 1;
+                }
+                ind = (ind + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        protected void rehash(int[] oldValues) {
+            long[] oldRealKeys = realKeys;
+            long[] oldImaginaryKeys = imaginaryKeys;
+            realKeys = new long[values.length];
+            imaginaryKeys = new long[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = freeSlot(hash(oldRealKeys[i], oldImaginaryKeys[i]));
+                    realKeys[ind] = oldRealKeys[i];
+                    imaginaryKeys[ind] = oldImaginaryKeys[i];
+                    values[ind] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    public static final class NonRecursiveHashSetInt {
+        private final NonRecursiveHashMapInt map;
+
+        public NonRecursiveHashSetInt(int approxCapacity) {
+            map = new NonRecursiveHashMapInt(approxCapacity);
+        }
+
+        /**
+         * @return true if the value was already in the set
+         */
+        public boolean add(int value) {
+            return map.put(value, 0);
+        }
+
+        public boolean contains(int value) {
+            return map.get(value) != -1;
+        }
+    }
+
+    public static final class NonRecursiveHashSetDouble {
+        private final NonRecursiveHashMapDouble map;
+
+        public NonRecursiveHashSetDouble(int approxCapacity) {
+            map = new NonRecursiveHashMapDouble(approxCapacity);
+        }
+
+        /**
+         * @return true if the value was already in the set
+         */
+        public boolean add(double value) {
+            return map.put(value, 0);
+        }
+
+        public boolean contains(double value) {
+            return map.get(value) != -1;
+        }
+    }
+
+    public static final class NonRecursiveHashSetCharacter {
+        private final NonRecursiveHashMapCharacter map;
+
+        public NonRecursiveHashSetCharacter(int approxCapacity) {
+            map = new NonRecursiveHashMapCharacter(approxCapacity);
+        }
+
+        /**
+         * @return true if the value was already in the set
+         */
+        public boolean add(String value) {
+            return map.put(value, 0);
+        }
+
+        public boolean contains(String value) {
+            return map.get(value) != -1;
+        }
+    }
+
+    public static final class NonRecursiveHashSetComplex {
+        private final NonRecursiveHashMapComplex map;
+
+        public NonRecursiveHashSetComplex(int approxCapacity) {
+            map = new NonRecursiveHashMapComplex(approxCapacity);
+        }
+
+        /**
+         * @return true if the value was already in the set
+         */
+        public boolean add(RComplex value) {
+            return map.put(value, 0);
+        }
+
+        public boolean contains(RComplex value) {
+            return map.get(value) != -1;
+        }
+    }
+}
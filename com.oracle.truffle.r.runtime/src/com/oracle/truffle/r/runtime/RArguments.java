@@ -165,6 +165,24 @@ public final class RArguments {
         return a;
     }
 
+    /**
+     * Whether an array created by {@link #create} can be passed again to another call of the same
+     * function, after replacing its arguments with {@link #setArguments(Object[], Object[])}. This
+     * is not the case when the previous call reified its environment or changed its enclosing frame.
+     */
+    public static boolean isReusable(Object[] arguments, RFunction functionObj) {
+        return arguments[INDEX_ENVIRONMENT] == null && arguments[INDEX_FUNCTION] == functionObj && arguments[INDEX_ENCLOSING_FRAME] == functionObj.getEnclosingFrame() &&
+                        !((boolean) arguments[INDEX_IS_IRREGULAR]);
+    }
+
+    /**
+     * Replace all the evaluated arguments of an array created by {@link #create}.
+     */
+    public static void setArguments(Object[] arguments, Object[] evaluatedArgs) {
+        assert arguments.length == INDEX_ARGUMENTS + evaluatedArgs.length;
+        System.arraycopy(evaluatedArgs, 0, arguments, INDEX_ARGUMENTS, evaluatedArgs.length);
+    }
+
     @SuppressWarnings("unused")
     private static boolean envFunctionInvariant(Object[] a) {
         return a[INDEX_ENVIRONMENT] != null || a[INDEX_FUNCTION] != null;
@@ -338,6 +338,7 @@ public final class RError extends RuntimeException {
         NOT_NUMERIC_VECTOR("argument is not a numeric vector"),
         UNSUPPORTED_PARTIAL("unsupported options for partial sorting"),
         INDEX_RETURN_REMOVE_NA("'index.return' only for 'na.last(NA'"),
+        INDEX_OUTSIDE_BOUNDS("index %d outside bounds"),
         SUPPLY_X_Y_MATRIX("supply both 'x' and 'y' or a matrix-like 'x'"),
         SD_ZERO("the standard deviation is zero"),
         INVALID_UNNAMED_ARGUMENTS("invalid arguments"),
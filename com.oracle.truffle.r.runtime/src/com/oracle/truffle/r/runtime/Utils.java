@@ -454,268 +454,6 @@ public final class Utils {
         return newValues;
     }
 
-    // simple implementations of non-recursive hash-maps to enable compilation
-    // TODO: consider replacing with a more efficient library implementation
-
-    public static class NonRecursiveHashMap<KEY> {
-
-        private Object[] keys;
-        private int[] values;
-
-        public NonRecursiveHashMap(int approxCapacity) {
-            keys = new Object[Math.max(approxCapacity, 1)];
-            values = new int[Math.max(approxCapacity, 1)];
-        }
-
-        public boolean put(KEY key, int value) {
-            int ind = Math.abs(key.hashCode()) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (keys[ind] == null) {
-                    keys[ind] = key;
-                    values[ind] = value;
-                    return false;
-                } else if (key.equals(keys[ind])) {
-                    values[ind] = value;
-                    return true;
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd) {
-                        // resize
-                        Object[] newKeys = new Object[keys.length + keys.length / 2];
-                        int[] newValues = new int[values.length + values.length / 2];
-                        for (int i = 0; i < keys.length; i++) {
-                            if (keys[i] != null) {
-                                int tmpInd = Math.abs(keys[i].hashCode()) % newKeys.length;
-                                while (true) {
-                                    if (newKeys[tmpInd] == null) {
-                                        newKeys[tmpInd] = keys[i];
-                                        newValues[tmpInd] = values[i];
-                                        break;
-                                    } else {
-                                        assert !keys[i].equals(newKeys[tmpInd]);
-                                        tmpInd = (tmpInd + 1) % newKeys.length;
-                                    }
-                                }
-                            }
-                        }
-
-                        keys = newKeys;
-                        values = newValues;
-
-                        // start hashing from the beginning
-                        ind = Math.abs(key.hashCode()) % keys.length;
-                    }
-                }
-            }
-        }
-
-        public int get(KEY key) {
-            int ind = Math.abs(key.hashCode()) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (key.equals(keys[ind])) {
-                    return values[ind];
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd || keys[ind] == null) {
-                        return -1;
-                    }
-                }
-            }
-        }
-    }
-
-    public static class NonRecursiveHashMapDouble {
-
-        private double[] keys;
-        private int[] values;
-
-        public NonRecursiveHashMapDouble(int approxCapacity) {
-            keys = new double[Math.max(approxCapacity, 1)];
-            Arrays.fill(keys, RRuntime.DOUBLE_NA);
-            values = new int[Math.max(approxCapacity, 1)];
-        }
-
-        public boolean put(double key, int value) {
-            int ind = Math.abs(Double.hashCode(key)) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (RRuntime.isNAorNaN(keys[ind])) {
-                    keys[ind] = key;
-                    values[ind] = value;
-                    return false;
-                } else if (key == keys[ind]) {
-                    values[ind] = value;
-                    return true;
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd) {
-                        // resize
-                        double[] newKeys = new double[keys.length + keys.length / 2];
-                        Arrays.fill(newKeys, RRuntime.DOUBLE_NA);
-                        int[] newValues = new int[values.length + values.length / 2];
-                        for (int i = 0; i < keys.length; i++) {
-                            if (!RRuntime.isNAorNaN(keys[i])) {
-                                int tmpInd = Math.abs(Double.hashCode(keys[i])) % newKeys.length;
-                                while (true) {
-                                    if (RRuntime.isNAorNaN(newKeys[tmpInd])) {
-                                        newKeys[tmpInd] = keys[i];
-                                        newValues[tmpInd] = values[i];
-                                        break;
-                                    } else {
-                                        assert keys[i] != newKeys[tmpInd];
-                                        tmpInd = (tmpInd + 1) % newKeys.length;
-                                    }
-                                }
-                            }
-                        }
-
-                        keys = newKeys;
-                        values = newValues;
-
-                        // start hashing from the beginning
-                        ind = Math.abs(Double.hashCode(key)) % keys.length;
-                    }
-                }
-            }
-        }
-
-        public int get(double key) {
-            int ind = Math.abs(Double.hashCode(key)) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (key == keys[ind]) {
-                    return values[ind];
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd || RRuntime.isNAorNaN(keys[ind])) {
-                        return -1;
-                    }
-                }
-            }
-        }
-    }
-
-    public static class NonRecursiveHashMapInt {
-
-        private int[] keys;
-        private int[] values;
-
-        public NonRecursiveHashMapInt(int approxCapacity) {
-            keys = new int[Math.max(approxCapacity, 1)];
-            Arrays.fill(keys, RRuntime.INT_NA);
-            values = new int[Math.max(approxCapacity, 1)];
-        }
-
-        public boolean put(int key, int value) {
-            int ind = Math.abs(Integer.hashCode(key)) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (RRuntime.isNA(keys[ind])) {
-                    keys[ind] = key;
-                    values[ind] = value;
-                    return false;
-                } else if (key == keys[ind]) {
-                    values[ind] = value;
-                    return true;
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd) {
-                        // resize
-                        int[] newKeys = new int[keys.length + keys.length / 2];
-                        Arrays.fill(newKeys, RRuntime.INT_NA);
-                        int[] newValues = new int[values.length + values.length / 2];
-                        for (int i = 0; i < keys.length; i++) {
-                            if (!RRuntime.isNA(keys[i])) {
-                                int tmpInd = Math.abs(Integer.hashCode(keys[i])) % newKeys.length;
-                                while (true) {
-                                    if (RRuntime.isNA(newKeys[tmpInd])) {
-                                        newKeys[tmpInd] = keys[i];
-                                        newValues[tmpInd] = values[i];
-                                        break;
-                                    } else {
-                                        assert keys[i] != newKeys[tmpInd];
-                                        tmpInd = (tmpInd + 1) % newKeys.length;
-                                    }
-                                }
-                            }
-                        }
-
-                        keys = newKeys;
-                        values = newValues;
-
-                        // start hashing from the beginning
-                        ind = Math.abs(Integer.hashCode(key)) % keys.length;
-                    }
-                }
-            }
-        }
-
-        public int get(int key) {
-            int ind = Math.abs(Integer.hashCode(key)) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (key == keys[ind]) {
-                    return values[ind];
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd || RRuntime.isNA(keys[ind])) {
-                        return -1;
-                    }
-                }
-            }
-        }
-    }
-
-    public static class NonRecursiveHashSet<VAL> {
-        private NonRecursiveHashMap<VAL> map;
-
-        public NonRecursiveHashSet(int approxCapacity) {
-            map = new NonRecursiveHashMap<>(approxCapacity);
-        }
-
-        public boolean add(VAL value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(VAL value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
-    public static class NonRecursiveHashSetInt {
-        private NonRecursiveHashMapInt map;
-
-        public NonRecursiveHashSetInt(int approxCapacity) {
-            map = new NonRecursiveHashMapInt(approxCapacity);
-        }
-
-        public boolean add(int value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(int value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
-    public static class NonRecursiveHashSetDouble {
-        private NonRecursiveHashMapDouble map;
-
-        public NonRecursiveHashSetDouble(int approxCapacity) {
-            map = new NonRecursiveHashMapDouble(approxCapacity);
-        }
-
-        public boolean add(double value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(double value) {
-            return map.get(value) == 1 ? true : false;
-        }
-    }
-
     public static void writeStderr(String s, boolean nl) {
         try {
             StdConnections.getStderr().writeString(s, nl);
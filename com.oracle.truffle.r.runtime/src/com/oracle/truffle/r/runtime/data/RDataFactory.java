@@ -258,6 +258,18 @@ public final class RDataFactory {
         return traceDataCreated(new RIntSequence(start, stride, length, repetitions, max, TypeOfSequence.Compass));
     }
 
+    /**
+     * Closed-form sequence whose element <code>i</code> is
+     * <code>start + stride * ((i / each) % period)</code>.
+     */
+    public static RIntSequence createIntSequence(int start, int stride, int length, int each, int period) {
+        TypeOfSequence type = RSequence.typeOf(length, each, period);
+        if (type == TypeOfSequence.Basic) {
+            return createIntSequence(start, stride, length);
+        }
+        return traceDataCreated(new RIntSequence(start, stride, length, each, period, type));
+    }
+
     public static RDoubleSequence createAscendingRange(double start, double end) {
         assert start <= end;
         return traceDataCreated(new RDoubleSequence(start, 1, (int) ((end - start) + 1)));
@@ -272,6 +284,18 @@ public final class RDataFactory {
         return traceDataCreated(new RDoubleSequence(start, stride, length));
     }
 
+    /**
+     * Closed-form sequence whose element <code>i</code> is
+     * <code>start + stride * ((i / each) % period)</code>.
+     */
+    public static RDoubleSequence createDoubleSequence(double start, double stride, int length, int each, int period) {
+        TypeOfSequence type = RSequence.typeOf(length, each, period);
+        if (type == TypeOfSequence.Basic) {
+            return createDoubleSequence(start, stride, length);
+        }
+        return traceDataCreated(new RDoubleSequence(start, stride, length, each, period, type));
+    }
+
     public static RDoubleSequence createDoubleSequenceFlag(double start, double stride, int length, int repetitions) {
         return traceDataCreated(new RDoubleSequence(start, stride, length, repetitions, TypeOfSequence.Flag));
     }
@@ -280,6 +304,18 @@ public final class RDataFactory {
         return traceDataCreated(new RDoubleSequence(start, stride, length, repetitions, max, TypeOfSequence.Flag));
     }
 
+    public static RDoubleSequence createDoubleSequenceCompass(double start, double stride, int length, int max, int repetitions) {
+        return traceDataCreated(new RDoubleSequence(start, stride, length, repetitions, max, TypeOfSequence.Compass));
+    }
+
+    /**
+     * View of <code>length</code> elements of <code>vector</code>, <code>stride</code> elements
+     * apart from <code>offset</code>. The data is not copied.
+     */
+    public static RDoubleVectorSlice createDoubleVectorSlice(RDoubleVector vector, int offset, int stride, int length) {
+        return traceDataCreated(new RDoubleVectorSlice(vector.getDataWithoutCopying(), offset, stride, length, vector.isComplete()));
+    }
+
     public static RIntVector createEmptyIntVector() {
         return createIntVector(EMPTY_INTEGER_ARRAY, true);
     }
@@ -48,7 +48,7 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
     }
 
     RDoubleSequence(double start, double stride, int length, int repetitions, TypeOfSequence type) {
-        super(length);
+        super(length, repetitions, length);
         assert length > 0;
         this.max = length;
         this.start = start;
@@ -58,7 +58,7 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
     }
 
     RDoubleSequence(double start, double stride, int length, int repetitions, int max, TypeOfSequence type) {
-        super(length);
+        super(length, type == TypeOfSequence.Compass ? 1 : repetitions, type == TypeOfSequence.Flag ? length : max);
         assert length > 0;
         this.start = start;
         this.stride = stride;
@@ -90,19 +90,11 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
     @Override
     public double getDataAt(int index) {
         assert index >= 0 && index < getLength();
-        if (repetitions != 0) {
-            // repetitions is compilation final
-            if (this.typeOfSequence == TypeOfSequence.Flag) {
-                int m = index / repetitions;
-                return start + stride * m;
-            } else if (this.typeOfSequence == TypeOfSequence.Compass) {
-                int m = index % max;
-                return start + stride * m;
-            } else {
-                return -1;
-            }
-        } else {
+        // typeOfSequence is compilation final
+        if (this.typeOfSequence == TypeOfSequence.Basic) {
             return start + stride * index;
+        } else {
+            return start + stride * ((index / getEach()) % getPeriod());
         }
     }
 
@@ -125,7 +117,10 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
     }
 
     public double getEnd() {
-        return start + (getLength() - 1) * stride;
+        if (isAffine()) {
+            return start + (getLength() - 1) * stride;
+        }
+        return getDataAt(getLength() - 1);
     }
 
     public RAbstractVector castSafe(RType type) {
@@ -148,10 +143,16 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
     }
 
     private RDoubleVector populateVectorData(double[] result) {
-        double current = start;
-        for (int i = 0; i < getLength(); i++) {
-            result[i] = current;
-            current += stride;
+        if (isAffine()) {
+            double current = start;
+            for (int i = 0; i < getLength(); i++) {
+                result[i] = current;
+                current += stride;
+            }
+        } else {
+            for (int i = 0; i < getLength(); i++) {
+                result[i] = getDataAt(i);
+            }
         }
         return RDataFactory.createDoubleVector(result, RDataFactory.COMPLETE_VECTOR);
     }
@@ -104,13 +104,18 @@ public final class RDoubleVector extends RVector implements RAbstractDoubleVecto
         return new RDoubleVector(Arrays.copyOf(data, data.length), this.isComplete(), null);
     }
 
+    /**
+     * The store may be written through, so the version of the vector changes.
+     */
     @Override
     public double[] getInternalStore() {
+        incVersion();
         return data;
     }
 
     public void setDataAt(Object store, int index, double value) {
         assert data == store;
+        incVersion();
         ((double[]) store)[index] = value;
     }
 
@@ -166,9 +171,19 @@ public final class RDoubleVector extends RVector implements RAbstractDoubleVecto
 
     /**
      * Intended for external calls where a copy is not needed. WARNING: think carefully before using
-     * this method rather than {@link #getDataCopy()}.
+     * this method rather than {@link #getDataCopy()}. The data may be written through, so the version
+     * of the vector changes.
      */
     public double[] getDataWithoutCopying() {
+        incVersion();
+        return data;
+    }
+
+    /**
+     * Same as {@link #getDataWithoutCopying()} for callers that only read the data, the version of
+     * the vector does not change.
+     */
+    public double[] getReadonlyData() {
         return data;
     }
 
@@ -205,6 +220,7 @@ public final class RDoubleVector extends RVector implements RAbstractDoubleVecto
     public RDoubleVector updateDataAt(int i, double right, NACheck valueNACheck) {
         assert !this.isShared();
         data[i] = right;
+        incVersion();
         if (valueNACheck.check(right)) {
             complete = false;
         }
@@ -257,6 +273,7 @@ public final class RDoubleVector extends RVector implements RAbstractDoubleVecto
     public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
         RAbstractDoubleVector other = (RAbstractDoubleVector) fromVector;
         data[toIndex] = other.getDataAt(fromIndex);
+        incVersion();
     }
 
     @Override
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Read-only view of <code>length</code> elements of the data of a {@link RDoubleVector}, starting at
+ * <code>offset</code> and <code>stride</code> elements apart: a row (<code>stride = nrow</code>) or
+ * a column (<code>stride = 1</code>) of a matrix. It has no attributes. As for the sequences, any
+ * update works on a materialized copy.
+ */
+public final class RDoubleVectorSlice implements RAbstractDoubleVector {
+
+    private final double[] data;
+    private final int offset;
+    private final int stride;
+    private final int length;
+    private final boolean complete;
+
+    RDoubleVectorSlice(double[] data, int offset, int stride, int length, boolean complete) {
+        assert length == 0 || (offset >= 0 && offset + (long) (length - 1) * stride < data.length);
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.length = length;
+        this.complete = complete;
+    }
+
+    @Override
+    public double getDataAt(int index) {
+        return data[offset + index * stride];
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void setComplete(boolean complete) {
+        // the completeness is the one of the viewed vector
+    }
+
+    @Override
+    public RAbstractContainer resize(int size) {
+        return materialize().resize(size);
+    }
+
+    @Override
+    public boolean hasDimensions() {
+        return false;
+    }
+
+    @Override
+    public int[] getDimensions() {
+        return null;
+    }
+
+    @Override
+    public void setDimensions(int[] newDimensions) {
+        // should only be used on materialized slice
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    private RDoubleVector populateVectorData(double[] result) {
+        for (int i = 0; i < length; i++) {
+            result[i] = data[offset + i * stride];
+        }
+        return RDataFactory.createDoubleVector(result, complete);
+    }
+
+    @Override
+    public RDoubleVector materialize() {
+        return populateVectorData(new double[length]);
+    }
+
+    @Override
+    public RAbstractVector copy() {
+        return materialize();
+    }
+
+    @Override
+    public RAbstractVector copyDropAttributes() {
+        return materialize();
+    }
+
+    @Override
+    public RAbstractVector copyWithNewDimensions(int[] newDimensions) {
+        return materialize().copyWithNewDimensions(newDimensions);
+    }
+
+    @Override
+    public RDoubleVector copyResized(int size, boolean fillNA) {
+        double[] result = new double[size];
+        for (int i = 0; i < Math.min(size, length); i++) {
+            result[i] = data[offset + i * stride];
+        }
+        RDoubleVector.resizeData(result, result, length, fillNA);
+        return RDataFactory.createDoubleVector(result, complete && !(fillNA && size > length));
+    }
+
+    @Override
+    public RVector copyResizedWithDimensions(int[] newDimensions, boolean fillNA) {
+        // TODO support for higher dimensions
+        assert newDimensions.length == 2;
+        RVector result = copyResized(newDimensions[0] * newDimensions[1], fillNA);
+        result.setDimensions(newDimensions);
+        return result;
+    }
+
+    @Override
+    public RDoubleVector createEmptySameType(int newLength, boolean newIsComplete) {
+        return RDataFactory.createDoubleVector(new double[newLength], newIsComplete);
+    }
+
+    @Override
+    public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public RAbstractVector castSafe(RType type) {
+        switch (type) {
+            case Double:
+            case Numeric:
+                return this;
+            case Integer:
+                return RClosures.createDoubleToIntVector(this);
+            case Complex:
+                return RClosures.createDoubleToComplexVector(this);
+            case Character:
+                return RClosures.createDoubleToStringVector(this);
+            case List:
+                return RClosures.createAbstractVectorToListVector(this);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public RStringVector getNames(RAttributeProfiles attrProfiles) {
+        return null;
+    }
+
+    @Override
+    public void setNames(RStringVector newNames) {
+        // should only be used on materialized slice
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public RList getDimNames(RAttributeProfiles attrProfiles) {
+        return null;
+    }
+
+    @Override
+    public void setDimNames(RList newDimNames) {
+        // should only be used on materialized slice
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public Object getRowNames(RAttributeProfiles attrProfiles) {
+        return RNull.instance;
+    }
+
+    @Override
+    public void setRowNames(RAbstractVector rowNames) {
+        // should only be used on materialized slice
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public RAttributes initAttributes() {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public void initAttributes(RAttributes newAttributes) {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public RAttributes getAttributes() {
+        return null;
+    }
+
+    @Override
+    public boolean isMatrix() {
+        return false;
+    }
+
+    @Override
+    public boolean isArray() {
+        return false;
+    }
+
+    @Override
+    public boolean isObject(RAttributeProfiles attrProfiles) {
+        return false;
+    }
+
+    @Override
+    public RStringVector getClassHierarchy() {
+        return getImplicitClass();
+    }
+
+    @Override
+    public RStringVector getImplicitClass() {
+        return RDoubleVector.implicitClassHeader;
+    }
+
+    @Override
+    public RVector materializeNonShared() {
+        RVector resultVector = materialize();
+        if (FastROptions.NewStateTransition.getBooleanValue()) {
+            resultVector.incRefCount();
+        } else {
+            resultVector.markNonTemporary();
+        }
+        return resultVector;
+    }
+
+    @Override
+    public RShareable materializeToShareable() {
+        return materialize();
+    }
+
+    @Override
+    public int getGPBits() {
+        return 0;
+    }
+
+    @Override
+    public void setGPBits(int value) {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "[slice " + offset + " by " + stride + ", length " + length + "]";
+    }
+}
@@ -57,7 +57,7 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
     }
 
     RIntSequence(int start, int stride, int length, int repetitions, TypeOfSequence type) {
-        super(length);
+        super(length, repetitions, length);
         // assert length > 0;
         this.start = start;
         this.stride = stride;
@@ -67,7 +67,7 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
     }
 
     RIntSequence(int start, int stride, int length, int repetitions, int max, TypeOfSequence type) {
-        super(length);
+        super(length, type == TypeOfSequence.Compass ? 1 : repetitions, type == TypeOfSequence.Flag ? length : max);
         // assert length > 0;
         this.start = start;
         this.stride = stride;
@@ -109,20 +109,11 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
 
     public int getDataAt(int index) {
         assert index >= 0 && index < getLength();
-
-        if (repetitions != 0) {
-            // repetitions is compilation final
-            if (this.typeOfSequence == TypeOfSequence.Flag) {
-                int m = index / repetitions;
-                return start + stride * m;
-            } else if (this.typeOfSequence == TypeOfSequence.Compass) {
-                int m = index % max;
-                return start + stride * m;
-            } else {
-                return -1;
-            }
-        } else {
+        // typeOfSequence is compilation final
+        if (this.typeOfSequence == TypeOfSequence.Basic) {
             return start + stride * index;
+        } else {
+            return start + stride * ((index / getEach()) % getPeriod());
         }
     }
 
@@ -132,7 +123,7 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
                 return this;
             case Double:
             case Numeric:
-                return RDataFactory.createDoubleSequence(getStart(), getStride(), getLength());
+                return RDataFactory.createDoubleSequence(getStart(), getStride(), getLength(), getEach(), getPeriod());
             case Complex:
                 return RClosures.createIntToComplexVector(this);
             case Character:
@@ -168,11 +159,12 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
     }
 
     private RIntVector populateVectorData(int[] result) {
-        int current = start;
         for (int i = 0; i < getLength(); i++) {
-            result[i] = current;
-            parray.put(i, current);
-            current += stride;
+            int value = getDataAt(i);
+            result[i] = value;
+            if (parray != null) {
+                parray.put(i, value);
+            }
         }
         return RDataFactory.createIntVector(result, RDataFactory.COMPLETE_VECTOR);
     }
@@ -189,7 +181,10 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
     }
 
     public int getEnd() {
-        return start + (getLength() - 1) * stride;
+        if (isAffine() || getLength() == 0) {
+            return start + (getLength() - 1) * stride;
+        }
+        return getDataAt(getLength() - 1);
     }
 
     public RIntVector materialize() {
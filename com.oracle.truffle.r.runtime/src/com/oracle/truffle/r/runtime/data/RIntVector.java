@@ -91,8 +91,12 @@ public class RIntVector extends RVector implements RAbstractIntVector {
         }
     }
 
+    /**
+     * The store may be written through, so the version of the vector changes.
+     */
     @Override
     public int[] getInternalStore() {
+        incVersion();
         return data;
     }
 
@@ -108,6 +112,7 @@ public class RIntVector extends RVector implements RAbstractIntVector {
     @Override
     public void setDataAt(Object store, int index, int value) {
         assert data == store;
+        incVersion();
         ((int[]) store)[index] = value;
     }
 
@@ -157,9 +162,19 @@ public class RIntVector extends RVector implements RAbstractIntVector {
 
     /**
      * Intended for external calls where a copy is not needed. WARNING: think carefully before using
-     * this method rather than {@link #getDataCopy()}.
+     * this method rather than {@link #getDataCopy()}. The data may be written through, so the version
+     * of the vector changes.
      */
     public int[] getDataWithoutCopying() {
+        incVersion();
+        return data;
+    }
+
+    /**
+     * Same as {@link #getDataWithoutCopying()} for callers that only read the data, the version of
+     * the vector does not change.
+     */
+    public int[] getReadonlyData() {
         return data;
     }
 
@@ -196,6 +211,7 @@ public class RIntVector extends RVector implements RAbstractIntVector {
     public RIntVector updateDataAt(int i, int right, NACheck valueNACheck) {
         assert !this.isShared();
         data[i] = right;
+        incVersion();
         if (valueNACheck.check(right)) {
             setComplete(false);
         }
@@ -247,6 +263,7 @@ public class RIntVector extends RVector implements RAbstractIntVector {
     public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
         RAbstractIntVector other = (RAbstractIntVector) fromVector;
         data[toIndex] = other.getDataAt(fromIndex);
+        incVersion();
     }
 
     @Override
@@ -262,5 +279,6 @@ public class RIntVector extends RVector implements RAbstractIntVector {
     @Override
     public void setElement(int i, Object value) {
         data[i] = (int) value;
+        incVersion();
     }
 }
@@ -30,15 +30,42 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 public abstract class RSequence implements RAbstractVector {
 
     private final int length;
+    private final int each;
+    private final int period;
 
+    /**
+     * Shape of a sequence. The element <code>i</code> of any of them is
+     * <code>start + stride * ((i / each) % period)</code>.
+     */
     public enum TypeOfSequence {
-        Basic,
-        Flag,
-        Compass
+        Basic,      // e.g.: 1 2 3 4 5 6 ...
+        Flag,       // e.g.: 1 1 1 2 2 2 ...
+        Compass,    // e.g.: 1 2 3 1 2 3 ...
+        Grid        // e.g.: 1 1 2 2 3 3 1 1 2 2 3 3 ...
     }
 
     protected RSequence(int length) {
+        this(length, 1, length);
+    }
+
+    protected RSequence(int length, int each, int period) {
         this.length = length;
+        this.each = each < 1 ? 1 : each;
+        int distinct = length / this.each + (length % this.each == 0 ? 0 : 1);
+        this.period = (period < 1 || period > distinct) ? distinct : period;
+    }
+
+    static TypeOfSequence typeOf(int length, int each, int period) {
+        boolean repeated = each > 1;
+        boolean tiled = period >= 1 && (long) period * Math.max(each, 1) < length;
+        if (repeated && tiled) {
+            return TypeOfSequence.Grid;
+        } else if (repeated) {
+            return TypeOfSequence.Flag;
+        } else if (tiled) {
+            return TypeOfSequence.Compass;
+        }
+        return TypeOfSequence.Basic;
     }
 
     @Override
@@ -46,6 +73,31 @@ public abstract class RSequence implements RAbstractVector {
         return length;
     }
 
+    /**
+     * Number of consecutive times each value is repeated.
+     */
+    public final int getEach() {
+        return each;
+    }
+
+    /**
+     * Number of distinct values before the sequence starts again.
+     */
+    public final int getPeriod() {
+        return period;
+    }
+
+    /**
+     * The element <code>i</code> is <code>start + stride * i</code>.
+     */
+    public final boolean isAffine() {
+        return each == 1 && period == length;
+    }
+
+    public final boolean hasSameShape(RSequence other) {
+        return length == other.length && each == other.each && period == other.period;
+    }
+
     @Override
     public RAbstractContainer resize(int size) {
         return materialize().resize(size);
@@ -72,6 +72,8 @@ public abstract class RVector extends RAttributeStorage implements RShareable, R
     // cache rownames for data frames as they are accessed at every data frame access
     private Object rowNames;
     private int refCount;
+    // number of in-place writes to the data
+    private int version;
 
     @CompilationFinal public static boolean WITH_PARRAYS = false;
 
@@ -436,6 +438,21 @@ public abstract class RVector extends RAttributeStorage implements RShareable, R
         return complete;
     }
 
+    /**
+     * Version of the data of this vector. It changes with every write that modifies the data in
+     * place, so two reads of the same vector with the same version see the same contents. Only
+     * {@link RIntVector} and {@link RDoubleVector} maintain it, in all their setters and whenever
+     * their data array is handed out for writing (<code>getInternalStore</code>,
+     * <code>getDataWithoutCopying</code>).
+     */
+    public final int getVersion() {
+        return version;
+    }
+
+    public final void incVersion() {
+        version++;
+    }
+
     @Override
     public final void markNonTemporary() {
         assert !FastROptions.NewStateTransition.getBooleanValue();
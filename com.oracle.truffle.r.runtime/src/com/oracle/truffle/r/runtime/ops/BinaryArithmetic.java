@@ -434,6 +434,10 @@ public abstract class BinaryArithmetic extends Operation {
 
         @Override
         public double op(double a, double b) {
+            return floorDiv(a, b);
+        }
+
+        public static double floorDiv(double a, double b) {
             double q = a / b;
             if (b != 0) {
                 double qfloor = Math.floor(q);
@@ -160,5 +160,11 @@ public class TestBuiltin_order extends TestBase {
         assertEval("{ order(c(-1480,  -974, -1576,  -970), c(\"a\", \"b\", \"c\", \"d\")) }");
 
         assertEval("{ order(c(0/0, -1/0, 2), na.last=NA) }");
+
+        assertEval("{ order(c(2,NA,1,2), c(1,1,1,NA), decreasing=TRUE) }");
+        assertEval("{ order(c(2,NA,1,2), c(1,1,1,NA), decreasing=TRUE, na.last=FALSE) }");
+        assertEval("{ order(c(2L,NA,1L,2L), c(\"b\",\"a\",\"a\",NA), decreasing=TRUE) }");
+        assertEval("{ order(c(1+1i,NA,2+0i,1+1i), c(1,1,1,NA), decreasing=TRUE) }");
+        assertEval("{ order(c(1+1i,NA,2+0i,1+1i), c(1,1,1,NA), decreasing=TRUE, na.last=FALSE) }");
     }
 }
@@ -177,4 +177,17 @@ public class TestBuiltin_sum extends TestBase {
         assertEval("{ sum(0, 1[3], na.rm=TRUE) }");
         assertEval("{ sum(1+1i,2,NA, na.rm=TRUE) }");
     }
+
+    @Test
+    public void testSumIntegerOverflow() {
+        // the warning does not depend on ParallelVectorThreshold (1048576 by default)
+        String warning = "\"NAs produced by integer overflow\"";
+        assertEvalFastR("{ tryCatch(sum(c(.Machine$integer.max, 1L)), warning=function(w) conditionMessage(w)) }", warning);
+        // only the total has to fit
+        assertEvalFastR("{ sum(c(.Machine$integer.max, 1L, -5L)) }", ".Machine$integer.max - 4L");
+        assertEvalFastR("{ x <- c(rep(.Machine$integer.max, 1048576L), 1L); tryCatch(sum(x), warning=function(w) conditionMessage(w)) }", warning);
+        assertEvalFastR("{ tryCatch(sum(1:2000000), warning=function(w) conditionMessage(w)) }", warning);
+        assertEvalFastR("{ tryCatch(sum(1:70000), warning=function(w) conditionMessage(w)) }", warning);
+        assertEvalFastR("{ x <- c(rep(1L, 1048576L), .Machine$integer.max); sum(x - 1L) }", ".Machine$integer.max - 1L");
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.async.AsyncStageExecutor;
+
+public class TestAsyncStageExecutor {
+
+    @Test(timeout = 10000)
+    public void testChain() {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-chain", 2, 1000);
+        CompletableFuture<Integer> stage = executor.submit(() -> 1);
+        for (int i = 0; i < 100; i++) {
+            stage = executor.then(stage, x -> x + 1);
+        }
+        assertEquals(101, (int) AsyncStageExecutor.join(stage));
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testDependentStagesDoNotHoldThreads() throws InterruptedException {
+        // With one thread, a stage that waited for its input inside the pool would never finish
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-single", 1, 1000);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return 10;
+        });
+        CompletableFuture<Integer> second = executor.then(first, x -> x * 2);
+        CompletableFuture<Integer> independent = executor.then(CompletableFuture.completedFuture(1), x -> x + 1);
+        release.countDown();
+        assertEquals(20, (int) AsyncStageExecutor.join(second));
+        assertEquals(2, (int) AsyncStageExecutor.join(independent));
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testBounded() throws InterruptedException {
+        final int nThreads = 3;
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-bounded", nThreads, 1000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        @SuppressWarnings("unchecked") CompletableFuture<Integer>[] futures = new CompletableFuture[20];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+                return now;
+            });
+        }
+        for (CompletableFuture<Integer> f : futures) {
+            AsyncStageExecutor.join(f);
+        }
+        assertTrue(maxRunning.get() <= nThreads);
+        assertEquals(nThreads, executor.getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorPropagation() {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-error", 2, 1000);
+        AtomicInteger executed = new AtomicInteger();
+        CompletableFuture<Integer> first = executor.submit(() -> {
+            throw new IllegalStateException("stage failed");
+        });
+        CompletableFuture<Integer> second = executor.then(first, x -> {
+            executed.incrementAndGet();
+            return x + 1;
+        });
+        try {
+            AsyncStageExecutor.join(second);
+            fail("the error of the first stage should be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("stage failed", e.getMessage());
+        }
+        assertEquals(0, executed.get());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testCancellation() {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-cancel", 1, 1000);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return 1;
+        });
+        CompletableFuture<Integer> second = executor.then(first, x -> x + 1);
+        first.cancel(false);
+        release.countDown();
+        try {
+            AsyncStageExecutor.join(second);
+            fail("the next stage should be cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleThreadsAreReclaimed() throws InterruptedException {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-reclaim", 4, 50);
+        for (int i = 0; i < 8; i++) {
+            AsyncStageExecutor.join(executor.submit(() -> 0));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, executor.getPoolSize());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testRunAll() {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-run-all", 2, 1000);
+        final int[] out = new int[16];
+        ArrayList<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < out.length; i++) {
+            final int idx = i;
+            tasks.add(() -> out[idx] = idx * idx);
+        }
+        executor.runAll(tasks);
+        for (int i = 0; i < out.length; i++) {
+            assertEquals(i * i, out[i]);
+        }
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testRunAllRethrowsTheCause() {
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-run-all-failure", 2, 1000);
+        ArrayList<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+        });
+        tasks.add(() -> {
+            throw new IllegalStateException("block failed");
+        });
+        try {
+            executor.runAll(tasks);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("block failed", e.getMessage());
+        }
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testNestedRunAllDoesNotWaitForItsOwnPool() {
+        // Every thread of the pool runs a task that starts parallel work in the same pool
+        AsyncStageExecutor executor = new AsyncStageExecutor("test-nested", 2, 1000);
+        final AtomicInteger count = new AtomicInteger();
+        ArrayList<Runnable> outer = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            outer.add(() -> {
+                ArrayList<Runnable> inner = new ArrayList<>();
+                for (int j = 0; j < 4; j++) {
+                    inner.add(count::incrementAndGet);
+                }
+                executor.runAll(inner);
+            });
+        }
+        executor.runAll(outer);
+        assertEquals(16, count.get());
+        assertTrue(!executor.isPoolThread());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.cache.BoundedCache;
+
+public class TestBoundedCache {
+
+    @Test(timeout = 10000)
+    public void testLRUEviction() {
+        ArrayList<String> evicted = new ArrayList<>();
+        BoundedCache<Object, String> cache = new BoundedCache<>("test", 2, 0, false, (k, v) -> evicted.add(v));
+        Object a = new Object();
+        Object b = new Object();
+        Object c = new Object();
+        cache.put(a, "a");
+        cache.put(b, "b");
+        // a is now the most recently used
+        assertEquals("a", cache.get(a));
+        cache.put(c, "c");
+        assertEquals(1, evicted.size());
+        assertEquals("b", evicted.get(0));
+        assertNull(cache.get(b));
+        assertEquals("a", cache.get(a));
+        assertEquals("c", cache.get(c));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test(timeout = 10000)
+    public void testByteBound() {
+        ArrayList<String> evicted = new ArrayList<>();
+        BoundedCache<Object, String> cache = new BoundedCache<>("test", 0, 100, false, (k, v) -> evicted.add(v));
+        Object a = new Object();
+        Object b = new Object();
+        cache.put(a, "a", 60);
+        cache.put(b, "b", 30);
+        assertEquals(90, cache.getBytes());
+        assertTrue(evicted.isEmpty());
+        // the buffers of b grow
+        cache.setBytes(b, 50);
+        assertEquals(1, evicted.size());
+        assertEquals("a", evicted.get(0));
+        assertEquals(50, cache.getBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void testLastEntryIsKept() {
+        BoundedCache<Object, String> cache = new BoundedCache<>("test", 1, 10, false, null);
+        Object a = new Object();
+        cache.put(a, "a", 1000);
+        assertEquals("a", cache.get(a));
+        assertEquals(1, cache.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testIdentityKeys() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 0, 0, false, null);
+        String key = new String("key");
+        cache.put(key, "value");
+        assertSame("value", cache.get(key));
+        assertNull(cache.get(new String("key")));
+    }
+
+    @Test(timeout = 10000)
+    public void testRemoveDoesNotNotify() {
+        ArrayList<String> evicted = new ArrayList<>();
+        BoundedCache<Object, String> cache = new BoundedCache<>("test", 0, 0, false, (k, v) -> evicted.add(v));
+        Object a = new Object();
+        cache.put(a, "a", 10);
+        assertEquals("a", cache.remove(a));
+        assertEquals(0, cache.getBytes());
+        assertTrue(evicted.isEmpty());
+        cache.put(a, "a");
+        cache.clear();
+        assertEquals(1, evicted.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testWeakKeysAreCollected() throws InterruptedException {
+        ArrayList<Object> evictedKeys = new ArrayList<>();
+        ArrayList<String> evicted = new ArrayList<>();
+        BoundedCache<Object, String> cache = new BoundedCache<>("test", 0, 0, true, (k, v) -> {
+            evictedKeys.add(k);
+            evicted.add(v);
+        });
+        Object alive = new Object();
+        cache.put(alive, "alive", 5);
+        cache.put(new Object(), "closure", 7);
+        for (int i = 0; i < 100 && evicted.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            cache.get(new Object());
+        }
+        assertEquals(1, evicted.size());
+        assertEquals("closure", evicted.get(0));
+        assertNull(evictedKeys.get(0));
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.getBytes());
+        assertEquals("alive", cache.get(alive));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.exceptions.AcceleratorExecutionException;
+import com.oracle.truffle.r.library.gpu.pipeline.Chunk;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkExecutor;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkPipeline;
+
+/**
+ * Tests for the batch pipeline with an executor that keeps the "device" buffers in host memory.
+ */
+public class TestChunkPipeline {
+
+    /**
+     * Copy-in slices the input, compute doubles it, copy-out returns the slice.
+     */
+    private static class HostExecutor implements ChunkExecutor<double[], double[]> {
+
+        final double[] input;
+        final int failAt;
+        final boolean[] busySlots;
+
+        HostExecutor(double[] input, int depth, int failAt) {
+            this.input = input;
+            this.failAt = failAt;
+            this.busySlots = new boolean[depth];
+        }
+
+        @Override
+        public double[] copyToDevice(Chunk chunk, int slot) throws AcceleratorExecutionException {
+            synchronized (busySlots) {
+                assertTrue("slot " + slot + " reused while in flight", !busySlots[slot]);
+                busySlots[slot] = true;
+            }
+            double[] buffer = new double[chunk.getSize()];
+            System.arraycopy(input, chunk.getOffset(), buffer, 0, chunk.getSize());
+            return buffer;
+        }
+
+        @Override
+        public double[] execute(Chunk chunk, int slot, double[] data) throws AcceleratorExecutionException {
+            if (chunk.getIndex() == failAt) {
+                throw new AcceleratorExecutionException("Deoptimization in thread: ", chunk.getOffset());
+            }
+            double[] out = new double[data.length];
+            for (int i = 0; i < data.length; i++) {
+                out[i] = data[i] * 2;
+            }
+            return out;
+        }
+
+        @Override
+        public double[] copyToHost(Chunk chunk, int slot, double[] data) throws AcceleratorExecutionException {
+            synchronized (busySlots) {
+                busySlots[slot] = false;
+            }
+            return data;
+        }
+    }
+
+    private static double[] input(int size) {
+        double[] input = new double[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = i;
+        }
+        return input;
+    }
+
+    private static double[] concat(ArrayList<double[]> results, int size) {
+        double[] out = new double[size];
+        int pos = 0;
+        for (double[] r : results) {
+            System.arraycopy(r, 0, out, pos, r.length);
+            pos += r.length;
+        }
+        return out;
+    }
+
+    private static void check(int size, int chunkSize, int depth) throws AcceleratorExecutionException {
+        double[] input = input(size);
+        ChunkPipeline<double[], double[]> pipeline = new ChunkPipeline<>(new HostExecutor(input, depth, -1), depth);
+        double[] result = concat(pipeline.run(Chunk.split(size, chunkSize)), size);
+        for (int i = 0; i < size; i++) {
+            assertEquals(input[i] * 2, result[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        ArrayList<Chunk> chunks = Chunk.split(10, 4);
+        assertEquals(3, chunks.size());
+        assertEquals(0, chunks.get(0).getOffset());
+        assertEquals(4, chunks.get(1).getOffset());
+        assertEquals(8, chunks.get(2).getOffset());
+        assertEquals(2, chunks.get(2).getSize());
+        assertEquals(1, Chunk.split(4, 4).size());
+    }
+
+    @Test
+    public void testSequentialAndPipelined() throws AcceleratorExecutionException {
+        check(1000, 1000, 1);
+        check(1000, 64, 1);
+        check(1000, 64, 2);
+        check(1000, 64, 3);
+        check(1001, 7, 4);
+        check(3, 1, 8);
+    }
+
+    @Test
+    public void testFailurePropagates() {
+        int depth = 3;
+        ChunkPipeline<double[], double[]> pipeline = new ChunkPipeline<>(new HostExecutor(input(100), depth, 4), depth);
+        try {
+            pipeline.run(Chunk.split(100, 10));
+            fail("expected AcceleratorExecutionException");
+        } catch (AcceleratorExecutionException e) {
+            assertEquals(40, e.getThreadID());
+        }
+        // chunks before the failing one are kept
+        assertEquals(4, pipeline.getCompletedResults().size());
+        assertEquals(60.0, pipeline.getCompletedResults().get(3)[0], 0.0);
+    }
+
+    @Test(timeout = 10000)
+    public void testStagesOverlap() throws AcceleratorExecutionException {
+        // The compute of chunk 0 only finishes once chunk 1 has been copied to the device
+        final CountDownLatch secondCopied = new CountDownLatch(1);
+        final double[] in = input(20);
+        ChunkExecutor<double[], double[]> executor = new HostExecutor(in, 2, -1) {
+            @Override
+            public double[] copyToDevice(Chunk chunk, int slot) throws AcceleratorExecutionException {
+                double[] buffer = super.copyToDevice(chunk, slot);
+                if (chunk.getIndex() == 1) {
+                    secondCopied.countDown();
+                }
+                return buffer;
+            }
+
+            @Override
+            public double[] execute(Chunk chunk, int slot, double[] data) throws AcceleratorExecutionException {
+                if (chunk.getIndex() == 0) {
+                    try {
+                        assertTrue(secondCopied.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return super.execute(chunk, slot, data);
+            }
+        };
+        ChunkPipeline<double[], double[]> pipeline = new ChunkPipeline<>(executor, 2);
+        double[] result = concat(pipeline.run(Chunk.split(20, 10)), 20);
+        double[] expected = new double[20];
+        for (int i = 0; i < 20; i++) {
+            expected[i] = i * 2;
+        }
+        assertArrayEquals(expected, result, 0.0);
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentPipelinesShareThePool() throws InterruptedException {
+        // More pipelines than threads in the shared pool; each one holds a single thread
+        int nPipelines = 4 * Runtime.getRuntime().availableProcessors();
+        Thread[] threads = new Thread[nPipelines];
+        final Throwable[] failures = new Throwable[nPipelines];
+        for (int t = 0; t < nPipelines; t++) {
+            final int idx = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    check(997, 13, 3);
+                } catch (Throwable e) {
+                    failures[idx] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Throwable failure : failures) {
+            assertEquals(null, failure);
+        }
+    }
+
+    @Test
+    public void testCopyInFailurePropagates() {
+        int depth = 2;
+        HostExecutor executor = new HostExecutor(input(50), depth, -1) {
+            @Override
+            public double[] copyToDevice(Chunk chunk, int slot) throws AcceleratorExecutionException {
+                if (chunk.getIndex() == 2) {
+                    throw new IllegalStateException("copy-in failed");
+                }
+                return super.copyToDevice(chunk, slot);
+            }
+        };
+        ChunkPipeline<double[], double[]> pipeline = new ChunkPipeline<>(executor, depth);
+        try {
+            pipeline.run(Chunk.split(50, 10));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException | AcceleratorExecutionException e) {
+            assertEquals("copy-in failed", e.getMessage());
+        }
+        assertEquals(2, pipeline.getCompletedResults().size());
+    }
+}
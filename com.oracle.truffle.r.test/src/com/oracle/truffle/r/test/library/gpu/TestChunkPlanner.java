@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.pipeline.Chunk;
+import com.oracle.truffle.r.library.gpu.pipeline.ChunkPlanner;
+import com.oracle.truffle.r.library.gpu.pipeline.DeviceLimits;
+
+public class TestChunkPlanner {
+
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    private static DeviceLimits limits(final long global, final long maxAllocation) {
+        return new DeviceLimits() {
+            @Override
+            public long getGlobalMemory() {
+                return global;
+            }
+
+            @Override
+            public long getMaxAllocation() {
+                return maxAllocation;
+            }
+        };
+    }
+
+    private static void checkCovers(ArrayList<Chunk> chunks, int total) {
+        int offset = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk c = chunks.get(i);
+            assertEquals(i, c.getIndex());
+            assertEquals(offset, c.getOffset());
+            offset += c.getSize();
+            min = Math.min(min, c.getSize());
+            max = Math.max(max, c.getSize());
+        }
+        assertEquals(total, offset);
+        assertTrue("unbalanced chunks", max - min <= 1);
+    }
+
+    @Test
+    public void testFitsInOneChunk() {
+        ChunkPlanner planner = new ChunkPlanner(limits(GB, GB / 4), 1);
+        ArrayList<Chunk> chunks = planner.plan(1000, new long[]{8, 8}, 4, 0);
+        assertEquals(1, chunks.size());
+        assertEquals(1000, chunks.get(0).getSize());
+    }
+
+    @Test
+    public void testNoIntOverflow() {
+        // 2 inputs + 1 output of doubles for 200M elements is 4.8GB
+        int elements = 200_000_000;
+        ChunkPlanner planner = new ChunkPlanner(limits(4 * GB, 4 * GB), 1);
+        ArrayList<Chunk> chunks = planner.plan(elements, new long[]{8, 8, 8}, 4, 0);
+        assertEquals(2, chunks.size());
+        checkCovers(chunks, elements);
+    }
+
+    @Test
+    public void testRemainderAndBalance() {
+        // 10 elements of 8 bytes each fit per chunk
+        ChunkPlanner planner = new ChunkPlanner(limits(80 + 4, 1000), 1);
+        ArrayList<Chunk> chunks = planner.plan(101, new long[]{8}, 4, 0);
+        assertEquals(11, chunks.size());
+        checkCovers(chunks, 101);
+        for (Chunk c : chunks) {
+            assertTrue(c.getSize() <= 10);
+        }
+    }
+
+    @Test
+    public void testScopeAndDepth() {
+        // 1000 bytes of scope data leave 800 bytes, 100 elements of 4 + 4 bytes
+        ChunkPlanner planner = new ChunkPlanner(limits(1800, GB), 1);
+        assertEquals(100, planner.maxChunkElements(new long[]{4, 4}, 1000, 1000));
+        // Two chunks in flight: each one gets 900 bytes, 400 after the scope data
+        planner = new ChunkPlanner(limits(1800, GB), 2);
+        assertEquals(50, planner.maxChunkElements(new long[]{4, 4}, 500, 500));
+    }
+
+    @Test
+    public void testMaxAllocation() {
+        // Plenty of global memory, but a single buffer is limited to 1MB
+        ChunkPlanner planner = new ChunkPlanner(limits(GB, 1024 * 1024), 1);
+        assertEquals(1024 * 1024 / 8, planner.maxChunkElements(new long[]{4, 8}, 0, 0));
+        ArrayList<Chunk> chunks = planner.plan(1_000_000, new long[]{4, 8}, 0, 0);
+        assertEquals(8, chunks.size());
+        checkCovers(chunks, 1_000_000);
+    }
+
+    @Test
+    public void testScopeDoesNotFit() {
+        ChunkPlanner planner = new ChunkPlanner(limits(GB, 1024), 1);
+        try {
+            planner.plan(10, new long[]{8}, 2048, 2048);
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+}
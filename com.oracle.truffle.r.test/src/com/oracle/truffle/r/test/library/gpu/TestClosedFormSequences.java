@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.sequences.ClosedFormSequences;
+import com.oracle.truffle.r.library.gpu.sequences.ClosedFormSequences.Encoding;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleSequence;
+import com.oracle.truffle.r.runtime.data.RIntSequence;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestClosedFormSequences extends TestBase {
+
+    private static int element(int start, int stride, int each, int period, int i) {
+        return start + stride * ((i / each) % period);
+    }
+
+    private static void checkEncoded(int start, int stride, int length, int each, int period) {
+        Encoding encoding = ClosedFormSequences.encoding(length, each, period, true);
+        int value = ClosedFormSequences.encodedValue(encoding, each, period);
+        for (int i = 0; i < length; i++) {
+            assertEquals(element(start, stride, each, period, i), ClosedFormSequences.intAt(start, stride, i, encoding, value));
+            assertEquals(element(start, stride, each, period, i), ClosedFormSequences.doubleAt(start, stride, i, encoding, value), 0.0);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEncoding() {
+        assertEquals(Encoding.AFFINE, ClosedFormSequences.encoding(10, 1, 10, true));
+        assertEquals(Encoding.FLAG, ClosedFormSequences.encoding(12, 3, 4, true));
+        assertEquals(Encoding.FLAG, ClosedFormSequences.encoding(11, 3, 4, true));
+        assertEquals(Encoding.COMPASS, ClosedFormSequences.encoding(12, 1, 4, true));
+        assertEquals(Encoding.NONE, ClosedFormSequences.encoding(24, 3, 4, true));
+        assertEquals(Encoding.AFFINE, ClosedFormSequences.encoding(0, 1, 0, true));
+    }
+
+    @Test(timeout = 10000)
+    public void testWithoutTypesOfSequences() {
+        assertEquals(Encoding.AFFINE, ClosedFormSequences.encoding(10, 1, 10, false));
+        assertEquals(Encoding.NONE, ClosedFormSequences.encoding(12, 3, 4, false));
+        assertEquals(Encoding.NONE, ClosedFormSequences.encoding(12, 1, 4, false));
+    }
+
+    @Test(timeout = 10000)
+    public void testElements() {
+        checkEncoded(1, 1, 10, 1, 10);
+        checkEncoded(5, -2, 10, 1, 10);
+        checkEncoded(1, 1, 12, 3, 4);
+        checkEncoded(1, 1, 12, 1, 4);
+        checkEncoded(0, 3, 13, 1, 5);
+    }
+
+    @Test(timeout = 10000)
+    public void testGrid() {
+        int rows = 3;
+        int cols = 4;
+        Encoding row = ClosedFormSequences.encoding(rows * cols, 1, rows, true);
+        Encoding col = ClosedFormSequences.encoding(rows * cols, rows, cols, true);
+        int idx = 0;
+        for (int j = 1; j <= cols; j++) {
+            for (int i = 1; i <= rows; i++) {
+                assertEquals(i, ClosedFormSequences.intAt(1, 1, idx, row, ClosedFormSequences.encodedValue(row, 1, rows)));
+                assertEquals(j, ClosedFormSequences.intAt(1, 1, idx, col, ClosedFormSequences.encodedValue(col, rows, cols)));
+                idx++;
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testGridSequenceElements() {
+        // 2 2 5 5 8 8 2 2 5 5 8 8 2 2
+        RIntSequence ints = RDataFactory.createIntSequence(2, 3, 14, 2, 3);
+        RDoubleSequence doubles = RDataFactory.createDoubleSequence(0.5, -1.5, 14, 2, 3);
+        RIntVector materialized = ints.materialize();
+        for (int i = 0; i < 14; i++) {
+            assertEquals(element(2, 3, 2, 3, i), ints.getDataAt(i));
+            assertEquals(element(2, 3, 2, 3, i), materialized.getDataAt(i));
+            assertEquals(0.5 - 1.5 * ((i / 2) % 3), doubles.getDataAt(i), 0.0);
+        }
+        assertEquals(2, ints.getEach());
+        assertEquals(3, ints.getPeriod());
+    }
+
+    @Test
+    public void testRepReturnsSequence() {
+        assertEvalFastR("{ x <- rep(1:4, each=2); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 1L, 2L, 2L, 3L, 3L, 4L, 4L))");
+        assertEvalFastR("{ x <- rep(1:3, times=3); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 2L, 3L, 1L, 2L, 3L, 1L, 2L, 3L))");
+        assertEvalFastR("{ x <- rep(1:3, each=2, times=2); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 1L, 2L, 2L, 3L, 3L, 1L, 1L, 2L, 2L, 3L, 3L))");
+        assertEvalFastR("{ x <- rep(1:3, each=2, length.out=7); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 1L, 2L, 2L, 3L, 3L, 1L))");
+        assertEvalFastR("{ x <- rep(as.double(1:3), times=2); list(fastr.typeof(x), x) }", "list(\"RDoubleSequence\", c(1, 2, 3, 1, 2, 3))");
+        // arithmetic by a scalar keeps the shape
+        assertEvalFastR("{ x <- rep(1:3, each=2) * 2L + 1L; list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(3L, 3L, 5L, 5L, 7L, 7L))");
+    }
+
+    @Test
+    public void testRepLenReturnsSequence() {
+        assertEvalFastR("{ x <- rep_len(1:4, 10); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 2L, 3L, 4L, 1L, 2L, 3L, 4L, 1L, 2L))");
+        assertEvalFastR("{ x <- rep_len(1:4, 3); list(fastr.typeof(x), x) }", "list(\"RIntSequence\", c(1L, 2L, 3L))");
+        assertEvalFastR("{ x <- rep_len(as.double(3:1), 5); list(fastr.typeof(x), x) }", "list(\"RDoubleSequence\", c(3, 2, 1, 3, 2))");
+        assertEvalFastR("{ rep_len(1:4, 0) }", "integer(0)");
+    }
+
+    @Test
+    public void testShortDoubleSequenceSum() {
+        // below the parallel threshold the reduction loops over the elements
+        assertEvalFastR("{ x <- seq(0.1, 1, by=0.1); s <- 0; for (i in seq_along(x)) s <- s + x[i]; c(identical(sum(x), s), identical(mean(x), s / 10)) }", "c(TRUE, TRUE)");
+        assertEvalFastR("{ x <- rep(seq(0.1, 0.5, by=0.1), times=3); s <- 0; for (i in seq_along(x)) s <- s + x[i]; identical(sum(x), s) }", "TRUE");
+    }
+
+    @Test
+    public void testCumulativeOfTiledSequences() {
+        assertEvalFastR("{ cumsum(rep(1:3, times=3)) }", "cumsum(c(1L, 2L, 3L, 1L, 2L, 3L, 1L, 2L, 3L))");
+        assertEvalFastR("{ cumsum(rep(as.double(1:3), each=2, times=2)) }", "cumsum(c(1, 1, 2, 2, 3, 3, 1, 1, 2, 2, 3, 3))");
+        assertEvalFastR("{ cummax(rep(1:3, times=2)) }", "c(1L, 2L, 3L, 3L, 3L, 3L)");
+        assertEvalFastR("{ cummax(rep(4:1, each=2)) }", "c(4L, 4L, 4L, 4L, 4L, 4L, 4L, 4L)");
+        assertEvalFastR("{ cummin(rep(3:1, times=2)) }", "c(3L, 2L, 1L, 1L, 1L, 1L)");
+        assertEvalFastR("{ cummin(rep(as.double(1:3), times=2)) }", "c(1, 1, 1, 1, 1, 1)");
+    }
+
+    @Test
+    public void testGridSequence() {
+        assertEvalFastR("{ g <- gridSequence(3L, 4L); list(names(g), fastr.typeof(g$row), fastr.typeof(g$col), g$row, g$col) }",
+                        "list(c(\"row\", \"col\"), \"RIntSequence\", \"RIntSequence\", rep(c(1L, 2L, 3L), 4), rep(c(1L, 2L, 3L, 4L), each=3))");
+        assertEvalFastR("{ g <- gridSequence(2, 3); g$row * 10L + g$col }", "c(11L, 21L, 12L, 22L, 13L, 23L)");
+        assertEvalFastR("{ g <- gridSequence(1L, 3L); list(g$row, g$col) }", "list(c(1L, 1L, 1L), c(1L, 2L, 3L))");
+    }
+}
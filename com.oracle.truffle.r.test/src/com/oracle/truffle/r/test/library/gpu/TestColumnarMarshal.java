@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import uk.ac.ed.datastructures.common.PArray;
+
+import com.oracle.truffle.r.library.gpu.exceptions.MarawaccTypeException;
+import com.oracle.truffle.r.library.gpu.types.TypeInfo;
+import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.library.gpu.utils.ColumnarMarshal;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+public class TestColumnarMarshal {
+
+    private static final int LARGE = ColumnarMarshal.PARALLEL_THRESHOLD * 4 + 3;
+
+    @Test
+    public void testColumns() {
+        int[] ints = ColumnarMarshal.intColumn(LARGE, i -> 2 * i + 1);
+        double[] doubles = ColumnarMarshal.doubleColumn(LARGE, i -> i * 0.5);
+        for (int i = 0; i < LARGE; i++) {
+            assertEquals(2 * i + 1, ints[i]);
+            assertEquals(i * 0.5, doubles[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testRows() {
+        Object[] columns = new Object[]{new int[]{1, 2, 3}, new double[]{1.5, 2.5, 3.5}, new int[]{7, 8, 9}};
+        Object[][] rows = ColumnarMarshal.rows(columns, 3);
+        assertEquals(3, rows.length);
+        assertArrayEquals(new Object[]{2, 2.5, 8}, rows[1]);
+        assertArrayEquals(new Object[]{3, 3.5, 9}, ColumnarMarshal.row(columns, 2));
+    }
+
+    @Test
+    public void testInterleave() {
+        Object[] columns = new Object[]{new int[]{1, 2, 3}, new double[]{1.5, 2.5, 3.5}};
+        Object[] data = ColumnarMarshal.interleave(columns, 3);
+        assertArrayEquals(new Object[]{1, 1.5, 2, 2.5, 3, 3.5}, data);
+    }
+
+    @Test
+    public void testInterleaveLarge() {
+        int[] first = ColumnarMarshal.intColumn(LARGE, i -> i);
+        double[] second = ColumnarMarshal.doubleColumn(LARGE, i -> -i);
+        Object[] data = ColumnarMarshal.interleave(new Object[]{first, second}, LARGE);
+        for (int i = 0; i < LARGE; i++) {
+            assertEquals(i, data[2 * i]);
+            assertEquals((double) -i, data[2 * i + 1]);
+        }
+    }
+
+    private static int[] ints(int size) {
+        int[] data = ColumnarMarshal.intColumn(size, i -> 3 * i - 7);
+        for (int i = 0; i < size; i += 5) {
+            data[i] = RRuntime.INT_NA;
+        }
+        return data;
+    }
+
+    private static double[] doubles(int size) {
+        double[] data = ColumnarMarshal.doubleColumn(size, i -> i * 0.25);
+        for (int i = 1; i < size; i += 7) {
+            data[i] = RRuntime.DOUBLE_NA;
+        }
+        return data;
+    }
+
+    private static PArray<?> marshal(RAbstractVector input, RAbstractVector... additionalArgs) throws MarawaccTypeException {
+        RAbstractVector[] args = (additionalArgs.length == 0) ? null : additionalArgs;
+        return ASTxUtils.marshalColumnar(input, args, ASTxUtils.typeInference(input, args));
+    }
+
+    private static void assertSameDouble(double expected, Object actual) {
+        // NA is a NaN with a payload, it must survive the round trip bit for bit
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits((Double) actual));
+    }
+
+    private static void roundTripInt(int size) throws MarawaccTypeException {
+        int[] data = ints(size);
+        PArray<?> parray = marshal(RDataFactory.createIntVector(data, RDataFactory.INCOMPLETE_VECTOR));
+        RAbstractIntVector result = (RAbstractIntVector) ASTxUtils.unmarshalFromPrimitivePArrays(TypeInfo.INT, parray);
+        assertEquals(size, result.getLength());
+        for (int i = 0; i < size; i++) {
+            assertEquals(data[i], result.getDataAt(i));
+        }
+        assertTrue(RRuntime.isNA(result.getDataAt(0)));
+    }
+
+    private static void roundTripDouble(int size) throws MarawaccTypeException {
+        double[] data = doubles(size);
+        PArray<?> parray = marshal(RDataFactory.createDoubleVector(data, RDataFactory.INCOMPLETE_VECTOR));
+        RAbstractDoubleVector result = (RAbstractDoubleVector) ASTxUtils.unmarshalFromPrimitivePArrays(TypeInfo.DOUBLE, parray);
+        assertEquals(size, result.getLength());
+        for (int i = 0; i < size; i++) {
+            assertSameDouble(data[i], result.getDataAt(i));
+        }
+        assertTrue(RRuntime.isNA(result.getDataAt(1)));
+    }
+
+    /**
+     * int vector, double vector and int sequence as three columns, back as a list-matrix with one
+     * column per element.
+     */
+    private static void roundTripMixed(int size) throws MarawaccTypeException {
+        int[] first = ints(size);
+        double[] second = doubles(size);
+        PArray<?> parray = marshal(RDataFactory.createIntVector(first, RDataFactory.INCOMPLETE_VECTOR), RDataFactory.createDoubleVector(second, RDataFactory.INCOMPLETE_VECTOR),
+                        RDataFactory.createIntSequence(1, 2, size));
+        RList result = (RList) ASTxUtils.unmarshalFromPrimitivePArrays(TypeInfo.TUPLE3, parray);
+        assertArrayEquals(new int[]{3, size}, result.getDimensions());
+        for (int i = 0; i < size; i++) {
+            assertEquals(first[i], result.getDataAt(3 * i));
+            assertSameDouble(second[i], result.getDataAt(3 * i + 1));
+            assertEquals(1 + 2 * i, result.getDataAt(3 * i + 2));
+        }
+    }
+
+    @Test
+    public void testRoundTripInt() throws MarawaccTypeException {
+        roundTripInt(11);
+        roundTripInt(LARGE);
+    }
+
+    @Test
+    public void testRoundTripDouble() throws MarawaccTypeException {
+        roundTripDouble(11);
+        roundTripDouble(LARGE);
+    }
+
+    @Test
+    public void testRoundTripMixedColumns() throws MarawaccTypeException {
+        roundTripMixed(11);
+        roundTripMixed(LARGE);
+    }
+
+    @Test
+    public void testRoundTripMixedVectorsOnly() throws MarawaccTypeException {
+        int size = LARGE;
+        double[] first = doubles(size);
+        int[] second = ints(size);
+        PArray<?> parray = marshal(RDataFactory.createDoubleVector(first, RDataFactory.INCOMPLETE_VECTOR), RDataFactory.createIntVector(second, RDataFactory.INCOMPLETE_VECTOR));
+        RList result = (RList) ASTxUtils.unmarshalFromPrimitivePArrays(TypeInfo.TUPLE2, parray);
+        assertArrayEquals(new int[]{2, size}, result.getDimensions());
+        for (int i = 0; i < size; i++) {
+            assertSameDouble(first[i], result.getDataAt(2 * i));
+            assertEquals(second[i], result.getDataAt(2 * i + 1));
+        }
+    }
+}
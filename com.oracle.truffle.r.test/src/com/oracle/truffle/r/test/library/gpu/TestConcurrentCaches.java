@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.cache.BoundedCache;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidency;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidentArray;
+import com.oracle.truffle.r.library.gpu.device.ResidencyTracker;
+
+/**
+ * Overlapping calls on the caches shared by the ASTx runtime. All the threads start at the same
+ * time and work on the same keys.
+ */
+public class TestConcurrentCaches {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 2000;
+
+    private static void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            // Rethrows the assertion errors of the threads
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 60000)
+    public void testBoundedCache() throws Exception {
+        AtomicInteger evicted = new AtomicInteger();
+        BoundedCache<Object, Integer> cache = new BoundedCache<>("test", 8, 1000, false, (k, v) -> evicted.incrementAndGet());
+        Object[] keys = new Object[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+        }
+        AtomicInteger inserted = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                int k = (i * 7 + (int) Thread.currentThread().getId()) % keys.length;
+                Integer value = cache.get(keys[k]);
+                if (value == null) {
+                    cache.put(keys[k], k, 100);
+                    inserted.incrementAndGet();
+                } else {
+                    assertEquals(k, value.intValue());
+                    cache.setBytes(keys[k], 10 * (i % 20));
+                }
+                if (i % 100 == 0) {
+                    cache.remove(keys[k]);
+                }
+            }
+            return null;
+        });
+        assertTrue(cache.size() <= 8);
+        assertTrue(cache.getBytes() <= 1000);
+        // Every insertion is either still in the cache, evicted or removed
+        assertTrue(inserted.get() >= cache.size() + evicted.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testResidencyTracker() throws Exception {
+        Object owner = new Object();
+        Object[] sources = new Object[4];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = new Object();
+        }
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                int slot = i % sources.length;
+                int version = i / sources.length;
+                ResidencyTracker.INSTANCE.record(owner, slot, sources[slot], version);
+                // Another thread may record a different version, never a different source
+                ResidencyTracker.INSTANCE.isCurrent(owner, slot, sources[slot], version);
+                Object[] in = new Object[]{sources[slot]};
+                int[] versions = new int[]{version};
+                ResidencyTracker.INSTANCE.setResident(owner, in, versions, in);
+                Object resident = ResidencyTracker.INSTANCE.getResident(owner, in, versions);
+                assertTrue(resident == null || resident instanceof Object[]);
+                if (i % 50 == 0) {
+                    ResidencyTracker.INSTANCE.invalidate(owner);
+                }
+            }
+            return null;
+        });
+        ResidencyTracker.INSTANCE.invalidate(owner);
+        assertTrue(!ResidencyTracker.INSTANCE.isCurrent(owner, 0, sources[0], 0));
+    }
+
+    @Test(timeout = 60000)
+    public void testDeviceResidency() throws Exception {
+        Object owner = new Object();
+        AtomicInteger copies = new AtomicInteger();
+        ArrayList<DeviceResidentArray<int[], int[]>> all = new ArrayList<>();
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                DeviceResidentArray<int[], int[]> array = new DeviceResidentArray<>(owner, new int[]{i}, 1, Integer.class, device -> {
+                    copies.incrementAndGet();
+                    return device.clone();
+                });
+                DeviceResidency.INSTANCE.register(array);
+                synchronized (all) {
+                    all.add(array);
+                }
+                if (i % 2 == 0) {
+                    DeviceResidency.INSTANCE.evict(owner, array);
+                } else {
+                    assertEquals(i, array.getHost()[0]);
+                }
+            }
+            return null;
+        });
+        DeviceResidency.INSTANCE.evict(owner, null);
+        assertEquals(0, DeviceResidency.INSTANCE.getNumberOfLiveArrays(owner));
+        // Each result is copied to the host exactly once
+        assertEquals(all.size(), copies.get());
+        for (DeviceResidentArray<int[], int[]> array : all) {
+            assertTrue(!array.isOnDevice());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.deoptimization.DeoptRecovery;
+
+public class TestDeoptRecovery {
+
+    private static final int SIZE = 10000;
+
+    private static Object expected(int i) {
+        return i * 2.0;
+    }
+
+    /**
+     * The "device" computed everything, but the values at and after the deopt index are garbage.
+     */
+    private static Object device(int i, int deoptIndex) {
+        return i < deoptIndex ? expected(i) : Double.NaN;
+    }
+
+    private static void check(int deoptIndex, int nThreads) {
+        Set<Integer> interpreted = Collections.synchronizedSet(new HashSet<>());
+        ArrayList<Object> result = DeoptRecovery.recover(i -> device(i, deoptIndex), deoptIndex, SIZE, i -> {
+            interpreted.add(i);
+            return expected(i);
+        }, nThreads);
+        assertEquals(SIZE, result.size());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected(i), result.get(i));
+        }
+        // only the iterations from the deopt index are executed again
+        assertEquals(SIZE - deoptIndex, interpreted.size());
+        for (int i : interpreted) {
+            assertTrue(i >= deoptIndex);
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        check(0, 4);
+        check(1, 4);
+        check(5000, 4);
+        check(9999, 4);
+        check(SIZE, 4);
+        check(3, 1);
+        check(7777, 16);
+    }
+
+    @Test
+    public void testUsesThreads() {
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        DeoptRecovery.recover(i -> expected(i), 100, SIZE, i -> {
+            threads.add(Thread.currentThread().getName());
+            return expected(i);
+        }, 4);
+        // the caller runs one block and the shared pool the rest
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    public void testRerunIgnoresTheDevice() {
+        Set<Integer> interpreted = Collections.synchronizedSet(new HashSet<>());
+        ArrayList<Object> result = DeoptRecovery.rerun(SIZE, i -> {
+            interpreted.add(i);
+            return expected(i);
+        }, 4);
+        assertEquals(SIZE, result.size());
+        assertEquals(SIZE, interpreted.size());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected(i), result.get(i));
+        }
+    }
+
+    @Test
+    public void testErrorPropagates() {
+        try {
+            DeoptRecovery.recover(i -> expected(i), 10, SIZE, i -> {
+                if (i == 5000) {
+                    throw new IllegalStateException("error in iteration " + i);
+                }
+                return expected(i);
+            }, 4);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("error in iteration 5000", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.device.DeviceResidency;
+import com.oracle.truffle.r.library.gpu.device.DeviceResidentArray;
+
+public class TestDeviceResidentArray {
+
+    /**
+     * Accelerator array backed by host memory.
+     */
+    private static final class HostBackedArray {
+        private final double[] data;
+
+        HostBackedArray(int size) {
+            this.data = new double[size];
+        }
+    }
+
+    /**
+     * Executor that reuses its output buffer unless a new allocation is requested, as the OpenCL
+     * executor does.
+     */
+    private static final class StubExecutor {
+        private HostBackedArray output;
+        private int copiesToDevice;
+        private int copiesToHost;
+
+        HostBackedArray copyToDevice(double[] input) {
+            copiesToDevice++;
+            HostBackedArray array = new HostBackedArray(input.length);
+            System.arraycopy(input, 0, array.data, 0, input.length);
+            return array;
+        }
+
+        HostBackedArray execute(HostBackedArray input, DoubleUnaryOperator kernel, boolean newAllocation) {
+            if (newAllocation || output == null || output.data.length != input.data.length) {
+                output = new HostBackedArray(input.data.length);
+            }
+            double[] in = input.data.clone();
+            for (int i = 0; i < in.length; i++) {
+                output.data[i] = kernel.applyAsDouble(in[i]);
+            }
+            return output;
+        }
+
+        double[] copyToHost(HostBackedArray array) {
+            copiesToHost++;
+            return array.data.clone();
+        }
+
+        DeviceResidentArray<HostBackedArray, double[]> map(Object input, DoubleUnaryOperator kernel) {
+            return map(input, kernel, false);
+        }
+
+        DeviceResidentArray<HostBackedArray, double[]> map(Object input, DoubleUnaryOperator kernel, boolean newAllocation) {
+            @SuppressWarnings("unchecked")
+            DeviceResidentArray<HostBackedArray, double[]> deviceInput = (input instanceof DeviceResidentArray) ? (DeviceResidentArray<HostBackedArray, double[]>) input : null;
+            boolean allocate = DeviceResidency.INSTANCE.prepareBuffers(this, deviceInput, newAllocation);
+            HostBackedArray in = (deviceInput != null) ? deviceInput.getDevice() : copyToDevice((double[]) input);
+            HostBackedArray out = execute(in, kernel, allocate);
+            DeviceResidentArray<HostBackedArray, double[]> result = new DeviceResidentArray<>(this, out, out.data.length, "double", this::copyToHost);
+            DeviceResidency.INSTANCE.register(result);
+            return result;
+        }
+    }
+
+    @Test
+    public void testCopyOnFirstRead() {
+        StubExecutor executor = new StubExecutor();
+        DeviceResidentArray<HostBackedArray, double[]> result = executor.map(new double[]{1, 2, 3}, x -> x * 2);
+        assertTrue(result.isOnDevice());
+        assertEquals(0, executor.copiesToHost);
+        assertArrayEquals(new double[]{2, 4, 6}, result.getHost(), 0.0);
+        assertArrayEquals(new double[]{2, 4, 6}, result.getHost(), 0.0);
+        assertEquals(1, executor.copiesToHost);
+        assertFalse(result.isOnDevice());
+        assertNull(result.getDevice());
+    }
+
+    @Test
+    public void testChainStaysOnDevice() {
+        StubExecutor executor = new StubExecutor();
+        Object state = new double[]{1, 2, 3, 4};
+        Object second = null;
+        for (int i = 0; i < 10; i++) {
+            state = executor.map(state, x -> x + 1);
+            if (i == 1) {
+                second = state;
+            }
+        }
+        assertEquals(1, executor.copiesToDevice);
+        assertEquals(0, executor.copiesToHost);
+        // The intermediate results were not overwritten
+        assertArrayEquals(new double[]{3, 4, 5, 6}, (double[]) ((DeviceResidentArray<?, ?>) second).getHost(), 0.0);
+        @SuppressWarnings("unchecked")
+        DeviceResidentArray<HostBackedArray, double[]> last = (DeviceResidentArray<HostBackedArray, double[]>) state;
+        assertArrayEquals(new double[]{11, 12, 13, 14}, last.getHost(), 0.0);
+        assertEquals(2, executor.copiesToHost);
+    }
+
+    @Test
+    public void testEvictBeforeBuffersAreReused() {
+        StubExecutor executor = new StubExecutor();
+        DeviceResidentArray<HostBackedArray, double[]> first = executor.map(new double[]{1, 2}, x -> x * 10);
+        // Same executor with an input from the host: the output buffer of the first result is reused
+        DeviceResidentArray<HostBackedArray, double[]> second = executor.map(new double[]{5, 6}, x -> -x);
+        assertFalse(first.isOnDevice());
+        assertTrue(second.isOnDevice());
+        assertArrayEquals(new double[]{10, 20}, first.getHost(), 0.0);
+        assertArrayEquals(new double[]{-5, -6}, second.getHost(), 0.0);
+    }
+
+    @Test
+    public void testInputIsNotEvicted() {
+        StubExecutor executor = new StubExecutor();
+        DeviceResidentArray<HostBackedArray, double[]> first = executor.map(new double[]{1, 2}, x -> x + 1);
+        HostBackedArray firstBuffer = first.getDevice();
+        DeviceResidentArray<HostBackedArray, double[]> second = executor.map(first, x -> x * 3);
+        assertTrue(first.isOnDevice());
+        assertSame(firstBuffer, first.getDevice());
+        assertEquals(2, DeviceResidency.INSTANCE.getNumberOfLiveArrays(executor));
+        assertArrayEquals(new double[]{6, 9}, second.getHost(), 0.0);
+        assertArrayEquals(new double[]{2, 3}, first.getHost(), 0.0);
+        assertEquals(0, DeviceResidency.INSTANCE.getNumberOfLiveArrays(executor));
+    }
+
+    @Test
+    public void testNewAllocationDoesNotEvict() {
+        StubExecutor executor = new StubExecutor();
+        DeviceResidentArray<HostBackedArray, double[]> first = executor.map(new double[]{1, 2}, x -> x * 10);
+        DeviceResidentArray<HostBackedArray, double[]> second = executor.map(new double[]{5, 6}, x -> -x, true);
+        assertTrue(first.isOnDevice());
+        assertTrue(second.isOnDevice());
+        assertEquals(0, executor.copiesToHost);
+        assertArrayEquals(new double[]{10, 20}, first.getHost(), 0.0);
+        assertArrayEquals(new double[]{-5, -6}, second.getHost(), 0.0);
+    }
+
+    @Test
+    public void testPrepareBuffers() {
+        Object owner = new Object();
+        Object other = new Object();
+        DeviceResidentArray<double[], double[]> mine = new DeviceResidentArray<>(owner, new double[]{1}, 1, "double", d -> d.clone());
+        DeviceResidentArray<double[], double[]> foreign = new DeviceResidentArray<>(other, new double[]{2}, 1, "double", d -> d.clone());
+        DeviceResidency.INSTANCE.register(mine);
+        // Input of the same owner: new buffers and nothing is evicted
+        assertTrue(DeviceResidency.INSTANCE.prepareBuffers(owner, mine, false));
+        assertTrue(mine.isOnDevice());
+        // Input of another owner: the buffers are reused, the results of the owner are evicted
+        assertFalse(DeviceResidency.INSTANCE.prepareBuffers(owner, foreign, false));
+        assertFalse(mine.isOnDevice());
+        assertTrue(foreign.isOnDevice());
+        assertTrue(DeviceResidency.INSTANCE.prepareBuffers(owner, null, true));
+    }
+
+    @Test
+    public void testOwnersAreIndependent() {
+        StubExecutor a = new StubExecutor();
+        StubExecutor b = new StubExecutor();
+        DeviceResidentArray<HostBackedArray, double[]> resultA = a.map(new double[]{1}, x -> x);
+        DeviceResidentArray<HostBackedArray, double[]> resultB = b.map(new double[]{2}, x -> x);
+        assertEquals(1, DeviceResidency.INSTANCE.evict(a, null));
+        assertFalse(resultA.isOnDevice());
+        assertTrue(resultB.isOnDevice());
+        assertEquals(0, b.copiesToHost);
+    }
+}
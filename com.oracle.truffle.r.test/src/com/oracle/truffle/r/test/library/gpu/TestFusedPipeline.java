@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.fusion.FusedPipeline;
+import com.oracle.truffle.r.library.gpu.fusion.PipelineStage;
+
+public class TestFusedPipeline {
+
+    private static PipelineStage plusOne(int nThreads) {
+        return PipelineStage.map(x -> (Integer) x + 1, nThreads);
+    }
+
+    private static PipelineStage twice(int nThreads) {
+        return PipelineStage.map(x -> (Integer) x * 2, nThreads);
+    }
+
+    @Test
+    public void testIsFusible() {
+        PipelineStage sum = PipelineStage.reduce((x, y) -> (Integer) x + (Integer) y, 0, false, 1);
+        assertTrue(FusedPipeline.isFusible(Arrays.asList(plusOne(1))));
+        assertTrue(FusedPipeline.isFusible(Arrays.asList(plusOne(1), twice(1), sum)));
+        assertTrue(FusedPipeline.isFusible(Arrays.asList(sum)));
+        assertFalse(FusedPipeline.isFusible(Arrays.asList(sum, plusOne(1))));
+        assertFalse(FusedPipeline.isFusible(Arrays.asList(plusOne(1), null)));
+        assertFalse(FusedPipeline.isFusible(new ArrayList<>()));
+    }
+
+    @Test(timeout = 20000)
+    public void testMapMap() {
+        final int size = 100003;
+        ArrayList<Object> result = FusedPipeline.run(size, i -> i, Arrays.asList(plusOne(4), twice(4)));
+        assertEquals(size, result.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals((i + 1) * 2, result.get(i));
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testMapMapReduce() {
+        final int size = 3 * FusedPipeline.BLOCK_SIZE + 17;
+        PipelineStage sum = PipelineStage.reduce((x, y) -> (Long) x + (Integer) y, 0L, false, 1);
+        ArrayList<Object> result = FusedPipeline.run(size, i -> i, Arrays.asList(plusOne(4), twice(4), sum));
+        assertEquals(1, result.size());
+        long expected = 0;
+        for (int i = 0; i < size; i++) {
+            expected += (i + 1) * 2;
+        }
+        assertEquals(expected, result.get(0));
+    }
+
+    @Test(timeout = 20000)
+    public void testMapAssociativeReduce() {
+        final int size = 5 * FusedPipeline.BLOCK_SIZE + 3;
+        PipelineStage sum = PipelineStage.reduce((x, y) -> ((Number) x).longValue() + ((Number) y).longValue(), 10L, true, 4);
+        ArrayList<Object> result = FusedPipeline.run(size, i -> i, Arrays.asList(twice(4), sum));
+        long expected = 10;
+        for (int i = 0; i < size; i++) {
+            expected += 2 * i;
+        }
+        assertEquals(expected, result.get(0));
+    }
+
+    @Test(timeout = 20000)
+    public void testReduceKeepsOrder() {
+        // Not associative: the fold must see the elements in order
+        final int size = FusedPipeline.BLOCK_SIZE + 5;
+        PipelineStage last = PipelineStage.reduce((acc, x) -> {
+            if ((Integer) acc + 1 != (Integer) x) {
+                throw new IllegalStateException("out of order: " + acc + " then " + x);
+            }
+            return x;
+        }, -1, false, 1);
+        ArrayList<Object> result = FusedPipeline.run(size, i -> i, Arrays.asList(PipelineStage.map(x -> x, 8), last));
+        assertEquals(size - 1, result.get(0));
+    }
+
+    @Test(timeout = 20000)
+    public void testSinglePass() {
+        final int size = 5000;
+        AtomicInteger reads = new AtomicInteger();
+        FusedPipeline.run(size, i -> {
+            reads.incrementAndGet();
+            return i;
+        }, Arrays.asList(plusOne(3), twice(3), plusOne(3)));
+        assertEquals(size, reads.get());
+    }
+
+    @Test(timeout = 20000)
+    public void testErrorPropagation() {
+        PipelineStage failing = PipelineStage.map(x -> {
+            if ((Integer) x == 777) {
+                throw new IllegalArgumentException("element 777");
+            }
+            return x;
+        }, 4);
+        try {
+            FusedPipeline.run(1000, i -> i, Arrays.asList(failing));
+            fail("the error of the function should be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("element 777", e.getMessage());
+        }
+    }
+}
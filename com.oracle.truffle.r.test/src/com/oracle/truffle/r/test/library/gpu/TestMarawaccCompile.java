@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+/**
+ * Ahead-of-time compilation with <code>marawacc.compile</code>. The types come from the arguments,
+ * so the function is not run; without a device the binary is not built, and the calls that follow
+ * still compute the right result.
+ */
+public class TestMarawaccCompile extends TestBase {
+
+    @Test
+    public void testFunctionIsNotRun() {
+        assertEvalFastR("{ n <- 0; f <- function(x) { n <<- n + 1; x * 2 }; marawacc.compile(f, \"double\"); n }", "0");
+        assertEvalFastR("{ n <- 0; f <- function(x, y) { n <<- n + 1; x * y }; marawacc.compile(f, \"double\", \"integer\", output=\"double\"); n }", "0");
+    }
+
+    @Test
+    public void testTypesFromVectors() {
+        assertEvalFastR("{ n <- 0; f <- function(x, y) { n <<- n + 1; x + y }; marawacc.compile(f, as.double(1:10), 2L, output=1.0); n }", "0");
+    }
+
+    @Test
+    public void testCallAfterCompile() {
+        assertEvalFastR("{ f <- function(x) x * 2; marawacc.compile(f, \"double\"); sum(marawacc.gpusapply(as.double(1:10), f)) }", "110");
+        // compiled for double input, called with integers: the binary of the double input is not used
+        assertEvalFastR("{ f <- function(x) x + 1L; marawacc.compile(f, \"double\"); sum(marawacc.gpusapply(1:5, f)) }", "20L");
+    }
+}
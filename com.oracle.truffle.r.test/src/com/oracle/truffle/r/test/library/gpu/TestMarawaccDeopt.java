@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.deoptimization.MarawaccDeopt;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.test.TestBase;
+
+/**
+ * The deoptimisation of <code>marawacc.sapply</code> to the R semantics: the results are simplified
+ * as <code>sapply</code> does and the shorter inputs are recycled.
+ */
+public class TestMarawaccDeopt extends TestBase {
+
+    @Test
+    public void testSimplifyScalars() {
+        RAbstractVector logicals = MarawaccDeopt.simplify(new Object[]{RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_FALSE});
+        assertTrue(logicals instanceof RAbstractLogicalVector);
+        assertEquals(RRuntime.LOGICAL_FALSE, ((RAbstractLogicalVector) logicals).getDataAt(1));
+
+        // logical < integer < double < character
+        RAbstractVector ints = MarawaccDeopt.simplify(new Object[]{1, RRuntime.LOGICAL_TRUE, 3});
+        assertTrue(ints instanceof RAbstractIntVector);
+        assertEquals(1, ((RAbstractIntVector) ints).getDataAt(1));
+
+        RAbstractVector doubles = MarawaccDeopt.simplify(new Object[]{1, 2.5, RRuntime.LOGICAL_FALSE});
+        assertTrue(doubles instanceof RAbstractDoubleVector);
+        assertEquals(3, doubles.getLength());
+        assertEquals(1.0, ((RAbstractDoubleVector) doubles).getDataAt(0), 0);
+        assertEquals(2.5, ((RAbstractDoubleVector) doubles).getDataAt(1), 0);
+        assertEquals(0.0, ((RAbstractDoubleVector) doubles).getDataAt(2), 0);
+        assertNull(((RVector) doubles).getDimensions());
+
+        RAbstractVector strings = MarawaccDeopt.simplify(new Object[]{"a", 2, RDataFactory.createStringVectorFromScalar("c")});
+        assertTrue(strings instanceof RAbstractStringVector);
+        assertEquals("2", ((RAbstractStringVector) strings).getDataAt(1));
+        assertEquals("c", ((RAbstractStringVector) strings).getDataAt(2));
+    }
+
+    @Test
+    public void testSimplifyNA() {
+        RAbstractVector doubles = MarawaccDeopt.simplify(new Object[]{RRuntime.INT_NA, 1.5});
+        assertTrue(RRuntime.isNA(((RAbstractDoubleVector) doubles).getDataAt(0)));
+        assertTrue(!doubles.isComplete());
+    }
+
+    @Test
+    public void testSimplifyEqualLengths() {
+        Object[] results = {RDataFactory.createIntVector(new int[]{1, 2, 3}, true), RDataFactory.createIntVector(new int[]{4, 5, 6}, true)};
+        RAbstractVector matrix = MarawaccDeopt.simplify(results);
+        assertTrue(matrix instanceof RAbstractIntVector);
+        assertArrayEquals(new int[]{3, 2}, ((RVector) matrix).getDimensions());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i + 1, ((RAbstractIntVector) matrix).getDataAt(i));
+        }
+
+        // the columns are coerced to the widest type
+        results = new Object[]{RDataFactory.createIntVector(new int[]{1, 2}, true), RDataFactory.createDoubleVector(new double[]{0.5, 1.5}, true)};
+        matrix = MarawaccDeopt.simplify(results);
+        assertTrue(matrix instanceof RAbstractDoubleVector);
+        assertArrayEquals(new int[]{2, 2}, ((RVector) matrix).getDimensions());
+        assertEquals(2.0, ((RAbstractDoubleVector) matrix).getDataAt(1), 0);
+        assertEquals(1.5, ((RAbstractDoubleVector) matrix).getDataAt(3), 0);
+    }
+
+    @Test
+    public void testSimplifyMixedLengths() {
+        Object[] results = {1.0, RDataFactory.createDoubleVector(new double[]{2, 3}, true)};
+        RAbstractVector list = MarawaccDeopt.simplify(results);
+        assertTrue(list instanceof RList);
+        assertEquals(2, list.getLength());
+        assertEquals(results[1], ((RList) list).getDataAt(1));
+
+        // a result of length zero does not simplify
+        results = new Object[]{RDataFactory.createEmptyDoubleVector(), RDataFactory.createEmptyDoubleVector()};
+        assertTrue(MarawaccDeopt.simplify(results) instanceof RList);
+
+        // neither do results that are not atomic
+        results = new Object[]{1.0, RDataFactory.createList(new Object[]{1.0})};
+        assertTrue(MarawaccDeopt.simplify(results) instanceof RList);
+
+        assertEquals(0, MarawaccDeopt.simplify(new Object[0]).getLength());
+    }
+
+    @Test
+    public void testDeoptSimplify() {
+        // character input is not supported by Marawacc, so these run in the deoptimised path
+        assertEvalFastR("{ f <- function(x) nchar(x); marawacc.sapply(c(a = \"x\", b = \"yy\", c = \"zzz\"), f) }", "c(a = 1L, b = 2L, c = 3L)");
+        assertEvalFastR("{ f <- function(x) c(x, x); marawacc.sapply(c(\"a\", \"b\"), f) }", "matrix(c(\"a\", \"a\", \"b\", \"b\"), 2)");
+        assertEvalFastR("{ f <- function(x) rep(x, nchar(x)); marawacc.sapply(c(\"a\", \"bb\"), f) }", "list(\"a\", c(\"bb\", \"bb\"))");
+    }
+
+    @Test
+    public void testDeoptRecycling() {
+        assertEvalFastR("{ f <- function(x, y) paste(x, y); marawacc.sapply(c(\"a\", \"b\", \"c\", \"d\"), f, 1, c(\"u\", \"v\")) }", "c(\"a u\", \"b v\", \"c u\", \"d v\")");
+        // the input is the shorter one
+        assertEvalFastR("{ f <- function(x, y) paste(x, y); marawacc.sapply(\"a\", f, 1, c(\"u\", \"v\", \"w\")) }", "c(\"a u\", \"a v\", \"a w\")");
+        // two additional arguments of different lengths
+        assertEvalFastR("{ f <- function(x, y, z) paste(x, y, z); marawacc.sapply(c(\"a\", \"b\"), f, 1, c(\"u\", \"v\", \"w\", \"x\"), \"k\") }",
+                        "c(\"a u k\", \"b v k\", \"a w k\", \"b x k\")");
+    }
+}
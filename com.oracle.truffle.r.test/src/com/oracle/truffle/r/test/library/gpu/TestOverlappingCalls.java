@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+/**
+ * Calls of the GPU builtins that overlap in several threads (<code>astx.async</code>). Each thread
+ * gets its own executors, so the results must not mix. Without a device they run on the CPU backend.
+ */
+public class TestOverlappingCalls extends TestBase {
+
+    @Test
+    public void testOverlappingMApply() {
+        assertEvalFastR("{ f <- function(x) x * 2; g <- function(n) marawacc.gpusapply(as.double(1:n), f); ids <- c(astx.async(g, 100L), astx.async(g, 200L), astx.async(g, 300L)); r <- astx.sync(ids); c(sum(r[[1]]), sum(r[[2]]), sum(r[[3]])) }",
+                        "c(10100, 40200, 90300)");
+        // the same binary with inputs of different sizes, many times
+        assertEvalFastR("{ f <- function(x) x + 1; g <- function(n) marawacc.gpusapply(as.double(1:n), f); ids <- sapply(rep(c(10L, 1000L), 8), function(n) astx.async(g, n)); r <- astx.sync(ids); sapply(r, length) }",
+                        "rep(c(10L, 1000L), 8)");
+        // the threads finished, the next call in this thread still works
+        assertEvalFastR("{ f <- function(x) x * 3; g <- function(n) marawacc.gpusapply(as.double(1:n), f); astx.sync(c(astx.async(g, 50L), astx.async(g, 60L))); sum(marawacc.gpusapply(as.double(1:10), f)) }",
+                        "165");
+    }
+}
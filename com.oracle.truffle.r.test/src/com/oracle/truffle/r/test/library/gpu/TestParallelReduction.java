@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.reduction.ParallelReduction;
+
+public class TestParallelReduction {
+
+    private static Object sumDouble(Object x, Object y) {
+        return (Double) x + (Double) y;
+    }
+
+    @Test
+    public void testEmptyInput() {
+        assertEquals(3.5, ParallelReduction.reduce(0, i -> 1.0, TestParallelReduction::sumDouble, 3.5, 4, true));
+        assertEquals(3.5, ParallelReduction.reduce(0, i -> 1.0, TestParallelReduction::sumDouble, 3.5, 4, false));
+    }
+
+    @Test(timeout = 20000)
+    public void testIntegerSum() {
+        final int size = 10 * ParallelReduction.CHUNK_SIZE + 123;
+        long expected = 7;
+        for (int i = 0; i < size; i++) {
+            expected += i;
+        }
+        for (int nThreads : new int[]{1, 2, 3, 8}) {
+            Object result = ParallelReduction.reduce(size, i -> (long) i, (x, y) -> (Long) x + (Long) y, 7L, nThreads, true);
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testDoubleIsReproducible() {
+        final int size = 37 * ParallelReduction.CHUNK_SIZE + 11;
+        Object reference = ParallelReduction.reduce(size, i -> 1.0 / (i + 1), TestParallelReduction::sumDouble, 0.0, 1, true);
+        for (int nThreads : new int[]{2, 4, 7, 16}) {
+            for (int repeat = 0; repeat < 3; repeat++) {
+                Object result = ParallelReduction.reduce(size, i -> 1.0 / (i + 1), TestParallelReduction::sumDouble, 0.0, nThreads, true);
+                assertEquals(Double.doubleToLongBits((Double) reference), Double.doubleToLongBits((Double) result));
+            }
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testCombineKeepsOrder() {
+        // Associative but not commutative
+        final int size = 5 * ParallelReduction.CHUNK_SIZE + 1;
+        StringBuilder expected = new StringBuilder(">");
+        for (int i = 0; i < size; i++) {
+            expected.append((char) ('a' + i % 26));
+        }
+        Object result = ParallelReduction.reduce(size, i -> String.valueOf((char) ('a' + i % 26)), (x, y) -> (String) x + (String) y, ">", 4, true);
+        assertEquals(expected.toString(), result);
+    }
+
+    @Test
+    public void testCombineTree() {
+        Object[] partials = new Object[]{"a", "b", "c", "d", "e"};
+        assertEquals("(((ab)(cd))e)", ParallelReduction.combine(partials, (x, y) -> "(" + x + y + ")"));
+        assertEquals("a", ParallelReduction.combine(new Object[]{"a"}, (x, y) -> "(" + x + y + ")"));
+        // the partials are not modified
+        assertEquals("b", partials[1]);
+    }
+
+    @Test
+    public void testNonAssociativeIsLeftFold() {
+        // (((10 - 0) - 1) - 2) ...
+        final int size = 3 * ParallelReduction.CHUNK_SIZE;
+        long expected = 10;
+        for (int i = 0; i < size; i++) {
+            expected -= i;
+        }
+        Object result = ParallelReduction.reduce(size, i -> (long) i, (x, y) -> (Long) x - (Long) y, 10L, 8, false);
+        assertEquals(expected, result);
+    }
+
+    @Test(timeout = 20000)
+    public void testErrorPropagation() {
+        final int size = 8 * ParallelReduction.CHUNK_SIZE;
+        try {
+            ParallelReduction.reduce(size, i -> {
+                if (i == size - 5) {
+                    throw new IllegalStateException("bad element");
+                }
+                return 1.0;
+            }, TestParallelReduction::sumDouble, 0.0, 4, true);
+            fail("the error should be thrown to the caller");
+        } catch (IllegalStateException e) {
+            assertEquals("bad element", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.cache.PerThread;
+
+public class TestPerThread {
+
+    private static Thread start(PerThread<String> values, String value) throws InterruptedException {
+        Thread thread = new Thread(() -> values.put(value));
+        thread.start();
+        thread.join();
+        return thread;
+    }
+
+    @Test(timeout = 10000)
+    public void testOneValuePerThread() throws InterruptedException {
+        PerThread<String> values = new PerThread<>(v -> {
+        });
+        assertNull(values.put("main"));
+        start(values, "other");
+        assertEquals("main", values.get());
+        assertEquals(2, values.size());
+        assertEquals("main", values.put("main2"));
+        assertEquals("main2", values.remove());
+        assertNull(values.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testFinishedThreadsAreReleased() throws InterruptedException {
+        List<String> released = Collections.synchronizedList(new ArrayList<>());
+        PerThread<String> values = new PerThread<>(released::add);
+        values.setBytesEach(100);
+        values.put("main");
+        start(values, "a");
+        start(values, "b");
+        // the executors of the finished threads are still accounted for
+        assertEquals(300, values.totalBytes());
+
+        assertTrue(values.releaseFinished());
+        Collections.sort(released);
+        assertEquals(2, released.size());
+        assertEquals("a", released.get(0));
+        assertEquals("b", released.get(1));
+        assertEquals(100, values.totalBytes());
+        assertEquals("main", values.get());
+        assertFalse(values.releaseFinished());
+    }
+
+    @Test(timeout = 10000)
+    public void testRunningThreadsAreKept() throws InterruptedException {
+        List<String> released = Collections.synchronizedList(new ArrayList<>());
+        PerThread<String> values = new PerThread<>(released::add);
+        CountDownLatch stored = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread running = new Thread(() -> {
+            values.put("running");
+            stored.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        running.start();
+        stored.await();
+        assertFalse(values.releaseFinished());
+        assertEquals(1, values.size());
+
+        finish.countDown();
+        running.join();
+        assertTrue(values.releaseFinished());
+        assertEquals(1, released.size());
+        assertSame("running", released.get(0));
+    }
+
+    @Test(timeout = 10000)
+    public void testRemoveAll() throws InterruptedException {
+        List<String> released = new ArrayList<>();
+        PerThread<String> values = new PerThread<>(released::add);
+        values.put("main");
+        start(values, "other");
+        assertEquals(2, values.removeAll().size());
+        assertEquals(0, values.size());
+        assertTrue(released.isEmpty());
+    }
+}
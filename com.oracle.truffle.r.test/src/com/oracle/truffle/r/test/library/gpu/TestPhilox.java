@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.intrinsics.Philox;
+
+public class TestPhilox {
+
+    @Test(timeout = 10000)
+    public void testKnownAnswers() {
+        // Known-answer vectors of the reference implementation (Random123)
+        assertArrayEquals(new int[]{0x6627e8d5, 0xe169c58d, 0xbc57ac4c, 0x9b00dbd8}, Philox.block(0, 0, 0, 0, 0, 0));
+        assertArrayEquals(new int[]{0x408f276d, 0x41c83b0e, 0xa20bc7c6, 0x6d5451fd}, Philox.block(-1, -1, -1, -1, -1, -1));
+        assertArrayEquals(new int[]{0xd16cfe09, 0x94fdcceb, 0x5001e420, 0x24126ea1}, Philox.block(0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344, 0xa4093822, 0x299f31d0));
+    }
+
+    @Test(timeout = 10000)
+    public void testRange() {
+        for (int i = 0; i < 100000; i++) {
+            double value = Philox.uniform(42, 3, i);
+            assertTrue(value >= 0.0 && value < 1.0);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStreams() {
+        assertEquals(Philox.uniform(7, 1, 100), Philox.uniform(7, 1, 100), 0.0);
+        assertTrue(Philox.uniform(7, 1, 100) != Philox.uniform(7, 2, 100));
+        assertTrue(Philox.uniform(7, 1, 100) != Philox.uniform(8, 1, 100));
+        assertTrue(Philox.uniform(7, 1, 100) != Philox.uniform(7, 1, 101));
+    }
+
+    @Test(timeout = 20000)
+    public void testVectorIndependentOfChunking() {
+        int size = 100000;
+        double[] all = Philox.uniformVector(size, 1234, 5, 0);
+        double[] first = Philox.uniformVector(size / 3, 1234, 5, 0);
+        double[] rest = Philox.uniformVector(size - size / 3, 1234, 5, size / 3);
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double expected = Philox.uniform(1234, 5, i);
+            assertEquals(expected, all[i], 0.0);
+            assertEquals(expected, (i < first.length) ? first[i] : rest[i - first.length], 0.0);
+            sum += all[i];
+        }
+        assertEquals(0.5, sum / size, 0.01);
+    }
+}
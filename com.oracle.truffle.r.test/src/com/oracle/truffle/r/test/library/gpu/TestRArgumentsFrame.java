@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+/**
+ * The element loops of the builtins reuse the arguments array of the function between elements,
+ * unless the frame of a call may escape it.
+ */
+public class TestRArgumentsFrame extends TestBase {
+
+    @Test
+    public void testReuse() {
+        assertEvalFastR("{ f <- function(x) x * 2; marawacc.sapply(1:5, f) }", "c(2, 4, 6, 8, 10)");
+        assertEvalFastR("{ f <- function(x, y) x + y; marawacc.sapply(1:4, f, 1, 11:14) }", "c(12L, 14L, 16L, 18L)");
+        assertEvalFastR("{ f <- function(x, y) x * y; marawacc.sapply(c(1.5, 2.5, 3.5), f, 1, c(2, 4, 6)) }", "c(3, 10, 21)");
+    }
+
+    @Test
+    public void testEscapingClosure() {
+        // every closure keeps the value of its own call
+        assertEvalFastR("{ fs <- list(); f <- function(x) { fs[[length(fs) + 1]] <<- function() x; x }; marawacc.sapply(1:4, f); sapply(fs, function(g) g()) }", "c(1L, 2L, 3L, 4L)");
+        assertEvalFastR("{ fs <- list(); f <- function(x, y) { fs[[length(fs) + 1]] <<- function() x + y; x }; marawacc.sapply(1:4, f, 1, 4:1); sapply(fs, function(g) g()) }",
+                        "c(5L, 5L, 5L, 5L)");
+    }
+
+    @Test
+    public void testEscapingEnvironment() {
+        assertEvalFastR("{ envs <- list(); f <- function(x) { envs[[x]] <<- environment(); x }; marawacc.sapply(1:4, f); sapply(envs, function(e) get('x', envir = e)) }", "c(1L, 2L, 3L, 4L)");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.r.library.gpu.cache.RCacheObjects;
+import com.oracle.truffle.r.library.gpu.cache.RFunctionMetadata;
+import com.oracle.truffle.r.library.gpu.cache.RGPUCache;
+import com.oracle.truffle.r.library.gpu.types.TypeInfo;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RFunction;
+
+public class TestRGPUCache {
+
+    private static final class ConstantRoot extends RootNode {
+
+        ConstantRoot() {
+            super(TruffleLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return 42.0;
+        }
+    }
+
+    private static final RootCallTarget TARGET = Truffle.getRuntime().createCallTarget(new ConstantRoot());
+
+    /**
+     * Function with its entry in the cache, including the metadata of its first call.
+     */
+    private static WeakReference<RFunction> cachedFunction() {
+        RFunction function = RDataFactory.createFunction("f", TARGET, null, null, null, false);
+        assertSame(TARGET, RGPUCache.INSTANCE.lookup(function));
+        RCacheObjects cachedObjects = RGPUCache.INSTANCE.getCachedObjects(function);
+        Object value = function.getTarget().call();
+        cachedObjects.insertRFuctionMetadata(new RFunctionMetadata(1, new String[]{"x"}, value, TypeInfo.DOUBLE, null, null, null));
+        assertNotNull(RGPUCache.INSTANCE.getCachedObjects(function).getRFunctionMetadata());
+        return new WeakReference<>(function);
+    }
+
+    @Test(timeout = 30000)
+    public void testEntryIsRemovedWhenTheFunctionIsCollected() throws InterruptedException {
+        int before = RGPUCache.INSTANCE.getCache().size();
+        WeakReference<RFunction> function = cachedFunction();
+        assertEquals(before + 1, RGPUCache.INSTANCE.getCache().size());
+
+        // the cached value must not keep its own key alive
+        while (function.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(function.get());
+
+        // the collected key is expunged on the next access
+        RGPUCache.INSTANCE.getCallTarget(RDataFactory.createFunction("g", TARGET, null, null, null, false));
+        assertEquals(before, RGPUCache.INSTANCE.getCache().size());
+    }
+}
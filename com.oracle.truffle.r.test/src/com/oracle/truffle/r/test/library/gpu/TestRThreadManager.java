@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.astx.threads.RThreadManager;
+
+public class TestRThreadManager {
+
+    @Test(timeout = 10000)
+    public void testValues() {
+        RThreadManager manager = new RThreadManager(2);
+        int a = manager.submit(() -> 10);
+        int b = manager.submit(() -> "hello");
+        assertEquals("hello", manager.join(b));
+        assertEquals(10, manager.join(a));
+        assertEquals(0, manager.getNumberOfPendingThreads());
+    }
+
+    @Test(timeout = 10000)
+    public void testStableHandles() {
+        RThreadManager manager = new RThreadManager(2);
+        int[] handles = new int[5];
+        for (int i = 0; i < handles.length; i++) {
+            final int value = i;
+            handles[i] = manager.submit(() -> value);
+        }
+        // releasing a handle does not change the others
+        assertEquals(0, manager.join(handles[0]));
+        assertEquals(2, manager.join(handles[2]));
+        assertEquals(4, manager.join(handles[4]));
+        assertEquals(1, manager.join(handles[1]));
+        assertEquals(3, manager.join(handles[3]));
+        try {
+            manager.join(handles[3]);
+            fail("a released handle should not be joined again");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentSubmit() throws InterruptedException {
+        RThreadManager manager = new RThreadManager(4);
+        final int perThread = 200;
+        Thread[] threads = new Thread[4];
+        int[][] handles = new int[threads.length][perThread];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    final int value = id * perThread + i;
+                    handles[id][i] = manager.submit(() -> value);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertEquals(t * perThread + i, manager.join(handles[t][i]));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testJoinAllInOrder() {
+        RThreadManager manager = new RThreadManager(3);
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            manager.submit(() -> {
+                try {
+                    Thread.sleep(10 - value);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return value;
+            });
+        }
+        ArrayList<Object> values = manager.joinAll();
+        assertEquals(10, values.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, values.get(i));
+        }
+        assertEquals(0, manager.getNumberOfPendingThreads());
+    }
+
+    @Test(timeout = 10000)
+    public void testMaxWorkers() throws InterruptedException {
+        final int maxWorkers = 2;
+        RThreadManager manager = new RThreadManager(maxWorkers);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(maxWorkers);
+        for (int i = 0; i < 8; i++) {
+            manager.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+                return null;
+            });
+        }
+        started.await();
+        manager.joinAll();
+        assertTrue(maxRunning.get() <= maxWorkers);
+        assertEquals(maxWorkers, manager.getMaxWorkers());
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorIsThrownToCaller() {
+        RThreadManager manager = new RThreadManager(1);
+        int handle = manager.submit(() -> {
+            throw new IllegalArgumentException("task failed");
+        });
+        try {
+            manager.join(handle);
+            fail("the error of the task should be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("task failed", e.getMessage());
+        }
+        assertEquals(0, manager.getNumberOfPendingThreads());
+    }
+}
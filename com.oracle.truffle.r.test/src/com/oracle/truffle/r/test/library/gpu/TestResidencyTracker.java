@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.device.ResidencyTracker;
+import com.oracle.truffle.r.library.gpu.utils.ASTxUtils;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.ops.na.NACheck;
+
+public class TestResidencyTracker {
+
+    private static final ResidencyTracker tracker = ResidencyTracker.INSTANCE;
+
+    @Test(timeout = 10000)
+    public void testSameVersionIsCurrent() {
+        Object owner = new Object();
+        Object vector = new Object();
+        tracker.record(owner, 0, vector, 3);
+        assertTrue(tracker.isCurrent(owner, 0, vector, 3));
+        assertFalse(tracker.isCurrent(owner, 1, vector, 3));
+        assertFalse(tracker.isCurrent(new Object(), 0, vector, 3));
+    }
+
+    @Test(timeout = 10000)
+    public void testModifiedOrReassigned() {
+        Object owner = new Object();
+        Object vector = new Object();
+        tracker.record(owner, 0, vector, 3);
+        // modified in place
+        assertFalse(tracker.isCurrent(owner, 0, vector, 4));
+        // variable bound to another vector
+        assertFalse(tracker.isCurrent(owner, 0, new Object(), 3));
+    }
+
+    @Test(timeout = 10000)
+    public void testUnversionedIsNeverCurrent() {
+        Object owner = new Object();
+        Object vector = new Object();
+        tracker.record(owner, 0, vector, ResidencyTracker.UNVERSIONED);
+        assertFalse(tracker.isCurrent(owner, 0, vector, ResidencyTracker.UNVERSIONED));
+    }
+
+    @Test(timeout = 10000)
+    public void testResidentCopy() {
+        Object executor = new Object();
+        Object input = new Object();
+        Object arg = new Object();
+        Object device = new Object();
+        tracker.setResident(executor, new Object[]{input, arg}, new int[]{0, 1}, device);
+        assertSame(device, tracker.getResident(executor, new Object[]{input, arg}, new int[]{0, 1}));
+        assertNull(tracker.getResident(executor, new Object[]{input, arg}, new int[]{0, 2}));
+        assertNull(tracker.getResident(executor, new Object[]{input}, new int[]{0}));
+        assertNull(tracker.getResident(executor, new Object[]{arg, input}, new int[]{1, 0}));
+    }
+
+    @Test(timeout = 10000)
+    public void testInvalidate() {
+        Object executor = new Object();
+        Object input = new Object();
+        tracker.setResident(executor, new Object[]{input}, new int[]{0}, new Object());
+        tracker.record(executor, 0, input, 0);
+        tracker.invalidate(executor);
+        assertNull(tracker.getResident(executor, new Object[]{input}, new int[]{0}));
+        assertFalse(tracker.isCurrent(executor, 0, input, 0));
+    }
+
+    /**
+     * Scope arrays of a compiled function copied from <code>vector</code>, as
+     * {@link ASTxUtils#getValueOfScopeArrays} leaves them.
+     */
+    private static Object[] scopeArrays(RDoubleVector vector) {
+        Object[] scopeArrays = new Object[]{vector.getDataCopy()};
+        tracker.record(scopeArrays, 0, vector, ASTxUtils.getVersion(vector));
+        return scopeArrays;
+    }
+
+    @Test(timeout = 10000)
+    public void testRefreshPicksUpChangedScopeVector() {
+        RDoubleVector vector = RDataFactory.createDoubleVector(new double[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        Object[] scopeArrays = scopeArrays(vector);
+        double[] copy = (double[]) scopeArrays[0];
+        vector.updateDataAt(1, 20, NACheck.create());
+        assertTrue(ASTxUtils.refreshScopeArray(scopeArrays, 0, vector));
+        // updated in place, the compiled kernel keeps its reference
+        assertSame(copy, scopeArrays[0]);
+        assertArrayEquals(new double[]{1, 20, 3}, copy, 0.0);
+
+        // variable bound to another vector of the same length
+        RDoubleVector other = RDataFactory.createDoubleVector(new double[]{7, 8, 9}, RDataFactory.COMPLETE_VECTOR);
+        assertTrue(ASTxUtils.refreshScopeArray(scopeArrays, 0, other));
+        assertArrayEquals(new double[]{7, 8, 9}, copy, 0.0);
+    }
+
+    @Test(timeout = 10000)
+    public void testRefreshSkipsTheCopyWhenVersionsMatch() {
+        RDoubleVector vector = RDataFactory.createDoubleVector(new double[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        Object[] scopeArrays = scopeArrays(vector);
+        // a marker that only a copy would overwrite
+        ((double[]) scopeArrays[0])[0] = -1;
+        assertTrue(ASTxUtils.refreshScopeArray(scopeArrays, 0, vector));
+        assertArrayEquals(new double[]{-1, 2, 3}, (double[]) scopeArrays[0], 0.0);
+    }
+
+    @Test(timeout = 10000)
+    public void testRefreshRejectsTypeOrLengthChanges() {
+        RDoubleVector vector = RDataFactory.createDoubleVector(new double[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        Object[] scopeArrays = scopeArrays(vector);
+        assertFalse(ASTxUtils.refreshScopeArray(scopeArrays, 0, RDataFactory.createDoubleVector(new double[]{1, 2}, RDataFactory.COMPLETE_VECTOR)));
+        assertFalse(ASTxUtils.refreshScopeArray(scopeArrays, 0, RDataFactory.createIntVector(new int[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR)));
+        assertFalse(ASTxUtils.refreshScopeArray(scopeArrays, 0, 42.0));
+    }
+
+    @Test(timeout = 10000)
+    public void testEveryWriteBumpsTheVersion() {
+        RIntVector ints = RDataFactory.createIntVector(new int[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        int version = ASTxUtils.getVersion(ints);
+        ints.setElement(0, 5);
+        assertTrue(ASTxUtils.getVersion(ints) > version);
+        version = ASTxUtils.getVersion(ints);
+        ints.transferElementSameType(1, RDataFactory.createIntVector(new int[]{9}, RDataFactory.COMPLETE_VECTOR), 0);
+        assertTrue(ASTxUtils.getVersion(ints) > version);
+        version = ASTxUtils.getVersion(ints);
+        ints.setDataAt(ints.getInternalStore(), 2, 4);
+        assertTrue(ASTxUtils.getVersion(ints) > version);
+
+        RDoubleVector doubles = RDataFactory.createDoubleVector(new double[]{1, 2}, RDataFactory.COMPLETE_VECTOR);
+        version = ASTxUtils.getVersion(doubles);
+        doubles.transferElementSameType(0, RDataFactory.createDoubleVector(new double[]{3}, RDataFactory.COMPLETE_VECTOR), 0);
+        assertTrue(ASTxUtils.getVersion(doubles) > version);
+    }
+
+    @Test(timeout = 10000)
+    public void testWriteThroughTheStoreIsPickedUp() {
+        RDoubleVector vector = RDataFactory.createDoubleVector(new double[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        Object[] scopeArrays = scopeArrays(vector);
+        // as a builtin that writes in place
+        vector.getDataWithoutCopying()[0] = 10;
+        assertTrue(ASTxUtils.refreshScopeArray(scopeArrays, 0, vector));
+        assertArrayEquals(new double[]{10, 2, 3}, (double[]) scopeArrays[0], 0.0);
+
+        RIntVector ints = RDataFactory.createIntVector(new int[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        int version = ASTxUtils.getVersion(ints);
+        ints.getInternalStore()[1] = 20;
+        assertTrue(ASTxUtils.getVersion(ints) > version);
+        // reading does not invalidate the copies
+        version = ASTxUtils.getVersion(ints);
+        assertEquals(20, ints.getReadonlyData()[1]);
+        assertEquals(version, ASTxUtils.getVersion(ints));
+    }
+
+    @Test(timeout = 10000)
+    public void testOtherVectorsAreUnversioned() {
+        RLogicalVector logicals = RDataFactory.createLogicalVector(new byte[]{1, 0}, RDataFactory.COMPLETE_VECTOR);
+        assertEquals(ResidencyTracker.UNVERSIONED, ASTxUtils.getVersion(logicals));
+        assertEquals(ResidencyTracker.UNVERSIONED, ASTxUtils.getVersion(RDataFactory.createList(new Object[]{1})));
+        assertEquals(0, ASTxUtils.getVersion(RDataFactory.createIntSequence(1, 1, 10)));
+    }
+
+    @Test(timeout = 10000)
+    public void testResidentCopyOfVectors() {
+        Object executor = new Object();
+        RIntVector input = RDataFactory.createIntVector(new int[]{1, 2, 3}, RDataFactory.COMPLETE_VECTOR);
+        Object[] sources = new Object[]{input};
+        Object device = new Object();
+        tracker.setResident(executor, sources, new int[]{ASTxUtils.getVersion(input)}, device);
+        // copy-in skipped: same vector, same version
+        assertSame(device, tracker.getResident(executor, sources, new int[]{ASTxUtils.getVersion(input)}));
+        input.setElement(0, 10);
+        assertNull(tracker.getResident(executor, sources, new int[]{ASTxUtils.getVersion(input)}));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.apply.SliceApply;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.test.TestBase;
+
+/**
+ * <code>marawacc.apply</code> must give what <code>apply</code> gives, with one or several
+ * threads.
+ */
+public class TestSliceApply extends TestBase {
+
+    @Test
+    public void testCombineScalars() {
+        RAbstractVector doubles = SliceApply.combine(new Object[]{1.5, 2, RRuntime.LOGICAL_TRUE});
+        assertTrue(doubles instanceof RAbstractDoubleVector);
+        assertNull(((RVector) doubles).getDimensions());
+        assertEquals(2.0, ((RAbstractDoubleVector) doubles).getDataAt(1), 0);
+        assertEquals(1.0, ((RAbstractDoubleVector) doubles).getDataAt(2), 0);
+
+        RAbstractVector ints = SliceApply.combine(new Object[]{1, RRuntime.LOGICAL_FALSE, RRuntime.INT_NA});
+        assertTrue(ints instanceof RAbstractIntVector);
+        assertEquals(0, ((RAbstractIntVector) ints).getDataAt(1));
+        assertFalse(ints.isComplete());
+
+        RAbstractVector logicals = SliceApply.combine(new Object[]{RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_FALSE});
+        assertTrue(logicals instanceof RAbstractLogicalVector);
+        assertEquals(RRuntime.LOGICAL_FALSE, ((RAbstractLogicalVector) logicals).getDataAt(1));
+        assertTrue(logicals.isComplete());
+    }
+
+    @Test
+    public void testCombineMatrix() {
+        Object[] results = {RDataFactory.createLogicalVector(new byte[]{RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_NA}, false),
+                        RDataFactory.createLogicalVector(new byte[]{RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_TRUE}, true)};
+        RAbstractVector logicals = SliceApply.combine(results);
+        assertTrue(logicals instanceof RAbstractLogicalVector);
+        assertArrayEquals(new int[]{2, 2}, ((RVector) logicals).getDimensions());
+        assertEquals(RRuntime.LOGICAL_NA, ((RAbstractLogicalVector) logicals).getDataAt(1));
+        assertEquals(RRuntime.LOGICAL_FALSE, ((RAbstractLogicalVector) logicals).getDataAt(2));
+        assertFalse(logicals.isComplete());
+
+        results = new Object[]{RDataFactory.createIntVector(new int[]{1, 2, 3}, true), RDataFactory.createDoubleVector(new double[]{0.5, 1.5, 2.5}, true)};
+        RAbstractVector doubles = SliceApply.combine(results);
+        assertTrue(doubles instanceof RAbstractDoubleVector);
+        assertArrayEquals(new int[]{3, 2}, ((RVector) doubles).getDimensions());
+        assertEquals(3.0, ((RAbstractDoubleVector) doubles).getDataAt(2), 0);
+        assertEquals(0.5, ((RAbstractDoubleVector) doubles).getDataAt(3), 0);
+    }
+
+    @Test
+    public void testCombineList() {
+        // different lengths
+        assertTrue(SliceApply.combine(new Object[]{1.0, RDataFactory.createDoubleVector(new double[]{1, 2}, true)}) instanceof RList);
+        // not atomic numbers or logicals
+        assertTrue(SliceApply.combine(new Object[]{1.0, "a"}) instanceof RList);
+        // empty results
+        assertTrue(SliceApply.combine(new Object[]{RDataFactory.createEmptyDoubleVector()}) instanceof RList);
+        assertTrue(SliceApply.combine(new Object[0]) instanceof RList);
+    }
+
+    @Test
+    public void testSlicesAreNotShared() {
+        // a slice returned in a list, or kept by a closure, does not see a later update of X
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); r <- marawacc.apply(m, 2, function(c) if (c[1] > 2) c else list(c)); m[1, 1] <- 100; m[2, 3] <- 100; r }",
+                        "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) if (c[1] > 2) c else list(c)) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); fs <- marawacc.apply(m, 1, function(r) list(function() r)); m[1, 2] <- 100; fs[[1]][[1]]() }", "c(1, 3, 5)");
+    }
+
+    @Test
+    public void testNames() {
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2, dimnames=list(c('a', 'b'), c('x', 'y', 'z'))); marawacc.apply(m, 1, sum) }",
+                        "{ m <- matrix(as.double(1:6), 2, dimnames=list(c('a', 'b'), c('x', 'y', 'z'))); apply(m, 1, sum) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2, dimnames=list(c('a', 'b'), c('x', 'y', 'z'))); marawacc.apply(m, 2, function(c) c(p=c[[1]], q=c[[2]])) }",
+                        "{ m <- matrix(as.double(1:6), 2, dimnames=list(c('a', 'b'), c('x', 'y', 'z'))); apply(m, 2, function(c) c(p=c[[1]], q=c[[2]])) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2, dimnames=list(NULL, c('x', 'y', 'z'))); marawacc.apply(m, 2, function(c) c[c > 2]) }",
+                        "{ m <- matrix(as.double(1:6), 2, dimnames=list(NULL, c('x', 'y', 'z'))); apply(m, 2, function(c) c[c > 2]) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 2, function(c) c(p=c[[1]], q=c[[2]])) }",
+                        "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) c(p=c[[1]], q=c[[2]])) }");
+    }
+
+    @Test
+    public void testRows() {
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 1, function(r) sum(r)) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 1, function(r) sum(r)) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 1, function(r) r * 2) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 1, function(r) r * 2) }");
+        assertEvalFastR("{ m <- matrix(1:12, 3); marawacc.apply(m, 1, function(r, k) sum(r) + k, 1, 100) }", "{ m <- matrix(1:12, 3); apply(m, 1, function(r, k) sum(r) + k, 100) }");
+    }
+
+    @Test
+    public void testColumns() {
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 2, function(c) sum(c)) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) sum(c)) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 2, function(c) rev(c)) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) rev(c)) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 2, function(c) c[c > 2]) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) c[c > 2]) }");
+    }
+
+    @Test
+    public void testLogicalResults() {
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 1, function(r) all(r > 1)) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 1, function(r) all(r > 1)) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:6), 2); marawacc.apply(m, 2, function(c) c > 2) }", "{ m <- matrix(as.double(1:6), 2); apply(m, 2, function(c) c > 2) }");
+        assertEvalFastR("{ m <- matrix(c(1, NA, 3, 4), 2); marawacc.apply(m, 2, function(c) any(is.na(c))) }", "{ m <- matrix(c(1, NA, 3, 4), 2); apply(m, 2, function(c) any(is.na(c))) }");
+    }
+
+    @Test
+    public void testThreads() {
+        assertEvalFastR("{ m <- matrix(as.double(1:20000), 20); sum(marawacc.apply(m, 2, function(c) sum(c), 4)) }", "{ m <- matrix(as.double(1:20000), 20); sum(apply(m, 2, function(c) sum(c))) }");
+        assertEvalFastR("{ m <- matrix(as.double(1:20000), 200); identical(marawacc.apply(m, 1, function(r) max(r) > 19900, 4), apply(m, 1, function(r) max(r) > 19900)) }", "TRUE");
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.r.library.gpu.types.TypeInfo;
+import com.oracle.truffle.r.library.gpu.types.TypeInfoList;
+import com.oracle.truffle.r.library.gpu.types.TypeProfile;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestTypeProfile extends TestBase {
+
+    private static final class ConstantRoot extends RootNode {
+
+        ConstantRoot() {
+            super(TruffleLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return 42.0;
+        }
+    }
+
+    private static final RootCallTarget TARGET = Truffle.getRuntime().createCallTarget(new ConstantRoot());
+
+    private static final String[] ARGS = {"x"};
+
+    private static TypeInfoList types(TypeInfo... list) {
+        TypeInfoList types = new TypeInfoList();
+        for (TypeInfo t : list) {
+            types.add(t);
+        }
+        return types;
+    }
+
+    private static RAbstractVector doubles() {
+        return RDataFactory.createDoubleVector(new double[]{1, 2, 3}, true);
+    }
+
+    @Test
+    public void testHit() {
+        TypeProfile profile = new TypeProfile();
+        RFunction f = RDataFactory.createFunction("f", TARGET, null, null, null, false);
+        TypeInfoList inputTypes = types(TypeInfo.DOUBLE);
+        assertNull(profile.lookup(f, TARGET, doubles(), null));
+
+        profile.record(f, TARGET, doubles(), null, ARGS, inputTypes, TypeInfo.DOUBLE, 2.0);
+        // another input of the same class
+        TypeProfile.Entry entry = profile.lookup(f, TARGET, doubles(), null);
+        assertNotNull(entry);
+        assertTrue(entry.isValid());
+        assertSame(inputTypes, entry.getInputTypes());
+        assertSame(ARGS, entry.getArgumentsNames());
+        assertSame(TypeInfo.DOUBLE, entry.getOutputType());
+        assertTrue(entry.matchesOutput(4.0));
+        assertFalse(entry.matchesOutput(4));
+
+        RAbstractVector[] additionalArgs = {RDataFactory.createIntVector(new int[]{1}, true)};
+        profile.record(f, TARGET, doubles(), additionalArgs, new String[]{"x", "y"}, types(TypeInfo.DOUBLE, TypeInfo.INT), TypeInfo.INT, 1);
+        assertNotNull(profile.lookup(f, TARGET, doubles(), new RAbstractVector[]{RDataFactory.createIntVector(new int[]{5, 6}, true)}));
+    }
+
+    @Test
+    public void testMiss() {
+        TypeProfile profile = new TypeProfile();
+        RFunction f = RDataFactory.createFunction("f", TARGET, null, null, null, false);
+        profile.record(f, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.DOUBLE, 2.0);
+
+        // another function
+        assertNull(profile.lookup(RDataFactory.createFunction("g", TARGET, null, null, null, false), TARGET, doubles(), null));
+        // another class of input, a sequence instead of a vector
+        assertNull(profile.lookup(f, TARGET, RDataFactory.createDoubleSequence(1, 1, 3), null));
+        // another number of arguments
+        assertNull(profile.lookup(f, TARGET, doubles(), new RAbstractVector[]{doubles()}));
+        // the recorded entry is still there
+        assertNotNull(profile.lookup(f, TARGET, doubles(), null));
+
+        // only scalar outputs are recorded
+        profile.record(f, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.LIST, RDataFactory.createList(new Object[]{1.0}));
+        assertNull(profile.lookup(f, TARGET, doubles(), null));
+        profile.record(f, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.DOUBLE, 2);
+        assertNull(profile.lookup(f, TARGET, doubles(), null));
+    }
+
+    @Test
+    public void testInvalidation() {
+        TypeProfile profile = new TypeProfile();
+        RFunction f = RDataFactory.createFunction("f", TARGET, null, null, null, false);
+        profile.record(f, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.DOUBLE, 2.0);
+        TypeProfile.Entry entry = profile.lookup(f, TARGET, doubles(), null);
+        profile.invalidate();
+        assertFalse(entry.isValid());
+        assertNull(profile.lookup(f, TARGET, doubles(), null));
+
+        // recording another function invalidates the previous entry
+        profile.record(f, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.DOUBLE, 2.0);
+        entry = profile.lookup(f, TARGET, doubles(), null);
+        RFunction g = RDataFactory.createFunction("g", TARGET, null, null, null, false);
+        profile.record(g, TARGET, doubles(), null, ARGS, types(TypeInfo.DOUBLE), TypeInfo.INT, 1);
+        assertFalse(entry.isValid());
+        assertNull(profile.lookup(f, TARGET, doubles(), null));
+        assertNotNull(profile.lookup(g, TARGET, doubles(), null));
+    }
+
+    @Test
+    public void testOutputTypeChanges() {
+        // the profile of the first call does not match the output of the second one
+        assertEvalFastR("{ k <- 0; f <- function(x) if (k > 0) x * 2L else x * 2; a <- marawacc.sapply(1:4, f); k <- 1; b <- marawacc.sapply(1:4, f); list(a, b) }",
+                        "list(c(2, 4, 6, 8), c(2L, 4L, 6L, 8L))");
+        assertEvalFastR("{ k <- 0; f <- function(x) if (k > 0) x * 2L else x * 2; a <- marawacc.sapply(1:4, f, 4); k <- 1; b <- marawacc.sapply(1:4, f, 4); k <- 0; c <- marawacc.sapply(1:4, f, 4); list(a, b, c) }",
+                        "list(c(2, 4, 6, 8), c(2L, 4L, 6L, 8L), c(2, 4, 6, 8))");
+    }
+
+    @Test
+    public void testHitRunsEachElementOnce() {
+        // the same call site hits the profile from the second iteration on
+        assertEvalFastR("{ n <- 0; f <- function(x) { n <<- n + 1; x * 2 }; for (i in 1:3) { before <- n; r <- marawacc.sapply(1:10, f, 1) }; list(n - before, r) }",
+                        "list(10, seq(2, 20, by=2))");
+    }
+}
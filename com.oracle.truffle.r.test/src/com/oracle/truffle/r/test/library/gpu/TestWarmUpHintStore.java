@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.gpu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHint;
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHintKey;
+import com.oracle.truffle.r.library.gpu.cache.WarmUpHintStore;
+
+public class TestWarmUpHintStore {
+
+    private static final String SOURCE = "function(x) x * 2";
+    // multi-line source with characters that need escaping in the file
+    private static final String HINT_SOURCE = "function(x) {\n  y <- x * 2 # 'double'\n  y = y + 1\n}\n";
+
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("fastr-warm-up-hints").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static WarmUpHintKey key(String source) {
+        return WarmUpHintKey.create(source, "DOUBLE", "DOUBLE", new String[]{"a"}, "usePArrays=false");
+    }
+
+    private static WarmUpHint entry(WarmUpHintKey key, String source) {
+        HashMap<String, String> metadata = new HashMap<>();
+        metadata.put("outputType", "DOUBLE");
+        metadata.put("compileIndex", "42");
+        return new WarmUpHint(key, source, metadata);
+    }
+
+    @Test
+    public void testKey() {
+        WarmUpHintKey k = key(SOURCE);
+        assertEquals(k, key(SOURCE));
+        assertFalse(k.equals(key("function(x) x * 3")));
+        assertFalse(k.equals(WarmUpHintKey.create(SOURCE, "INT", "DOUBLE", new String[]{"a"}, "usePArrays=false")));
+        assertFalse(k.equals(WarmUpHintKey.create(SOURCE, "DOUBLE", "DOUBLE", new String[]{"b"}, "usePArrays=false")));
+        assertFalse(k.equals(WarmUpHintKey.create(SOURCE, "DOUBLE", "DOUBLE", new String[]{"a"}, "usePArrays=true")));
+        assertFalse(k.equals(WarmUpHintKey.create(SOURCE, "DOUBLE", "DOUBLE", null, "usePArrays=false")));
+        assertEquals(64, k.getHash().length());
+    }
+
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        WarmUpHintStore store = new WarmUpHintStore(tempDir(), 1024 * 1024);
+        WarmUpHintKey k = key(SOURCE);
+        assertNull(store.load(k));
+        assertTrue(store.store(entry(k, HINT_SOURCE)));
+
+        // a new instance reads what the previous session wrote
+        store = new WarmUpHintStore(store.getDirectory(), 1024 * 1024);
+        WarmUpHint loaded = store.load(k);
+        assertNotNull(loaded);
+        assertEquals(HINT_SOURCE, loaded.getSource());
+        assertEquals("42", loaded.getMetadata().get("compileIndex"));
+        assertEquals("DOUBLE", loaded.getMetadata().get("outputType"));
+    }
+
+    @Test
+    public void testCorruptedEntryIsRemoved() throws IOException {
+        File dir = tempDir();
+        WarmUpHintStore store = new WarmUpHintStore(dir, 1024 * 1024);
+        WarmUpHintKey k = key(SOURCE);
+        assertTrue(store.store(entry(k, HINT_SOURCE)));
+
+        File file = new File(dir, k.getHash() + ".hint");
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        Files.write(file.toPath(), content.replace("* 2", "* 3").getBytes(StandardCharsets.ISO_8859_1));
+
+        assertNull(store.load(k));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File dir = tempDir();
+        WarmUpHintStore store = new WarmUpHintStore(dir, 1024 * 1024);
+        WarmUpHintKey k = key(SOURCE);
+        assertTrue(store.store(entry(k, HINT_SOURCE)));
+        long entrySize = store.size();
+
+        // room for two entries
+        store = new WarmUpHintStore(dir, entrySize * 2 + entrySize / 2);
+        WarmUpHintKey k1 = key(SOURCE + " ");
+        WarmUpHintKey k2 = key(SOURCE + "  ");
+        assertTrue(store.store(entry(k1, HINT_SOURCE)));
+        new File(dir, k.getHash() + ".hint").setLastModified(System.currentTimeMillis() - 60000);
+        new File(dir, k1.getHash() + ".hint").setLastModified(System.currentTimeMillis() - 30000);
+        assertTrue(store.store(entry(k2, HINT_SOURCE)));
+
+        // the least recently used one is gone
+        assertNull(store.load(k));
+        assertNotNull(store.load(k1));
+        assertNotNull(store.load(k2));
+        assertTrue(store.size() <= entrySize * 2 + entrySize / 2);
+    }
+
+    @Test
+    public void testEntryBiggerThanTheStore() throws IOException {
+        WarmUpHintStore store = new WarmUpHintStore(tempDir(), 16);
+        WarmUpHintKey k = key(SOURCE);
+        assertFalse(store.store(entry(k, HINT_SOURCE)));
+        assertNull(store.load(k));
+    }
+}